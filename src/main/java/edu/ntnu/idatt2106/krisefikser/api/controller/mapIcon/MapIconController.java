@@ -1,15 +1,24 @@
 package edu.ntnu.idatt2106.krisefikser.api.controller.mapIcon;
 
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconChangesResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconClusterResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconImportProgressDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconRequestDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconResponseDto;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconExportService;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconImportService;
 import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -19,9 +28,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controller for handling MapIcon related requests.
@@ -33,15 +44,23 @@ import org.springframework.web.bind.annotation.RestController;
 public class MapIconController {
 
   private static final Logger logger = LoggerFactory.getLogger(MapIconController.class);
+  private static final String GEOJSON_VALUE = "application/geo+json";
   private final MapIconService mapIconService;
+  private final MapIconImportService mapIconImportService;
+  private final MapIconExportService mapIconExportService;
 
   /**
    * Constructor for MapIconController.
    *
-   * @param mapIconService the service for managing map icons
+   * @param mapIconService       the service for managing map icons
+   * @param mapIconImportService the service for bulk imports of map icons
+   * @param mapIconExportService the service for exporting all map icons
    */
-  public MapIconController(MapIconService mapIconService) {
+  public MapIconController(MapIconService mapIconService,
+      MapIconImportService mapIconImportService, MapIconExportService mapIconExportService) {
     this.mapIconService = mapIconService;
+    this.mapIconImportService = mapIconImportService;
+    this.mapIconExportService = mapIconExportService;
   }
 
   /**
@@ -69,6 +88,41 @@ public class MapIconController {
     }
   }
 
+  /**
+   * Imports map icons from a CSV or GeoJSON file sent as the request body. Progress is streamed
+   * back as newline-delimited JSON while the file is read.
+   *
+   * @param format the format of the file, CSV or GEOJSON
+   * @param body   the file to import
+   * @return a response entity streaming the progress of the import
+   */
+  @Operation(summary = "Imports map icons",
+      description = "Imports map icons from a CSV file with a header row or a GeoJSON "
+          + "FeatureCollection sent as the request body. Rows are validated and saved in chunks, "
+          + "and rejected rows and progress are streamed back as newline-delimited JSON. "
+          + "Only accessible by admins")
+  @PostMapping(value = "/import", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<StreamingResponseBody> importMapIcons(@RequestParam String format,
+      InputStream body) {
+    MapIconImportService.Format importFormat;
+    try {
+      importFormat = MapIconImportService.Format.parse(format);
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error during map icon import: {}", e.getMessage());
+      MapIconImportProgressDto failure = new MapIconImportProgressDto(
+          MapIconImportProgressDto.STATUS_FAILED, null, e.getMessage(), 0, 0, 0);
+      return ResponseEntity.badRequest()
+          .contentType(MediaType.APPLICATION_NDJSON)
+          .body(output -> mapIconImportService.writeProgress(output, failure));
+    }
+
+    logger.info("Starting map icon import in format {}", importFormat);
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(output -> mapIconImportService.importMapIcons(body, importFormat, output));
+  }
+
   /**
    * Updates an existing map icon.
    *
@@ -121,34 +175,102 @@ public class MapIconController {
   }
 
   /**
-   * Retrieves map icons within a specified radius, optionally filtered by search query.
+   * Retrieves map icons within a specified radius, optionally filtered by search query. The
+   * response carries the current map icon revision as its ETag, and a request whose If-None-Match
+   * header holds that revision gets 304 Not Modified without the icons being looked up.
    *
-   * @param latitude  the latitude of the center of the map
-   * @param longitude the longitude of the center of the map
-   * @param radiusKm  the radius in kilometers to search within
-   * @param query     optional search query to filter map icons
+   * @param latitude    the latitude of the center of the map
+   * @param longitude   the longitude of the center of the map
+   * @param radiusKm    the radius in kilometers to search within
+   * @param query       optional search query to filter map icons
+   * @param ifNoneMatch optional ETag of the map icons the client already has
    * @return a list of map icons within the specified radius
    */
   @Operation(summary = "Gets map icons",
       description = "Gets map icons within a specified radius from a given location. "
-          + "Optionally filtered by search query. Accessible to all users")
+          + "Optionally filtered by search query. Returns 304 if the map icons have not changed "
+          + "since the ETag given in If-None-Match. Accessible to all users")
   @GetMapping
   public ResponseEntity<List<MapIconResponseDto>> getMapIcons(
       @RequestParam double latitude,
       @RequestParam double longitude,
       @RequestParam double radiusKm,
-      @RequestParam(required = false) String query) {
+      @RequestParam(required = false) String query,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     try {
+      // Read the revision before the icons, so the ETag is never newer than the data it labels
+      String etag = "\"" + mapIconService.getCurrentRevision() + "\"";
+      if (matchesEtag(ifNoneMatch, etag)) {
+        logger.debug("Map icons not modified since {}", etag);
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
       List<MapIconResponseDto> icons = mapIconService.getMapIcons(latitude, longitude, radiusKm,
           query);
       logger.info("Retrieved {} map icons within radius of {} km", icons.size(), radiusKm);
-      return ResponseEntity.ok(icons);
+      return ResponseEntity.ok().eTag(etag).body(icons);
     } catch (Exception e) {
       logger.error("Error retrieving map icons: {}", e.getMessage(), e);
       return ResponseEntity.status(500).build();
     }
   }
 
+  /**
+   * Exports all map icons as a GeoJSON FeatureCollection, streamed to the client while the icons
+   * are read from the database.
+   *
+   * @param ifNoneMatch optional ETag of the export the client already has
+   * @return a response entity streaming the export, or 304 if nothing has changed
+   */
+  @Operation(summary = "Exports map icons as GeoJSON",
+      description = "Streams all map icons as a GeoJSON FeatureCollection. Returns 304 if the map "
+          + "icons have not changed since the ETag given in If-None-Match. Accessible to all users")
+  @GetMapping(value = "/export.geojson", produces = GEOJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportMapIcons(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    try {
+      long revision = mapIconService.getCurrentRevision();
+      String etag = "\"" + revision + "\"";
+      if (matchesEtag(ifNoneMatch, etag)) {
+        logger.debug("Map icon export not modified since {}", etag);
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
+      logger.info("Starting GeoJSON export of map icons at revision {}", revision);
+      return ResponseEntity.ok()
+          .eTag(etag)
+          .contentType(MediaType.parseMediaType(GEOJSON_VALUE))
+          .body(output -> mapIconExportService.writeGeoJson(output, revision));
+    } catch (Exception e) {
+      logger.error("Error exporting map icons: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).build();
+    }
+  }
+
+  /**
+   * Retrieves the map icons created, updated or deleted since a revision.
+   *
+   * @param since the revision the client already has, 0 for everything
+   * @return ResponseEntity containing the changes and the revision to sync from next time
+   */
+  @Operation(summary = "Gets map icon changes",
+      description = "Gets the map icons created or updated and the IDs of the map icons deleted "
+          + "since a given revision, together with the revision to pass as since next time. "
+          + "Accessible to all users")
+  @GetMapping("/changes")
+  public ResponseEntity<?> getMapIconChanges(@RequestParam(defaultValue = "0") long since) {
+    try {
+      MapIconChangesResponseDto changes = mapIconService.getChanges(since);
+      logger.info("Retrieved {} updated and {} deleted map icons since revision {}",
+          changes.getUpdated().size(), changes.getDeleted().size(), since);
+      return ResponseEntity.ok(changes);
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error retrieving map icon changes: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      logger.error("Error retrieving map icon changes: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
+
   /**
    * Finds the closest map icon of a specified type from a given location.
    *
@@ -177,4 +299,94 @@ public class MapIconController {
       return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
     }
   }
+
+  /**
+   * Finds the map icons closest to a given location, optionally of a specified type.
+   *
+   * @param latitude  the user's current latitude
+   * @param longitude the user's current longitude
+   * @param k         the number of map icons to return
+   * @param type      the type of map icon to find (optional - if not provided, finds icons of any
+   *                  type)
+   * @return ResponseEntity containing the closest map icons ordered by distance
+   */
+  @Operation(summary = "Finds the nearest map icons",
+      description = "Finds the k map icons closest to a given location, ordered by distance. "
+          + "If no type is provided, icons of any type are considered. Accessible to all users")
+  @GetMapping("/nearest")
+  public ResponseEntity<?> findNearestMapIcons(
+      @RequestParam double latitude,
+      @RequestParam double longitude,
+      @RequestParam(defaultValue = "5") int k,
+      @RequestParam(required = false) MapIconType type) {
+    try {
+      List<MapIconResponseDto> nearest = mapIconService.findNearestMapIcons(latitude, longitude,
+          k, type);
+      logger.info("Found {} nearest map icons", nearest.size());
+      return ResponseEntity.ok(nearest);
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error finding nearest map icons: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      logger.error("Error finding nearest map icons: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
+
+  /**
+   * Retrieves map icons inside a bounding box, aggregated into clusters for a zoom level.
+   *
+   * @param minLatitude  the southern edge of the visible map
+   * @param minLongitude the western edge of the visible map
+   * @param maxLatitude  the northern edge of the visible map
+   * @param maxLongitude the eastern edge of the visible map
+   * @param zoom         the zoom level of the map
+   * @return ResponseEntity containing the clusters in the bounding box
+   */
+  @Operation(summary = "Gets clustered map icons",
+      description = "Gets map icons inside a bounding box, aggregated into clusters with counts "
+          + "per map icon type for the given zoom level. Accessible to all users")
+  @GetMapping("/clusters")
+  public ResponseEntity<?> getMapIconClusters(
+      @RequestParam double minLatitude,
+      @RequestParam double minLongitude,
+      @RequestParam double maxLatitude,
+      @RequestParam double maxLongitude,
+      @RequestParam int zoom) {
+    try {
+      List<MapIconClusterResponseDto> clusters = mapIconService.getMapIconClusters(minLatitude,
+          minLongitude, maxLatitude, maxLongitude, zoom);
+      logger.info("Retrieved {} map icon clusters at zoom {}", clusters.size(), zoom);
+      return ResponseEntity.ok(clusters);
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error retrieving map icon clusters: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      logger.error("Error retrieving map icon clusters: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
+
+  /**
+   * Checks if an If-None-Match header matches an ETag, using weak comparison.
+   *
+   * @param ifNoneMatch the header value, possibly listing several ETags
+   * @param etag        the current ETag
+   * @return true if the client already has the current version
+   */
+  private static boolean matchesEtag(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String trimmed = candidate.trim();
+      if (trimmed.startsWith("W/")) {
+        trimmed = trimmed.substring(2);
+      }
+      if (trimmed.equals("*") || trimmed.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
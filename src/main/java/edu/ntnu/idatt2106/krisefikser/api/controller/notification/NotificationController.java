@@ -1,6 +1,11 @@
 package edu.ntnu.idatt2106.krisefikser.api.controller.notification;
 
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationBulkRequestDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationDispatchMetricsDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationFanOutMetricsDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationPageDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.UnreadCountDto;
 import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -9,11 +14,15 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -60,6 +69,101 @@ public class NotificationController {
     }
   }
 
+  /**
+   * Retrieves a page of the notification feed of the current user.
+   *
+   * @param cursor the next cursor of the previous page, to get older notifications
+   * @param since  the newest cursor of an earlier response, to get only newer notifications
+   * @param limit  the maximum number of notifications to return
+   * @return the page of notifications with the cursors for the next requests
+   */
+  @Operation(summary = "Gets a page of notifications for the current user",
+      description = "Gets the notifications sent to the current user and their household, "
+          + "newest first. Pass nextCursor as cursor to get older notifications, or newestCursor "
+          + "as since to get only the notifications added after it")
+  @GetMapping("/feed")
+  public ResponseEntity<?> getNotificationPage(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) String since,
+      @RequestParam(defaultValue = "20") int limit) {
+    try {
+      NotificationPageDto page = notificationService.getUserNotificationPage(cursor, since, limit);
+      logger.info("Retrieved page of {} notifications for user", page.getNotifications().size());
+      return ResponseEntity.ok(page);
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error retrieving notification page: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      logger.error("Unexpected error retrieving notification page: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
+
+  /**
+   * Retrieves the number of unread notifications of the current user.
+   *
+   * @return the unread count
+   */
+  @Operation(summary = "Gets the unread notification count of the current user",
+      description = "Gets the number of unread notifications sent to the current user and their "
+          + "household. The count is also sent on the notification queue when it changes")
+  @GetMapping("/unread-count")
+  public ResponseEntity<?> getUnreadCount() {
+    try {
+      UnreadCountDto unreadCount = notificationService.getUnreadCount();
+      logger.info("Retrieved unread notification count for user");
+      return ResponseEntity.ok(unreadCount);
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error retrieving unread count: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      logger.error("Unexpected error retrieving unread count: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
+
+  /**
+   * Retrieves the metrics of the incident notification fan-out.
+   *
+   * @return the fan-out metrics
+   */
+  @Operation(summary = "Gets incident notification fan-out metrics",
+      description = "Gets the number of notifications saved and sent by incident alerts, the "
+          + "insert rate and the time until the last user was notified. Only accessible by admins")
+  @GetMapping("/fan-out/metrics")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<?> getFanOutMetrics() {
+    try {
+      NotificationFanOutMetricsDto metrics = notificationService.getFanOutMetrics();
+      logger.info("Retrieved notification fan-out metrics");
+      return ResponseEntity.ok(metrics);
+    } catch (Exception e) {
+      logger.error("Unexpected error retrieving fan-out metrics: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
+
+  /**
+   * Retrieves the queue depths and metrics of the asynchronous notification dispatcher.
+   *
+   * @return the dispatch metrics
+   */
+  @Operation(summary = "Gets notification dispatch metrics",
+      description = "Gets the number of queued notification tasks per priority, how long they wait "
+          + "before they run and how many ran or failed. Only accessible by admins")
+  @GetMapping("/dispatch/metrics")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<?> getDispatchMetrics() {
+    try {
+      NotificationDispatchMetricsDto metrics = notificationService.getDispatchMetrics();
+      logger.info("Retrieved notification dispatch metrics");
+      return ResponseEntity.ok(metrics);
+    } catch (Exception e) {
+      logger.error("Unexpected error retrieving dispatch metrics: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
+
   /**
    * Marks a notification as read.
    *
@@ -82,4 +186,79 @@ public class NotificationController {
       return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
     }
   }
+
+  /**
+   * Marks a household notification as read for the current user.
+   *
+   * @param notificationId the ID of the household notification to mark as read
+   * @return a response entity indicating the result of the operation
+   */
+  @Operation(summary = "Marks a household notification as read",
+      description = "Marks a notification sent to the household of the current user as read, "
+          + "for the current user only")
+  @PutMapping("/household/{notificationId}/read")
+  public ResponseEntity<?> markHouseholdNotificationAsRead(@PathVariable Long notificationId) {
+    try {
+      notificationService.markHouseholdNotificationAsRead(notificationId);
+      logger.info("Marked household notification as read: {}", notificationId);
+      return ResponseEntity.ok(Map.of("message", "Notification marked as read"));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error marking household notification as read: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      logger.error("Unexpected error marking household notification as read: {}",
+          e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
+
+  /**
+   * Marks many notifications of the current user as read.
+   *
+   * @param request the ids of the notifications, or the timestamp every older one is read by
+   * @return a response entity with the number of notifications marked as read
+   */
+  @Operation(summary = "Marks many notifications as read",
+      description = "Marks the personal and household notifications with the given ids, or every "
+          + "notification older than before, as read for the current user")
+  @PutMapping("/read")
+  public ResponseEntity<?> markNotificationsAsRead(
+      @RequestBody NotificationBulkRequestDto request) {
+    try {
+      int count = notificationService.markNotificationsAsRead(request);
+      logger.info("Marked {} notifications as read", count);
+      return ResponseEntity.ok(Map.of("message", "Notifications marked as read", "count", count));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error marking notifications as read: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      logger.error("Unexpected error marking notifications as read: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
+
+  /**
+   * Deletes many notifications of the current user.
+   *
+   * @param request the ids of the notifications, or the timestamp every older one is deleted by
+   * @return a response entity with the number of deleted notifications
+   */
+  @Operation(summary = "Deletes many notifications",
+      description = "Deletes the personal notifications with the given ids, or every personal "
+          + "notification older than before. Household notifications are shared by the "
+          + "household and are not deleted")
+  @PostMapping("/delete")
+  public ResponseEntity<?> deleteNotifications(@RequestBody NotificationBulkRequestDto request) {
+    try {
+      int count = notificationService.deleteNotifications(request);
+      logger.info("Deleted {} notifications", count);
+      return ResponseEntity.ok(Map.of("message", "Notifications deleted", "count", count));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error deleting notifications: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      logger.error("Unexpected error deleting notifications: {}", e.getMessage(), e);
+      return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+    }
+  }
 }
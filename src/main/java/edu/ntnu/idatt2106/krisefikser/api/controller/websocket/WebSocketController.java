@@ -1,11 +1,17 @@
 package edu.ntnu.idatt2106.krisefikser.api.controller.websocket;
 
 import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionDto;
+import edu.ntnu.idatt2106.krisefikser.security.StompAuthChannelInterceptor;
+import edu.ntnu.idatt2106.krisefikser.service.notification.CompactPositionStream;
 import edu.ntnu.idatt2106.krisefikser.service.user.UserService;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry.SessionUser;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.Map;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
@@ -20,32 +26,80 @@ public class WebSocketController {
   private static final org.slf4j.Logger logger =
       org.slf4j.LoggerFactory.getLogger(WebSocketController.class);
   private final UserService userService;
+  private final CompactPositionStream compactPositions;
+  private final WebSocketUserRegistry webSocketUsers;
 
   /**
    * Constructor for WebSocketController.
    *
-   * @param userService the service for handling user related requests
+   * @param userService      the service for handling user related requests
+   * @param compactPositions the stream sending household positions in compact frames
+   * @param webSocketUsers   the registry keeping the households of the sessions current
    */
-  public WebSocketController(UserService userService) {
+  public WebSocketController(UserService userService, CompactPositionStream compactPositions,
+      WebSocketUserRegistry webSocketUsers) {
     this.userService = userService;
+    this.compactPositions = compactPositions;
+    this.webSocketUsers = webSocketUsers;
   }
 
   /**
-   * Updates a user's position.
+   * Updates a user's position. Sessions authenticated when they connected use the user kept in
+   * the session, and other sessions must send a token with the position.
    *
-   * @param position the position of the user
+   * @param position       the position of the user
+   * @param headerAccessor the headers of the message, holding the session attributes
    */
   @Operation(summary = "Updates a user's position",
       description = "Updates a user's position. This is used for real-time location tracking.")
   @MessageMapping("/position")
-  public void updatePosition(@Payload PositionDto position) {
+  public void updatePosition(@Payload PositionDto position,
+      SimpMessageHeaderAccessor headerAccessor) {
     try {
-      logger.info("Received position update: {}", position);
-      userService.updatePosition(position);
+      logger.debug("Received position update: {}", position);
+      Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+      Object sessionUser = attributes != null
+          ? attributes.get(StompAuthChannelInterceptor.SESSION_USER) : null;
+      if (sessionUser instanceof SessionUser user) {
+        webSocketUsers.refreshHousehold(user, false);
+        userService.updatePosition(user, position);
+      } else {
+        userService.updatePosition(position);
+      }
     } catch (IllegalArgumentException e) {
       logger.error("Error updating position: {}", e.getMessage());
     } catch (Exception e) {
       logger.error("Error updating position", e);
     }
   }
+
+  /**
+   * Sends the current keyframe of the compact position stream of the user's household to the
+   * user. Only sessions authenticated when they connected can ask for it.
+   *
+   * @param headerAccessor the headers of the message, holding the session attributes
+   */
+  @Operation(summary = "Requests a keyframe of the compact position stream",
+      description = "Sends the current keyframe of the compact position stream of the user's "
+          + "household to the user, on /user/queue/position/compact.")
+  @MessageMapping("/position/compact/keyframe")
+  public void requestPositionKeyframe(SimpMessageHeaderAccessor headerAccessor) {
+    try {
+      Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+      Object sessionUser = attributes != null
+          ? attributes.get(StompAuthChannelInterceptor.SESSION_USER) : null;
+      if (!(sessionUser instanceof SessionUser user)) {
+        logger.warn("Keyframe requested by a session that is not authenticated");
+        return;
+      }
+      String householdId = webSocketUsers.refreshHousehold(user, false);
+      if (householdId == null) {
+        logger.debug("User {} has no household to send a keyframe for", user.getUserId());
+        return;
+      }
+      compactPositions.sendKeyframe(householdId, user.getUserId());
+    } catch (Exception e) {
+      logger.error("Error sending position keyframe", e);
+    }
+  }
 }
\ No newline at end of file
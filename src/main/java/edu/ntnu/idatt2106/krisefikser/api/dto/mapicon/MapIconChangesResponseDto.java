@@ -0,0 +1,88 @@
+package edu.ntnu.idatt2106.krisefikser.api.dto.mapicon;
+
+import java.util.List;
+
+/**
+ * DTO for sending the map icon changes since a revision to clients.
+ */
+public class MapIconChangesResponseDto {
+
+  private long revision;
+  private List<MapIconResponseDto> updated;
+  private List<Long> deleted;
+
+  /**
+   * Default constructor for MapIconChangesResponseDto.
+   */
+  public MapIconChangesResponseDto() {
+  }
+
+  /**
+   * Constructor for MapIconChangesResponseDto.
+   *
+   * @param revision the revision the changes bring the client up to
+   * @param updated  the map icons created or updated since the requested revision
+   * @param deleted  the IDs of the map icons deleted since the requested revision
+   */
+  public MapIconChangesResponseDto(long revision, List<MapIconResponseDto> updated,
+      List<Long> deleted) {
+    this.revision = revision;
+    this.updated = updated;
+    this.deleted = deleted;
+  }
+
+  /**
+   * Gets the revision the changes bring the client up to. Clients pass it as {@code since} in their
+   * next request.
+   *
+   * @return the revision
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Sets the revision the changes bring the client up to.
+   *
+   * @param revision the revision
+   */
+  public void setRevision(long revision) {
+    this.revision = revision;
+  }
+
+  /**
+   * Gets the map icons created or updated since the requested revision.
+   *
+   * @return the created or updated map icons
+   */
+  public List<MapIconResponseDto> getUpdated() {
+    return updated;
+  }
+
+  /**
+   * Sets the map icons created or updated since the requested revision.
+   *
+   * @param updated the created or updated map icons
+   */
+  public void setUpdated(List<MapIconResponseDto> updated) {
+    this.updated = updated;
+  }
+
+  /**
+   * Gets the IDs of the map icons deleted since the requested revision.
+   *
+   * @return the IDs of the deleted map icons
+   */
+  public List<Long> getDeleted() {
+    return deleted;
+  }
+
+  /**
+   * Sets the IDs of the map icons deleted since the requested revision.
+   *
+   * @param deleted the IDs of the deleted map icons
+   */
+  public void setDeleted(List<Long> deleted) {
+    this.deleted = deleted;
+  }
+}
@@ -0,0 +1,130 @@
+package edu.ntnu.idatt2106.krisefikser.api.dto.mapicon;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import java.util.Map;
+
+/**
+ * DTO for sending a cluster of map icons to clients.
+ */
+public class MapIconClusterResponseDto {
+
+  private double latitude;
+  private double longitude;
+  private int count;
+  private Map<MapIconType, Integer> typeCounts;
+  private Long iconId;
+
+  /**
+   * Default constructor for MapIconClusterResponseDto.
+   */
+  public MapIconClusterResponseDto() {
+  }
+
+  /**
+   * Constructor for MapIconClusterResponseDto.
+   *
+   * @param latitude   the latitude of the cluster centre
+   * @param longitude  the longitude of the cluster centre
+   * @param count      the number of map icons in the cluster
+   * @param typeCounts the number of map icons of each type in the cluster
+   * @param iconId     the ID of the map icon if the cluster holds a single icon, otherwise null
+   */
+  public MapIconClusterResponseDto(double latitude, double longitude, int count,
+      Map<MapIconType, Integer> typeCounts, Long iconId) {
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.count = count;
+    this.typeCounts = typeCounts;
+    this.iconId = iconId;
+  }
+
+  /**
+   * Gets the latitude of the cluster centre.
+   *
+   * @return the latitude of the cluster centre
+   */
+  public double getLatitude() {
+    return latitude;
+  }
+
+  /**
+   * Sets the latitude of the cluster centre.
+   *
+   * @param latitude the latitude of the cluster centre
+   */
+  public void setLatitude(double latitude) {
+    this.latitude = latitude;
+  }
+
+  /**
+   * Gets the longitude of the cluster centre.
+   *
+   * @return the longitude of the cluster centre
+   */
+  public double getLongitude() {
+    return longitude;
+  }
+
+  /**
+   * Sets the longitude of the cluster centre.
+   *
+   * @param longitude the longitude of the cluster centre
+   */
+  public void setLongitude(double longitude) {
+    this.longitude = longitude;
+  }
+
+  /**
+   * Gets the number of map icons in the cluster.
+   *
+   * @return the number of map icons in the cluster
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Sets the number of map icons in the cluster.
+   *
+   * @param count the number of map icons in the cluster
+   */
+  public void setCount(int count) {
+    this.count = count;
+  }
+
+  /**
+   * Gets the number of map icons of each type in the cluster.
+   *
+   * @return the number of map icons of each type
+   */
+  public Map<MapIconType, Integer> getTypeCounts() {
+    return typeCounts;
+  }
+
+  /**
+   * Sets the number of map icons of each type in the cluster.
+   *
+   * @param typeCounts the number of map icons of each type
+   */
+  public void setTypeCounts(Map<MapIconType, Integer> typeCounts) {
+    this.typeCounts = typeCounts;
+  }
+
+  /**
+   * Gets the ID of the map icon if the cluster holds a single icon.
+   *
+   * @return the ID of the map icon, or null if the cluster holds several icons
+   */
+  public Long getIconId() {
+    return iconId;
+  }
+
+  /**
+   * Sets the ID of the map icon if the cluster holds a single icon.
+   *
+   * @param iconId the ID of the map icon
+   */
+  public void setIconId(Long iconId) {
+    this.iconId = iconId;
+  }
+}
@@ -0,0 +1,172 @@
+package edu.ntnu.idatt2106.krisefikser.api.dto.mapicon;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * DTO for reporting the progress of a map icon import to clients. An import streams one of these
+ * per rejected row, one after every written chunk and a final one when it ends.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MapIconImportProgressDto {
+
+  /**
+   * Status of an event for a rejected row.
+   */
+  public static final String STATUS_ROW_ERROR = "ROW_ERROR";
+
+  /**
+   * Status of an event sent after a chunk has been written.
+   */
+  public static final String STATUS_PROGRESS = "PROGRESS";
+
+  /**
+   * Status of the final event of an import that read the whole file.
+   */
+  public static final String STATUS_DONE = "DONE";
+
+  /**
+   * Status of the final event of an import that stopped early.
+   */
+  public static final String STATUS_FAILED = "FAILED";
+
+  private String status;
+  private Long row;
+  private String message;
+  private long processed;
+  private long imported;
+  private long failed;
+
+  /**
+   * Default constructor for MapIconImportProgressDto.
+   */
+  public MapIconImportProgressDto() {
+  }
+
+  /**
+   * Constructor for MapIconImportProgressDto.
+   *
+   * @param status    the kind of event
+   * @param row       the row the event concerns, or null if it concerns the whole import
+   * @param message   a description of the error, or null
+   * @param processed the number of rows read so far
+   * @param imported  the number of rows written so far
+   * @param failed    the number of rows rejected so far
+   */
+  public MapIconImportProgressDto(String status, Long row, String message, long processed,
+      long imported, long failed) {
+    this.status = status;
+    this.row = row;
+    this.message = message;
+    this.processed = processed;
+    this.imported = imported;
+    this.failed = failed;
+  }
+
+  /**
+   * Gets the kind of event.
+   *
+   * @return the status of the event
+   */
+  public String getStatus() {
+    return status;
+  }
+
+  /**
+   * Sets the kind of event.
+   *
+   * @param status the status of the event
+   */
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  /**
+   * Gets the row the event concerns, counting from 1 for the first data row or feature.
+   *
+   * @return the row number, or null if the event concerns the whole import
+   */
+  public Long getRow() {
+    return row;
+  }
+
+  /**
+   * Sets the row the event concerns.
+   *
+   * @param row the row number
+   */
+  public void setRow(Long row) {
+    this.row = row;
+  }
+
+  /**
+   * Gets the description of the error.
+   *
+   * @return the error message, or null
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Sets the description of the error.
+   *
+   * @param message the error message
+   */
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  /**
+   * Gets the number of rows read so far.
+   *
+   * @return the number of rows read
+   */
+  public long getProcessed() {
+    return processed;
+  }
+
+  /**
+   * Sets the number of rows read so far.
+   *
+   * @param processed the number of rows read
+   */
+  public void setProcessed(long processed) {
+    this.processed = processed;
+  }
+
+  /**
+   * Gets the number of rows written so far.
+   *
+   * @return the number of rows written
+   */
+  public long getImported() {
+    return imported;
+  }
+
+  /**
+   * Sets the number of rows written so far.
+   *
+   * @param imported the number of rows written
+   */
+  public void setImported(long imported) {
+    this.imported = imported;
+  }
+
+  /**
+   * Gets the number of rows rejected so far.
+   *
+   * @return the number of rows rejected
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * Sets the number of rows rejected so far.
+   *
+   * @param failed the number of rows rejected
+   */
+  public void setFailed(long failed) {
+    this.failed = failed;
+  }
+}
@@ -16,6 +16,7 @@ public class MapIconResponseDto {
   private String description;
   private String openingHours;
   private String contactInfo;
+  private long revision;
 
   /**
    * Default constructor for MapIconResponseDto.
@@ -31,6 +32,7 @@ public class MapIconResponseDto {
     dto.setDescription(mapIcon.getDescription());
     dto.setOpeningHours(mapIcon.getOpeningHours());
     dto.setContactInfo(mapIcon.getContactInfo());
+    dto.setRevision(mapIcon.getRevision());
     return dto;
   }
 
@@ -177,4 +179,22 @@ public class MapIconResponseDto {
   public void setContactInfo(String contactInfo) {
     this.contactInfo = contactInfo;
   }
+
+  /**
+   * Gets the revision at which the map icon was last created or changed.
+   *
+   * @return the revision of the map icon
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Sets the revision at which the map icon was last created or changed.
+   *
+   * @param revision the revision of the map icon
+   */
+  public void setRevision(long revision) {
+    this.revision = revision;
+  }
 }
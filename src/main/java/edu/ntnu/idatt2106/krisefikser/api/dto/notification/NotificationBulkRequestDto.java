@@ -0,0 +1,89 @@
+package edu.ntnu.idatt2106.krisefikser.api.dto.notification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO for marking or deleting many notifications of the current user at once, either by id or
+ * every notification older than a timestamp.
+ */
+public class NotificationBulkRequestDto {
+
+  private List<Long> ids;
+  private List<Long> householdIds;
+  private LocalDateTime before;
+
+  /**
+   * Default constructor for NotificationBulkRequestDto.
+   */
+  public NotificationBulkRequestDto() {
+  }
+
+  /**
+   * Constructor for NotificationBulkRequestDto.
+   *
+   * @param ids          the ids of personal notifications
+   * @param householdIds the ids of household notifications
+   * @param before       the timestamp every older notification is selected by
+   */
+  public NotificationBulkRequestDto(List<Long> ids, List<Long> householdIds,
+      LocalDateTime before) {
+    this.ids = ids;
+    this.householdIds = householdIds;
+    this.before = before;
+  }
+
+  /**
+   * Gets the ids of the personal notifications.
+   *
+   * @return the ids, or null
+   */
+  public List<Long> getIds() {
+    return ids;
+  }
+
+  /**
+   * Sets the ids of the personal notifications.
+   *
+   * @param ids the ids
+   */
+  public void setIds(List<Long> ids) {
+    this.ids = ids;
+  }
+
+  /**
+   * Gets the ids of the household notifications, the ones with a household id in the feed.
+   *
+   * @return the ids, or null
+   */
+  public List<Long> getHouseholdIds() {
+    return householdIds;
+  }
+
+  /**
+   * Sets the ids of the household notifications.
+   *
+   * @param householdIds the ids
+   */
+  public void setHouseholdIds(List<Long> householdIds) {
+    this.householdIds = householdIds;
+  }
+
+  /**
+   * Gets the timestamp every older notification is selected by.
+   *
+   * @return the timestamp, or null if notifications are selected by id
+   */
+  public LocalDateTime getBefore() {
+    return before;
+  }
+
+  /**
+   * Sets the timestamp every older notification is selected by.
+   *
+   * @param before the timestamp
+   */
+  public void setBefore(LocalDateTime before) {
+    this.before = before;
+  }
+}
@@ -0,0 +1,194 @@
+package edu.ntnu.idatt2106.krisefikser.api.dto.notification;
+
+import java.util.Map;
+
+/**
+ * DTO for the queue depths and metrics of the asynchronous notification dispatcher.
+ */
+public class NotificationDispatchMetricsDto {
+
+  private Map<String, Integer> queueDepths;
+  private long submitted;
+  private long completed;
+  private long failed;
+  private long callerRuns;
+  private long oldestQueuedMs;
+  private long lastLagMs;
+  private long maxLagMs;
+
+  /**
+   * Default constructor for NotificationDispatchMetricsDto.
+   */
+  public NotificationDispatchMetricsDto() {
+  }
+
+  /**
+   * Constructor for NotificationDispatchMetricsDto.
+   *
+   * @param queueDepths    the number of queued tasks per priority
+   * @param submitted      the number of tasks queued
+   * @param completed      the number of tasks that ran without errors
+   * @param failed         the number of tasks that threw an exception
+   * @param callerRuns     the number of tasks run on the calling thread because their queue was
+   *                       full
+   * @param oldestQueuedMs the age of the oldest queued task, in milliseconds
+   * @param lastLagMs      the time the last task waited before it ran, in milliseconds
+   * @param maxLagMs       the longest time any task waited before it ran, in milliseconds
+   */
+  public NotificationDispatchMetricsDto(Map<String, Integer> queueDepths, long submitted,
+      long completed, long failed, long callerRuns, long oldestQueuedMs, long lastLagMs,
+      long maxLagMs) {
+    this.queueDepths = queueDepths;
+    this.submitted = submitted;
+    this.completed = completed;
+    this.failed = failed;
+    this.callerRuns = callerRuns;
+    this.oldestQueuedMs = oldestQueuedMs;
+    this.lastLagMs = lastLagMs;
+    this.maxLagMs = maxLagMs;
+  }
+
+  /**
+   * Gets the number of queued tasks per priority.
+   *
+   * @return the number of queued tasks per priority
+   */
+  public Map<String, Integer> getQueueDepths() {
+    return queueDepths;
+  }
+
+  /**
+   * Sets the number of queued tasks per priority.
+   *
+   * @param queueDepths the number of queued tasks per priority
+   */
+  public void setQueueDepths(Map<String, Integer> queueDepths) {
+    this.queueDepths = queueDepths;
+  }
+
+  /**
+   * Gets the number of tasks queued.
+   *
+   * @return the number of tasks queued
+   */
+  public long getSubmitted() {
+    return submitted;
+  }
+
+  /**
+   * Sets the number of tasks queued.
+   *
+   * @param submitted the number of tasks queued
+   */
+  public void setSubmitted(long submitted) {
+    this.submitted = submitted;
+  }
+
+  /**
+   * Gets the number of tasks that ran without errors.
+   *
+   * @return the number of tasks that ran without errors
+   */
+  public long getCompleted() {
+    return completed;
+  }
+
+  /**
+   * Sets the number of tasks that ran without errors.
+   *
+   * @param completed the number of tasks that ran without errors
+   */
+  public void setCompleted(long completed) {
+    this.completed = completed;
+  }
+
+  /**
+   * Gets the number of tasks that threw an exception.
+   *
+   * @return the number of tasks that threw an exception
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * Sets the number of tasks that threw an exception.
+   *
+   * @param failed the number of tasks that threw an exception
+   */
+  public void setFailed(long failed) {
+    this.failed = failed;
+  }
+
+  /**
+   * Gets the number of tasks run on the calling thread because their queue was full.
+   *
+   * @return the number of tasks run on the calling thread because their queue was full
+   */
+  public long getCallerRuns() {
+    return callerRuns;
+  }
+
+  /**
+   * Sets the number of tasks run on the calling thread because their queue was full.
+   *
+   * @param callerRuns the number of tasks run on the calling thread because their queue was full
+   */
+  public void setCallerRuns(long callerRuns) {
+    this.callerRuns = callerRuns;
+  }
+
+  /**
+   * Gets the age of the oldest queued task, in milliseconds.
+   *
+   * @return the age of the oldest queued task, in milliseconds
+   */
+  public long getOldestQueuedMs() {
+    return oldestQueuedMs;
+  }
+
+  /**
+   * Sets the age of the oldest queued task, in milliseconds.
+   *
+   * @param oldestQueuedMs the age of the oldest queued task, in milliseconds
+   */
+  public void setOldestQueuedMs(long oldestQueuedMs) {
+    this.oldestQueuedMs = oldestQueuedMs;
+  }
+
+  /**
+   * Gets the time the last task waited before it ran, in milliseconds.
+   *
+   * @return the time the last task waited before it ran, in milliseconds
+   */
+  public long getLastLagMs() {
+    return lastLagMs;
+  }
+
+  /**
+   * Sets the time the last task waited before it ran, in milliseconds.
+   *
+   * @param lastLagMs the time the last task waited before it ran, in milliseconds
+   */
+  public void setLastLagMs(long lastLagMs) {
+    this.lastLagMs = lastLagMs;
+  }
+
+  /**
+   * Gets the longest time any task waited before it ran, in milliseconds.
+   *
+   * @return the longest time any task waited before it ran, in milliseconds
+   */
+  public long getMaxLagMs() {
+    return maxLagMs;
+  }
+
+  /**
+   * Sets the longest time any task waited before it ran, in milliseconds.
+   *
+   * @param maxLagMs the longest time any task waited before it ran, in milliseconds
+   */
+  public void setMaxLagMs(long maxLagMs) {
+    this.maxLagMs = maxLagMs;
+  }
+}
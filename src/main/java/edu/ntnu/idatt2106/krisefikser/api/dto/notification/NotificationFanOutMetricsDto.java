@@ -0,0 +1,198 @@
+package edu.ntnu.idatt2106.krisefikser.api.dto.notification;
+
+/**
+ * DTO for the metrics of the incident notification fan-out, counted since the application started.
+ */
+public class NotificationFanOutMetricsDto {
+
+  private long fanOuts;
+  private long rowsInserted;
+  private long rowsFailed;
+  private long messagesSent;
+  private long messagesFailed;
+  private double lastRowsPerSecond;
+  private long lastTimeToLastDeliveryMs;
+  private long maxTimeToLastDeliveryMs;
+
+  /**
+   * Default constructor for NotificationFanOutMetricsDto.
+   */
+  public NotificationFanOutMetricsDto() {
+  }
+
+  /**
+   * Constructor for NotificationFanOutMetricsDto.
+   *
+   * @param fanOuts                  the number of incident fan-outs run
+   * @param rowsInserted             the number of notification rows inserted by fan-outs
+   * @param rowsFailed               the number of notification rows that could not be inserted
+   * @param messagesSent             the number of WebSocket messages sent by fan-outs
+   * @param messagesFailed           the number of WebSocket messages that could not be sent
+   * @param lastRowsPerSecond        the insert rate of the last fan-out, in rows per second
+   * @param lastTimeToLastDeliveryMs the time from the start of the last fan-out until its last
+   *                                 message was sent, in milliseconds
+   * @param maxTimeToLastDeliveryMs  the longest time to last delivery of any fan-out, in
+   *                                 milliseconds
+   */
+  public NotificationFanOutMetricsDto(long fanOuts, long rowsInserted, long rowsFailed,
+      long messagesSent, long messagesFailed, double lastRowsPerSecond,
+      long lastTimeToLastDeliveryMs, long maxTimeToLastDeliveryMs) {
+    this.fanOuts = fanOuts;
+    this.rowsInserted = rowsInserted;
+    this.rowsFailed = rowsFailed;
+    this.messagesSent = messagesSent;
+    this.messagesFailed = messagesFailed;
+    this.lastRowsPerSecond = lastRowsPerSecond;
+    this.lastTimeToLastDeliveryMs = lastTimeToLastDeliveryMs;
+    this.maxTimeToLastDeliveryMs = maxTimeToLastDeliveryMs;
+  }
+
+  /**
+   * Gets the number of incident fan-outs run.
+   *
+   * @return the number of incident fan-outs run
+   */
+  public long getFanOuts() {
+    return fanOuts;
+  }
+
+  /**
+   * Sets the number of incident fan-outs run.
+   *
+   * @param fanOuts the number of incident fan-outs run
+   */
+  public void setFanOuts(long fanOuts) {
+    this.fanOuts = fanOuts;
+  }
+
+  /**
+   * Gets the number of notification rows inserted by fan-outs.
+   *
+   * @return the number of notification rows inserted by fan-outs
+   */
+  public long getRowsInserted() {
+    return rowsInserted;
+  }
+
+  /**
+   * Sets the number of notification rows inserted by fan-outs.
+   *
+   * @param rowsInserted the number of notification rows inserted by fan-outs
+   */
+  public void setRowsInserted(long rowsInserted) {
+    this.rowsInserted = rowsInserted;
+  }
+
+  /**
+   * Gets the number of notification rows that could not be inserted.
+   *
+   * @return the number of notification rows that could not be inserted
+   */
+  public long getRowsFailed() {
+    return rowsFailed;
+  }
+
+  /**
+   * Sets the number of notification rows that could not be inserted.
+   *
+   * @param rowsFailed the number of notification rows that could not be inserted
+   */
+  public void setRowsFailed(long rowsFailed) {
+    this.rowsFailed = rowsFailed;
+  }
+
+  /**
+   * Gets the number of WebSocket messages sent by fan-outs.
+   *
+   * @return the number of WebSocket messages sent by fan-outs
+   */
+  public long getMessagesSent() {
+    return messagesSent;
+  }
+
+  /**
+   * Sets the number of WebSocket messages sent by fan-outs.
+   *
+   * @param messagesSent the number of WebSocket messages sent by fan-outs
+   */
+  public void setMessagesSent(long messagesSent) {
+    this.messagesSent = messagesSent;
+  }
+
+  /**
+   * Gets the number of WebSocket messages that could not be sent.
+   *
+   * @return the number of WebSocket messages that could not be sent
+   */
+  public long getMessagesFailed() {
+    return messagesFailed;
+  }
+
+  /**
+   * Sets the number of WebSocket messages that could not be sent.
+   *
+   * @param messagesFailed the number of WebSocket messages that could not be sent
+   */
+  public void setMessagesFailed(long messagesFailed) {
+    this.messagesFailed = messagesFailed;
+  }
+
+  /**
+   * Gets the insert rate of the last fan-out, in rows per second.
+   *
+   * @return the insert rate of the last fan-out, in rows per second
+   */
+  public double getLastRowsPerSecond() {
+    return lastRowsPerSecond;
+  }
+
+  /**
+   * Sets the insert rate of the last fan-out, in rows per second.
+   *
+   * @param lastRowsPerSecond the insert rate of the last fan-out, in rows per second
+   */
+  public void setLastRowsPerSecond(double lastRowsPerSecond) {
+    this.lastRowsPerSecond = lastRowsPerSecond;
+  }
+
+  /**
+   * Gets the time from the start of the last fan-out until its last message was sent, in
+   * milliseconds.
+   *
+   * @return the time from the start of the last fan-out until its last message was sent, in
+   *         milliseconds
+   */
+  public long getLastTimeToLastDeliveryMs() {
+    return lastTimeToLastDeliveryMs;
+  }
+
+  /**
+   * Sets the time from the start of the last fan-out until its last message was sent, in
+   * milliseconds.
+   *
+   * @param lastTimeToLastDeliveryMs the time from the start of the last fan-out until its last
+   *                                 message was sent, in milliseconds
+   */
+  public void setLastTimeToLastDeliveryMs(long lastTimeToLastDeliveryMs) {
+    this.lastTimeToLastDeliveryMs = lastTimeToLastDeliveryMs;
+  }
+
+  /**
+   * Gets the longest time to last delivery of any fan-out, in milliseconds.
+   *
+   * @return the longest time to last delivery of any fan-out, in milliseconds
+   */
+  public long getMaxTimeToLastDeliveryMs() {
+    return maxTimeToLastDeliveryMs;
+  }
+
+  /**
+   * Sets the longest time to last delivery of any fan-out, in milliseconds.
+   *
+   * @param maxTimeToLastDeliveryMs the longest time to last delivery of any fan-out, in
+   *                                milliseconds
+   */
+  public void setMaxTimeToLastDeliveryMs(long maxTimeToLastDeliveryMs) {
+    this.maxTimeToLastDeliveryMs = maxTimeToLastDeliveryMs;
+  }
+}
@@ -0,0 +1,89 @@
+package edu.ntnu.idatt2106.krisefikser.api.dto.notification;
+
+import java.util.List;
+
+/**
+ * DTO for a page of the notification feed of a user, newest first, with the cursors for fetching
+ * the next page of older notifications and for fetching only newer notifications later.
+ */
+public class NotificationPageDto {
+
+  private List<NotificationResponseDto> notifications;
+  private String nextCursor;
+  private String newestCursor;
+
+  /**
+   * Default constructor for NotificationPageDto.
+   */
+  public NotificationPageDto() {
+  }
+
+  /**
+   * Constructor for NotificationPageDto.
+   *
+   * @param notifications the notifications of the page, newest first
+   * @param nextCursor    the cursor of the next page of older notifications, or null if there
+   *                      are no older notifications
+   * @param newestCursor  the cursor to pass as since to fetch the notifications saved later
+   */
+  public NotificationPageDto(List<NotificationResponseDto> notifications, String nextCursor,
+      String newestCursor) {
+    this.notifications = notifications;
+    this.nextCursor = nextCursor;
+    this.newestCursor = newestCursor;
+  }
+
+  /**
+   * Gets the notifications of the page, newest first.
+   *
+   * @return the notifications
+   */
+  public List<NotificationResponseDto> getNotifications() {
+    return notifications;
+  }
+
+  /**
+   * Sets the notifications of the page.
+   *
+   * @param notifications the notifications
+   */
+  public void setNotifications(List<NotificationResponseDto> notifications) {
+    this.notifications = notifications;
+  }
+
+  /**
+   * Gets the cursor of the next page of older notifications.
+   *
+   * @return the cursor, or null if there are no older notifications
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * Sets the cursor of the next page of older notifications.
+   *
+   * @param nextCursor the cursor
+   */
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Gets the cursor to pass as since to fetch the notifications saved later.
+   *
+   * @return the cursor
+   */
+  public String getNewestCursor() {
+    return newestCursor;
+  }
+
+  /**
+   * Sets the cursor to pass as since to fetch newer notifications.
+   *
+   * @param newestCursor the cursor
+   */
+  public void setNewestCursor(String newestCursor) {
+    this.newestCursor = newestCursor;
+  }
+}
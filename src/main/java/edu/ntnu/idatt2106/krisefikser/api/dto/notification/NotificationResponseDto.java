@@ -16,6 +16,7 @@ public class NotificationResponseDto {
   private LocalDateTime timestamp;
   private boolean read;
   private String message;
+  private String householdId;
 
   /**
    * Default constructor for NotificationResponseDto.
@@ -86,4 +87,23 @@ public class NotificationResponseDto {
     this.read = read;
   }
 
+  /**
+   * Gets the id of the household the notification was sent to, or null if it was sent to the
+   * recipient only. Household notifications are marked as read with their own endpoint.
+   *
+   * @return the household id
+   */
+  public String getHouseholdId() {
+    return householdId;
+  }
+
+  /**
+   * Sets the id of the household the notification was sent to.
+   *
+   * @param householdId the household id
+   */
+  public void setHouseholdId(String householdId) {
+    this.householdId = householdId;
+  }
+
 }
@@ -0,0 +1,43 @@
+package edu.ntnu.idatt2106.krisefikser.api.dto.notification;
+
+/**
+ * DTO for the number of unread notifications of a user. Also sent on the notification queue of
+ * the user whenever the number changes.
+ */
+public class UnreadCountDto {
+
+  private long unreadCount;
+
+  /**
+   * Default constructor for UnreadCountDto.
+   */
+  public UnreadCountDto() {
+  }
+
+  /**
+   * Constructor for UnreadCountDto.
+   *
+   * @param unreadCount the number of unread notifications
+   */
+  public UnreadCountDto(long unreadCount) {
+    this.unreadCount = unreadCount;
+  }
+
+  /**
+   * Gets the number of unread notifications.
+   *
+   * @return the number of unread notifications
+   */
+  public long getUnreadCount() {
+    return unreadCount;
+  }
+
+  /**
+   * Sets the number of unread notifications.
+   *
+   * @param unreadCount the number of unread notifications
+   */
+  public void setUnreadCount(long unreadCount) {
+    this.unreadCount = unreadCount;
+  }
+}
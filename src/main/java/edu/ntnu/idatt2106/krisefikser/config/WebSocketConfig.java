@@ -1,28 +1,72 @@
 package edu.ntnu.idatt2106.krisefikser.config;
 
-import java.security.Principal;
-import java.util.Map;
+import edu.ntnu.idatt2106.krisefikser.security.StompAuthChannelInterceptor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
-import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 /**
  * WebSocket configuration class for enabling STOMP protocol and configuring message broker.
  *
  * <p>This class sets up the WebSocket endpoints,
- * message broker, and user destination prefix. It also handles user authentication during the
- * WebSocket handshake.
+ * message broker, and user destination prefix. Users are authenticated by the JWT sent with the
+ * STOMP CONNECT frame, see {@link StompAuthChannelInterceptor}.
+ *
+ * <p>By default the messages are delivered by an in-memory broker, which only reaches the clients
+ * connected to this instance. When the broker relay is enabled, the broker destinations are relayed
+ * to an external STOMP broker (such as RabbitMQ or ActiveMQ) instead, so several instances of the
+ * application share the subscriptions of their clients.
  */
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+  /**
+   * The broker destination messages to users with no session on this instance are sent to, so the
+   * instance the user is connected to can deliver them.
+   */
+  public static final String UNRESOLVED_USER_DESTINATION = "/topic/unresolved-user-destination";
+
+  /**
+   * The broker destination the instances share their connected users on.
+   */
+  public static final String USER_REGISTRY_DESTINATION = "/topic/simp-user-registry";
+
+  private final StompAuthChannelInterceptor authChannelInterceptor;
+
+  @Value("${app.websocket.broker.relay.enabled:false}")
+  private boolean relayEnabled = false;
+
+  @Value("${app.websocket.broker.relay.host:localhost}")
+  private String relayHost = "localhost";
+
+  @Value("${app.websocket.broker.relay.port:61613}")
+  private int relayPort = 61613;
+
+  @Value("${app.websocket.broker.relay.login:guest}")
+  private String relayLogin = "guest";
+
+  @Value("${app.websocket.broker.relay.passcode:guest}")
+  private String relayPasscode = "guest";
+
+  @Value("${app.websocket.broker.relay.virtual-host:}")
+  private String relayVirtualHost = "";
+
+  /**
+   * Constructor for WebSocketConfig.
+   *
+   * @param authChannelInterceptor the interceptor authenticating STOMP sessions
+   */
+  public WebSocketConfig(StompAuthChannelInterceptor authChannelInterceptor) {
+    this.authChannelInterceptor = authChannelInterceptor;
+  }
+
   /**
    * Registers STOMP endpoints for WebSocket connections.
    *
@@ -35,19 +79,6 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
   public void registerStompEndpoints(StompEndpointRegistry registry) {
     registry.addEndpoint("/ws")
         .setAllowedOrigins("http://localhost:5173")
-        .setHandshakeHandler(new DefaultHandshakeHandler() {
-          @Override
-          protected Principal determineUser(ServerHttpRequest request,
-              WebSocketHandler wsHandler,
-              Map<String, Object> attributes) {
-            // Get user ID from request headers or query parameters
-            String userId = getUserIdFromRequest(request);
-            if (userId != null) {
-              return new StompPrincipal(userId);
-            }
-            return null;
-          }
-        })
         .withSockJS();
   }
 
@@ -58,40 +89,41 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
    * (server-to-client) - "/app" for application destinations (client-to-server) - "/user" for
    * user-specific destinations
    *
+   * <p>The broker destinations are handled by the in-memory broker, or relayed to the external
+   * broker when the relay is enabled. With the relay, messages to users connected to another
+   * instance are passed on through the broker.
+   *
    * @param registry the MessageBrokerRegistry to configure
    */
   @Override
   public void configureMessageBroker(MessageBrokerRegistry registry) {
-    registry.enableSimpleBroker("/topic", "/queue");
-    registry.setApplicationDestinationPrefixes("/app");
-    registry.setUserDestinationPrefix("/user/");  // Add trailing slash
-  }
-
-  private String getUserIdFromRequest(ServerHttpRequest request) {
-    // Extract from headers or query parameters
-    String query = request.getURI().getQuery();
-    if (query != null) {
-      String[] params = query.split("&");
-      for (String param : params) {
-        if (param.startsWith("userId=")) {
-          return param.substring(7);
-        }
+    if (relayEnabled) {
+      StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic", "/queue")
+          .setRelayHost(relayHost)
+          .setRelayPort(relayPort)
+          .setClientLogin(relayLogin)
+          .setClientPasscode(relayPasscode)
+          .setSystemLogin(relayLogin)
+          .setSystemPasscode(relayPasscode)
+          .setUserDestinationBroadcast(UNRESOLVED_USER_DESTINATION)
+          .setUserRegistryBroadcast(USER_REGISTRY_DESTINATION);
+      if (!relayVirtualHost.isBlank()) {
+        relay.setVirtualHost(relayVirtualHost);
       }
+    } else {
+      registry.enableSimpleBroker("/topic", "/queue");
     }
-    return null;
+    registry.setApplicationDestinationPrefixes("/app");
+    registry.setUserDestinationPrefix("/user/");  // Add trailing slash
   }
 
-  private static class StompPrincipal implements Principal {
-
-    private final String name;
-
-    public StompPrincipal(String name) {
-      this.name = name;
-    }
-
-    @Override
-    public String getName() {
-      return name;
-    }
+  /**
+   * Authenticates the sessions on the messages from the clients.
+   *
+   * @param registration the registration of the client inbound channel
+   */
+  @Override
+  public void configureClientInboundChannel(ChannelRegistration registration) {
+    registration.interceptors(authChannelInterceptor);
   }
-}
\ No newline at end of file
+}
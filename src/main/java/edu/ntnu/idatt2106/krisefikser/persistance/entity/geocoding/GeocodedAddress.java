@@ -0,0 +1,123 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.entity.geocoding;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Memoized result of geocoding an address. Addresses the geocoder could not resolve are stored
+ * without coordinates, so they are not looked up again until the retry period has passed.
+ */
+@Entity
+@Table(name = "geocoded_address")
+public class GeocodedAddress {
+
+  @Id
+  @Column(name = "address_key")
+  private String addressKey;
+
+  @Column
+  private Double latitude;
+
+  @Column
+  private Double longitude;
+
+  @Column(nullable = false)
+  private LocalDateTime resolvedAt;
+
+  /**
+   * Default constructor.
+   */
+  public GeocodedAddress() {
+  }
+
+  /**
+   * Constructor for GeocodedAddress.
+   *
+   * @param addressKey the normalized address
+   * @param latitude   the latitude, or null if the address could not be resolved
+   * @param longitude  the longitude, or null if the address could not be resolved
+   * @param resolvedAt the time the address was looked up
+   */
+  public GeocodedAddress(String addressKey, Double latitude, Double longitude,
+      LocalDateTime resolvedAt) {
+    this.addressKey = addressKey;
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.resolvedAt = resolvedAt;
+  }
+
+  /**
+   * Gets the normalized address.
+   *
+   * @return the normalized address
+   */
+  public String getAddressKey() {
+    return addressKey;
+  }
+
+  /**
+   * Sets the normalized address.
+   *
+   * @param addressKey the normalized address
+   */
+  public void setAddressKey(String addressKey) {
+    this.addressKey = addressKey;
+  }
+
+  /**
+   * Gets the latitude.
+   *
+   * @return the latitude, or null if the address could not be resolved
+   */
+  public Double getLatitude() {
+    return latitude;
+  }
+
+  /**
+   * Sets the latitude.
+   *
+   * @param latitude the latitude
+   */
+  public void setLatitude(Double latitude) {
+    this.latitude = latitude;
+  }
+
+  /**
+   * Gets the longitude.
+   *
+   * @return the longitude, or null if the address could not be resolved
+   */
+  public Double getLongitude() {
+    return longitude;
+  }
+
+  /**
+   * Sets the longitude.
+   *
+   * @param longitude the longitude
+   */
+  public void setLongitude(Double longitude) {
+    this.longitude = longitude;
+  }
+
+  /**
+   * Gets the time the address was looked up.
+   *
+   * @return the time of the lookup
+   */
+  public LocalDateTime getResolvedAt() {
+    return resolvedAt;
+  }
+
+  /**
+   * Sets the time the address was looked up.
+   *
+   * @param resolvedAt the time of the lookup
+   */
+  public void setResolvedAt(LocalDateTime resolvedAt) {
+    this.resolvedAt = resolvedAt;
+  }
+}
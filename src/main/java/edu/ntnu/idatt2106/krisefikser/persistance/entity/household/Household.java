@@ -32,6 +32,12 @@ public class Household {
   @Column(nullable = false)
   private int numberOfMembers;
 
+  @Column
+  private Double latitude;
+
+  @Column
+  private Double longitude;
+
   @OneToOne
   @JoinColumn(nullable = false)
   private User owner;
@@ -130,6 +136,42 @@ public class Household {
     this.numberOfMembers = numberOfMembers;
   }
 
+  /**
+   * Gets latitude, resolved from the address.
+   *
+   * @return the latitude, or null if the address has not been geocoded
+   */
+  public Double getLatitude() {
+    return latitude;
+  }
+
+  /**
+   * Sets latitude.
+   *
+   * @param latitude the latitude
+   */
+  public void setLatitude(Double latitude) {
+    this.latitude = latitude;
+  }
+
+  /**
+   * Gets longitude, resolved from the address.
+   *
+   * @return the longitude, or null if the address has not been geocoded
+   */
+  public Double getLongitude() {
+    return longitude;
+  }
+
+  /**
+   * Sets longitude.
+   *
+   * @param longitude the longitude
+   */
+  public void setLongitude(Double longitude) {
+    this.longitude = longitude;
+  }
+
   /**
    * Gets owner.
    *
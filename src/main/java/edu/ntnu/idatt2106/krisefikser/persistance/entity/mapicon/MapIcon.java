@@ -8,13 +8,18 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 /**
  * The type Map icon.
  */
 @Entity
-@Table(name = "map_icon")
+@Table(name = "map_icon", indexes = {
+    @Index(name = "idx_map_icon_lat_lon", columnList = "latitude, longitude"),
+    @Index(name = "idx_map_icon_type_lat_lon", columnList = "type, latitude, longitude"),
+    @Index(name = "idx_map_icon_revision", columnList = "revision")
+})
 public class MapIcon {
 
   @Id
@@ -43,6 +48,9 @@ public class MapIcon {
   @Column(length = 255)
   private String contactInfo;
 
+  @Column(nullable = false)
+  private long revision;
+
   /**
    * Gets the ID of the map icon.
    *
@@ -186,4 +194,22 @@ public class MapIcon {
   public void setContactInfo(String contactInfo) {
     this.contactInfo = contactInfo;
   }
+
+  /**
+   * Gets the revision at which the map icon was last created or changed.
+   *
+   * @return the revision of the map icon
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Sets the revision at which the map icon was last created or changed.
+   *
+   * @param revision the revision of the map icon
+   */
+  public void setRevision(long revision) {
+    this.revision = revision;
+  }
 }
@@ -0,0 +1,79 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Counter holding the latest map icon revision. The table has a single row, which is locked while
+ * a write takes the next revision, so revisions become visible in the order they were handed out.
+ */
+@Entity
+@Table(name = "map_icon_revision")
+public class MapIconRevision {
+
+  /**
+   * The ID of the single counter row.
+   */
+  public static final int COUNTER_ID = 1;
+
+  @Id
+  private Integer id;
+
+  @Column(name = "current_revision", nullable = false)
+  private long currentRevision;
+
+  /**
+   * Default constructor.
+   */
+  public MapIconRevision() {
+  }
+
+  /**
+   * Constructor for MapIconRevision.
+   *
+   * @param id              the ID of the counter row
+   * @param currentRevision the latest revision handed out
+   */
+  public MapIconRevision(Integer id, long currentRevision) {
+    this.id = id;
+    this.currentRevision = currentRevision;
+  }
+
+  /**
+   * Gets the ID of the counter row.
+   *
+   * @return the ID of the counter row
+   */
+  public Integer getId() {
+    return id;
+  }
+
+  /**
+   * Sets the ID of the counter row.
+   *
+   * @param id the ID of the counter row
+   */
+  public void setId(Integer id) {
+    this.id = id;
+  }
+
+  /**
+   * Gets the latest revision handed out.
+   *
+   * @return the latest revision
+   */
+  public long getCurrentRevision() {
+    return currentRevision;
+  }
+
+  /**
+   * Sets the latest revision handed out.
+   *
+   * @param currentRevision the latest revision
+   */
+  public void setCurrentRevision(long currentRevision) {
+    this.currentRevision = currentRevision;
+  }
+}
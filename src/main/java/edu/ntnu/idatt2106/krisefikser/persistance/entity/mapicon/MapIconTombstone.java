@@ -0,0 +1,77 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Record of a deleted map icon, kept so clients syncing by revision learn about the deletion.
+ */
+@Entity
+@Table(name = "map_icon_tombstone", indexes = {
+    @Index(name = "idx_map_icon_tombstone_revision", columnList = "revision")
+})
+public class MapIconTombstone {
+
+  @Id
+  @Column(name = "map_icon_id")
+  private Long mapIconId;
+
+  @Column(nullable = false)
+  private long revision;
+
+  /**
+   * Default constructor.
+   */
+  public MapIconTombstone() {
+  }
+
+  /**
+   * Constructor for MapIconTombstone.
+   *
+   * @param mapIconId the ID of the deleted map icon
+   * @param revision  the revision at which the map icon was deleted
+   */
+  public MapIconTombstone(Long mapIconId, long revision) {
+    this.mapIconId = mapIconId;
+    this.revision = revision;
+  }
+
+  /**
+   * Gets the ID of the deleted map icon.
+   *
+   * @return the ID of the deleted map icon
+   */
+  public Long getMapIconId() {
+    return mapIconId;
+  }
+
+  /**
+   * Sets the ID of the deleted map icon.
+   *
+   * @param mapIconId the ID of the deleted map icon
+   */
+  public void setMapIconId(Long mapIconId) {
+    this.mapIconId = mapIconId;
+  }
+
+  /**
+   * Gets the revision at which the map icon was deleted.
+   *
+   * @return the revision of the deletion
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Sets the revision at which the map icon was deleted.
+   *
+   * @param revision the revision of the deletion
+   */
+  public void setRevision(long revision) {
+    this.revision = revision;
+  }
+}
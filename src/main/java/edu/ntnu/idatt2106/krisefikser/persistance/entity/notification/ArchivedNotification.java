@@ -0,0 +1,152 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.entity.notification;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * A read notification moved out of the notification table by the retention job, so the table
+ * users read their feed from stays small. Keeps the id it had in the notification table.
+ */
+@Entity
+@Table(name = "notification_archive", indexes = {
+    @Index(name = "idx_notification_archive_user_timestamp", columnList = "user_id, timestamp")
+})
+public class ArchivedNotification {
+
+  @Id
+  private Long id;
+
+  /**
+   * The id of the user. Not a foreign key, so the archive does not hold up deleting users.
+   */
+  @Column(name = "user_id", nullable = false, columnDefinition = "CHAR(36)")
+  private String userId;
+
+  @Column(name = "type")
+  @Enumerated(EnumType.STRING)
+  private NotificationType type;
+
+  @Column(name = "message")
+  private String message;
+
+  @Column(name = "timestamp", nullable = false)
+  private LocalDateTime timestamp;
+
+  @Column(name = "archived_at", nullable = false)
+  private LocalDateTime archivedAt;
+
+  /**
+   * Gets id.
+   *
+   * @return the id
+   */
+  public Long getId() {
+    return id;
+  }
+
+  /**
+   * Sets id.
+   *
+   * @param id the id
+   */
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  /**
+   * Gets the id of the user.
+   *
+   * @return the user id
+   */
+  public String getUserId() {
+    return userId;
+  }
+
+  /**
+   * Sets the id of the user.
+   *
+   * @param userId the user id
+   */
+  public void setUserId(String userId) {
+    this.userId = userId;
+  }
+
+  /**
+   * Gets type.
+   *
+   * @return the type
+   */
+  public NotificationType getType() {
+    return type;
+  }
+
+  /**
+   * Sets type.
+   *
+   * @param type the type
+   */
+  public void setType(NotificationType type) {
+    this.type = type;
+  }
+
+  /**
+   * Gets message.
+   *
+   * @return the message
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Sets message.
+   *
+   * @param message the message
+   */
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  /**
+   * Gets the time the notification was sent.
+   *
+   * @return the timestamp
+   */
+  public LocalDateTime getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Sets the time the notification was sent.
+   *
+   * @param timestamp the timestamp
+   */
+  public void setTimestamp(LocalDateTime timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Gets the time the notification was archived.
+   *
+   * @return the archive time
+   */
+  public LocalDateTime getArchivedAt() {
+    return archivedAt;
+  }
+
+  /**
+   * Sets the time the notification was archived.
+   *
+   * @param archivedAt the archive time
+   */
+  public void setArchivedAt(LocalDateTime archivedAt) {
+    this.archivedAt = archivedAt;
+  }
+}
@@ -0,0 +1,135 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.entity.notification;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * A notification to every member of a household, stored once for the whole household. Whether a
+ * member has read it is stored as a {@link HouseholdNotificationReceipt}.
+ */
+@Entity
+@Table(name = "household_notification", indexes = {
+    @Index(name = "idx_household_notification_household", columnList = "household_id, timestamp, id")
+})
+public class HouseholdNotification {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /**
+   * The id of the household. Not a foreign key, so a notification about a deleted household can
+   * still be kept.
+   */
+  @Column(name = "household_id", nullable = false, columnDefinition = "CHAR(36)")
+  private String householdId;
+
+  @Column(name = "type")
+  @Enumerated(EnumType.STRING)
+  private NotificationType type;
+
+  @Column(name = "message")
+  private String message;
+
+  @Column(name = "timestamp", nullable = false)
+  private LocalDateTime timestamp;
+
+  /**
+   * Gets id.
+   *
+   * @return the id
+   */
+  public Long getId() {
+    return id;
+  }
+
+  /**
+   * Sets id.
+   *
+   * @param id the id
+   */
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  /**
+   * Gets household id.
+   *
+   * @return the household id
+   */
+  public String getHouseholdId() {
+    return householdId;
+  }
+
+  /**
+   * Sets household id.
+   *
+   * @param householdId the household id
+   */
+  public void setHouseholdId(String householdId) {
+    this.householdId = householdId;
+  }
+
+  /**
+   * Gets type.
+   *
+   * @return the type
+   */
+  public NotificationType getType() {
+    return type;
+  }
+
+  /**
+   * Sets type.
+   *
+   * @param type the type
+   */
+  public void setType(NotificationType type) {
+    this.type = type;
+  }
+
+  /**
+   * Gets message.
+   *
+   * @return the message
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Sets message.
+   *
+   * @param message the message
+   */
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  /**
+   * Gets timestamp.
+   *
+   * @return the timestamp
+   */
+  public LocalDateTime getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Sets timestamp.
+   *
+   * @param timestamp the timestamp
+   */
+  public void setTimestamp(LocalDateTime timestamp) {
+    this.timestamp = timestamp;
+  }
+}
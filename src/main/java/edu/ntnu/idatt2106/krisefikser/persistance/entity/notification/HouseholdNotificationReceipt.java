@@ -0,0 +1,96 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.entity.notification;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+
+/**
+ * Records that a household member has read a {@link HouseholdNotification}. A member without a
+ * receipt has not read it.
+ */
+@Entity
+@Table(name = "household_notification_receipt", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_household_notification_receipt",
+        columnNames = {"notification_id", "user_id"})
+})
+public class HouseholdNotificationReceipt {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @JoinColumn(name = "notification_id")
+  @ManyToOne(optional = false)
+  private HouseholdNotification notification;
+
+  @JoinColumn(name = "user_id")
+  @ManyToOne(optional = false)
+  private User user;
+
+  @Column(name = "read_at", nullable = false)
+  private LocalDateTime readAt;
+
+  /**
+   * Default constructor for JPA.
+   */
+  public HouseholdNotificationReceipt() {
+  }
+
+  /**
+   * Creates a receipt.
+   *
+   * @param notification the notification that was read
+   * @param user         the user who read it
+   * @param readAt       the time it was read
+   */
+  public HouseholdNotificationReceipt(HouseholdNotification notification, User user,
+      LocalDateTime readAt) {
+    this.notification = notification;
+    this.user = user;
+    this.readAt = readAt;
+  }
+
+  /**
+   * Gets id.
+   *
+   * @return the id
+   */
+  public Long getId() {
+    return id;
+  }
+
+  /**
+   * Gets the notification that was read.
+   *
+   * @return the notification
+   */
+  public HouseholdNotification getNotification() {
+    return notification;
+  }
+
+  /**
+   * Gets the user who read the notification.
+   *
+   * @return the user
+   */
+  public User getUser() {
+    return user;
+  }
+
+  /**
+   * Gets the time the notification was read.
+   *
+   * @return the time it was read
+   */
+  public LocalDateTime getReadAt() {
+    return readAt;
+  }
+}
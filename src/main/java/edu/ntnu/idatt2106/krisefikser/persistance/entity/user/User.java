@@ -8,6 +8,7 @@ import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -18,7 +19,9 @@ import org.hibernate.annotations.GenericGenerator;
  * The type User.
  */
 @Entity
-@Table(name = "\"user\"")
+@Table(name = "\"user\"", indexes = {
+    @Index(name = "idx_user_lat_lon", columnList = "latitude, longitude")
+})
 public class User {
 
   @Id
@@ -68,10 +71,10 @@ public class User {
   private String address;
 
   @Column(name = "longitude")
-  private String longitude;
+  private Double longitude;
 
   @Column(name = "latitude")
-  private String latitude;
+  private Double latitude;
 
 
   /**
@@ -127,7 +130,7 @@ public class User {
    *
    * @return the latitude
    */
-  public String getLatitude() {
+  public Double getLatitude() {
     return latitude;
   }
 
@@ -136,7 +139,7 @@ public class User {
    *
    * @param latitude the latitude
    */
-  public void setLatitude(String latitude) {
+  public void setLatitude(Double latitude) {
     this.latitude = latitude;
   }
 
@@ -145,7 +148,7 @@ public class User {
    *
    * @return the longitude
    */
-  public String getLongitude() {
+  public Double getLongitude() {
     return longitude;
   }
 
@@ -154,7 +157,7 @@ public class User {
    *
    * @param longitude the longitude
    */
-  public void setLongitude(String longitude) {
+  public void setLongitude(Double longitude) {
     this.longitude = longitude;
   }
 
@@ -0,0 +1,13 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.repository.geocoding;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.geocoding.GeocodedAddress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The interface Geocoded address repository.
+ */
+@Repository
+public interface GeocodedAddressRepository extends JpaRepository<GeocodedAddress, String> {
+
+}
@@ -1,7 +1,9 @@
 package edu.ntnu.idatt2106.krisefikser.persistance.repository.household;
 
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.household.Household;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -33,4 +35,33 @@ public interface HouseholdRepository extends JpaRepository<Household, String> {
    * @return an Optional containing the Household if found
    */
   Optional<Household> findByName(String name);
-}
\ No newline at end of file
+
+  /**
+   * Find households without coordinates, ordered by ID.
+   *
+   * @param afterId  only households with a greater ID are returned
+   * @param pageable the maximum number of households to return
+   * @return a list of households
+   */
+  @Query("SELECT h FROM Household h WHERE (h.latitude IS NULL OR h.longitude IS NULL) "
+      + "AND h.id > :afterId ORDER BY h.id")
+  List<Household> findWithoutCoordinatesAfter(@Param("afterId") String afterId,
+      Pageable pageable);
+
+  /**
+   * Set the coordinates of a household, unless its address has changed or it already has
+   * coordinates.
+   *
+   * @param id        the household id
+   * @param address   the address the coordinates belong to
+   * @param latitude  the latitude
+   * @param longitude the longitude
+   * @return the number of households updated
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE Household h SET h.latitude = :latitude, h.longitude = :longitude "
+      + "WHERE h.id = :id AND h.address = :address AND (h.latitude IS NULL OR h.longitude IS NULL)")
+  int updateCoordinates(@Param("id") String id, @Param("address") String address,
+      @Param("latitude") double latitude, @Param("longitude") double longitude);
+}
@@ -3,7 +3,10 @@ package edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -19,4 +22,59 @@ public interface MapIconRepository extends JpaRepository<MapIcon, Long> {
    * @return a list of map icons
    */
   List<MapIcon> findByType(MapIconType type);
+
+  /**
+   * Find all map icons inside a bounding box. The box must not cross the antimeridian.
+   *
+   * @param minLatitude  the southern edge of the box
+   * @param maxLatitude  the northern edge of the box
+   * @param minLongitude the western edge of the box
+   * @param maxLongitude the eastern edge of the box
+   * @return a list of map icons
+   */
+  @Query("SELECT m FROM MapIcon m WHERE m.latitude BETWEEN :minLatitude AND :maxLatitude "
+      + "AND m.longitude BETWEEN :minLongitude AND :maxLongitude")
+  List<MapIcon> findInBoundingBox(@Param("minLatitude") double minLatitude,
+      @Param("maxLatitude") double maxLatitude,
+      @Param("minLongitude") double minLongitude,
+      @Param("maxLongitude") double maxLongitude);
+
+  /**
+   * Find all map icons of a type inside a bounding box. The box must not cross the antimeridian.
+   *
+   * @param type         the type of the map icon
+   * @param minLatitude  the southern edge of the box
+   * @param maxLatitude  the northern edge of the box
+   * @param minLongitude the western edge of the box
+   * @param maxLongitude the eastern edge of the box
+   * @return a list of map icons
+   */
+  @Query("SELECT m FROM MapIcon m WHERE m.type = :type "
+      + "AND m.latitude BETWEEN :minLatitude AND :maxLatitude "
+      + "AND m.longitude BETWEEN :minLongitude AND :maxLongitude")
+  List<MapIcon> findByTypeInBoundingBox(@Param("type") MapIconType type,
+      @Param("minLatitude") double minLatitude,
+      @Param("maxLatitude") double maxLatitude,
+      @Param("minLongitude") double minLongitude,
+      @Param("maxLongitude") double maxLongitude);
+
+  /**
+   * Find all map icons with a revision in a range.
+   *
+   * @param fromRevision the lowest revision to include
+   * @param toRevision   the highest revision to include
+   * @return a list of map icons ordered by revision
+   */
+  List<MapIcon> findByRevisionBetweenOrderByRevisionAsc(long fromRevision, long toRevision);
+
+  /**
+   * Find map icons that have an address but no coordinates, ordered by ID.
+   *
+   * @param afterId  only map icons with a greater ID are returned
+   * @param pageable the maximum number of map icons to return
+   * @return a list of map icons
+   */
+  @Query("SELECT m FROM MapIcon m WHERE (m.latitude IS NULL OR m.longitude IS NULL) "
+      + "AND m.address IS NOT NULL AND m.id > :afterId ORDER BY m.id")
+  List<MapIcon> findWithoutCoordinatesAfter(@Param("afterId") long afterId, Pageable pageable);
 }
@@ -0,0 +1,27 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIconRevision;
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The interface Map icon revision repository.
+ */
+@Repository
+public interface MapIconRevisionRepository extends JpaRepository<MapIconRevision, Integer> {
+
+  /**
+   * Find the revision counter and lock it until the current transaction ends.
+   *
+   * @param id the ID of the counter row
+   * @return the revision counter, if it exists
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT r FROM MapIconRevision r WHERE r.id = :id")
+  Optional<MapIconRevision> findByIdForUpdate(@Param("id") Integer id);
+}
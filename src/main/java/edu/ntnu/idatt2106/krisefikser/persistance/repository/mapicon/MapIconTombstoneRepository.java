@@ -0,0 +1,23 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIconTombstone;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The interface Map icon tombstone repository.
+ */
+@Repository
+public interface MapIconTombstoneRepository extends JpaRepository<MapIconTombstone, Long> {
+
+  /**
+   * Find all tombstones with a revision in a range.
+   *
+   * @param fromRevision the lowest revision to include
+   * @param toRevision   the highest revision to include
+   * @return a list of tombstones ordered by revision
+   */
+  List<MapIconTombstone> findByRevisionBetweenOrderByRevisionAsc(long fromRevision,
+      long toRevision);
+}
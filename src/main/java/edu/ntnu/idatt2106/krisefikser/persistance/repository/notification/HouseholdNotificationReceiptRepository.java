@@ -0,0 +1,93 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.repository.notification;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.notification.HouseholdNotificationReceipt;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The interface Household notification receipt repository.
+ */
+public interface HouseholdNotificationReceiptRepository
+    extends JpaRepository<HouseholdNotificationReceipt, Long> {
+
+  /**
+   * Find the ids of the notifications of a household that a user has read.
+   *
+   * @param userId      the user id
+   * @param householdId the household id
+   * @return the ids of the read notifications
+   */
+  @Query("SELECT r.notification.id FROM HouseholdNotificationReceipt r "
+      + "WHERE r.user.id = :userId AND r.notification.householdId = :householdId")
+  Set<Long> findReadNotificationIds(@Param("userId") String userId,
+      @Param("householdId") String householdId);
+
+  /**
+   * Find which of some household notifications a user has read.
+   *
+   * @param userId          the user id
+   * @param notificationIds the ids of the notifications to check
+   * @return the ids of the read notifications
+   */
+  @Query("SELECT r.notification.id FROM HouseholdNotificationReceipt r "
+      + "WHERE r.user.id = :userId AND r.notification.id IN :notificationIds")
+  Set<Long> findReadNotificationIdsIn(@Param("userId") String userId,
+      @Param("notificationIds") Collection<Long> notificationIds);
+
+  /**
+   * Count the notifications of a household that a user has read.
+   *
+   * @param userId      the user id
+   * @param householdId the household id
+   * @return the number of read notifications
+   */
+  long countByUserIdAndNotificationHouseholdId(String userId, String householdId);
+
+  /**
+   * Add read receipts for a user to some notifications of their household that they have not
+   * read yet.
+   *
+   * @param userId      the user id
+   * @param householdId the household id, where ids of other households are ignored
+   * @param ids         the notification ids
+   * @param readAt      the time they were read
+   * @return the number of added receipts
+   */
+  @Modifying
+  @Transactional
+  @Query(value = "INSERT INTO household_notification_receipt (notification_id, user_id, read_at) "
+      + "SELECT n.id, :userId, :readAt FROM household_notification n "
+      + "WHERE n.household_id = :householdId AND n.id IN :ids AND NOT EXISTS ("
+      + "SELECT 1 FROM household_notification_receipt r "
+      + "WHERE r.notification_id = n.id AND r.user_id = :userId)", nativeQuery = true)
+  int insertReceiptsByIds(@Param("userId") String userId,
+      @Param("householdId") String householdId, @Param("ids") Collection<Long> ids,
+      @Param("readAt") LocalDateTime readAt);
+
+  /**
+   * Add read receipts for a user to every notification of their household older than a
+   * timestamp that they have not read yet.
+   *
+   * @param userId      the user id
+   * @param householdId the household id
+   * @param before      the timestamp
+   * @param readAt      the time they were read
+   * @return the number of added receipts
+   */
+  @Modifying
+  @Transactional
+  @Query(value = "INSERT INTO household_notification_receipt (notification_id, user_id, read_at) "
+      + "SELECT n.id, :userId, :readAt FROM household_notification n "
+      + "WHERE n.household_id = :householdId AND n.timestamp < :before AND NOT EXISTS ("
+      + "SELECT 1 FROM household_notification_receipt r "
+      + "WHERE r.notification_id = n.id AND r.user_id = :userId)", nativeQuery = true)
+  int insertReceiptsBefore(@Param("userId") String userId,
+      @Param("householdId") String householdId, @Param("before") LocalDateTime before,
+      @Param("readAt") LocalDateTime readAt);
+}
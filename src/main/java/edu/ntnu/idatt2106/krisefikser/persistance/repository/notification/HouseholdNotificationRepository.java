@@ -0,0 +1,80 @@
+package edu.ntnu.idatt2106.krisefikser.persistance.repository.notification;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.notification.HouseholdNotification;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * The interface Household notification repository.
+ */
+public interface HouseholdNotificationRepository
+    extends JpaRepository<HouseholdNotification, Long> {
+
+  /**
+   * Find all notifications of a household order by timestamp descending.
+   *
+   * @param householdId the household id
+   * @return the list of notifications
+   */
+  List<HouseholdNotification> findAllByHouseholdIdOrderByTimestampDesc(String householdId);
+
+  /**
+   * Find the newest notifications of a household, ordered by timestamp and id descending.
+   *
+   * @param householdId the household id
+   * @param pageable    the maximum number of notifications to return
+   * @return the list of notifications
+   */
+  List<HouseholdNotification> findByHouseholdIdOrderByTimestampDescIdDesc(String householdId,
+      Pageable pageable);
+
+  /**
+   * Find the notifications of a household that are older than a position in the feed, ordered by
+   * timestamp and id descending.
+   *
+   * @param householdId the household id
+   * @param timestamp   the timestamp of the position
+   * @param id          notifications with the same timestamp are returned if their id is lower
+   * @param pageable    the maximum number of notifications to return
+   * @return the list of notifications
+   */
+  @Query("SELECT n FROM HouseholdNotification n WHERE n.householdId = :householdId "
+      + "AND (n.timestamp < :timestamp OR (n.timestamp = :timestamp AND n.id < :id)) "
+      + "ORDER BY n.timestamp DESC, n.id DESC")
+  List<HouseholdNotification> findPageBefore(@Param("householdId") String householdId,
+      @Param("timestamp") LocalDateTime timestamp, @Param("id") long id, Pageable pageable);
+
+  /**
+   * Find the notifications of a household saved after the one with an id, ordered by id
+   * ascending.
+   *
+   * @param householdId the household id
+   * @param id          the id of the newest notification already seen
+   * @param pageable    the maximum number of notifications to return
+   * @return the list of notifications
+   */
+  List<HouseholdNotification> findByHouseholdIdAndIdGreaterThanOrderByIdAsc(String householdId,
+      long id, Pageable pageable);
+
+  /**
+   * Find the highest id of the notifications of a household.
+   *
+   * @param householdId the household id
+   * @return the highest id, or 0 if the household has no notifications
+   */
+  @Query("SELECT COALESCE(MAX(n.id), 0) FROM HouseholdNotification n "
+      + "WHERE n.householdId = :householdId")
+  long findMaxIdByHouseholdId(@Param("householdId") String householdId);
+
+  /**
+   * Count the notifications of a household.
+   *
+   * @param householdId the household id
+   * @return the number of notifications
+   */
+  long countByHouseholdId(String householdId);
+}
@@ -1,8 +1,15 @@
 package edu.ntnu.idatt2106.krisefikser.persistance.repository.notification;
 
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.notification.Notification;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The interface Notification repository.
@@ -17,4 +24,117 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
    */
   List<Notification> findAllByUserIdOrderByTimestampDesc(String userId);
 
+  /**
+   * Find the newest notifications of a user, ordered by timestamp and id descending.
+   *
+   * @param userId   the user id
+   * @param pageable the maximum number of notifications to return
+   * @return the list of notifications
+   */
+  List<Notification> findByUserIdOrderByTimestampDescIdDesc(String userId, Pageable pageable);
+
+  /**
+   * Find the notifications of a user that are older than a position in the feed, ordered by
+   * timestamp and id descending. The (user_id, timestamp, id) index serves both the filter and
+   * the order, so only the returned rows are read.
+   *
+   * @param userId    the user id
+   * @param timestamp the timestamp of the position
+   * @param id        notifications with the same timestamp are returned if their id is lower
+   * @param pageable  the maximum number of notifications to return
+   * @return the list of notifications
+   */
+  @Query("SELECT n FROM Notification n WHERE n.user.id = :userId "
+      + "AND (n.timestamp < :timestamp OR (n.timestamp = :timestamp AND n.id < :id)) "
+      + "ORDER BY n.timestamp DESC, n.id DESC")
+  List<Notification> findPageBefore(@Param("userId") String userId,
+      @Param("timestamp") LocalDateTime timestamp, @Param("id") long id, Pageable pageable);
+
+  /**
+   * Find the notifications of a user saved after the one with an id, ordered by id ascending.
+   * The (user_id, id) index serves both the filter and the order.
+   *
+   * @param userId   the user id
+   * @param id       the id of the newest notification already seen
+   * @param pageable the maximum number of notifications to return
+   * @return the list of notifications
+   */
+  List<Notification> findByUserIdAndIdGreaterThanOrderByIdAsc(String userId, long id,
+      Pageable pageable);
+
+  /**
+   * Find the highest id of the notifications of a user.
+   *
+   * @param userId the user id
+   * @return the highest id, or 0 if the user has no notifications
+   */
+  @Query("SELECT COALESCE(MAX(n.id), 0) FROM Notification n WHERE n.user.id = :userId")
+  long findMaxIdByUserId(@Param("userId") String userId);
+
+  /**
+   * Check whether a notification belongs to a user.
+   *
+   * @param id     the notification id
+   * @param userId the user id
+   * @return true if the notification exists and belongs to the user
+   */
+  boolean existsByIdAndUserId(Long id, String userId);
+
+  /**
+   * Count the unread notifications of a user.
+   *
+   * @param userId the user id
+   * @return the number of unread notifications
+   */
+  long countByUserIdAndIsReadFalse(String userId);
+
+  /**
+   * Mark some unread notifications of a user as read.
+   *
+   * @param userId the user id
+   * @param ids    the notification ids, where ids of other users are ignored
+   * @return the number of notifications that were unread
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE Notification n SET n.isRead = true "
+      + "WHERE n.user.id = :userId AND n.id IN :ids AND n.isRead = false")
+  int markAsReadByIds(@Param("userId") String userId, @Param("ids") Collection<Long> ids);
+
+  /**
+   * Mark every unread notification of a user older than a timestamp as read.
+   *
+   * @param userId the user id
+   * @param before the timestamp
+   * @return the number of notifications that were unread
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE Notification n SET n.isRead = true "
+      + "WHERE n.user.id = :userId AND n.timestamp < :before AND n.isRead = false")
+  int markAsReadBefore(@Param("userId") String userId, @Param("before") LocalDateTime before);
+
+  /**
+   * Delete some notifications of a user.
+   *
+   * @param userId the user id
+   * @param ids    the notification ids, where ids of other users are ignored
+   * @return the number of deleted notifications
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM Notification n WHERE n.user.id = :userId AND n.id IN :ids")
+  int deleteByIds(@Param("userId") String userId, @Param("ids") Collection<Long> ids);
+
+  /**
+   * Delete every notification of a user older than a timestamp.
+   *
+   * @param userId the user id
+   * @param before the timestamp
+   * @return the number of deleted notifications
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM Notification n WHERE n.user.id = :userId AND n.timestamp < :before")
+  int deleteBefore(@Param("userId") String userId, @Param("before") LocalDateTime before);
 }
@@ -85,19 +85,77 @@ public interface UserRepository extends JpaRepository<User, String> {
   Optional<User> getUsersById(String userId);
 
   /**
-   * Find users within a certain radius of a given latitude and longitude.
+   * Finds the id of the household of a user, without loading the user.
    *
-   * @param latitude  the latitude
-   * @param longitude the longitude
-   * @param radius    the radius in kilometers
+   * @param userId the user id
+   * @return the household id, or empty if the user has no household
+   */
+  @Query("SELECT u.household.id FROM User u WHERE u.id = :userId")
+  Optional<String> findHouseholdIdById(@Param("userId") String userId);
+
+  /**
+   * Find users within a certain radius of a given latitude and longitude. The bounding box of the
+   * circle is checked first, so the coordinate index narrows the users down to a range before the
+   * exact distance is computed for the remaining candidates.
+   *
+   * @param latitude     the latitude
+   * @param longitude    the longitude
+   * @param radius       the radius in kilometers
+   * @param minLatitude  the southern edge of the bounding box of the circle
+   * @param maxLatitude  the northern edge of the bounding box of the circle
+   * @param minLongitude the western edge of the bounding box of the circle
+   * @param maxLongitude the eastern edge of the bounding box of the circle
    * @return a list of users within the specified radius
    */
   @Query(value = "SELECT u.* FROM user u WHERE "
-      + "(6371 * acos(cos(radians(:latitude)) * cos(radians(u.latitude)) * "
-      + "cos(radians(u.longitude) - radians(:longitude)) + "
-      + "sin(radians(:latitude)) * sin(radians(u.latitude)))) <= :radius",
+      + "u.latitude BETWEEN :minLatitude AND :maxLatitude "
+      + "AND u.longitude BETWEEN :minLongitude AND :maxLongitude "
+      + "AND (2 * 6371 * asin(sqrt("
+      + "power(sin(radians(u.latitude - :latitude) / 2), 2) + "
+      + "cos(radians(:latitude)) * cos(radians(u.latitude)) * "
+      + "power(sin(radians(u.longitude - :longitude) / 2), 2)))) <= :radius",
       nativeQuery = true)
   List<User> findUsersWithinRadius(@Param("latitude") double latitude,
       @Param("longitude") double longitude,
-      @Param("radius") double radius);
-}
\ No newline at end of file
+      @Param("radius") double radius,
+      @Param("minLatitude") double minLatitude,
+      @Param("maxLatitude") double maxLatitude,
+      @Param("minLongitude") double minLongitude,
+      @Param("maxLongitude") double maxLongitude);
+
+  /**
+   * Find the coordinates of every user who has reported a position, without loading the users.
+   *
+   * @return the id and coordinates of each positioned user
+   */
+  @Query("SELECT u.id AS id, u.latitude AS latitude, u.longitude AS longitude FROM User u "
+      + "WHERE u.latitude IS NOT NULL AND u.longitude IS NOT NULL")
+  List<UserCoordinates> findAllCoordinates();
+
+  /**
+   * The id and coordinates of a user.
+   */
+  interface UserCoordinates {
+
+    /**
+     * Gets the id of the user.
+     *
+     * @return the id
+     */
+    String getId();
+
+    /**
+     * Gets the latitude of the user.
+     *
+     * @return the latitude
+     */
+    Double getLatitude();
+
+    /**
+     * Gets the longitude of the user.
+     *
+     * @return the longitude
+     */
+    Double getLongitude();
+  }
+}
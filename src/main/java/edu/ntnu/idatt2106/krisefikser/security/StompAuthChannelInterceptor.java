@@ -0,0 +1,181 @@
+package edu.ntnu.idatt2106.krisefikser.security;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import edu.ntnu.idatt2106.krisefikser.config.WebSocketConfig;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry.SessionUser;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticates STOMP sessions when they connect. The JWT in the Authorization header of the
+ * CONNECT frame is verified and the user is looked up once, and the user is kept in the session
+ * attributes and set as the principal of the session, so later messages need neither.
+ *
+ * <p>A CONNECT frame without a token is let through without a principal, so the session can
+ * still subscribe to broadcast topics. A CONNECT frame with a token that cannot be verified is
+ * rejected. Clients may neither subscribe nor send to the destinations the instances use to pass
+ * on messages to users and share their connected users through the broker relay.
+ *
+ * <p>The positions of a household, on {@code /topic/position/{householdId}} and its compact
+ * stream, may only be subscribed to by members of that household, and only the server sends to
+ * them. With the broker relay, the household of the session is read from the database again for
+ * the check, since the user may have left it through another instance. Subscriptions with
+ * wildcards are rejected, so they cannot be used to match these topics.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+  /**
+   * The session attribute holding the {@link SessionUser} of an authenticated session.
+   */
+  public static final String SESSION_USER = "sessionUser";
+
+  private static final Logger logger = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+  private static final Set<String> INTERNAL_DESTINATIONS = Set.of(
+      WebSocketConfig.UNRESOLVED_USER_DESTINATION, WebSocketConfig.USER_REGISTRY_DESTINATION);
+
+  private static final String POSITION_TOPIC_PREFIX = "/topic/position/";
+
+  private final JwtTokenProvider tokenProvider;
+  private final UserRepository userRepository;
+  private final WebSocketUserRegistry userRegistry;
+
+  /**
+   * Constructor for StompAuthChannelInterceptor.
+   *
+   * @param tokenProvider  the provider verifying the tokens
+   * @param userRepository the repository the users are looked up in
+   * @param userRegistry   the registry of the users with an open session
+   */
+  public StompAuthChannelInterceptor(JwtTokenProvider tokenProvider,
+      UserRepository userRepository, WebSocketUserRegistry userRegistry) {
+    this.tokenProvider = tokenProvider;
+    this.userRepository = userRepository;
+    this.userRegistry = userRegistry;
+  }
+
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+    StompHeaderAccessor accessor =
+        MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+    if (accessor == null || accessor.getCommand() == null) {
+      return message;
+    }
+    if (accessor.getCommand() == StompCommand.CONNECT) {
+      authenticate(accessor);
+    } else if (accessor.getCommand() == StompCommand.SUBSCRIBE
+        || accessor.getCommand() == StompCommand.SEND) {
+      authorize(accessor);
+    } else if (accessor.getCommand() == StompCommand.DISCONNECT) {
+      Map<String, Object> attributes = accessor.getSessionAttributes();
+      if (attributes != null && attributes.remove(SESSION_USER) instanceof SessionUser user) {
+        userRegistry.unregister(user);
+        logger.debug("User {} disconnected from session {}", user.getUserId(),
+            accessor.getSessionId());
+      }
+    }
+    return message;
+  }
+
+  private void authorize(StompHeaderAccessor accessor) {
+    String destination = accessor.getDestination();
+    if (destination == null) {
+      return;
+    }
+    if (INTERNAL_DESTINATIONS.contains(destination)) {
+      logger.warn("Rejected {} to internal destination {} from session {}",
+          accessor.getCommand(), destination, accessor.getSessionId());
+      throw new MessagingException("Access denied to " + destination);
+    }
+    if (accessor.getCommand() == StompCommand.SUBSCRIBE && isPattern(destination)) {
+      logger.warn("Rejected wildcard subscription to {} from session {}", destination,
+          accessor.getSessionId());
+      throw new MessagingException("Access denied to " + destination);
+    }
+    if (destination.startsWith(POSITION_TOPIC_PREFIX)
+        && (accessor.getCommand() == StompCommand.SEND
+        || !isMemberOf(accessor, householdOf(destination)))) {
+      logger.warn("Rejected {} to {} from session {}", accessor.getCommand(), destination,
+          accessor.getSessionId());
+      throw new MessagingException("Access denied to " + destination);
+    }
+  }
+
+  private static boolean isPattern(String destination) {
+    return destination.indexOf('*') >= 0 || destination.indexOf('?') >= 0
+        || destination.indexOf('{') >= 0 || destination.indexOf('#') >= 0;
+  }
+
+  private static String householdOf(String positionDestination) {
+    String householdId = positionDestination.substring(POSITION_TOPIC_PREFIX.length());
+    int slash = householdId.indexOf('/');
+    return slash < 0 ? householdId : householdId.substring(0, slash);
+  }
+
+  private boolean isMemberOf(StompHeaderAccessor accessor, String householdId) {
+    Map<String, Object> attributes = accessor.getSessionAttributes();
+    return attributes != null
+        && attributes.get(SESSION_USER) instanceof SessionUser user
+        && householdId.equals(userRegistry.refreshHousehold(user, true));
+  }
+
+  private void authenticate(StompHeaderAccessor accessor) {
+    String header = accessor.getFirstNativeHeader("Authorization");
+    if (header == null) {
+      logger.debug("Session {} connected without a token", accessor.getSessionId());
+      return;
+    }
+    String token = header.startsWith("Bearer ") ? header.substring(7) : header;
+
+    String email;
+    try {
+      email = tokenProvider.getUsernameFromToken(token);
+    } catch (JWTVerificationException e) {
+      logger.warn("Rejected STOMP connection with invalid token: {}", e.getMessage());
+      throw new MessagingException("Invalid token");
+    }
+    User user = userRepository.findByEmail(email)
+        .orElseThrow(() -> {
+          logger.warn("Rejected STOMP connection for unknown user: {}", email);
+          return new MessagingException("Invalid token");
+        });
+
+    SessionUser sessionUser = userRegistry.register(user);
+    Map<String, Object> attributes = accessor.getSessionAttributes();
+    if (attributes != null) {
+      attributes.put(SESSION_USER, sessionUser);
+    }
+    accessor.setUser(new StompPrincipal(user.getId()));
+    logger.info("Authenticated STOMP session {} for user {}", accessor.getSessionId(),
+        user.getId());
+  }
+
+  /**
+   * The principal of an authenticated session, named by the user id so messages to a user's
+   * queue reach their sessions.
+   *
+   * @param name the user id
+   */
+  private record StompPrincipal(String name) implements Principal {
+
+    @Override
+    public String getName() {
+      return name;
+    }
+  }
+}
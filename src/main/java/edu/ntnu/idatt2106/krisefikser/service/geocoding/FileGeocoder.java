@@ -0,0 +1,95 @@
+package edu.ntnu.idatt2106.krisefikser.service.geocoding;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Geocoder that looks addresses up in a local file instead of calling an external service.
+ *
+ * <p>Each line of the file holds an address, a latitude and a longitude separated by semicolons.
+ * Blank lines and lines starting with {@code #} are ignored. The file is read on the first lookup,
+ * and addresses are matched after normalization with {@link Geocoder#normalize(String)}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.geocoding.provider", havingValue = "file", matchIfMissing = true)
+public class FileGeocoder implements Geocoder {
+
+  private static final Logger logger = LoggerFactory.getLogger(FileGeocoder.class);
+
+  @Value("${app.geocoding.file:classpath:geocoding/addresses.csv}")
+  private Resource file;
+
+  private volatile Map<String, GeoCoordinates> coordinatesByAddress;
+
+  @Override
+  public Map<String, GeoCoordinates> geocode(Collection<String> addresses) {
+    Map<String, GeoCoordinates> known = coordinates();
+    Map<String, GeoCoordinates> result = new HashMap<>();
+    for (String address : addresses) {
+      GeoCoordinates coordinates = known.get(Geocoder.normalize(address));
+      if (coordinates != null) {
+        result.put(address, coordinates);
+      }
+    }
+    logger.debug("Resolved {} of {} addresses from file", result.size(), addresses.size());
+    return result;
+  }
+
+  private Map<String, GeoCoordinates> coordinates() {
+    Map<String, GeoCoordinates> loaded = coordinatesByAddress;
+    if (loaded == null) {
+      synchronized (this) {
+        loaded = coordinatesByAddress;
+        if (loaded == null) {
+          loaded = load();
+          coordinatesByAddress = loaded;
+        }
+      }
+    }
+    return loaded;
+  }
+
+  private Map<String, GeoCoordinates> load() {
+    Map<String, GeoCoordinates> loaded = new HashMap<>();
+    if (file == null || !file.exists()) {
+      logger.warn("Geocoding file {} not found, no addresses can be resolved", file);
+      return loaded;
+    }
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isBlank() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split(";");
+        try {
+          if (fields.length != 3) {
+            throw new IllegalArgumentException("expected address;latitude;longitude");
+          }
+          loaded.put(Geocoder.normalize(fields[0]), new GeoCoordinates(
+              Double.parseDouble(fields[1].trim()), Double.parseDouble(fields[2].trim())));
+        } catch (IllegalArgumentException e) {
+          logger.warn("Skipping line {} of geocoding file: {}", lineNumber, e.getMessage());
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Could not read geocoding file {}: {}", file, e.getMessage(), e);
+    }
+    logger.info("Loaded {} addresses from geocoding file {}", loaded.size(), file);
+    return loaded;
+  }
+}
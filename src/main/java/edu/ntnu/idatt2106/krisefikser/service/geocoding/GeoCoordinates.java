@@ -0,0 +1,11 @@
+package edu.ntnu.idatt2106.krisefikser.service.geocoding;
+
+/**
+ * A geographical position.
+ *
+ * @param latitude  the latitude in degrees
+ * @param longitude the longitude in degrees
+ */
+public record GeoCoordinates(double latitude, double longitude) {
+
+}
@@ -0,0 +1,35 @@
+package edu.ntnu.idatt2106.krisefikser.service.geocoding;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves addresses to coordinates. Implementations are called in batches from
+ * {@link GeocodingService}, which caches and memoizes their results, so they do not need to cache
+ * anything themselves.
+ */
+public interface Geocoder {
+
+  /**
+   * Looks up the coordinates of a batch of addresses.
+   *
+   * @param addresses the addresses to look up
+   * @return the coordinates of the addresses that could be resolved, keyed by the address as given
+   */
+  Map<String, GeoCoordinates> geocode(Collection<String> addresses);
+
+  /**
+   * Normalizes an address for lookups, so that addresses differing only in case or whitespace are
+   * treated as the same.
+   *
+   * @param address the address
+   * @return the normalized address, or an empty string if the address is null or blank
+   */
+  static String normalize(String address) {
+    if (address == null) {
+      return "";
+    }
+    return address.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,236 @@
+package edu.ntnu.idatt2106.krisefikser.service.geocoding;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.geocoding.GeocodedAddress;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.household.Household;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.geocoding.GeocodedAddressRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.household.HouseholdRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon.MapIconRepository;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service for resolving the coordinates of map icons and households that only have an address.
+ *
+ * <p>Lookups go through a bounded LRU cache of resolved addresses, then the
+ * {@code geocoded_address} table, and only addresses found in neither are passed to the
+ * {@link Geocoder}, in one batch. Every result is stored in the table, so an address is normally
+ * geocoded once; addresses that could not be resolved are tried again after a retry period. A
+ * scheduled job resolves the entities without coordinates in batches, off the request path.
+ */
+@Service
+@EnableScheduling
+public class GeocodingService {
+
+  private static final Logger logger = LoggerFactory.getLogger(GeocodingService.class);
+
+  private final Geocoder geocoder;
+  private final GeocodedAddressRepository geocodedAddressRepository;
+  private final MapIconRepository mapIconRepository;
+  private final HouseholdRepository householdRepository;
+  private final MapIconService mapIconService;
+  private final Map<String, GeoCoordinates> cache;
+
+  @Value("${app.geocoding.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${app.geocoding.cache-size:10000}")
+  private int cacheSize = 10000;
+
+  @Value("${app.geocoding.batch-size:100}")
+  private int batchSize = 100;
+
+  @Value("${app.geocoding.retry-after-hours:24}")
+  private long retryAfterHours = 24;
+
+  /**
+   * Constructor for GeocodingService.
+   *
+   * @param geocoder                  the geocoder for addresses that have not been seen before
+   * @param geocodedAddressRepository the repository memoizing geocoding results
+   * @param mapIconRepository         the repository for finding map icons without coordinates
+   * @param householdRepository       the repository for finding households without coordinates
+   * @param mapIconService            the service for updating map icons
+   */
+  public GeocodingService(Geocoder geocoder, GeocodedAddressRepository geocodedAddressRepository,
+      MapIconRepository mapIconRepository, HouseholdRepository householdRepository,
+      MapIconService mapIconService) {
+    this.geocoder = geocoder;
+    this.geocodedAddressRepository = geocodedAddressRepository;
+    this.mapIconRepository = mapIconRepository;
+    this.householdRepository = householdRepository;
+    this.mapIconService = mapIconService;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, GeoCoordinates> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  /**
+   * Resolves the coordinates of a batch of addresses.
+   *
+   * @param addresses the addresses to resolve
+   * @return the coordinates of the addresses that could be resolved, keyed by the address as given
+   */
+  public Map<String, GeoCoordinates> resolve(Collection<String> addresses) {
+    Map<String, GeoCoordinates> result = new HashMap<>();
+    Map<String, List<String>> pending = new HashMap<>();
+    synchronized (cache) {
+      for (String address : addresses) {
+        String key = Geocoder.normalize(address);
+        if (key.isEmpty()) {
+          continue;
+        }
+        GeoCoordinates cached = cache.get(key);
+        if (cached != null) {
+          result.put(address, cached);
+        } else {
+          pending.computeIfAbsent(key, k -> new ArrayList<>()).add(address);
+        }
+      }
+    }
+    if (pending.isEmpty()) {
+      return result;
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime retryBefore = now.minusHours(retryAfterHours);
+    for (GeocodedAddress memo : geocodedAddressRepository.findAllById(pending.keySet())) {
+      if (memo.getLatitude() != null && memo.getLongitude() != null) {
+        GeoCoordinates coordinates = new GeoCoordinates(memo.getLatitude(), memo.getLongitude());
+        remember(memo.getAddressKey(), coordinates);
+        pending.remove(memo.getAddressKey()).forEach(address -> result.put(address, coordinates));
+      } else if (memo.getResolvedAt().isAfter(retryBefore)) {
+        pending.remove(memo.getAddressKey());
+      }
+    }
+    if (pending.isEmpty()) {
+      return result;
+    }
+
+    Map<String, String> lookups = new HashMap<>();
+    pending.forEach((key, originals) -> lookups.put(originals.get(0), key));
+    Map<String, GeoCoordinates> found;
+    try {
+      found = geocoder.geocode(lookups.keySet());
+    } catch (RuntimeException e) {
+      // Nothing is memoized, so the addresses are tried again on the next run
+      logger.warn("Geocoding {} addresses failed: {}", lookups.size(), e.getMessage());
+      return result;
+    }
+
+    List<GeocodedAddress> memos = new ArrayList<>();
+    lookups.forEach((address, key) -> {
+      GeoCoordinates coordinates = found.get(address);
+      memos.add(new GeocodedAddress(key, coordinates != null ? coordinates.latitude() : null,
+          coordinates != null ? coordinates.longitude() : null, now));
+      if (coordinates != null) {
+        remember(key, coordinates);
+        pending.get(key).forEach(original -> result.put(original, coordinates));
+      }
+    });
+    geocodedAddressRepository.saveAll(memos);
+    logger.info("Geocoded {} new addresses, {} resolved", lookups.size(), found.size());
+    return result;
+  }
+
+  /**
+   * Resolves the coordinates of map icons and households that have an address but no coordinates.
+   * Runs periodically in the background.
+   */
+  @Scheduled(fixedDelayString = "${app.geocoding.interval-ms:60000}",
+      initialDelayString = "${app.geocoding.interval-ms:60000}")
+  public void geocodePending() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      int mapIcons = geocodeMapIcons();
+      int households = geocodeHouseholds();
+      if (mapIcons > 0 || households > 0) {
+        logger.info("Added coordinates to {} map icons and {} households", mapIcons, households);
+      }
+    } catch (Exception e) {
+      logger.error("Error while geocoding pending addresses: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Resolves the coordinates of all map icons without them, one batch at a time.
+   *
+   * @return the number of map icons that got coordinates
+   */
+  public int geocodeMapIcons() {
+    int located = 0;
+    long afterId = 0;
+    while (true) {
+      List<MapIcon> batch = mapIconRepository.findWithoutCoordinatesAfter(afterId,
+          PageRequest.of(0, batchSize));
+      if (batch.isEmpty()) {
+        return located;
+      }
+      Map<String, GeoCoordinates> coordinates = resolve(
+          batch.stream().map(MapIcon::getAddress).toList());
+      if (!coordinates.isEmpty()) {
+        located += mapIconService.locateMapIcons(
+            batch.stream().map(MapIcon::getId).toList(), coordinates);
+      }
+      if (batch.size() < batchSize) {
+        return located;
+      }
+      afterId = batch.get(batch.size() - 1).getId();
+    }
+  }
+
+  /**
+   * Resolves the coordinates of all households without them, one batch at a time.
+   *
+   * @return the number of households that got coordinates
+   */
+  public int geocodeHouseholds() {
+    int located = 0;
+    String afterId = "";
+    while (true) {
+      List<Household> batch = householdRepository.findWithoutCoordinatesAfter(afterId,
+          PageRequest.of(0, batchSize));
+      if (batch.isEmpty()) {
+        return located;
+      }
+      Map<String, GeoCoordinates> coordinates = resolve(
+          batch.stream().map(Household::getAddress).toList());
+      for (Household household : batch) {
+        GeoCoordinates found = coordinates.get(household.getAddress());
+        if (found != null) {
+          // Only applies if the address is still the one that was resolved
+          located += householdRepository.updateCoordinates(household.getId(),
+              household.getAddress(), found.latitude(), found.longitude());
+        }
+      }
+      if (batch.size() < batchSize) {
+        return located;
+      }
+      afterId = batch.get(batch.size() - 1).getId();
+    }
+  }
+
+  private void remember(String key, GeoCoordinates coordinates) {
+    synchronized (cache) {
+      cache.put(key, coordinates);
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package edu.ntnu.idatt2106.krisefikser.service.household;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionResponseDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.service.user.PositionWriteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory snapshot of the latest position of each member of a household, so opening the map
+ * does not load every member from the database.
+ *
+ * <p>A household is loaded from the database the first time its positions are asked for, taking
+ * positions not yet written by the {@link PositionWriteBuffer} into account, and is then kept up
+ * to date by the positions the members report. Households whose positions have not been asked for
+ * within the idle time are evicted, and a household is evicted whenever its members change. Since
+ * it only sees the positions reported to this instance, it should be disabled when several
+ * instances of the application run side by side.
+ */
+@Component
+public class HouseholdPositionCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(HouseholdPositionCache.class);
+
+  private final UserRepository userRepository;
+  private final PositionWriteBuffer positionBuffer;
+  private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+  @Value("${app.households.position-cache.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${app.households.position-cache.idle-ms:600000}")
+  private long idleMs = 600000;
+
+  /**
+   * Constructor for HouseholdPositionCache.
+   *
+   * @param userRepository the repository the members are loaded from
+   * @param positionBuffer the buffer of positions not yet written to the database
+   */
+  public HouseholdPositionCache(UserRepository userRepository,
+      PositionWriteBuffer positionBuffer) {
+    this.userRepository = userRepository;
+    this.positionBuffer = positionBuffer;
+  }
+
+  /**
+   * Gets the latest position of each member of a household, loading the household from the
+   * database if it is not in the cache.
+   *
+   * @param householdId the id of the household
+   * @return the positions of the members
+   */
+  public List<PositionResponseDto> getPositions(String householdId) {
+    if (!enabled) {
+      return load(householdId).values().stream().map(Member::toDto).toList();
+    }
+    Snapshot snapshot = snapshots.computeIfAbsent(householdId, id -> new Snapshot());
+    snapshot.lastReadAt = System.currentTimeMillis();
+    snapshot.ensureLoaded(householdId);
+    return snapshot.members.values().stream().map(Member::toDto).toList();
+  }
+
+  /**
+   * Records the position a member of a household has reported. Households not in the cache are
+   * left alone, since they read the position when they are loaded.
+   *
+   * @param householdId the id of the household
+   * @param userId      the id of the user
+   * @param fullName    the full name of the user
+   * @param latitude    the latitude of the user
+   * @param longitude   the longitude of the user
+   */
+  public void update(String householdId, String userId, String fullName, double latitude,
+      double longitude) {
+    Snapshot snapshot = snapshots.get(householdId);
+    if (snapshot != null) {
+      // Positions reported while the household is loading win over the loaded ones
+      snapshot.members.put(userId, new Member(userId, fullName, latitude, longitude));
+    }
+  }
+
+  /**
+   * Removes a household from the cache, so it is loaded again the next time it is asked for. When
+   * called inside a transaction, it is removed again after the commit, so a load in between does
+   * not keep the members from before the change.
+   *
+   * @param householdId the id of the household, or null to do nothing
+   */
+  public void evict(String householdId) {
+    if (householdId == null) {
+      return;
+    }
+    snapshots.remove(householdId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          snapshots.remove(householdId);
+        }
+      });
+    }
+  }
+
+  /**
+   * Evicts the households whose positions have not been asked for within the idle time.
+   *
+   * @return the number of households evicted
+   */
+  @Scheduled(fixedDelayString = "${app.households.position-cache.evict-interval-ms:60000}")
+  public int evictIdle() {
+    long idleSince = System.currentTimeMillis() - idleMs;
+    int before = snapshots.size();
+    snapshots.values().removeIf(snapshot -> snapshot.lastReadAt < idleSince);
+    int evicted = before - snapshots.size();
+    if (evicted > 0) {
+      logger.debug("Evicted {} idle households from the position cache", evicted);
+    }
+    return evicted;
+  }
+
+  /**
+   * Gets the number of households in the cache.
+   *
+   * @return the number of households
+   */
+  public int size() {
+    return snapshots.size();
+  }
+
+  private Map<String, Member> load(String householdId) {
+    List<User> users = userRepository.getUsersByHouseholdId(householdId);
+    Map<String, Member> members = new ConcurrentHashMap<>();
+    for (User user : users) {
+      Double latitude = user.getLatitude();
+      Double longitude = user.getLongitude();
+      PositionWriteBuffer.Position pending = positionBuffer.getPending(user.getId()).orElse(null);
+      if (pending != null) {
+        latitude = pending.latitude();
+        longitude = pending.longitude();
+      }
+      members.put(user.getId(), new Member(user.getId(), user.getFullName(), latitude, longitude));
+    }
+    logger.debug("Loaded {} members of household {} into the position cache", members.size(),
+        householdId);
+    return members;
+  }
+
+  /**
+   * The cached members of a household.
+   */
+  private final class Snapshot {
+
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile long lastReadAt = System.currentTimeMillis();
+
+    private void ensureLoaded(String householdId) {
+      if (loaded) {
+        return;
+      }
+      synchronized (this) {
+        if (!loaded) {
+          load(householdId).forEach(members::putIfAbsent);
+          loaded = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * The latest position of a member of a household.
+   */
+  private record Member(String userId, String fullName, Double latitude, Double longitude) {
+
+    private PositionResponseDto toDto() {
+      return new PositionResponseDto(userId, fullName, Objects.toString(longitude, null),
+          Objects.toString(latitude, null));
+    }
+  }
+}
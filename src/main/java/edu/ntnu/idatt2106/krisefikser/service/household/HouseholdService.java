@@ -20,6 +20,7 @@ import edu.ntnu.idatt2106.krisefikser.persistance.repository.membershiprequest.M
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.unregisteredhouseholdmember.UnregisteredHouseholdMemberRepository;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
 import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationService;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -72,6 +73,16 @@ public class HouseholdService {
    */
   private final UnregisteredHouseholdMemberRepository unregisteredHouseholdMemberRepository;
 
+  /**
+   * Registry of the users with an open WebSocket session, kept current on membership changes.
+   */
+  private final WebSocketUserRegistry webSocketUsers;
+
+  /**
+   * Cache of the latest member positions of each household, evicted on membership changes.
+   */
+  private final HouseholdPositionCache positionCache;
+
   /**
    * Constructs a new HouseholdService with required repositories.
    *
@@ -81,16 +92,22 @@ public class HouseholdService {
    * @param unregisteredHouseholdMemberRepository Repository for unregistered household member
    *                                              <p>
    *                                              operations.
+   * @param webSocketUsers                        the registry of users with an open WebSocket
+   *                                              session
+   * @param positionCache                         the cache of household member positions
    */
   public HouseholdService(HouseholdRepository householdRepository,
       NotificationService notificationService,
       MembershipRequestRepository membershipRequestRepository, UserRepository userRepository,
-      UnregisteredHouseholdMemberRepository unregisteredHouseholdMemberRepository) {
+      UnregisteredHouseholdMemberRepository unregisteredHouseholdMemberRepository,
+      WebSocketUserRegistry webSocketUsers, HouseholdPositionCache positionCache) {
     this.householdRepository = householdRepository;
     this.notificationService = notificationService;
     this.membershipRequestRepository = membershipRequestRepository;
     this.userRepository = userRepository;
     this.unregisteredHouseholdMemberRepository = unregisteredHouseholdMemberRepository;
+    this.webSocketUsers = webSocketUsers;
+    this.positionCache = positionCache;
     logger.info("HouseholdService initialized");
   }
 
@@ -130,6 +147,10 @@ public class HouseholdService {
     logger.debug("Household saved to database with ID: {}", household.getId());
 
     userRepository.updateHouseholdId(owner.getId(), household.getId());
+    webSocketUsers.updateHousehold(owner.getId(), household.getId());
+    if (owner.getHousehold() != null) {
+      positionCache.evict(owner.getHousehold().getId());
+    }
 
     logger.debug("User {} associated with household {}", owner.getEmail(), household.getId());
 
@@ -200,7 +221,14 @@ public class HouseholdService {
           user.getHousehold().getNumberOfMembers() - 1);
     }
 
+    LocalDateTime joinedAt = LocalDateTime.now();
     userRepository.updateHouseholdId(user.getId(), household.getId());
+    notificationService.markHouseholdHistoryAsRead(user.getId(), household.getId(), joinedAt);
+    webSocketUsers.updateHousehold(user.getId(), household.getId());
+    if (user.getHousehold() != null) {
+      positionCache.evict(user.getHousehold().getId());
+    }
+    positionCache.evict(household.getId());
     householdRepository.updateNumberOfMembers(household.getId(),
         household.getNumberOfMembers() + 1);
     logger.debug("Updated household member count to: {}",
@@ -266,6 +294,8 @@ public class HouseholdService {
     householdRepository.updateNumberOfMembers(user.getHousehold().getId(),
         user.getHousehold().getNumberOfMembers() - 1);
     userRepository.updateHouseholdId(user.getId(), null);
+    webSocketUsers.updateHousehold(user.getId(), null);
+    positionCache.evict(household.getId());
     logger.debug("Updated household member count to: {}",
         user.getHousehold().getNumberOfMembers() - 1);
 
@@ -315,6 +345,8 @@ public class HouseholdService {
     householdRepository.updateNumberOfMembers(householdId,
         user.getHousehold().getNumberOfMembers() - 1);
     userRepository.updateHouseholdId(user.getId(), null);
+    webSocketUsers.updateHousehold(user.getId(), null);
+    positionCache.evict(householdId);
     logger.info("User {} has been removed from the household", user.getFullName());
 
     String ownerId = user.getHousehold().getOwner().getId();
@@ -648,6 +680,11 @@ public class HouseholdService {
     if (request.getAddress() != null) {
       logger.debug("Changing household address from {} to {}", household.getAddress(),
           request.getAddress());
+      if (!request.getAddress().equals(household.getAddress())) {
+        // The coordinates belonged to the old address, so let the geocoder resolve the new one
+        household.setLatitude(null);
+        household.setLongitude(null);
+      }
       household.setAddress(request.getAddress());
     }
 
@@ -705,7 +742,9 @@ public class HouseholdService {
     for (User u : users) {
       u.setHousehold(null);
       userRepository.save(u);
+      webSocketUsers.updateHousehold(u.getId(), null);
     }
+    positionCache.evict(household.getId());
 
     // Deleting all unregistered members from the household
     List<UnregisteredHouseholdMember> unregistered =
@@ -750,7 +789,8 @@ public class HouseholdService {
   }
 
   /**
-   * Gets positions of the users in the current users household.
+   * Gets positions of the users in the current users household. The positions are served from the
+   * {@link HouseholdPositionCache}, which only reads the database when the household is not cached.
    *
    * @return the household positions
    */
@@ -771,14 +811,8 @@ public class HouseholdService {
       throw new IllegalArgumentException("User does not belong to a household");
     }
 
-    String householdId = user.getHousehold().getId();
-    List<User> users = userRepository.getUsersByHouseholdId(householdId);
-    logger.debug("Found {} users in household {}", users.size(), user.getHousehold().getName());
-
-    List<PositionResponseDto> positions = users.stream().map(
-            u -> new PositionResponseDto(u.getId(), u.getFullName(),
-                u.getLongitude(), u.getLatitude()))
-        .toList();
+    List<PositionResponseDto> positions =
+        positionCache.getPositions(user.getHousehold().getId());
 
     logger.info("Successfully retrieved positions for {} household members", positions.size());
     return positions;
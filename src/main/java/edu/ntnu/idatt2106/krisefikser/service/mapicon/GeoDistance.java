@@ -0,0 +1,193 @@
+package edu.ntnu.idatt2106.krisefikser.service.mapicon;
+
+/**
+ * Great-circle distance helpers on a spherical earth.
+ */
+public final class GeoDistance {
+
+  /**
+   * The mean radius of the earth in kilometers.
+   */
+  public static final double EARTH_RADIUS_KM = 6371;
+
+  private GeoDistance() {
+  }
+
+  /**
+   * Calculates the distance between two geographical points using the Haversine formula.
+   *
+   * @param lat1 the latitude of the first point
+   * @param lon1 the longitude of the first point
+   * @param lat2 the latitude of the second point
+   * @param lon2 the longitude of the second point
+   * @return the distance in kilometers
+   */
+  public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+    double dlat = Math.toRadians(lat2 - lat1);
+    double dlon = Math.toRadians(lon2 - lon1);
+    double a = Math.sin(dlat / 2) * Math.sin(dlat / 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+        * Math.sin(dlon / 2) * Math.sin(dlon / 2);
+    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    return EARTH_RADIUS_KM * c;
+  }
+
+  /**
+   * Converts a haversine term, {@code sin²(Δφ/2) + cos φ1 · cos φ2 · sin²(Δλ/2)}, to a distance.
+   *
+   * @param term the haversine term of two points
+   * @return the distance in kilometers
+   */
+  public static double termToKm(double term) {
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, Math.max(0, term))));
+  }
+
+  /**
+   * Gets the haversine term of a distance, so that a point is within the radius exactly when its
+   * haversine term is at most the returned value. This lets radius checks skip the inverse
+   * trigonometry of {@link #termToKm(double)}.
+   *
+   * @param radiusKm the radius in kilometers
+   * @return the largest haversine term within the radius
+   */
+  public static double radiusToTerm(double radiusKm) {
+    if (radiusKm < 0) {
+      return -1;
+    }
+    if (radiusKm >= Math.PI * EARTH_RADIUS_KM) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double sinHalfAngle = Math.sin(radiusKm / (2 * EARTH_RADIUS_KM));
+    return sinHalfAngle * sinHalfAngle;
+  }
+
+  /**
+   * Calculates the shortest distance from a point to a segment of a meridian.
+   *
+   * @param lat         the latitude of the point
+   * @param lon         the longitude of the point
+   * @param meridianLon the longitude of the meridian
+   * @param minLat      the southern end of the segment
+   * @param maxLat      the northern end of the segment
+   * @return the distance in kilometers
+   */
+  public static double toMeridianSegmentKm(double lat, double lon, double meridianLon,
+      double minLat, double maxLat) {
+    // cos(d) = a * sin(phi) + b * cos(phi) peaks at phi = atan2(a, b) along the meridian
+    double latRad = Math.toRadians(lat);
+    double a = Math.sin(latRad);
+    double b = Math.cos(latRad) * Math.cos(Math.toRadians(meridianLon - lon));
+    double peak = Math.atan2(a, b);
+    double minRad = Math.toRadians(minLat);
+    double maxRad = Math.toRadians(maxLat);
+    double cosDistance;
+    if (peak >= minRad && peak <= maxRad) {
+      cosDistance = Math.sqrt(a * a + b * b);
+    } else {
+      cosDistance = Math.max(a * Math.sin(minRad) + b * Math.cos(minRad),
+          a * Math.sin(maxRad) + b * Math.cos(maxRad));
+    }
+    return EARTH_RADIUS_KM * Math.acos(Math.max(-1, Math.min(1, cosDistance)));
+  }
+
+  /**
+   * Gets how many degrees of latitude a circle extends north and south of its centre.
+   *
+   * @param radiusKm the radius of the circle in kilometers
+   * @return the half-height of the circle in degrees
+   */
+  public static double latitudeSpanDegrees(double radiusKm) {
+    return Math.toDegrees(Math.max(radiusKm, 0) / EARTH_RADIUS_KM);
+  }
+
+  /**
+   * Gets how many degrees of longitude a circle extends east and west of its centre, at the widest
+   * point. Returns 180 or more when the circle covers a pole, since every longitude is then in
+   * range.
+   *
+   * @param latitude the latitude of the centre
+   * @param radiusKm the radius of the circle in kilometers
+   * @return the half-width of the circle in degrees
+   */
+  public static double longitudeSpanDegrees(double latitude, double radiusKm) {
+    double angularRadius = Math.max(radiusKm, 0) / EARTH_RADIUS_KM;
+    double deltaLat = Math.toDegrees(angularRadius);
+    double sinRadius = Math.sin(Math.min(angularRadius, Math.PI / 2));
+    double cosLat = Math.cos(Math.toRadians(latitude));
+    if (latitude - deltaLat <= -90 || latitude + deltaLat >= 90 || angularRadius >= Math.PI / 2
+        || sinRadius >= cosLat) {
+      return 180;
+    }
+    return Math.toDegrees(Math.asin(sinRadius / cosLat));
+  }
+
+  /**
+   * A point that many distances are measured from, with the radians and cosine of its latitude
+   * computed once instead of for every distance.
+   */
+  public static final class Origin {
+
+    private final double latRad;
+    private final double lonRad;
+    private final double cosLat;
+
+    /**
+     * Creates an origin.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     */
+    public Origin(double latitude, double longitude) {
+      this.latRad = Math.toRadians(latitude);
+      this.lonRad = Math.toRadians(longitude);
+      this.cosLat = Math.cos(latRad);
+    }
+
+    /**
+     * Gets the latitude of the origin in radians.
+     *
+     * @return the latitude in radians
+     */
+    public double latRad() {
+      return latRad;
+    }
+
+    /**
+     * Calculates the haversine term to a point whose radians and cosine of latitude are already
+     * known.
+     *
+     * @param latRad the latitude of the point in radians
+     * @param lonRad the longitude of the point in radians
+     * @param cosLat the cosine of the latitude of the point
+     * @return the haversine term
+     */
+    public double haversineTerm(double latRad, double lonRad, double cosLat) {
+      double sinHalfDlat = Math.sin((latRad - this.latRad) * 0.5);
+      double sinHalfDlon = Math.sin((lonRad - this.lonRad) * 0.5);
+      return sinHalfDlat * sinHalfDlat + this.cosLat * cosLat * sinHalfDlon * sinHalfDlon;
+    }
+
+    /**
+     * Calculates the haversine term to a point.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @return the haversine term
+     */
+    public double haversineTerm(double latitude, double longitude) {
+      double latRad = Math.toRadians(latitude);
+      return haversineTerm(latRad, Math.toRadians(longitude), Math.cos(latRad));
+    }
+
+    /**
+     * Calculates the distance to a point.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @return the distance in kilometers
+     */
+    public double distanceKm(double latitude, double longitude) {
+      return termToKm(haversineTerm(latitude, longitude));
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package edu.ntnu.idatt2106.krisefikser.service.mapicon;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Precomputed cluster hierarchy over map icons.
+ *
+ * <p>For every zoom level up to {@link #MAX_CLUSTER_ZOOM} the map is divided into square cells of
+ * {@link #CELL_SIZE_PIXELS} screen pixels in Web Mercator projection, and each cell keeps a running
+ * aggregate of the icons inside it. Adding or removing an icon updates one cell per zoom level, so
+ * the hierarchy never has to be rebuilt, and a viewport lookup only reads the aggregates of the
+ * cells it overlaps. The number of cells in a viewport depends on the screen size rather than on
+ * how many icons there are, which keeps zoomed-out views as cheap as zoomed-in ones.
+ */
+public class MapIconClusterIndex {
+
+  /**
+   * The highest zoom level with precomputed clusters. Above this level cells are small enough that
+   * individual icons should be shown instead.
+   */
+  public static final int MAX_CLUSTER_ZOOM = 12;
+
+  /**
+   * The width and height of a cluster cell in screen pixels.
+   */
+  public static final int CELL_SIZE_PIXELS = 64;
+
+  private static final double MAX_MERCATOR_LATITUDE = 85.05112878;
+  private static final int CELLS_PER_TILE_SHIFT =
+      Integer.numberOfTrailingZeros(256 / CELL_SIZE_PIXELS);
+
+  private final List<Map<Long, ClusterCell>> levels = new ArrayList<>();
+  private final Map<Long, IndexedIcon> iconsById = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Creates an empty cluster index.
+   */
+  public MapIconClusterIndex() {
+    for (int zoom = 0; zoom <= MAX_CLUSTER_ZOOM; zoom++) {
+      levels.add(new HashMap<>());
+    }
+  }
+
+  /**
+   * Replaces the contents of the index with the given icons.
+   *
+   * @param icons the icons to cluster
+   */
+  public void load(Collection<MapIcon> icons) {
+    lock.writeLock().lock();
+    try {
+      levels.forEach(Map::clear);
+      iconsById.clear();
+      for (MapIcon icon : icons) {
+        if (icon.getId() != null && hasCoordinates(icon)) {
+          addInternal(icon);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes every icon from the index, until it is loaded again.
+   */
+  public void invalidate() {
+    load(List.of());
+  }
+
+  /**
+   * Adds or replaces an icon in the index. Icons without coordinates are removed.
+   *
+   * @param icon the icon to cluster
+   */
+  public void put(MapIcon icon) {
+    if (icon.getId() == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      removeInternal(icon.getId());
+      if (hasCoordinates(icon)) {
+        addInternal(icon);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes an icon from the index.
+   *
+   * @param id the ID of the icon
+   */
+  public void remove(Long id) {
+    lock.writeLock().lock();
+    try {
+      removeInternal(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the clusters overlapping a bounding box at a zoom level. If {@code minLongitude} is
+   * greater than {@code maxLongitude}, the box is taken to cross the antimeridian.
+   *
+   * @param minLatitude  the southern edge of the box
+   * @param minLongitude the western edge of the box
+   * @param maxLatitude  the northern edge of the box
+   * @param maxLongitude the eastern edge of the box
+   * @param zoom         the zoom level, between 0 and {@link #MAX_CLUSTER_ZOOM}
+   * @return the clusters in the box
+   */
+  public List<Cluster> findClusters(double minLatitude, double minLongitude, double maxLatitude,
+      double maxLongitude, int zoom) {
+    if (zoom < 0 || zoom > MAX_CLUSTER_ZOOM) {
+      throw new IllegalArgumentException("Zoom must be between 0 and " + MAX_CLUSTER_ZOOM);
+    }
+    int cellsPerAxis = cellsPerAxis(zoom);
+    int minX = cellX(minLongitude, cellsPerAxis);
+    int maxX = cellX(maxLongitude, cellsPerAxis);
+    int minY = cellY(maxLatitude, cellsPerAxis);
+    int maxY = cellY(minLatitude, cellsPerAxis);
+    int xCount = Math.floorMod(maxX - minX, cellsPerAxis) + 1;
+    if (minLongitude <= maxLongitude && maxLongitude - minLongitude >= 360 - 360.0 / cellsPerAxis) {
+      xCount = cellsPerAxis;
+    }
+
+    List<Cluster> result = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      Map<Long, ClusterCell> level = levels.get(zoom);
+      if ((long) xCount * (maxY - minY + 1) > level.size()) {
+        for (Map.Entry<Long, ClusterCell> entry : level.entrySet()) {
+          int x = (int) (entry.getKey() / cellsPerAxis);
+          int y = (int) (entry.getKey() % cellsPerAxis);
+          if (Math.floorMod(x - minX, cellsPerAxis) < xCount && y >= minY && y <= maxY) {
+            result.add(entry.getValue().toCluster());
+          }
+        }
+        return result;
+      }
+      for (int i = 0; i < xCount; i++) {
+        int x = (minX + i) % cellsPerAxis;
+        for (int y = minY; y <= maxY; y++) {
+          ClusterCell cell = level.get((long) x * cellsPerAxis + y);
+          if (cell != null) {
+            result.add(cell.toCluster());
+          }
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void addInternal(MapIcon icon) {
+    IndexedIcon indexed = new IndexedIcon(icon.getId(), icon.getType(),
+        icon.getLatitude(), icon.getLongitude());
+    iconsById.put(icon.getId(), indexed);
+    for (int zoom = 0; zoom <= MAX_CLUSTER_ZOOM; zoom++) {
+      levels.get(zoom).computeIfAbsent(cellKey(indexed, zoom), key -> new ClusterCell())
+          .add(indexed);
+    }
+  }
+
+  private void removeInternal(Long id) {
+    IndexedIcon indexed = iconsById.remove(id);
+    if (indexed == null) {
+      return;
+    }
+    for (int zoom = 0; zoom <= MAX_CLUSTER_ZOOM; zoom++) {
+      Map<Long, ClusterCell> level = levels.get(zoom);
+      long key = cellKey(indexed, zoom);
+      ClusterCell cell = level.get(key);
+      if (cell != null && cell.remove(indexed)) {
+        level.remove(key);
+      }
+    }
+  }
+
+  private static long cellKey(IndexedIcon icon, int zoom) {
+    int cellsPerAxis = cellsPerAxis(zoom);
+    return (long) cellX(icon.longitude(), cellsPerAxis) * cellsPerAxis
+        + cellY(icon.latitude(), cellsPerAxis);
+  }
+
+  private static int cellsPerAxis(int zoom) {
+    return 1 << (zoom + CELLS_PER_TILE_SHIFT);
+  }
+
+  private static int cellX(double longitude, int cellsPerAxis) {
+    double normalized = ((longitude + 180) % 360 + 360) % 360 / 360;
+    return Math.min(cellsPerAxis - 1, (int) Math.floor(normalized * cellsPerAxis));
+  }
+
+  private static int cellY(double latitude, int cellsPerAxis) {
+    double clamped = Math.max(-MAX_MERCATOR_LATITUDE, Math.min(MAX_MERCATOR_LATITUDE, latitude));
+    double sinLat = Math.sin(Math.toRadians(clamped));
+    double normalized = 0.5 - Math.log((1 + sinLat) / (1 - sinLat)) / (4 * Math.PI);
+    return Math.max(0, Math.min(cellsPerAxis - 1, (int) Math.floor(normalized * cellsPerAxis)));
+  }
+
+  private static boolean hasCoordinates(MapIcon icon) {
+    return icon.getLatitude() != null && icon.getLongitude() != null;
+  }
+
+  /**
+   * A cluster of map icons.
+   *
+   * @param latitude   the mean latitude of the icons in the cluster
+   * @param longitude  the mean longitude of the icons in the cluster
+   * @param count      the number of icons in the cluster
+   * @param typeCounts the number of icons of each type
+   * @param iconId     the ID of the icon if the cluster holds exactly one, otherwise null
+   */
+  public record Cluster(double latitude, double longitude, int count,
+                        Map<MapIconType, Integer> typeCounts, Long iconId) {
+
+  }
+
+  private record IndexedIcon(Long id, MapIconType type, double latitude, double longitude) {
+
+  }
+
+  /**
+   * Running aggregate of the icons in one cell. The sum of the icon IDs is kept so that the ID of
+   * the last remaining icon is known without storing every member.
+   */
+  private static final class ClusterCell {
+
+    private final EnumMap<MapIconType, Integer> typeCounts = new EnumMap<>(MapIconType.class);
+    private int count;
+    private double latitudeSum;
+    private double longitudeSum;
+    private long idSum;
+
+    void add(IndexedIcon icon) {
+      count++;
+      latitudeSum += icon.latitude();
+      longitudeSum += icon.longitude();
+      idSum += icon.id();
+      if (icon.type() != null) {
+        typeCounts.merge(icon.type(), 1, Integer::sum);
+      }
+    }
+
+    /**
+     * Removes an icon from the aggregate.
+     *
+     * @return true if the cell is now empty
+     */
+    boolean remove(IndexedIcon icon) {
+      count--;
+      latitudeSum -= icon.latitude();
+      longitudeSum -= icon.longitude();
+      idSum -= icon.id();
+      if (icon.type() != null) {
+        typeCounts.computeIfPresent(icon.type(), (type, n) -> n > 1 ? n - 1 : null);
+      }
+      return count <= 0;
+    }
+
+    Cluster toCluster() {
+      return new Cluster(latitudeSum / count, longitudeSum / count, count,
+          new EnumMap<>(typeCounts), count == 1 ? idSum : null);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package edu.ntnu.idatt2106.krisefikser.service.mapicon;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Column store of map icons with coordinates, used for the cells of {@link MapIconSpatialIndex}.
+ *
+ * <p>The latitude and longitude of each icon are kept in radians in primitive arrays next to the
+ * cosine of the latitude, all computed once when the icon is added. Distance checks then run over
+ * the arrays without unboxing coordinates or repeating the trigonometry of either point, and a
+ * latitude pre-check rejects most icons outside a radius before any trigonometry is done: the
+ * north-south gap alone is a lower bound for the great-circle distance.
+ */
+public class MapIconColumns {
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private MapIcon[] icons = new MapIcon[INITIAL_CAPACITY];
+  private double[] latRad = new double[INITIAL_CAPACITY];
+  private double[] lonRad = new double[INITIAL_CAPACITY];
+  private double[] cosLat = new double[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Adds an icon. The icon must have coordinates.
+   *
+   * @param icon the icon to add
+   */
+  public void add(MapIcon icon) {
+    if (size == icons.length) {
+      int capacity = size * 2;
+      icons = Arrays.copyOf(icons, capacity);
+      latRad = Arrays.copyOf(latRad, capacity);
+      lonRad = Arrays.copyOf(lonRad, capacity);
+      cosLat = Arrays.copyOf(cosLat, capacity);
+    }
+    double lat = Math.toRadians(icon.getLatitude());
+    icons[size] = icon;
+    latRad[size] = lat;
+    lonRad[size] = Math.toRadians(icon.getLongitude());
+    cosLat[size] = Math.cos(lat);
+    size++;
+  }
+
+  /**
+   * Removes the icon with the given ID, keeping the order of the remaining icons.
+   *
+   * @param id the ID of the icon
+   * @return true if an icon was removed
+   */
+  public boolean remove(Long id) {
+    for (int i = 0; i < size; i++) {
+      if (id.equals(icons[i].getId())) {
+        int tail = size - i - 1;
+        System.arraycopy(icons, i + 1, icons, i, tail);
+        System.arraycopy(latRad, i + 1, latRad, i, tail);
+        System.arraycopy(lonRad, i + 1, lonRad, i, tail);
+        System.arraycopy(cosLat, i + 1, cosLat, i, tail);
+        icons[--size] = null;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the number of icons.
+   *
+   * @return the number of icons
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Adds every icon to a collection.
+   *
+   * @param result the collection to add to
+   */
+  public void addAllTo(Collection<MapIcon> result) {
+    for (int i = 0; i < size; i++) {
+      result.add(icons[i]);
+    }
+  }
+
+  /**
+   * Adds the icons within a radius of an origin to a list.
+   *
+   * @param origin        the centre of the circle
+   * @param angularRadius the radius in radians of arc
+   * @param maxTerm       the largest haversine term within the radius, from
+   *                      {@link GeoDistance#radiusToTerm(double)}
+   * @param result        the list to add to
+   */
+  public void collectWithinRadius(GeoDistance.Origin origin, double angularRadius, double maxTerm,
+      List<MapIcon> result) {
+    double originLat = origin.latRad();
+    for (int i = 0; i < size; i++) {
+      if (Math.abs(latRad[i] - originLat) > angularRadius) {
+        continue;
+      }
+      if (origin.haversineTerm(latRad[i], lonRad[i], cosLat[i]) <= maxTerm) {
+        result.add(icons[i]);
+      }
+    }
+  }
+
+  /**
+   * Offers every icon to a bounded max-heap of the {@code k} closest icons found so far. Icons
+   * whose north-south gap to the origin is already no closer than the current k-th best are
+   * skipped without computing their distance.
+   *
+   * @param origin the point to measure from
+   * @param k      the number of icons to keep
+   * @param best   the closest icons so far, with the farthest at the head
+   */
+  public void collectNearest(GeoDistance.Origin origin, int k,
+      PriorityQueue<MapIconSpatialIndex.Neighbour> best) {
+    double originLat = origin.latRad();
+    for (int i = 0; i < size; i++) {
+      boolean full = best.size() >= k;
+      if (full && Math.abs(latRad[i] - originLat) * GeoDistance.EARTH_RADIUS_KM
+          >= best.peek().distanceKm()) {
+        continue;
+      }
+      double distance = GeoDistance.termToKm(
+          origin.haversineTerm(latRad[i], lonRad[i], cosLat[i]));
+      if (!full) {
+        best.add(new MapIconSpatialIndex.Neighbour(icons[i], distance));
+      } else if (distance < best.peek().distanceKm()) {
+        best.poll();
+        best.add(new MapIconSpatialIndex.Neighbour(icons[i], distance));
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package edu.ntnu.idatt2106.krisefikser.service.mapicon;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service for exporting all map icons as a GeoJSON FeatureCollection.
+ *
+ * <p>The icons are read with a forward-only JDBC cursor and each row is written to the output as
+ * soon as it is read, so neither the entities nor the document are held in memory. With the MySQL
+ * driver a fetch size of {@link Integer#MIN_VALUE} makes it stream rows one at a time instead of
+ * buffering the whole result set.
+ */
+@Service
+public class MapIconExportService {
+
+  private static final Logger logger = LoggerFactory.getLogger(MapIconExportService.class);
+
+  private static final String SELECT_SQL = "SELECT id, type, address, latitude, longitude, "
+      + "description, opening_hours, contact_info, revision FROM map_icon ORDER BY id";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+
+  @Value("${app.map-icons.export.fetch-size:500}")
+  private int fetchSize = 500;
+
+  /**
+   * Constructor for MapIconExportService.
+   *
+   * @param jdbcTemplate the template for reading the icons
+   * @param objectMapper the mapper whose factory creates the JSON generator
+   */
+  public MapIconExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Writes every map icon to an output stream as a GeoJSON FeatureCollection. Icons without
+   * coordinates are written with a null geometry. The given revision is written as a foreign
+   * member of the collection, so clients can continue with the changes feed from there.
+   *
+   * @param output   the stream to write to, which is left open
+   * @param revision the revision the export was started at
+   * @return the number of icons written
+   */
+  public long writeGeoJson(OutputStream output, long revision) {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      // A failed export must end as invalid JSON rather than as a shorter, valid collection
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+      generator.writeStartObject();
+      generator.writeStringField("type", "FeatureCollection");
+      generator.writeNumberField("revision", revision);
+      generator.writeArrayFieldStart("features");
+
+      FeatureWriter writer = new FeatureWriter(generator);
+      jdbcTemplate.query(connection -> {
+        PreparedStatement statement = connection.prepareStatement(SELECT_SQL,
+            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        return statement;
+      }, writer);
+
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.flush();
+      logger.info("Exported {} map icons at revision {}", writer.count, revision);
+      return writer.count;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes each row of the result set as a GeoJSON Feature.
+   */
+  private static final class FeatureWriter implements RowCallbackHandler {
+
+    private final JsonGenerator generator;
+    private long count;
+
+    private FeatureWriter(JsonGenerator generator) {
+      this.generator = generator;
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+      try {
+        generator.writeStartObject();
+        generator.writeStringField("type", "Feature");
+        generator.writeNumberField("id", rs.getLong("id"));
+
+        double latitude = rs.getDouble("latitude");
+        boolean hasLatitude = !rs.wasNull();
+        double longitude = rs.getDouble("longitude");
+        if (hasLatitude && !rs.wasNull()) {
+          generator.writeObjectFieldStart("geometry");
+          generator.writeStringField("type", "Point");
+          generator.writeArrayFieldStart("coordinates");
+          generator.writeNumber(longitude);
+          generator.writeNumber(latitude);
+          generator.writeEndArray();
+          generator.writeEndObject();
+        } else {
+          generator.writeNullField("geometry");
+        }
+
+        generator.writeObjectFieldStart("properties");
+        generator.writeStringField("type", rs.getString("type"));
+        writeOptional("address", rs.getString("address"));
+        writeOptional("description", rs.getString("description"));
+        writeOptional("openingHours", rs.getString("opening_hours"));
+        writeOptional("contactInfo", rs.getString("contact_info"));
+        generator.writeNumberField("revision", rs.getLong("revision"));
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+        count++;
+      } catch (IOException e) {
+        // Ends the query instead of writing the remaining rows to a client that went away
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void writeOptional(String name, String value) throws IOException {
+      if (value != null) {
+        generator.writeStringField(name, value);
+      }
+    }
+  }
+}
@@ -0,0 +1,550 @@
+package edu.ntnu.idatt2106.krisefikser.service.mapicon;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconImportProgressDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for importing large numbers of map icons from GeoJSON or CSV files.
+ *
+ * <p>The file is read one row at a time, and valid rows are written in chunks with a single JDBC
+ * batch insert per chunk, each chunk in its own transaction. Rows that fail validation are reported
+ * and skipped without stopping the import, and progress is reported after every chunk, so neither
+ * the file nor the result has to be held in memory.
+ */
+@Service
+public class MapIconImportService {
+
+  private static final Logger logger = LoggerFactory.getLogger(MapIconImportService.class);
+
+  private static final String INSERT_SQL = "INSERT INTO map_icon (type, address, latitude, "
+      + "longitude, description, opening_hours, contact_info, revision) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private static final int MAX_TEXT_LENGTH = 255;
+  private static final int MAX_DESCRIPTION_LENGTH = 1000;
+  private static final int MAX_CSV_RECORD_LENGTH = 8192;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final MapIconService mapIconService;
+  private final ObjectMapper objectMapper;
+
+  @Value("${app.map-icons.import.chunk-size:500}")
+  private int chunkSize = 500;
+
+  /**
+   * The file formats that can be imported.
+   */
+  public enum Format {
+    /**
+     * A comma separated file with a header row naming the columns.
+     */
+    CSV,
+    /**
+     * A GeoJSON FeatureCollection of Point features.
+     */
+    GEOJSON;
+
+    /**
+     * Parses a format name, ignoring case.
+     *
+     * @param name the name of the format
+     * @return the format
+     */
+    public static Format parse(String name) {
+      if (name != null) {
+        for (Format format : values()) {
+          if (format.name().equalsIgnoreCase(name.trim())) {
+            return format;
+          }
+        }
+      }
+      throw new IllegalArgumentException("Format must be one of CSV or GEOJSON");
+    }
+  }
+
+  /**
+   * Constructor for MapIconImportService.
+   *
+   * @param jdbcTemplate       the template for batch inserts
+   * @param transactionManager the transaction manager for the chunk transactions
+   * @param mapIconService     the service owning the map icon revisions and in-memory indexes
+   * @param objectMapper       the mapper for reading GeoJSON and writing progress
+   */
+  public MapIconImportService(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager, MapIconService mapIconService,
+      ObjectMapper objectMapper) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.mapIconService = mapIconService;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Imports map icons and writes the progress events to an output stream as newline-delimited
+   * JSON, flushing after each event.
+   *
+   * @param input  the file to import
+   * @param format the format of the file
+   * @param output the stream to write progress to
+   * @return the final progress event
+   */
+  public MapIconImportProgressDto importMapIcons(InputStream input, Format format,
+      OutputStream output) {
+    return importMapIcons(input, format, progress -> writeProgress(output, progress));
+  }
+
+  /**
+   * Writes a progress event to an output stream as one line of JSON and flushes it.
+   *
+   * @param output   the stream to write to
+   * @param progress the event to write
+   */
+  public void writeProgress(OutputStream output, MapIconImportProgressDto progress) {
+    try {
+      output.write(objectMapper.writeValueAsBytes(progress));
+      output.write('\n');
+      output.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Imports map icons, passing an event to the listener for every rejected row, after every
+   * written chunk and when the import ends. If the file turns out to be malformed, the rows read
+   * before the error are still written and the final event has status
+   * {@link MapIconImportProgressDto#STATUS_FAILED}.
+   *
+   * @param input    the file to import
+   * @param format   the format of the file
+   * @param listener the receiver of progress events
+   * @return the final progress event
+   */
+  public MapIconImportProgressDto importMapIcons(InputStream input, Format format,
+      Consumer<MapIconImportProgressDto> listener) {
+    logger.info("Starting {} import of map icons with chunk size {}", format, chunkSize);
+    ImportRun run = new ImportRun(listener);
+    String failure = null;
+    try {
+      try {
+        if (format == Format.CSV) {
+          readCsv(input, run);
+        } else {
+          readGeoJson(input, run);
+        }
+      } catch (IllegalArgumentException | IOException e) {
+        logger.warn("Map icon import stopped after {} rows: {}", run.processed, e.getMessage());
+        failure = e.getMessage();
+      }
+      run.flush();
+    } finally {
+      // Earlier chunks are committed even if the client went away, so the indexes must be reloaded
+      if (run.imported > 0) {
+        mapIconService.invalidateIndexes();
+      }
+    }
+
+    MapIconImportProgressDto result = failure == null
+        ? run.event(MapIconImportProgressDto.STATUS_DONE, null, null)
+        : run.event(MapIconImportProgressDto.STATUS_FAILED, null, failure);
+    listener.accept(result);
+    logger.info("Map icon import finished: {} rows read, {} imported, {} rejected",
+        run.processed, run.imported, run.failed);
+    return result;
+  }
+
+  private void readCsv(InputStream input, ImportRun run) throws IOException {
+    CsvReader reader = new CsvReader(
+        new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+    List<String> header = reader.readRecord();
+    if (header == null) {
+      throw new IllegalArgumentException("CSV file is empty");
+    }
+    if (reader.isTruncated()) {
+      throw new IllegalArgumentException(
+          "CSV header must be at most " + MAX_CSV_RECORD_LENGTH + " characters");
+    }
+    Map<String, Integer> columns = new HashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      String name = header.get(i).replace("\uFEFF", "").replace("_", "").trim();
+      columns.put(name.toLowerCase(Locale.ROOT), i);
+    }
+    if (!columns.containsKey("type")) {
+      throw new IllegalArgumentException("CSV header must contain a type column");
+    }
+
+    long row = 0;
+    List<String> fields;
+    while ((fields = reader.readRecord()) != null) {
+      if (reader.isTruncated()) {
+        run.skip(++row, "Row must be at most " + MAX_CSV_RECORD_LENGTH + " characters");
+        continue;
+      }
+      if (fields.size() == 1 && fields.get(0).isBlank()) {
+        continue;
+      }
+      row++;
+      List<String> values = fields;
+      run.accept(row, () -> toMapIcon(
+          csvValue(values, columns, "type"),
+          csvValue(values, columns, "address"),
+          csvValue(values, columns, "latitude"),
+          csvValue(values, columns, "longitude"),
+          csvValue(values, columns, "description"),
+          csvValue(values, columns, "openinghours"),
+          csvValue(values, columns, "contactinfo")));
+    }
+  }
+
+  private static String csvValue(List<String> values, Map<String, Integer> columns, String name) {
+    Integer index = columns.get(name);
+    if (index == null || index >= values.size()) {
+      return null;
+    }
+    String value = values.get(index).trim();
+    return value.isEmpty() ? null : value;
+  }
+
+  private void readGeoJson(InputStream input, ImportRun run) throws IOException {
+    try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IllegalArgumentException("GeoJSON must be a FeatureCollection object");
+      }
+      long row = 0;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if (!"features".equals(field)) {
+          parser.skipChildren();
+          continue;
+        }
+        if (value != JsonToken.START_ARRAY) {
+          throw new IllegalArgumentException("GeoJSON features must be an array");
+        }
+        // Only one feature is held in memory at a time
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+          if (token == null) {
+            throw new IllegalArgumentException("GeoJSON ends inside the features array");
+          }
+          row++;
+          if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            run.skip(row, "Feature must be an object");
+            continue;
+          }
+          JsonNode feature = parser.readValueAsTree();
+          run.accept(row, () -> featureToMapIcon(feature));
+        }
+      }
+    }
+  }
+
+  private MapIcon featureToMapIcon(JsonNode feature) {
+    JsonNode geometry = feature.path("geometry");
+    String latitude = null;
+    String longitude = null;
+    if (!geometry.isMissingNode() && !geometry.isNull()) {
+      JsonNode coordinates = geometry.path("coordinates");
+      if (!"Point".equals(geometry.path("type").asText()) || !coordinates.isArray()
+          || coordinates.size() < 2) {
+        throw new IllegalArgumentException("Geometry must be a Point with coordinates");
+      }
+      // GeoJSON positions are [longitude, latitude]
+      longitude = coordinates.get(0).asText();
+      latitude = coordinates.get(1).asText();
+    }
+    JsonNode properties = feature.path("properties");
+    return toMapIcon(
+        textProperty(properties, "type"),
+        textProperty(properties, "address"),
+        latitude,
+        longitude,
+        textProperty(properties, "description"),
+        textProperty(properties, "openingHours"),
+        textProperty(properties, "contactInfo"));
+  }
+
+  private static String textProperty(JsonNode properties, String name) {
+    JsonNode value = properties.path(name);
+    if (value.isMissingNode() || value.isNull()) {
+      return null;
+    }
+    String text = value.asText().trim();
+    return text.isEmpty() ? null : text;
+  }
+
+  /**
+   * Validates the values of a row and builds a map icon from them, with the same rules as
+   * {@link MapIconService#createMapIcon}.
+   */
+  private static MapIcon toMapIcon(String type, String address, String latitude,
+      String longitude, String description, String openingHours, String contactInfo) {
+    if (type == null) {
+      throw new IllegalArgumentException("Type is required");
+    }
+    MapIconType iconType;
+    try {
+      iconType = MapIconType.valueOf(type.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown type: " + type);
+    }
+    if ((latitude == null) != (longitude == null)) {
+      throw new IllegalArgumentException("Latitude and longitude must be given together");
+    }
+    if (latitude == null && address == null) {
+      throw new IllegalArgumentException("Either coordinates or address must be provided.");
+    }
+
+    MapIcon icon = new MapIcon();
+    icon.setType(iconType);
+    if (latitude != null) {
+      double lat = parseCoordinate(latitude, "Latitude");
+      double lon = parseCoordinate(longitude, "Longitude");
+      if (lat < -90 || lat > 90) {
+        throw new IllegalArgumentException("Latitude must be between -90 and 90");
+      }
+      if (lon < -180 || lon > 180) {
+        throw new IllegalArgumentException("Longitude must be between -180 and 180");
+      }
+      icon.setLatitude(lat);
+      icon.setLongitude(lon);
+    }
+    icon.setAddress(checkLength(address, MAX_TEXT_LENGTH, "Address"));
+    icon.setDescription(checkLength(description, MAX_DESCRIPTION_LENGTH, "Description"));
+    icon.setOpeningHours(checkLength(openingHours, MAX_TEXT_LENGTH, "Opening hours"));
+    icon.setContactInfo(checkLength(contactInfo, MAX_TEXT_LENGTH, "Contact info"));
+    return icon;
+  }
+
+  private static double parseCoordinate(String value, String name) {
+    try {
+      double coordinate = Double.parseDouble(value);
+      if (Double.isFinite(coordinate)) {
+        return coordinate;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException(name + " is not a number: " + value);
+  }
+
+  private static String checkLength(String value, int maxLength, String name) {
+    if (value != null && value.length() > maxLength) {
+      throw new IllegalArgumentException(name + " must be at most " + maxLength + " characters");
+    }
+    return value;
+  }
+
+  /**
+   * Supplier of a map icon that may reject its row with an IllegalArgumentException.
+   */
+  @FunctionalInterface
+  private interface RowParser {
+
+    MapIcon parse();
+  }
+
+  /**
+   * State of one import: the rows waiting to be written and the running counts.
+   */
+  private final class ImportRun {
+
+    private final Consumer<MapIconImportProgressDto> listener;
+    private final List<MapIcon> pendingIcons = new ArrayList<>();
+    private final List<Long> pendingRows = new ArrayList<>();
+    private long processed;
+    private long imported;
+    private long failed;
+
+    ImportRun(Consumer<MapIconImportProgressDto> listener) {
+      this.listener = listener;
+    }
+
+    void accept(long row, RowParser parser) {
+      processed++;
+      MapIcon icon;
+      try {
+        icon = parser.parse();
+      } catch (IllegalArgumentException e) {
+        reject(row, e.getMessage());
+        return;
+      }
+      pendingIcons.add(icon);
+      pendingRows.add(row);
+      if (pendingIcons.size() >= Math.max(1, chunkSize)) {
+        flush();
+      }
+    }
+
+    void skip(long row, String message) {
+      processed++;
+      reject(row, message);
+    }
+
+    void reject(long row, String message) {
+      failed++;
+      listener.accept(event(MapIconImportProgressDto.STATUS_ROW_ERROR, row, message));
+    }
+
+    void flush() {
+      if (pendingIcons.isEmpty()) {
+        return;
+      }
+      try {
+        transactionTemplate.executeWithoutResult(status -> insertChunk(pendingIcons));
+        imported += pendingIcons.size();
+      } catch (DataAccessException e) {
+        logger.error("Failed to write chunk of {} map icons: {}", pendingIcons.size(),
+            e.getMessage(), e);
+        for (Long row : pendingRows) {
+          reject(row, "Could not save row");
+        }
+      }
+      pendingIcons.clear();
+      pendingRows.clear();
+      listener.accept(event(MapIconImportProgressDto.STATUS_PROGRESS, null, null));
+    }
+
+    MapIconImportProgressDto event(String status, Long row, String message) {
+      return new MapIconImportProgressDto(status, row, message, processed, imported, failed);
+    }
+  }
+
+  private void insertChunk(List<MapIcon> icons) {
+    long lastRevision = mapIconService.allocateRevisions(icons.size());
+    long firstRevision = lastRevision - icons.size() + 1;
+    for (int i = 0; i < icons.size(); i++) {
+      icons.get(i).setRevision(firstRevision + i);
+    }
+    jdbcTemplate.batchUpdate(INSERT_SQL, icons, icons.size(), (statement, icon) -> {
+      statement.setString(1, icon.getType().name());
+      statement.setString(2, icon.getAddress());
+      statement.setObject(3, icon.getLatitude(), Types.DOUBLE);
+      statement.setObject(4, icon.getLongitude(), Types.DOUBLE);
+      statement.setString(5, icon.getDescription());
+      statement.setString(6, icon.getOpeningHours());
+      statement.setString(7, icon.getContactInfo());
+      statement.setLong(8, icon.getRevision());
+    });
+    logger.debug("Inserted chunk of {} map icons up to revision {}", icons.size(), lastRevision);
+  }
+
+  /**
+   * Minimal streaming reader for RFC 4180 CSV, supporting quoted fields with commas, escaped
+   * quotes and line breaks. A record longer than {@link #MAX_CSV_RECORD_LENGTH} characters is read
+   * to its end without keeping the rest of it, and marked as truncated.
+   */
+  private static final class CsvReader {
+
+    private final Reader reader;
+    private boolean truncated;
+
+    CsvReader(Reader reader) {
+      this.reader = reader.markSupported() ? reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the fields of the record, or null at the end of the file
+     */
+    List<String> readRecord() throws IOException {
+      List<String> fields = new ArrayList<>();
+      StringBuilder field = new StringBuilder();
+      boolean quoted = false;
+      boolean fieldStarted = false;
+      boolean read = false;
+      int length = 0;
+      truncated = false;
+      int c;
+      while ((c = reader.read()) != -1) {
+        read = true;
+        if (++length > MAX_CSV_RECORD_LENGTH && !truncated) {
+          truncated = true;
+          fields.clear();
+          field.setLength(0);
+        }
+        if (quoted) {
+          if (c == '"') {
+            reader.mark(1);
+            if (reader.read() == '"') {
+              append(field, '"');
+            } else {
+              reader.reset();
+              quoted = false;
+            }
+          } else {
+            append(field, (char) c);
+          }
+        } else if (c == '"' && !fieldStarted) {
+          quoted = true;
+          fieldStarted = true;
+        } else if (c == ',') {
+          if (!truncated) {
+            fields.add(field.toString());
+          }
+          field.setLength(0);
+          fieldStarted = false;
+        } else if (c == '\n') {
+          break;
+        } else if (c != '\r') {
+          append(field, (char) c);
+          fieldStarted = true;
+        }
+      }
+      if (!read) {
+        return null;
+      }
+      if (quoted) {
+        throw new IllegalArgumentException("CSV file ends inside a quoted field");
+      }
+      fields.add(field.toString());
+      return fields;
+    }
+
+    /**
+     * Tells whether the last record read was too long, in which case its fields are not kept.
+     *
+     * @return true if the last record was truncated
+     */
+    boolean isTruncated() {
+      return truncated;
+    }
+
+    private void append(StringBuilder field, char c) {
+      if (!truncated) {
+        field.append(c);
+      }
+    }
+  }
+}
@@ -1,17 +1,33 @@
 package edu.ntnu.idatt2106.krisefikser.service.mapicon;
 
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconChangesResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconClusterResponseDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconRequestDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconResponseDto;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIconRevision;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIconTombstone;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon.MapIconRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon.MapIconRevisionRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon.MapIconTombstoneRepository;
+import edu.ntnu.idatt2106.krisefikser.service.geocoding.GeoCoordinates;
 import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * This is a service class for managing map icons.
@@ -20,17 +36,47 @@ import org.springframework.stereotype.Service;
 @Service
 public class MapIconService {
 
+  /**
+   * The maximum number of map icons returned by a nearest-neighbour lookup.
+   */
+  public static final int MAX_NEAREST = 50;
+
+  /**
+   * The radius of the first box searched when looking up the nearest map icons in the database.
+   */
+  static final double INITIAL_SEARCH_RADIUS_KM = 10;
+
+  /**
+   * Half the circumference of the earth, which is the largest possible distance between two points.
+   */
+  private static final double MAX_SEARCH_RADIUS_KM = Math.PI * GeoDistance.EARTH_RADIUS_KM;
+
   private static final Logger logger = LoggerFactory.getLogger(MapIconService.class);
   private final MapIconRepository mapIconRepository;
+  private final MapIconRevisionRepository mapIconRevisionRepository;
+  private final MapIconTombstoneRepository mapIconTombstoneRepository;
+  private final MapIconSpatialIndex spatialIndex = new MapIconSpatialIndex();
+  private final MapIconClusterIndex clusterIndex = new MapIconClusterIndex();
+  private final MapIconTextIndex textIndex = new MapIconTextIndex();
+  private final Object indexLock = new Object();
+
+  @Value("${app.map-icons.in-memory-index:true}")
+  private boolean inMemoryIndex = true;
 
   /**
    * Constructor for MapIconService.
    *
-   * @param mapIconRepository the repository for accessing map icon data
+   * @param mapIconRepository          the repository for accessing map icon data
+   * @param mapIconRevisionRepository  the repository for the map icon revision counter
+   * @param mapIconTombstoneRepository the repository for records of deleted map icons
    */
   
-  public MapIconService(MapIconRepository mapIconRepository) {
+  public MapIconService(MapIconRepository mapIconRepository,
+      MapIconRevisionRepository mapIconRevisionRepository,
+      MapIconTombstoneRepository mapIconTombstoneRepository) {
     this.mapIconRepository = mapIconRepository;
+    this.mapIconRevisionRepository = mapIconRevisionRepository;
+    this.mapIconTombstoneRepository = mapIconTombstoneRepository;
     logger.info("MapIconService initialized");
   }
 
@@ -59,9 +105,11 @@ public class MapIconService {
     mapIcon.setDescription(request.getDescription());
     mapIcon.setOpeningHours(request.getOpeningHours());
     mapIcon.setContactInfo(request.getContactInfo());
+    mapIcon.setRevision(nextRevision());
 
     logger.debug("Saving map icon to database");
     mapIconRepository.save(mapIcon);
+    afterCommit(() -> indexMapIcon(mapIcon));
     logger.info("Map icon created successfully with ID: {}", mapIcon.getId());
   }
 
@@ -93,9 +141,11 @@ public class MapIconService {
     mapIcon.setDescription(request.getDescription());
     mapIcon.setOpeningHours(request.getOpeningHours());
     mapIcon.setContactInfo(request.getContactInfo());
+    mapIcon.setRevision(nextRevision());
 
     logger.debug("Saving updated map icon");
     mapIconRepository.save(mapIcon);
+    afterCommit(() -> indexMapIcon(mapIcon));
     logger.info("Map icon with ID {} updated successfully", id);
   }
 
@@ -115,15 +165,140 @@ public class MapIconService {
 
     logger.debug("Map icon exists, proceeding with deletion");
     mapIconRepository.deleteById(id);
+    mapIconTombstoneRepository.save(new MapIconTombstone(id, nextRevision()));
+    afterCommit(() -> unindexMapIcon(id));
     logger.info("Map icon with ID {} deleted successfully", id);
   }
 
+  /**
+   * Gets the latest map icon revision. Any change to the map icons increases it.
+   *
+   * @return the current revision, or 0 if no map icon has been changed yet
+   */
+  public long getCurrentRevision() {
+    return mapIconRevisionRepository.findById(MapIconRevision.COUNTER_ID)
+        .map(MapIconRevision::getCurrentRevision)
+        .orElse(0L);
+  }
+
+  /**
+   * Retrieves the map icons created, updated or deleted after a revision.
+   *
+   * @param since the revision the client already has, 0 for everything
+   * @return the changes and the revision they bring the client up to
+   */
+  @Transactional
+  public MapIconChangesResponseDto getChanges(long since) {
+    logger.info("Fetching map icon changes since revision {}", since);
+
+    long current = getCurrentRevision();
+    if (since < 0 || since > current) {
+      logger.warn("Invalid revision requested: {} (current revision is {})", since, current);
+      throw new IllegalArgumentException("since must be between 0 and " + current);
+    }
+    if (since == current) {
+      return new MapIconChangesResponseDto(current, List.of(), List.of());
+    }
+
+    // Rows above the counter value read here belong to writes that committed afterwards, and are
+    // left for the next sync
+    List<MapIconResponseDto> updated = mapIconRepository
+        .findByRevisionBetweenOrderByRevisionAsc(since + 1, current).stream()
+        .map(MapIconResponseDto::fromEntity)
+        .collect(Collectors.toList());
+    List<Long> deleted = mapIconTombstoneRepository
+        .findByRevisionBetweenOrderByRevisionAsc(since + 1, current).stream()
+        .map(MapIconTombstone::getMapIconId)
+        .collect(Collectors.toList());
+
+    logger.info("Returning {} updated and {} deleted map icons up to revision {}",
+        updated.size(), deleted.size(), current);
+    return new MapIconChangesResponseDto(current, updated, deleted);
+  }
+
+  /**
+   * Takes the next map icon revision. The counter row stays locked until the calling transaction
+   * ends, so no reader can see a revision before every lower revision has been committed.
+   *
+   * @return the new revision
+   */
+  private long nextRevision() {
+    return allocateRevisions(1);
+  }
+
+  /**
+   * Takes a block of consecutive map icon revisions, locking the counter row like
+   * {@link #nextRevision()}. Must be called inside a transaction.
+   *
+   * @param count the number of revisions to take
+   * @return the highest revision of the block
+   */
+  public long allocateRevisions(int count) {
+    MapIconRevision counter = mapIconRevisionRepository
+        .findByIdForUpdate(MapIconRevision.COUNTER_ID)
+        .orElseGet(() -> new MapIconRevision(MapIconRevision.COUNTER_ID, 0));
+    counter.setCurrentRevision(counter.getCurrentRevision() + count);
+    mapIconRevisionRepository.save(counter);
+    return counter.getCurrentRevision();
+  }
+
+  /**
+   * Drops the in-memory indexes, so they are loaded again from the database on the next lookup.
+   * Used after writes that bypass this service, such as bulk imports.
+   */
+  public void invalidateIndexes() {
+    synchronized (indexLock) {
+      spatialIndex.invalidate();
+      clusterIndex.invalidate();
+      textIndex.invalidate();
+    }
+    logger.info("Invalidated in-memory map icon indexes");
+  }
+
+  /**
+   * Sets geocoded coordinates on map icons that still have no coordinates. Each map icon gets the
+   * coordinates of its current address, so an icon whose address changed after it was geocoded is
+   * left for the next run.
+   *
+   * @param ids                  the IDs of the map icons
+   * @param coordinatesByAddress the resolved coordinates, keyed by address
+   * @return the number of map icons that got coordinates
+   */
+  @Transactional
+  public int locateMapIcons(Collection<Long> ids,
+      Map<String, GeoCoordinates> coordinatesByAddress) {
+    List<MapIcon> located = new ArrayList<>();
+    for (MapIcon mapIcon : mapIconRepository.findAllById(ids)) {
+      GeoCoordinates coordinates = coordinatesByAddress.get(mapIcon.getAddress());
+      if (coordinates != null
+          && (mapIcon.getLatitude() == null || mapIcon.getLongitude() == null)) {
+        mapIcon.setLatitude(coordinates.latitude());
+        mapIcon.setLongitude(coordinates.longitude());
+        located.add(mapIcon);
+      }
+    }
+    if (located.isEmpty()) {
+      return 0;
+    }
+
+    long revision = allocateRevisions(located.size()) - located.size();
+    for (MapIcon mapIcon : located) {
+      mapIcon.setRevision(++revision);
+    }
+    mapIconRepository.saveAll(located);
+    afterCommit(() -> located.forEach(this::indexMapIcon));
+    logger.info("Added geocoded coordinates to {} map icons", located.size());
+    return located.size();
+  }
+
   /**
    * Retrieves all map icons, filtered by radius and search words.
    *
    * @param latitude  the latitude of the base point
    * @param longitude the longitude of the base point
    * @param radiusKm  the radius in kilometers
+   * @param query     words that must all occur in the description, address or contact info, or
+   *                  null to skip text filtering
    * @return the list of map icons
    */
   @Transactional
@@ -132,71 +307,297 @@ public class MapIconService {
     logger.info("Fetching map icons within {}km of coordinates ({}, {}), query: '{}'",
         radiusKm, latitude, longitude, query);
 
-    List<MapIcon> allIcons = mapIconRepository.findAll();
-    logger.debug("Retrieved {} map icons from database before filtering", allIcons.size());
-
-    Stream<MapIcon> filtered = allIcons.stream()
-        .filter(icon -> icon.getLatitude() != null && icon.getLongitude() != null)
-        .filter(icon -> isWithinRadius(latitude, longitude, icon.getLatitude(), icon.getLongitude(),
-            radiusKm));
-
-    if (query != null && !query.isBlank()) {
-      logger.debug("Applying search query filter: '{}'", query);
-      filtered = filtered.filter(icon -> matchesQuery(icon, query));
-    }
+    List<MapIcon> icons = inMemoryIndex
+        ? findIndexedWithinRadius(latitude, longitude, radiusKm, query)
+        : filterWithinRadius(findDatabaseCandidates(latitude, longitude, radiusKm, query),
+            latitude, longitude, radiusKm);
 
-    List<MapIconResponseDto> result = filtered
+    List<MapIconResponseDto> result = icons.stream()
         .map(MapIconResponseDto::fromEntity)
         .collect(Collectors.toList());
 
     logger.info("Returning {} map icons after filtering", result.size());
-    logger.debug("Filter reduced results from {} to {} icons", allIcons.size(), result.size());
     return result;
   }
 
   /**
-   * Checks if two geographical coordinates are within a specified radius.
+   * Keeps the map icons within a radius, measuring every distance from the same precomputed
+   * origin.
    *
-   * @param lat1     the latitude of the first point
-   * @param lon1     the longitude of the first point
-   * @param lat2     the latitude of the second point
-   * @param lon2     the longitude of the second point
-   * @param radiusKm the radius in kilometers
-   * @return true if within radius, false otherwise
+   * @param icons     the icons to filter, all with coordinates
+   * @param latitude  the latitude of the centre
+   * @param longitude the longitude of the centre
+   * @param radiusKm  the radius in kilometers
+   * @return the icons within the radius
    */
-  private boolean isWithinRadius(double lat1, double lon1,
-      double lat2, double lon2,
-      double radiusKm) {
-    double distance = calculateDistance(lat1, lon1, lat2, lon2);
-    return distance <= radiusKm;
+  private List<MapIcon> filterWithinRadius(List<MapIcon> icons, double latitude,
+      double longitude, double radiusKm) {
+    GeoDistance.Origin origin = new GeoDistance.Origin(latitude, longitude);
+    double maxTerm = GeoDistance.radiusToTerm(radiusKm);
+    List<MapIcon> result = new ArrayList<>();
+    for (MapIcon icon : icons) {
+      if (origin.haversineTerm(icon.getLatitude(), icon.getLongitude()) <= maxTerm) {
+        result.add(icon);
+      }
+    }
+    logger.debug("Filter reduced results from {} to {} icons", icons.size(), result.size());
+    return result;
   }
 
-
   /**
-   * Checks if a map icon matches the search query.
+   * Finds the map icons within a radius that match a search query, using the in-memory indexes.
+   * When there is a query, the smaller of the text matches and the icons in the radius is used as
+   * the starting point.
    *
-   * @param icon  the map icon
-   * @param query the search query
-   * @return true if matches, false otherwise
+   * @param latitude  the latitude of the base point
+   * @param longitude the longitude of the base point
+   * @param radiusKm  the radius in kilometers
+   * @param query     the search query, or null
+   * @return the matching map icons
    */
-  private boolean matchesQuery(MapIcon icon, String query) {
-    logger.trace("Checking if icon {} matches query: '{}'", icon.getId(), query);
+  private List<MapIcon> findIndexedWithinRadius(double latitude, double longitude,
+      double radiusKm, String query) {
+    ensureIndexesLoaded();
+    List<MapIcon> nearby = spatialIndex.findWithinRadius(latitude, longitude, radiusKm);
+    logger.debug("Found {} map icons within radius in spatial index", nearby.size());
+    if (query == null || query.isBlank()) {
+      return nearby;
+    }
 
+    List<MapIcon> textMatches = textIndex.search(query);
+    logger.debug("Search query '{}' matched {} map icons", query, textMatches.size());
+    if (textMatches.size() <= nearby.size()) {
+      // Icons found by text only may lack coordinates, unlike those from the spatial index
+      return filterWithinRadius(textMatches.stream()
+          .filter(icon -> icon.getLatitude() != null && icon.getLongitude() != null)
+          .collect(Collectors.toList()), latitude, longitude, radiusKm);
+    }
+    Set<MapIcon> matching = Collections.newSetFromMap(new IdentityHashMap<>());
+    matching.addAll(textMatches);
+    return nearby.stream()
+        .filter(matching::contains)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Finds the map icons that may lie within a radius and match a search query, by letting the
+   * database filter on the bounding box of the circle.
+   *
+   * @param latitude  the latitude of the base point
+   * @param longitude the longitude of the base point
+   * @param radiusKm  the radius in kilometers
+   * @param query     the search query, or null
+   * @return the candidate map icons
+   */
+  private List<MapIcon> findDatabaseCandidates(double latitude, double longitude, double radiusKm,
+      String query) {
+    List<MapIcon> candidates = findInRadiusBoundingBox(latitude, longitude, radiusKm, null);
+    logger.debug("Retrieved {} candidate map icons from database", candidates.size());
     if (query == null || query.isBlank()) {
-      logger.trace("Empty query, returning match by default");
-      return true;
+      return candidates;
     }
-    String lowerQuery = query.toLowerCase();
+    return candidates.stream()
+        .filter(icon -> MapIconTextIndex.matches(icon, query))
+        .collect(Collectors.toList());
+  }
 
-    boolean matches =
-        (icon.getDescription() != null && icon.getDescription().toLowerCase().contains(lowerQuery))
-            || (icon.getAddress() != null && icon.getAddress().toLowerCase().contains(lowerQuery))
-            || (icon.getContactInfo() != null && icon.getContactInfo().toLowerCase()
-            .contains(lowerQuery));
+  /**
+   * Queries the database for the map icons inside the bounding box of a circle. A box crossing the
+   * antimeridian is split into two queries.
+   *
+   * @param latitude  the latitude of the centre
+   * @param longitude the longitude of the centre
+   * @param radiusKm  the radius in kilometers
+   * @param type      the type of map icon to find (null for any type)
+   * @return the map icons in the box
+   */
+  private List<MapIcon> findInRadiusBoundingBox(double latitude, double longitude,
+      double radiusKm, MapIconType type) {
+    double deltaLat = GeoDistance.latitudeSpanDegrees(radiusKm);
+    double deltaLon = GeoDistance.longitudeSpanDegrees(latitude, radiusKm);
+    double minLat = Math.max(-90, latitude - deltaLat);
+    double maxLat = Math.min(90, latitude + deltaLat);
+    if (deltaLon >= 180) {
+      return queryBoundingBox(minLat, maxLat, -180, 180, type);
+    }
+
+    double minLon = longitude - deltaLon;
+    double maxLon = longitude + deltaLon;
+    if (minLon < -180) {
+      List<MapIcon> icons = queryBoundingBox(minLat, maxLat, minLon + 360, 180, type);
+      icons.addAll(queryBoundingBox(minLat, maxLat, -180, maxLon, type));
+      return icons;
+    }
+    if (maxLon > 180) {
+      List<MapIcon> icons = queryBoundingBox(minLat, maxLat, minLon, 180, type);
+      icons.addAll(queryBoundingBox(minLat, maxLat, -180, maxLon - 360, type));
+      return icons;
+    }
+    return queryBoundingBox(minLat, maxLat, minLon, maxLon, type);
+  }
+
+  private List<MapIcon> queryBoundingBox(double minLat, double maxLat, double minLon,
+      double maxLon, MapIconType type) {
+    List<MapIcon> icons = type == null
+        ? mapIconRepository.findInBoundingBox(minLat, maxLat, minLon, maxLon)
+        : mapIconRepository.findByTypeInBoundingBox(type, minLat, maxLat, minLon, maxLon);
+    return new ArrayList<>(icons);
+  }
+
+  /**
+   * Finds the nearest map icons in the database by searching boxes of growing size until enough
+   * icons lie within the radius of the box. Icons inside the box but outside the radius are not
+   * counted, since a closer icon could still be outside the box.
+   *
+   * @param latitude  the latitude of the location
+   * @param longitude the longitude of the location
+   * @param k         the number of map icons to find
+   * @param type      the type of map icon to find (null for any type)
+   * @return up to {@code k} map icons, closest first
+   */
+  private List<MapIconSpatialIndex.Neighbour> findNearestInDatabase(double latitude,
+      double longitude, int k, MapIconType type) {
+    GeoDistance.Origin origin = new GeoDistance.Origin(latitude, longitude);
+    double searchRadiusKm = INITIAL_SEARCH_RADIUS_KM;
+    while (true) {
+      double radiusKm = searchRadiusKm;
+      List<MapIcon> icons = findInRadiusBoundingBox(latitude, longitude, radiusKm, type);
+      List<MapIconSpatialIndex.Neighbour> neighbours = icons.stream()
+          .filter(icon -> icon.getLatitude() != null && icon.getLongitude() != null)
+          .map(icon -> new MapIconSpatialIndex.Neighbour(icon,
+              origin.distanceKm(icon.getLatitude(), icon.getLongitude())))
+          .sorted(Comparator.comparingDouble(MapIconSpatialIndex.Neighbour::distanceKm))
+          .collect(Collectors.toList());
+      boolean coversEarth = radiusKm >= MAX_SEARCH_RADIUS_KM;
+      long withinRadius = neighbours.stream()
+          .filter(neighbour -> neighbour.distanceKm() <= radiusKm)
+          .count();
+      logger.debug("Searched {}km box, found {} map icons within radius", radiusKm, withinRadius);
+      if (withinRadius >= k || coversEarth) {
+        return neighbours.subList(0, Math.min(k, neighbours.size()));
+      }
+      searchRadiusKm = Math.min(radiusKm * 4, MAX_SEARCH_RADIUS_KM);
+    }
+  }
+
+  /**
+   * Loads the in-memory indexes from the database if they have not been loaded yet. Writes are
+   * applied under the same lock, so a write committed while the snapshot is read is applied on top
+   * of it afterwards.
+   */
+  private void ensureIndexesLoaded() {
+    while (!spatialIndex.isLoaded()) {
+      synchronized (indexLock) {
+        if (spatialIndex.isLoaded()) {
+          return;
+        }
+        long modificationCount = spatialIndex.getModificationCount();
+        List<MapIcon> allIcons = mapIconRepository.findAll();
+        // The spatial index is loaded last, since its flag tells readers all indexes are ready
+        clusterIndex.load(allIcons);
+        textIndex.load(allIcons);
+        if (spatialIndex.load(allIcons, modificationCount)) {
+          logger.info("Loaded {} map icons into in-memory indexes", spatialIndex.size());
+        } else {
+          logger.debug("Map icons changed while loading in-memory indexes, retrying");
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds or replaces a map icon in the in-memory indexes.
+   *
+   * @param mapIcon the map icon
+   */
+  private void indexMapIcon(MapIcon mapIcon) {
+    synchronized (indexLock) {
+      spatialIndex.put(mapIcon);
+      clusterIndex.put(mapIcon);
+      textIndex.put(mapIcon);
+    }
+  }
+
+  /**
+   * Removes a map icon from the in-memory indexes.
+   *
+   * @param id the ID of the map icon
+   */
+  private void unindexMapIcon(Long id) {
+    synchronized (indexLock) {
+      spatialIndex.remove(id);
+      clusterIndex.remove(id);
+      textIndex.remove(id);
+    }
+  }
+
+  /**
+   * Runs an action once the current transaction has committed, or immediately when there is no
+   * active transaction. Used to keep the in-memory index in line with committed data only.
+   *
+   * @param action the action to run
+   */
+  private void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
 
-    logger.trace("Icon {} {} query '{}'", icon.getId(), matches ? "matches" : "does not match",
-        query);
-    return matches;
+  /**
+   * Retrieves map icons inside a bounding box, aggregated into clusters for the given zoom level.
+   * Above {@link MapIconClusterIndex#MAX_CLUSTER_ZOOM} every icon is returned as its own cluster.
+   *
+   * @param minLatitude  the southern edge of the box
+   * @param minLongitude the western edge of the box
+   * @param maxLatitude  the northern edge of the box
+   * @param maxLongitude the eastern edge of the box, less than minLongitude if the box crosses the
+   *                     antimeridian
+   * @param zoom         the map zoom level
+   * @return the clusters in the box
+   */
+  public List<MapIconClusterResponseDto> getMapIconClusters(double minLatitude,
+      double minLongitude, double maxLatitude, double maxLongitude, int zoom) {
+    logger.info("Fetching map icon clusters in box ({}, {}) - ({}, {}) at zoom {}",
+        minLatitude, minLongitude, maxLatitude, maxLongitude, zoom);
+
+    if (minLatitude > maxLatitude || minLatitude < -90 || maxLatitude > 90) {
+      logger.warn("Invalid latitude range: {} - {}", minLatitude, maxLatitude);
+      throw new IllegalArgumentException("Invalid latitude range");
+    }
+    if (minLongitude < -180 || minLongitude > 180 || maxLongitude < -180 || maxLongitude > 180) {
+      logger.warn("Invalid longitude range: {} - {}", minLongitude, maxLongitude);
+      throw new IllegalArgumentException("Invalid longitude range");
+    }
+    if (zoom < 0) {
+      logger.warn("Invalid zoom level: {}", zoom);
+      throw new IllegalArgumentException("Zoom must not be negative");
+    }
+
+    ensureIndexesLoaded();
+    List<MapIconClusterResponseDto> result;
+    if (zoom > MapIconClusterIndex.MAX_CLUSTER_ZOOM) {
+      result = spatialIndex.findInBoundingBox(minLatitude, minLongitude, maxLatitude,
+              maxLongitude).stream()
+          .map(icon -> new MapIconClusterResponseDto(icon.getLatitude(), icon.getLongitude(), 1,
+              icon.getType() != null ? Map.of(icon.getType(), 1) : Map.of(), icon.getId()))
+          .collect(Collectors.toList());
+    } else {
+      result = clusterIndex.findClusters(minLatitude, minLongitude, maxLatitude, maxLongitude,
+              zoom).stream()
+          .map(cluster -> new MapIconClusterResponseDto(cluster.latitude(), cluster.longitude(),
+              cluster.count(), cluster.typeCounts(), cluster.iconId()))
+          .collect(Collectors.toList());
+    }
+
+    logger.info("Returning {} map icon clusters", result.size());
+    return result;
   }
 
   /**
@@ -209,18 +610,12 @@ public class MapIconService {
    * @return the distance in kilometers
    */
   public double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-    logger.trace("Calculating distance between ({}, {}) and ({}, {})", lat1, lon1, lat2, lon2);
-
-    final int earthRadiusKm = 6371;
-    double dlat = Math.toRadians(lat2 - lat1);
-    double dlon = Math.toRadians(lon2 - lon1);
-    double a = Math.sin(dlat / 2) * Math.sin(dlat / 2)
-        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-        * Math.sin(dlon / 2) * Math.sin(dlon / 2);
-    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-    double distance = earthRadiusKm * c;
-
-    logger.trace("Distance calculated: {}km", distance);
+    double distance = GeoDistance.haversineKm(lat1, lon1, lat2, lon2);
+    if (logger.isTraceEnabled()) {
+      // Checked first, so the coordinates are only boxed when trace logging is on
+      logger.trace("Distance between ({}, {}) and ({}, {}): {}km", lat1, lon1, lat2, lon2,
+          distance);
+    }
     return distance;
   }
 
@@ -237,54 +632,48 @@ public class MapIconService {
     logger.info("Finding closest map icon to coordinates ({}, {}), type: {}",
         latitude, longitude, type != null ? type : "ANY");
 
-    List<MapIcon> allIcons;
-
-    // If type is provided, filter by type, otherwise get all icons
-    if (type != null) {
-      logger.debug("Filtering icons by type: {}", type);
-      allIcons = mapIconRepository.findByType(type);
-    } else {
-      logger.debug("Retrieving all map icons regardless of type");
-      allIcons = mapIconRepository.findAll();
-    }
-
-    if (allIcons.isEmpty()) {
-      logger.info("No map icons found matching the criteria");
+    List<MapIconResponseDto> nearest = findNearestMapIcons(latitude, longitude, 1, type);
+    if (nearest.isEmpty()) {
+      logger.info("No suitable map icons found with coordinates");
       return null;
     }
+    return nearest.get(0);
+  }
 
-    logger.debug("Retrieved {} icons to search for closest", allIcons.size());
-
-    // Find the closest icon
-    MapIcon closest = null;
-    double minDistance = Double.MAX_VALUE;
-
-    for (MapIcon icon : allIcons) {
-      if (icon.getLatitude() != null && icon.getLongitude() != null) {
-        double distance = calculateDistance(
-            latitude, longitude,
-            icon.getLatitude(), icon.getLongitude()
-        );
-
-        logger.trace("Icon ID: {}, distance: {}km", icon.getId(), distance);
+  /**
+   * Finds the map icons closest to a given location, ordered by distance.
+   *
+   * @param latitude  the latitude of the user's location
+   * @param longitude the longitude of the user's location
+   * @param k         the number of map icons to find
+   * @param type      the type of map icon to find (null for any type)
+   * @return up to {@code k} map icons, closest first
+   */
+  public List<MapIconResponseDto> findNearestMapIcons(double latitude, double longitude, int k,
+      MapIconType type) {
+    logger.info("Finding {} nearest map icons to coordinates ({}, {}), type: {}",
+        k, latitude, longitude, type != null ? type : "ANY");
 
-        if (distance < minDistance) {
-          minDistance = distance;
-          closest = icon;
-          logger.trace("New closest icon found: ID={}, distance={}km", icon.getId(), distance);
-        }
-      } else {
-        logger.trace("Skipping icon ID: {} - missing coordinates", icon.getId());
-      }
+    if (k < 1 || k > MAX_NEAREST) {
+      logger.warn("Invalid number of nearest map icons requested: {}", k);
+      throw new IllegalArgumentException("k must be between 1 and " + MAX_NEAREST);
     }
 
-    if (closest != null) {
-      logger.info("Found closest map icon: ID={}, type={}, distance={}km",
-          closest.getId(), closest.getType(), minDistance);
-      return MapIconResponseDto.fromEntity(closest);
+    List<MapIconSpatialIndex.Neighbour> nearest;
+    if (inMemoryIndex) {
+      ensureIndexesLoaded();
+      nearest = spatialIndex.findNearest(latitude, longitude, k, type);
     } else {
-      logger.info("No suitable map icons found with coordinates");
-      return null;
+      nearest = findNearestInDatabase(latitude, longitude, k, type);
     }
+
+    if (!nearest.isEmpty()) {
+      MapIconSpatialIndex.Neighbour closest = nearest.get(0);
+      logger.info("Found {} map icons, closest: ID={}, type={}, distance={}km", nearest.size(),
+          closest.icon().getId(), closest.icon().getType(), closest.distanceKm());
+    }
+    return nearest.stream()
+        .map(neighbour -> MapIconResponseDto.fromEntity(neighbour.icon()))
+        .collect(Collectors.toList());
   }
-}
\ No newline at end of file
+}
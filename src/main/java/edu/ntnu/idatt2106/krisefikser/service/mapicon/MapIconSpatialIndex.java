@@ -0,0 +1,510 @@
+package edu.ntnu.idatt2106.krisefikser.service.mapicon;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory grid index over map icon coordinates.
+ *
+ * <p>The globe is divided into cells of a fixed size in degrees, and every icon with coordinates
+ * is stored in the cell containing it. Each map icon type has its own grid, so lookups for a single
+ * type never touch icons of other types. A radius lookup only visits the cells overlapping the
+ * bounding box of the search circle, and a nearest-neighbour lookup visits cells in order of their
+ * distance from the search point and stops as soon as no unvisited cell can hold a closer icon.
+ * Cells keep their icons in a {@link MapIconColumns}, so distances within a cell are computed from
+ * precomputed trigonometry.
+ */
+public class MapIconSpatialIndex {
+
+  /**
+   * Default cell size in degrees, roughly 11 km north-south.
+   */
+  public static final double DEFAULT_CELL_SIZE_DEGREES = 0.1;
+
+  private final double cellSizeDegrees;
+  private final int latCells;
+  private final int lonCells;
+  private final Map<MapIconType, Map<Long, MapIconColumns>> gridsByType = new HashMap<>();
+  private final Map<Long, IndexedCell> cellsById = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final AtomicLong modifications = new AtomicLong();
+  private volatile boolean loaded;
+
+  /**
+   * Creates an empty index with the default cell size.
+   */
+  public MapIconSpatialIndex() {
+    this(DEFAULT_CELL_SIZE_DEGREES);
+  }
+
+  /**
+   * Creates an empty index.
+   *
+   * @param cellSizeDegrees the width and height of a grid cell in degrees
+   */
+  public MapIconSpatialIndex(double cellSizeDegrees) {
+    if (cellSizeDegrees <= 0 || cellSizeDegrees > 180) {
+      throw new IllegalArgumentException("Cell size must be between 0 and 180 degrees");
+    }
+    this.cellSizeDegrees = cellSizeDegrees;
+    this.latCells = (int) Math.ceil(180 / cellSizeDegrees);
+    this.lonCells = (int) Math.ceil(360 / cellSizeDegrees);
+  }
+
+  /**
+   * Checks whether the index has been populated with a full snapshot of the icons.
+   *
+   * @return true if the index is loaded
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Gets the number of modifications applied to the index. Used to detect writes that happen
+   * while a snapshot is being read from the database.
+   *
+   * @return the modification count
+   */
+  public long getModificationCount() {
+    return modifications.get();
+  }
+
+  /**
+   * Replaces the contents of the index with the given snapshot, unless the index has been modified
+   * since {@code expectedModificationCount} was read. In that case the snapshot may be stale and
+   * the index is left unloaded.
+   *
+   * @param icons                     the icons to index
+   * @param expectedModificationCount the modification count read before the snapshot was taken
+   * @return true if the snapshot was applied
+   */
+  public boolean load(Collection<MapIcon> icons, long expectedModificationCount) {
+    lock.writeLock().lock();
+    try {
+      if (modifications.get() != expectedModificationCount) {
+        return false;
+      }
+      gridsByType.clear();
+      cellsById.clear();
+      for (MapIcon icon : icons) {
+        if (icon.getId() != null && hasCoordinates(icon)) {
+          long key = cellKey(icon.getLatitude(), icon.getLongitude());
+          grid(icon.getType()).computeIfAbsent(key, k -> new MapIconColumns()).add(icon);
+          cellsById.put(icon.getId(), new IndexedCell(icon.getType(), key));
+        }
+      }
+      loaded = true;
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Marks the index as stale so that the next lookup reloads it.
+   */
+  public void invalidate() {
+    lock.writeLock().lock();
+    try {
+      modifications.incrementAndGet();
+      loaded = false;
+      gridsByType.clear();
+      cellsById.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds or replaces an icon in the index. Icons without coordinates are removed from the index,
+   * since they cannot be found by location.
+   *
+   * @param icon the icon to index
+   */
+  public void put(MapIcon icon) {
+    if (icon.getId() == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      modifications.incrementAndGet();
+      removeInternal(icon.getId());
+      if (hasCoordinates(icon)) {
+        long key = cellKey(icon.getLatitude(), icon.getLongitude());
+        grid(icon.getType()).computeIfAbsent(key, k -> new MapIconColumns()).add(icon);
+        cellsById.put(icon.getId(), new IndexedCell(icon.getType(), key));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes an icon from the index.
+   *
+   * @param id the ID of the icon
+   */
+  public void remove(Long id) {
+    lock.writeLock().lock();
+    try {
+      modifications.incrementAndGet();
+      removeInternal(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of indexed icons.
+   *
+   * @return the number of icons
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return gridsByType.values().stream()
+          .flatMap(grid -> grid.values().stream())
+          .mapToInt(MapIconColumns::size)
+          .sum();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds all icons in the cells overlapping the bounding box of a circle. The result is a superset
+   * of the icons within the radius.
+   *
+   * @param latitude  the latitude of the centre
+   * @param longitude the longitude of the centre
+   * @param radiusKm  the radius in kilometers
+   * @return the candidate icons
+   */
+  public List<MapIcon> findCandidates(double latitude, double longitude, double radiusKm) {
+    List<MapIcon> result = new ArrayList<>();
+    visitCircleCells(latitude, longitude, radiusKm, cell -> cell.addAllTo(result));
+    return result;
+  }
+
+  /**
+   * Finds the icons within a radius of a point.
+   *
+   * @param latitude  the latitude of the centre
+   * @param longitude the longitude of the centre
+   * @param radiusKm  the radius in kilometers
+   * @return the icons within the radius
+   */
+  public List<MapIcon> findWithinRadius(double latitude, double longitude, double radiusKm) {
+    GeoDistance.Origin origin = new GeoDistance.Origin(latitude, longitude);
+    double angularRadius = radiusKm / GeoDistance.EARTH_RADIUS_KM;
+    double maxTerm = GeoDistance.radiusToTerm(radiusKm);
+    List<MapIcon> result = new ArrayList<>();
+    if (maxTerm < 0) {
+      return result;
+    }
+    visitCircleCells(latitude, longitude, radiusKm,
+        cell -> cell.collectWithinRadius(origin, angularRadius, maxTerm, result));
+    return result;
+  }
+
+  /**
+   * Visits the cells overlapping the bounding box of a circle.
+   */
+  private void visitCircleCells(double latitude, double longitude, double radiusKm,
+      Consumer<MapIconColumns> visitor) {
+    double deltaLat = GeoDistance.latitudeSpanDegrees(radiusKm);
+    int minLatCell = latCell(latitude - deltaLat);
+    int maxLatCell = latCell(latitude + deltaLat);
+    int minLonCell;
+    int lonCellCount;
+
+    double deltaLon = GeoDistance.longitudeSpanDegrees(latitude, radiusKm);
+    if (deltaLon >= 180) {
+      // The circle covers a pole, so every longitude is in range
+      minLonCell = 0;
+      lonCellCount = lonCells;
+    } else {
+      minLonCell = (int) Math.floor((longitude - deltaLon + 180) / cellSizeDegrees);
+      int maxLonCell = (int) Math.floor((longitude + deltaLon + 180) / cellSizeDegrees);
+      lonCellCount = Math.min(maxLonCell - minLonCell + 1, lonCells);
+    }
+    visitCells(minLatCell, maxLatCell, minLonCell, lonCellCount, visitor);
+  }
+
+  /**
+   * Finds all icons inside a bounding box. If {@code minLongitude} is greater than
+   * {@code maxLongitude}, the box is taken to cross the antimeridian.
+   *
+   * @param minLatitude  the southern edge of the box
+   * @param minLongitude the western edge of the box
+   * @param maxLatitude  the northern edge of the box
+   * @param maxLongitude the eastern edge of the box
+   * @return the icons in the box
+   */
+  public List<MapIcon> findInBoundingBox(double minLatitude, double minLongitude,
+      double maxLatitude, double maxLongitude) {
+    boolean allLongitudes = maxLongitude - minLongitude >= 360;
+    double lonSpan = allLongitudes ? 360 : normalizeDegrees(maxLongitude - minLongitude);
+    int minLonCell = (int) Math.floor((minLongitude + 180) / cellSizeDegrees);
+    int maxLonCell = (int) Math.floor((maxLongitude + 180) / cellSizeDegrees);
+    int lonCellCount = allLongitudes
+        ? lonCells
+        : Math.floorMod(maxLonCell - minLonCell, lonCells) + 1;
+
+    List<MapIcon> candidates = new ArrayList<>();
+    visitCells(latCell(minLatitude), latCell(maxLatitude), minLonCell, lonCellCount,
+        cell -> cell.addAllTo(candidates));
+    List<MapIcon> result = new ArrayList<>();
+    for (MapIcon icon : candidates) {
+      if (icon.getLatitude() >= minLatitude && icon.getLatitude() <= maxLatitude
+          && normalizeDegrees(icon.getLongitude() - minLongitude) <= lonSpan) {
+        result.add(icon);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Visits the occupied cells of every grid in a rectangle of cells. Longitude cells wrap around
+   * the antimeridian.
+   */
+  private void visitCells(int minLatCell, int maxLatCell, int minLonCell, int lonCellCount,
+      Consumer<MapIconColumns> visitor) {
+    long boxCells = (long) (maxLatCell - minLatCell + 1) * lonCellCount;
+    lock.readLock().lock();
+    try {
+      for (Map<Long, MapIconColumns> grid : gridsByType.values()) {
+        if (boxCells > grid.size()) {
+          // Fewer occupied cells than cells in the box, so scan the occupied ones instead
+          for (Map.Entry<Long, MapIconColumns> entry : grid.entrySet()) {
+            int latIndex = (int) (entry.getKey() / lonCells);
+            int lonIndex = (int) (entry.getKey() % lonCells);
+            int lonOffset = Math.floorMod(lonIndex - minLonCell, lonCells);
+            if (latIndex >= minLatCell && latIndex <= maxLatCell && lonOffset < lonCellCount) {
+              visitor.accept(entry.getValue());
+            }
+          }
+          continue;
+        }
+        for (int latIndex = minLatCell; latIndex <= maxLatCell; latIndex++) {
+          for (int i = 0; i < lonCellCount; i++) {
+            int lonIndex = Math.floorMod(minLonCell + i, lonCells);
+            MapIconColumns cell = grid.get((long) latIndex * lonCells + lonIndex);
+            if (cell != null) {
+              visitor.accept(cell);
+            }
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the icons closest to a point, ordered by distance.
+   *
+   * @param latitude  the latitude of the point
+   * @param longitude the longitude of the point
+   * @param k         the maximum number of icons to return
+   * @param type      the type of icons to search, or null for every type
+   * @return up to {@code k} icons, closest first
+   */
+  public List<Neighbour> findNearest(double latitude, double longitude, int k,
+      MapIconType type) {
+    if (k <= 0) {
+      return List.of();
+    }
+    // Max-heap on distance, so the current k-th best is always at the head
+    PriorityQueue<Neighbour> best = new PriorityQueue<>(
+        Comparator.comparingDouble(Neighbour::distanceKm).reversed());
+    GeoDistance.Origin origin = new GeoDistance.Origin(latitude, longitude);
+    lock.readLock().lock();
+    try {
+      if (type != null) {
+        Map<Long, MapIconColumns> grid = gridsByType.get(type);
+        if (grid != null) {
+          searchNearest(grid, origin, latitude, longitude, k, best);
+        }
+      } else {
+        for (Map<Long, MapIconColumns> grid : gridsByType.values()) {
+          searchNearest(grid, origin, latitude, longitude, k, best);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    List<Neighbour> result = new ArrayList<>(best);
+    result.sort(Comparator.comparingDouble(Neighbour::distanceKm));
+    return result;
+  }
+
+  /**
+   * Best-first search over the cells of one grid. Cells are expanded from the cell containing the
+   * point outwards in order of their minimum possible distance, and the search ends once that
+   * distance exceeds the k-th best distance found so far. If the search has visited more cells
+   * than the grid has occupied cells, the grid is sparse around the point and the remaining
+   * occupied cells are ranked directly instead.
+   */
+  private void searchNearest(Map<Long, MapIconColumns> grid, GeoDistance.Origin origin,
+      double latitude, double longitude, int k, PriorityQueue<Neighbour> best) {
+    if (grid.isEmpty()) {
+      return;
+    }
+    PriorityQueue<CellDistance> frontier = new PriorityQueue<>(
+        Comparator.comparingDouble(CellDistance::distanceKm));
+    Set<Long> seen = new HashSet<>();
+    Set<Long> searched = new HashSet<>();
+    long start = cellKey(latitude, longitude);
+    frontier.add(new CellDistance(start, 0));
+    seen.add(start);
+
+    while (!frontier.isEmpty()) {
+      CellDistance cell = frontier.poll();
+      if (isComplete(best, k, cell.distanceKm())) {
+        return;
+      }
+      if (seen.size() > grid.size()) {
+        searchOccupiedCells(grid, origin, latitude, longitude, k, best, searched);
+        return;
+      }
+      searchCell(grid.get(cell.key()), origin, k, best);
+      searched.add(cell.key());
+
+      int latIndex = (int) (cell.key() / lonCells);
+      int lonIndex = (int) (cell.key() % lonCells);
+      for (int dLat = -1; dLat <= 1; dLat++) {
+        int neighbourLat = latIndex + dLat;
+        if (neighbourLat < 0 || neighbourLat >= latCells) {
+          continue;
+        }
+        for (int dLon = -1; dLon <= 1; dLon++) {
+          long key = (long) neighbourLat * lonCells + Math.floorMod(lonIndex + dLon, lonCells);
+          if (seen.add(key)) {
+            frontier.add(new CellDistance(key, minDistanceToCell(latitude, longitude, key)));
+          }
+        }
+      }
+    }
+  }
+
+  private void searchOccupiedCells(Map<Long, MapIconColumns> grid, GeoDistance.Origin origin,
+      double latitude, double longitude, int k, PriorityQueue<Neighbour> best,
+      Set<Long> searched) {
+    List<CellDistance> remaining = new ArrayList<>(grid.size());
+    for (Long key : grid.keySet()) {
+      if (!searched.contains(key)) {
+        remaining.add(new CellDistance(key, minDistanceToCell(latitude, longitude, key)));
+      }
+    }
+    remaining.sort(Comparator.comparingDouble(CellDistance::distanceKm));
+    for (CellDistance cell : remaining) {
+      if (isComplete(best, k, cell.distanceKm())) {
+        return;
+      }
+      searchCell(grid.get(cell.key()), origin, k, best);
+    }
+  }
+
+  private void searchCell(MapIconColumns cell, GeoDistance.Origin origin, int k,
+      PriorityQueue<Neighbour> best) {
+    if (cell != null) {
+      cell.collectNearest(origin, k, best);
+    }
+  }
+
+  private static boolean isComplete(PriorityQueue<Neighbour> best, int k, double cellDistance) {
+    return best.size() == k && cellDistance > best.peek().distanceKm();
+  }
+
+  /**
+   * Calculates a lower bound for the distance from a point to any point in a cell.
+   */
+  private double minDistanceToCell(double latitude, double longitude, long key) {
+    double minLat = (key / lonCells) * cellSizeDegrees - 90;
+    double maxLat = Math.min(minLat + cellSizeDegrees, 90);
+    double minLon = (key % lonCells) * cellSizeDegrees - 180;
+    double maxLon = minLon + cellSizeDegrees;
+
+    // Degrees to travel east to reach the cell's western edge, and west to reach its eastern edge
+    double eastToCell = normalizeDegrees(minLon - longitude);
+    double westToCell = normalizeDegrees(longitude - maxLon);
+    if (eastToCell + westToCell > 360) {
+      // The point lies within the longitude span of the cell
+      double closestLat = Math.max(minLat, Math.min(maxLat, latitude));
+      return GeoDistance.EARTH_RADIUS_KM * Math.toRadians(Math.abs(latitude - closestLat));
+    }
+    double edgeLon = eastToCell <= westToCell ? minLon : maxLon;
+    return GeoDistance.toMeridianSegmentKm(latitude, longitude, edgeLon, minLat, maxLat);
+  }
+
+  private static double normalizeDegrees(double degrees) {
+    double normalized = degrees % 360;
+    return normalized < 0 ? normalized + 360 : normalized;
+  }
+
+  private void removeInternal(Long id) {
+    IndexedCell indexed = cellsById.remove(id);
+    if (indexed == null) {
+      return;
+    }
+    Map<Long, MapIconColumns> grid = gridsByType.get(indexed.type());
+    MapIconColumns cell = grid != null ? grid.get(indexed.key()) : null;
+    if (cell != null) {
+      cell.remove(id);
+      if (cell.size() == 0) {
+        grid.remove(indexed.key());
+      }
+    }
+  }
+
+  private Map<Long, MapIconColumns> grid(MapIconType type) {
+    return gridsByType.computeIfAbsent(type, t -> new HashMap<>());
+  }
+
+  private long cellKey(double latitude, double longitude) {
+    int lonIndex = Math.floorMod((int) Math.floor((longitude + 180) / cellSizeDegrees), lonCells);
+    return (long) latCell(latitude) * lonCells + lonIndex;
+  }
+
+  private int latCell(double latitude) {
+    int index = (int) Math.floor((latitude + 90) / cellSizeDegrees);
+    return Math.max(0, Math.min(latCells - 1, index));
+  }
+
+  private static boolean hasCoordinates(MapIcon icon) {
+    return icon.getLatitude() != null && icon.getLongitude() != null;
+  }
+
+  /**
+   * An icon found by a nearest-neighbour lookup, with its distance from the search point.
+   *
+   * @param icon       the icon
+   * @param distanceKm the distance in kilometers
+   */
+  public record Neighbour(MapIcon icon, double distanceKm) {
+
+  }
+
+  private record IndexedCell(MapIconType type, long key) {
+
+  }
+
+  private record CellDistance(long key, double distanceKm) {
+
+  }
+}
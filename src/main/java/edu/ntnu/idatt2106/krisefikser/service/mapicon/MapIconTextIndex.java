@@ -0,0 +1,271 @@
+package edu.ntnu.idatt2106.krisefikser.service.mapicon;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram inverted index over the searchable text of map icons.
+ *
+ * <p>The description, address and contact info of each icon are lowercased once when the icon is
+ * indexed, and every three-character sequence of that text points to the icons containing it. A
+ * query is split on whitespace, and an icon matches when every word occurs in one of its fields.
+ * Matching starts from the shortest posting list of the query trigrams, so only icons that share
+ * all trigrams with the query have their text compared.
+ */
+public class MapIconTextIndex {
+
+  private static final int GRAM_LENGTH = 3;
+  private static final char FIELD_SEPARATOR = '\n';
+
+  private final List<IndexedText> documents = new ArrayList<>();
+  private final Deque<Integer> freeDocuments = new ArrayDeque<>();
+  private final Map<Long, Integer> documentsById = new HashMap<>();
+  private final Map<Long, Set<Integer>> postings = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Replaces the contents of the index with the given icons.
+   *
+   * @param icons the icons to index
+   */
+  public void load(Collection<MapIcon> icons) {
+    lock.writeLock().lock();
+    try {
+      documents.clear();
+      freeDocuments.clear();
+      documentsById.clear();
+      postings.clear();
+      for (MapIcon icon : icons) {
+        addInternal(icon);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes every icon from the index, until it is loaded again.
+   */
+  public void invalidate() {
+    load(List.of());
+  }
+
+  /**
+   * Adds or replaces an icon in the index.
+   *
+   * @param icon the icon to index
+   */
+  public void put(MapIcon icon) {
+    if (icon.getId() == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      removeInternal(icon.getId());
+      addInternal(icon);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes an icon from the index.
+   *
+   * @param id the ID of the icon
+   */
+  public void remove(Long id) {
+    lock.writeLock().lock();
+    try {
+      removeInternal(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of icons in the index.
+   *
+   * @return the number of icons
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size() - freeDocuments.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the icons whose description, address or contact info contain every word of the query,
+   * ignoring case. A blank query matches nothing.
+   *
+   * @param query the search query
+   * @return the matching icons
+   */
+  public List<MapIcon> search(String query) {
+    List<String> words = tokenize(query);
+    List<MapIcon> result = new ArrayList<>();
+    if (words.isEmpty()) {
+      return result;
+    }
+
+    lock.readLock().lock();
+    try {
+      List<Set<Integer>> lists = new ArrayList<>();
+      for (String word : words) {
+        for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+          Set<Integer> posting = postings.get(gramKey(word, i));
+          if (posting == null) {
+            return result;
+          }
+          lists.add(posting);
+        }
+      }
+
+      if (lists.isEmpty()) {
+        // Only words shorter than a trigram, so every icon has to be checked
+        for (IndexedText document : documents) {
+          if (document != null && containsAll(document.text(), words)) {
+            result.add(document.icon());
+          }
+        }
+        return result;
+      }
+
+      Set<Integer> shortest = lists.get(0);
+      for (Set<Integer> posting : lists) {
+        if (posting.size() < shortest.size()) {
+          shortest = posting;
+        }
+      }
+      for (Integer documentId : shortest) {
+        if (inAll(documentId, lists)) {
+          IndexedText document = documents.get(documentId);
+          if (containsAll(document.text(), words)) {
+            result.add(document.icon());
+          }
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Checks a single icon against a query with the same rules as {@link #search(String)}, without
+   * using the index.
+   *
+   * @param icon  the icon to check
+   * @param query the search query
+   * @return true if every word of the query occurs in one of the fields of the icon
+   */
+  public static boolean matches(MapIcon icon, String query) {
+    List<String> words = tokenize(query);
+    return !words.isEmpty() && containsAll(searchableText(icon), words);
+  }
+
+  private void addInternal(MapIcon icon) {
+    String text = searchableText(icon);
+    IndexedText document = new IndexedText(icon, text);
+    int documentId;
+    if (freeDocuments.isEmpty()) {
+      documentId = documents.size();
+      documents.add(document);
+    } else {
+      documentId = freeDocuments.pop();
+      documents.set(documentId, document);
+    }
+    if (icon.getId() != null) {
+      documentsById.put(icon.getId(), documentId);
+    }
+    for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+      postings.computeIfAbsent(gramKey(text, i), key -> new HashSet<>()).add(documentId);
+    }
+  }
+
+  private void removeInternal(Long id) {
+    Integer documentId = documentsById.remove(id);
+    if (documentId == null) {
+      return;
+    }
+    String text = documents.get(documentId).text();
+    for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+      long key = gramKey(text, i);
+      Set<Integer> posting = postings.get(key);
+      if (posting != null && posting.remove(documentId) && posting.isEmpty()) {
+        postings.remove(key);
+      }
+    }
+    documents.set(documentId, null);
+    freeDocuments.push(documentId);
+  }
+
+  private static boolean inAll(Integer documentId, List<Set<Integer>> lists) {
+    for (Set<Integer> posting : lists) {
+      if (!posting.contains(documentId)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsAll(String text, List<String> words) {
+    for (String word : words) {
+      if (!text.contains(word)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<String> tokenize(String query) {
+    if (query == null || query.isBlank()) {
+      return List.of();
+    }
+    Set<String> words = new LinkedHashSet<>();
+    for (String word : query.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+      words.add(word);
+    }
+    return new ArrayList<>(words);
+  }
+
+  /**
+   * Joins the searchable fields of an icon into one lowercase string. The fields are separated by
+   * a whitespace character, which never occurs in a query word, so a word cannot match across two
+   * fields.
+   */
+  private static String searchableText(MapIcon icon) {
+    StringBuilder text = new StringBuilder();
+    for (String field : new String[] {icon.getDescription(), icon.getAddress(),
+        icon.getContactInfo()}) {
+      if (field != null) {
+        text.append(field.toLowerCase(Locale.ROOT));
+      }
+      text.append(FIELD_SEPARATOR);
+    }
+    return text.toString();
+  }
+
+  private static long gramKey(String text, int start) {
+    return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16)
+        | text.charAt(start + 2);
+  }
+
+  private record IndexedText(MapIcon icon, String text) {
+
+  }
+}
@@ -0,0 +1,260 @@
+package edu.ntnu.idatt2106.krisefikser.service.notification;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionResponseDto;
+import edu.ntnu.idatt2106.krisefikser.service.household.HouseholdPositionCache;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends household positions in a compact form on {@code /topic/position/{householdId}/compact},
+ * for clients that opt in by subscribing to it instead of the full position updates.
+ *
+ * <p>Each household has a stream of numbered frames. A keyframe is a JSON object holding the
+ * sequence number and the members of the household, each as an array of its index in the stream,
+ * user id, full name, and latitude and longitude quantized to {@link #QUANTUM} of a degree:
+ * {@code {"s":7,"m":[[0,"id","Name",6343051,1039512]]}}. Between keyframes, each reported position
+ * is sent as a JSON array of the sequence number, the member index and the change of the quantized
+ * latitude and longitude since the last frame: {@code [8,0,12,-7]}. Positions that do not change
+ * after quantizing are not sent.
+ *
+ * <p>Keyframes are sent to the topic every configured number of frames or milliseconds, and when a
+ * member without an index reports a position. They are built from the
+ * {@link HouseholdPositionCache}, so members who left the household are dropped. A client that
+ * subscribes, or sees a gap in the sequence numbers, asks for the current keyframe, which is sent
+ * to that user only on {@code /user/queue/position/compact} and ignores frames up to its sequence
+ * number.
+ *
+ * <p>The sequence numbers and member indexes are kept by this instance only. With the broker
+ * relay, members of one household connected to different instances would publish conflicting
+ * frames on the same topic, so the stream is disabled then and clients use the full position
+ * updates.
+ */
+@Component
+public class CompactPositionStream {
+
+  private static final Logger logger = LoggerFactory.getLogger(CompactPositionStream.class);
+
+  /**
+   * The number of quantization steps per degree, which makes a step about a meter.
+   */
+  public static final double QUANTUM = 1e5;
+
+  /**
+   * The user destination the keyframes asked for are sent to.
+   */
+  public static final String KEYFRAME_DESTINATION = "/queue/position/compact";
+
+  private final SimpMessagingTemplate messagingTemplate;
+  private final HouseholdPositionCache householdPositions;
+  private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+
+  @Value("${app.positions.compact.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${app.websocket.broker.relay.enabled:false}")
+  private boolean relayEnabled = false;
+
+  @Value("${app.positions.compact.keyframe-frames:20}")
+  private int keyframeFrames = 20;
+
+  @Value("${app.positions.compact.keyframe-interval-ms:30000}")
+  private long keyframeIntervalMs = 30000;
+
+  @Value("${app.positions.compact.idle-ms:600000}")
+  private long idleMs = 600000;
+
+  /**
+   * Constructor for CompactPositionStream.
+   *
+   * @param messagingTemplate  the template for sending the frames
+   * @param householdPositions the cache the members of the keyframes are read from
+   */
+  public CompactPositionStream(SimpMessagingTemplate messagingTemplate,
+      HouseholdPositionCache householdPositions) {
+    this.messagingTemplate = messagingTemplate;
+    this.householdPositions = householdPositions;
+  }
+
+  /**
+   * Gets the destination of the compact stream of a household.
+   *
+   * @param householdId the id of the household
+   * @return the destination
+   */
+  public static String destination(String householdId) {
+    return "/topic/position/" + householdId + "/compact";
+  }
+
+  /**
+   * Sends the position a member of a household has reported, as a delta or a keyframe. The
+   * position should already be in the {@link HouseholdPositionCache}.
+   *
+   * @param householdId the id of the household
+   * @param userId      the id of the user
+   * @param latitude    the latitude of the user
+   * @param longitude   the longitude of the user
+   */
+  public void publish(String householdId, String userId, double latitude, double longitude) {
+    if (!isEnabled()) {
+      return;
+    }
+    Stream stream = streams.computeIfAbsent(householdId, id -> new Stream());
+    synchronized (stream) {
+      Object frame;
+      long now = System.currentTimeMillis();
+      stream.lastFrameAt = now;
+      Member member = stream.members.get(userId);
+      if (member == null || member.latitude == null
+          || stream.framesSinceKeyframe >= keyframeFrames
+          || now - stream.keyframeAt >= keyframeIntervalMs) {
+        rebuild(householdId, stream);
+        stream.keyframeAt = now;
+        stream.framesSinceKeyframe = 0;
+        frame = keyframe(stream);
+      } else {
+        int quantizedLatitude = quantize(latitude);
+        int quantizedLongitude = quantize(longitude);
+        if (quantizedLatitude == member.latitude && quantizedLongitude == member.longitude) {
+          return;
+        }
+        frame = Arrays.asList(++stream.sequence, member.index,
+            quantizedLatitude - member.latitude, quantizedLongitude - member.longitude);
+        member.latitude = quantizedLatitude;
+        member.longitude = quantizedLongitude;
+        stream.framesSinceKeyframe++;
+      }
+      // Sent while holding the lock, so the frames leave in sequence order
+      send(householdId, frame);
+    }
+  }
+
+  /**
+   * Sends the current keyframe of a household to one user, so a client that just subscribed or
+   * missed a frame can apply the next deltas.
+   *
+   * @param householdId the id of the household
+   * @param userId      the id of the user
+   */
+  public void sendKeyframe(String householdId, String userId) {
+    if (!isEnabled()) {
+      return;
+    }
+    Stream stream = streams.computeIfAbsent(householdId, id -> new Stream());
+    synchronized (stream) {
+      if (!stream.loaded) {
+        // Nothing has been sent to the topic yet, so the members can be loaded without a reset
+        rebuild(householdId, stream);
+        stream.keyframeAt = System.currentTimeMillis();
+      }
+      stream.lastFrameAt = System.currentTimeMillis();
+      messagingTemplate.convertAndSendToUser(userId, KEYFRAME_DESTINATION, keyframe(stream));
+    }
+  }
+
+  /**
+   * Forgets the streams no position has been sent on within the idle time.
+   *
+   * @return the number of streams forgotten
+   */
+  @Scheduled(fixedDelayString = "${app.positions.compact.evict-interval-ms:60000}")
+  public int evictIdle() {
+    long idleSince = System.currentTimeMillis() - idleMs;
+    int before = streams.size();
+    streams.values().removeIf(stream -> stream.lastFrameAt < idleSince);
+    return before - streams.size();
+  }
+
+  /**
+   * Gets the number of household streams kept.
+   *
+   * @return the number of streams
+   */
+  public int size() {
+    return streams.size();
+  }
+
+  private boolean isEnabled() {
+    return enabled && !relayEnabled;
+  }
+
+  private static int quantize(double degrees) {
+    return (int) Math.round(degrees * QUANTUM);
+  }
+
+  private void rebuild(String householdId, Stream stream) {
+    stream.members.clear();
+    for (PositionResponseDto position : householdPositions.getPositions(householdId)) {
+      Member member = new Member(stream.members.size(), position.getUserId(),
+          position.getFullName());
+      if (position.getLatitude() != null && position.getLongitude() != null) {
+        member.latitude = quantize(Double.parseDouble(position.getLatitude()));
+        member.longitude = quantize(Double.parseDouble(position.getLongitude()));
+      }
+      stream.members.put(member.userId, member);
+    }
+    stream.sequence++;
+    stream.loaded = true;
+  }
+
+  private Map<String, Object> keyframe(Stream stream) {
+    List<List<Object>> members = new ArrayList<>();
+    for (Member member : stream.members.values()) {
+      members.add(Arrays.asList(member.index, member.userId, member.fullName, member.latitude,
+          member.longitude));
+    }
+    Map<String, Object> frame = new LinkedHashMap<>();
+    frame.put("s", stream.sequence);
+    frame.put("m", members);
+    return frame;
+  }
+
+  private void send(String householdId, Object frame) {
+    try {
+      messagingTemplate.convertAndSend(destination(householdId), frame);
+    } catch (Exception e) {
+      logger.error("Failed to send compact position frame to household {}: {}", householdId,
+          e.getMessage(), e);
+    }
+  }
+
+  /**
+   * The members of a household and the last positions sent for them.
+   */
+  private static final class Stream {
+
+    private final Map<String, Member> members = new LinkedHashMap<>();
+    private long sequence;
+    private boolean loaded;
+    private int framesSinceKeyframe;
+    private long keyframeAt;
+    private volatile long lastFrameAt = System.currentTimeMillis();
+  }
+
+  /**
+   * A member of a household stream, with the last quantized position sent, or null if none has.
+   */
+  private static final class Member {
+
+    private final int index;
+    private final String userId;
+    private final String fullName;
+    private Integer latitude;
+    private Integer longitude;
+
+    private Member(int index, String userId, String fullName) {
+      this.index = index;
+      this.userId = userId;
+      this.fullName = fullName;
+    }
+  }
+}
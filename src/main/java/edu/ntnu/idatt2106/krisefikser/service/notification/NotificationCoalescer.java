@@ -0,0 +1,179 @@
+package edu.ntnu.idatt2106.krisefikser.service.notification;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Merges notifications about the same thing, such as edits of one incident or the expiring items
+ * of one household, that arrive within a time window into one digest.
+ *
+ * <p>Each key has at most one open window. The first notification of a window is either sent
+ * right away, for alerts that must not wait, or held back with the rest. The notifications held
+ * back are handed to the delivery of the last one submitted when the window closes, so the digest
+ * is built from the newest state. Closing windows is checked on a schedule, and every open window
+ * is closed on shutdown.
+ *
+ * <p>Inside a transaction, a notification held back is added to the window when the transaction
+ * commits, so one that is rolled back does not end up in a digest. A first notification sent right
+ * away is handed to its delivery at once, which is expected to wait for the commit itself, as the
+ * {@link NotificationDispatcher} does, and its window is opened at once too, so other notifications
+ * for the key submitted before the commit are held back. If the transaction rolls back, that
+ * window is closed and the notifications held back in it are delivered right away.
+ */
+@Component
+public class NotificationCoalescer {
+
+  private static final Logger logger = LoggerFactory.getLogger(NotificationCoalescer.class);
+
+  private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+  @Value("${app.notifications.coalescing.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${app.notifications.coalescing.window-ms:60000}")
+  private long windowMs = 60000;
+
+  /**
+   * Submits a notification. If no window is open for the key, one is opened, and the notification
+   * is delivered right away if sendFirst is set. Otherwise it is held back until the window
+   * closes. Inside a transaction, this happens when the transaction commits.
+   *
+   * @param key       what the notification is about, such as an incident
+   * @param item      what the digest is built from, such as the message
+   * @param sendFirst whether the first notification of a window is delivered right away
+   * @param deliver   delivers the items held back, replacing the delivery of earlier items
+   * @param <T>       the type of the items
+   */
+  public <T> void submit(String key, T item, boolean sendFirst, Consumer<List<T>> deliver) {
+    if (!enabled || key == null) {
+      deliver.accept(List.of(item));
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      add(key, item, sendFirst, deliver);
+      return;
+    }
+    // Work registered after the commit would never run, so the first is delivered now. Its window
+    // is opened now as well, so concurrent notifications for the key do not count as the first too.
+    Window reserved = new Window(closesAt());
+    boolean sendNow = sendFirst && windows.putIfAbsent(key, reserved) == null;
+    if (sendNow) {
+      deliver.accept(List.of(item));
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        if (!sendNow) {
+          add(key, item, false, deliver);
+        }
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        if (sendNow && status != STATUS_COMMITTED && windows.remove(key, reserved)) {
+          deliver(key, reserved);
+        }
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> void add(String key, T item, boolean sendFirst, Consumer<List<T>> deliver) {
+    boolean[] opened = new boolean[1];
+    windows.compute(key, (k, window) -> {
+      if (window == null) {
+        opened[0] = true;
+        window = new Window(closesAt());
+        if (sendFirst) {
+          return window;
+        }
+      }
+      window.items.add(item);
+      window.deliver = items -> deliver.accept((List<T>) items);
+      return window;
+    });
+    if (opened[0] && sendFirst) {
+      deliver.accept(List.of(item));
+    } else {
+      logger.debug("Holding back notification for {} until its window closes", key);
+    }
+  }
+
+  /**
+   * Delivers the digests of the windows that have closed. Runs periodically in the background.
+   */
+  @Scheduled(fixedDelayString = "${app.notifications.coalescing.flush-interval-ms:1000}")
+  public void flushExpired() {
+    long now = System.nanoTime();
+    windows.keySet().forEach(key -> {
+      Window window = windows.get(key);
+      if (window != null && now - window.closesAt >= 0 && windows.remove(key, window)) {
+        deliver(key, window);
+      }
+    });
+  }
+
+  /**
+   * Closes every open window and delivers its digest.
+   */
+  @PreDestroy
+  public void flushAll() {
+    windows.keySet().forEach(key -> {
+      Window window = windows.remove(key);
+      if (window != null) {
+        deliver(key, window);
+      }
+    });
+  }
+
+  /**
+   * Gets the number of open windows.
+   *
+   * @return the number of windows
+   */
+  public int size() {
+    return windows.size();
+  }
+
+  private long closesAt() {
+    return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+  }
+
+  private void deliver(String key, Window window) {
+    if (window.items.isEmpty()) {
+      return;
+    }
+    logger.info("Sending digest of {} notifications for {}", window.items.size(), key);
+    try {
+      window.deliver.accept(window.items);
+    } catch (Exception e) {
+      logger.error("Failed to send digest for {}: {}", key, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * The notifications held back for a key, and when they are sent.
+   */
+  private static final class Window {
+
+    private final long closesAt;
+    private final List<Object> items = new ArrayList<>();
+    private Consumer<List<Object>> deliver;
+
+    private Window(long closesAt) {
+      this.closesAt = closesAt;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package edu.ntnu.idatt2106.krisefikser.service.notification;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationResponseDto;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * The position of a notification in the feed of a user, which is ordered by timestamp and id,
+ * newest first. Personal and household notifications have separate ids, so the cursor also tells
+ * which of them it points at, and a personal notification comes before a household notification
+ * with the same timestamp and id.
+ *
+ * <p>Clients get the cursor as an opaque string and pass it back unchanged.
+ *
+ * @param timestamp the timestamp of the notification
+ * @param id        the id of the notification
+ * @param household true if the notification was sent to a household
+ */
+public record NotificationCursor(LocalDateTime timestamp, long id, boolean household) {
+
+  /**
+   * Gets the cursor of a notification in the feed.
+   *
+   * @param notification the notification
+   * @return the cursor
+   */
+  public static NotificationCursor of(NotificationResponseDto notification) {
+    return new NotificationCursor(notification.getTimestamp(), notification.getId(),
+        notification.getHouseholdId() != null);
+  }
+
+  /**
+   * Parses a cursor sent by a client.
+   *
+   * @param value the cursor as text
+   * @return the cursor
+   * @throws IllegalArgumentException if the cursor is not valid
+   */
+  public static NotificationCursor decode(String value) {
+    try {
+      String[] parts = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8)
+          .split("\\|");
+      if (parts.length == 3 && (parts[2].equals("p") || parts[2].equals("h"))) {
+        return new NotificationCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]),
+            parts[2].equals("h"));
+      }
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException("Invalid cursor");
+  }
+
+  /**
+   * Gets the cursor as text for a client.
+   *
+   * @return the cursor as text
+   */
+  public String encode() {
+    String value = timestamp + "|" + id + "|" + (household ? "h" : "p");
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,316 @@
+package edu.ntnu.idatt2106.krisefikser.service.notification;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationDispatchMetricsDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs notification work (saving and sending) on a pool of worker threads, so callers do not wait
+ * for the database or the message broker.
+ *
+ * <p>Work is queued in one bounded queue per {@link Priority}, and the workers always take from
+ * the most urgent queue first. When a queue stays full for longer than the offer timeout, the work
+ * is run on the calling thread instead, which slows the producer down rather than dropping the
+ * notification. Work dispatched inside a transaction is queued after the transaction commits, so
+ * nothing is sent about changes that were rolled back. On shutdown, new work is run on the calling
+ * thread and the workers finish the queued work before they stop. Work run on the calling thread
+ * after a commit is run with the committed transaction suspended, so its writes do not join it and
+ * get lost.
+ */
+@Component
+public class NotificationDispatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+  /**
+   * The priority of queued notification work, from most to least urgent.
+   */
+  public enum Priority {
+    /**
+     * Incident alerts.
+     */
+    HIGH,
+    /**
+     * Household and membership changes, and other information to users.
+     */
+    NORMAL,
+    /**
+     * Stock control reminders.
+     */
+    LOW;
+
+    /**
+     * Gets the priority of a notification type.
+     *
+     * @param type the notification type
+     * @return the priority of the type
+     */
+    public static Priority of(NotificationType type) {
+      if (type == NotificationType.INCIDENT) {
+        return HIGH;
+      }
+      if (type == NotificationType.STOCK_CONTROL) {
+        return LOW;
+      }
+      return NORMAL;
+    }
+  }
+
+  private final Map<Priority, BlockingQueue<Task>> queues = new EnumMap<>(Priority.class);
+  private final Semaphore available = new Semaphore(0);
+  private final List<Thread> workers = new ArrayList<>();
+  private final TransactionTemplate outsideTransaction;
+  private volatile boolean accepting;
+
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong callerRuns = new AtomicLong();
+  private final AtomicLong maxLagMs = new AtomicLong();
+  private volatile long lastLagMs;
+
+  @Value("${app.notifications.dispatch.workers:4}")
+  private int workerCount = 4;
+
+  @Value("${app.notifications.dispatch.queue-capacity:10000}")
+  private int queueCapacity = 10000;
+
+  @Value("${app.notifications.dispatch.offer-timeout-ms:50}")
+  private long offerTimeoutMs = 50;
+
+  @Value("${app.notifications.dispatch.drain-timeout-ms:10000}")
+  private long drainTimeoutMs = 10000;
+
+  /**
+   * Constructor for NotificationDispatcher.
+   *
+   * @param transactionManager the transaction manager, used to suspend the transaction of the
+   *                           calling thread when work is run on it
+   */
+  public NotificationDispatcher(PlatformTransactionManager transactionManager) {
+    this.outsideTransaction = new TransactionTemplate(transactionManager);
+    outsideTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+  }
+
+  /**
+   * Creates the queues and starts the worker threads.
+   */
+  @PostConstruct
+  public synchronized void start() {
+    if (accepting) {
+      return;
+    }
+    for (Priority priority : Priority.values()) {
+      queues.put(priority, new ArrayBlockingQueue<>(Math.max(1, queueCapacity)));
+    }
+    for (int i = 0; i < Math.max(1, workerCount); i++) {
+      Thread worker = new Thread(this::work, "notification-dispatch-" + i);
+      worker.setDaemon(true);
+      workers.add(worker);
+      worker.start();
+    }
+    accepting = true;
+    logger.info("Started {} notification dispatch workers with queue capacity {}",
+        workers.size(), queueCapacity);
+  }
+
+  /**
+   * Stops taking new work and lets the workers finish the queued work, waiting at most the drain
+   * timeout. Work still queued after that is dropped and logged.
+   */
+  @PreDestroy
+  public synchronized void stop() {
+    if (!accepting) {
+      return;
+    }
+    accepting = false;
+    // Wakes every worker, so each one sees that the queues are closed once they are empty
+    available.release(workers.size());
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+    boolean drained = true;
+    for (Thread worker : workers) {
+      try {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        worker.join(Math.max(1, remaining));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (worker.isAlive()) {
+        drained = false;
+        worker.interrupt();
+      }
+    }
+    workers.clear();
+
+    // Work queued while the workers were stopping
+    Task task;
+    int dropped = 0;
+    while ((task = poll()) != null) {
+      if (drained) {
+        runOnCallingThread(task);
+      } else {
+        dropped++;
+      }
+    }
+    if (dropped > 0) {
+      logger.warn("Dropped {} queued notification tasks on shutdown", dropped);
+    }
+    logger.info("Stopped notification dispatch workers");
+  }
+
+  /**
+   * Queues notification work and returns without waiting for it. If called inside a transaction,
+   * the work is queued when the transaction commits and dropped if it rolls back.
+   *
+   * @param type        the type of the notification, which decides its priority
+   * @param description a short description of the work for logging
+   * @param work        the work to run
+   */
+  public void dispatch(NotificationType type, String description, Runnable work) {
+    Task task = new Task(Priority.of(type), description, work);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          enqueue(task);
+        }
+      });
+    } else {
+      enqueue(task);
+    }
+  }
+
+  /**
+   * Gets the current queue depths and the dispatch metrics counted since the application started.
+   *
+   * @return the metrics
+   */
+  public NotificationDispatchMetricsDto getMetrics() {
+    Map<String, Integer> depths = new LinkedHashMap<>();
+    long oldest = 0;
+    long now = System.nanoTime();
+    for (Priority priority : Priority.values()) {
+      BlockingQueue<Task> queue = queues.get(priority);
+      depths.put(priority.name(), queue != null ? queue.size() : 0);
+      Task head = queue != null ? queue.peek() : null;
+      if (head != null) {
+        oldest = Math.max(oldest, TimeUnit.NANOSECONDS.toMillis(now - head.enqueuedAt));
+      }
+    }
+    return new NotificationDispatchMetricsDto(depths, submitted.get(), completed.get(),
+        failed.get(), callerRuns.get(), oldest, lastLagMs, maxLagMs.get());
+  }
+
+  private void enqueue(Task task) {
+    if (accepting) {
+      task.enqueuedAt = System.nanoTime();
+      try {
+        BlockingQueue<Task> queue = queues.get(task.priority);
+        if (queue.offer(task, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+          submitted.incrementAndGet();
+          available.release();
+          // Stopped while offering, so the queue may already have been drained. Whoever takes the
+          // task out of the queue runs it, either the stopping thread or this one.
+          if (!accepting && queue.remove(task)) {
+            runOnCallingThread(task);
+          }
+          return;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      callerRuns.incrementAndGet();
+      logger.warn("{} notification queue is full, running {} on the calling thread",
+          task.priority, task.description);
+    }
+    task.enqueuedAt = System.nanoTime();
+    runOnCallingThread(task);
+  }
+
+  private void work() {
+    while (true) {
+      try {
+        available.acquire();
+      } catch (InterruptedException e) {
+        return;
+      }
+      Task task = poll();
+      if (task != null) {
+        run(task);
+      } else if (!accepting) {
+        return;
+      }
+    }
+  }
+
+  private Task poll() {
+    for (Priority priority : Priority.values()) {
+      BlockingQueue<Task> queue = queues.get(priority);
+      Task task = queue != null ? queue.poll() : null;
+      if (task != null) {
+        return task;
+      }
+    }
+    return null;
+  }
+
+  private void runOnCallingThread(Task task) {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      // Called from afterCommit, where the committed transaction is still bound to the thread
+      outsideTransaction.executeWithoutResult(status -> run(task));
+    } else {
+      run(task);
+    }
+  }
+
+  private void run(Task task) {
+    long lag = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.enqueuedAt);
+    lastLagMs = lag;
+    maxLagMs.accumulateAndGet(lag, Math::max);
+    try {
+      task.work.run();
+      completed.incrementAndGet();
+    } catch (Exception e) {
+      failed.incrementAndGet();
+      logger.error("Failed to {}: {}", task.description, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Notification work waiting in a queue.
+   */
+  private static final class Task {
+
+    private final Priority priority;
+    private final String description;
+    private final Runnable work;
+    private volatile long enqueuedAt;
+
+    private Task(Priority priority, String description, Runnable work) {
+      this.priority = priority;
+      this.description = description;
+      this.work = work;
+    }
+  }
+}
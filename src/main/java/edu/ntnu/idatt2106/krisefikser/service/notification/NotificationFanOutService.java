@@ -0,0 +1,166 @@
+package edu.ntnu.idatt2106.krisefikser.service.notification;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationFanOutMetricsDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for sending one notification to a large number of users, such as everyone within the
+ * radius of an incident.
+ *
+ * <p>The recipients are handled in chunks. The notification rows of a chunk are written with a
+ * single JDBC batch insert in their own transaction, using the users that are already loaded
+ * instead of looking each of them up again, and the WebSocket messages of the chunk are sent right
+ * after, so the first users are alerted before the rows of the last ones are written. Rows per
+ * second and the time until the last message was sent are recorded for every fan-out.
+ */
+@Service
+public class NotificationFanOutService {
+
+  private static final Logger logger = LoggerFactory.getLogger(NotificationFanOutService.class);
+
+  private static final String INSERT_SQL = "INSERT INTO notification (user_id, type, is_read, "
+      + "message, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final SimpMessagingTemplate messagingTemplate;
+  private final UnreadNotificationCounter unreadCounter;
+
+  private final AtomicLong fanOuts = new AtomicLong();
+  private final AtomicLong rowsInserted = new AtomicLong();
+  private final AtomicLong rowsFailed = new AtomicLong();
+  private final AtomicLong messagesSent = new AtomicLong();
+  private final AtomicLong messagesFailed = new AtomicLong();
+  private final AtomicLong maxTimeToLastDeliveryMs = new AtomicLong();
+  private volatile double lastRowsPerSecond;
+  private volatile long lastTimeToLastDeliveryMs;
+
+  @Value("${app.notifications.fan-out.chunk-size:1000}")
+  private int chunkSize = 1000;
+
+  /**
+   * Constructor for NotificationFanOutService.
+   *
+   * @param jdbcTemplate       the template for batch inserts
+   * @param transactionManager the transaction manager for the chunk transactions
+   * @param messagingTemplate  the template for sending WebSocket messages
+   * @param unreadCounter      the cached unread counts of the users
+   */
+  public NotificationFanOutService(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager, SimpMessagingTemplate messagingTemplate,
+      UnreadNotificationCounter unreadCounter) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.messagingTemplate = messagingTemplate;
+    this.unreadCounter = unreadCounter;
+  }
+
+  /**
+   * Saves a notification for every recipient and sends it to their private queue. A chunk whose
+   * rows could not be saved is still sent, since the users should be alerted either way.
+   *
+   * @param notification the notification to send, whose recipient is set for each message
+   * @param recipients   the users to notify
+   */
+  public void fanOut(NotificationDto notification, List<User> recipients) {
+    long start = System.nanoTime();
+    long insertNanos = 0;
+    long inserted = 0;
+    LocalDateTime timestamp = notification.getTimestamp() != null
+        ? notification.getTimestamp() : LocalDateTime.now();
+    int step = Math.max(1, chunkSize);
+
+    for (int from = 0; from < recipients.size(); from += step) {
+      List<User> chunk = recipients.subList(from, Math.min(from + step, recipients.size()));
+
+      long insertStart = System.nanoTime();
+      long mark = unreadCounter.startChange();
+      boolean saved = false;
+      try {
+        transactionTemplate.executeWithoutResult(
+            status -> insertChunk(notification, timestamp, chunk));
+        inserted += chunk.size();
+        saved = true;
+      } catch (DataAccessException e) {
+        rowsFailed.addAndGet(chunk.size());
+        logger.error("Failed to save {} notifications of fan-out: {}", chunk.size(),
+            e.getMessage(), e);
+      }
+      insertNanos += System.nanoTime() - insertStart;
+
+      dispatchChunk(notification, chunk);
+      if (saved) {
+        unreadCounter.increment(chunk.stream().map(User::getId).toList(), mark);
+      }
+    }
+
+    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+    record(inserted, insertNanos, elapsedMs);
+    logger.info("Fanned out {} notification to {} users in {} ms ({} rows/s)",
+        notification.getType(), recipients.size(), elapsedMs, Math.round(lastRowsPerSecond));
+  }
+
+  /**
+   * Gets the fan-out metrics counted since the application started.
+   *
+   * @return the metrics
+   */
+  public NotificationFanOutMetricsDto getMetrics() {
+    return new NotificationFanOutMetricsDto(fanOuts.get(), rowsInserted.get(), rowsFailed.get(),
+        messagesSent.get(), messagesFailed.get(), lastRowsPerSecond, lastTimeToLastDeliveryMs,
+        maxTimeToLastDeliveryMs.get());
+  }
+
+  private void insertChunk(NotificationDto notification, LocalDateTime timestamp,
+      List<User> chunk) {
+    Timestamp sqlTimestamp = Timestamp.valueOf(timestamp);
+    jdbcTemplate.batchUpdate(INSERT_SQL, chunk, chunk.size(), (statement, user) -> {
+      statement.setString(1, user.getId());
+      statement.setString(2, notification.getType().name());
+      statement.setBoolean(3, false);
+      statement.setString(4, notification.getMessage());
+      statement.setTimestamp(5, sqlTimestamp);
+    });
+    logger.debug("Inserted chunk of {} notifications", chunk.size());
+  }
+
+  private void dispatchChunk(NotificationDto notification, List<User> chunk) {
+    int sent = 0;
+    for (User user : chunk) {
+      // The message is serialized when it is sent, so the shared DTO can be reused
+      notification.setRecipientId(user.getId());
+      try {
+        messagingTemplate.convertAndSendToUser(user.getId(), "/queue/notifications",
+            notification);
+        sent++;
+      } catch (Exception e) {
+        messagesFailed.incrementAndGet();
+        logger.warn("Failed to send notification to user {}: {}", user.getId(), e.getMessage());
+      }
+    }
+    messagesSent.addAndGet(sent);
+    logger.debug("Sent chunk of {} notifications", sent);
+  }
+
+  private void record(long inserted, long insertNanos, long elapsedMs) {
+    fanOuts.incrementAndGet();
+    rowsInserted.addAndGet(inserted);
+    lastRowsPerSecond = insertNanos > 0 ? inserted * 1_000_000_000.0 / insertNanos : 0;
+    lastTimeToLastDeliveryMs = elapsedMs;
+    maxTimeToLastDeliveryMs.accumulateAndGet(elapsedMs, Math::max);
+  }
+}
@@ -0,0 +1,134 @@
+package edu.ntnu.idatt2106.krisefikser.service.notification;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for moving old read notifications from the {@code notification} table to the
+ * {@code notification_archive} table, so the table the feed is read from, and its indexes, only
+ * hold recent and unread notifications.
+ *
+ * <p>Notifications are moved in batches walked in id order, each batch copied and deleted in its
+ * own short transaction, so the job never holds locks on more than one batch of rows. Unread
+ * notifications are never archived, and neither are household notifications, which are stored
+ * once per household.
+ */
+@Service
+@EnableScheduling
+public class NotificationRetentionService {
+
+  private static final Logger logger =
+      LoggerFactory.getLogger(NotificationRetentionService.class);
+
+  private static final String SELECT_SQL = "SELECT id FROM notification "
+      + "WHERE is_read = TRUE AND timestamp < ? AND id > ? ORDER BY id LIMIT ?";
+
+  private static final String ARCHIVE_SQL = "INSERT INTO notification_archive "
+      + "(id, user_id, type, message, timestamp, archived_at) "
+      + "SELECT id, user_id, type, message, timestamp, ? FROM notification WHERE id IN (%s)";
+
+  private static final String DELETE_SQL = "DELETE FROM notification WHERE id IN (%s)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  @Value("${app.notifications.retention.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${app.notifications.retention.read-after-days:90}")
+  private int readAfterDays = 90;
+
+  @Value("${app.notifications.retention.batch-size:1000}")
+  private int batchSize = 1000;
+
+  /**
+   * Constructor for NotificationRetentionService.
+   *
+   * @param jdbcTemplate       the template for moving the notifications
+   * @param transactionManager the transaction manager for the batch transactions
+   */
+  public NotificationRetentionService(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Archives the read notifications older than the retention period. Runs every night at 03:30.
+   */
+  @Scheduled(cron = "${app.notifications.retention.cron:0 30 3 * * ?}")
+  public void archiveScheduled() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      archiveReadNotifications(LocalDateTime.now().minusDays(readAfterDays));
+    } catch (Exception e) {
+      logger.error("Error while archiving notifications: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Moves every read notification older than a timestamp to the archive, one batch at a time. A
+   * batch that fails is left in place and the job stops, so it is tried again on the next run.
+   *
+   * @param cutoff the timestamp every older read notification is archived by
+   * @return the number of archived notifications
+   */
+  public int archiveReadNotifications(LocalDateTime cutoff) {
+    logger.info("Archiving read notifications older than {}", cutoff);
+    long start = System.nanoTime();
+    Timestamp sqlCutoff = Timestamp.valueOf(cutoff);
+    int limit = Math.max(1, batchSize);
+    int archived = 0;
+    long afterId = 0;
+
+    while (true) {
+      List<Long> ids = jdbcTemplate.queryForList(SELECT_SQL, Long.class, sqlCutoff, afterId,
+          limit);
+      if (ids.isEmpty()) {
+        break;
+      }
+      try {
+        Integer moved = transactionTemplate.execute(status -> archiveBatch(ids));
+        archived += moved != null ? moved : 0;
+      } catch (DataAccessException e) {
+        logger.error("Failed to archive {} notifications: {}", ids.size(), e.getMessage(), e);
+        break;
+      }
+      if (ids.size() < limit) {
+        break;
+      }
+      afterId = ids.get(ids.size() - 1);
+    }
+
+    logger.info("Archived {} notifications in {} ms", archived,
+        (System.nanoTime() - start) / 1_000_000);
+    return archived;
+  }
+
+  private int archiveBatch(List<Long> ids) {
+    String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+    Object[] archiveArgs = new Object[ids.size() + 1];
+    archiveArgs[0] = Timestamp.valueOf(LocalDateTime.now());
+    for (int i = 0; i < ids.size(); i++) {
+      archiveArgs[i + 1] = ids.get(i);
+    }
+    jdbcTemplate.update(String.format(ARCHIVE_SQL, placeholders), archiveArgs);
+    int deleted = jdbcTemplate.update(String.format(DELETE_SQL, placeholders), ids.toArray());
+    logger.debug("Archived batch of {} notifications", deleted);
+    return deleted;
+  }
+}
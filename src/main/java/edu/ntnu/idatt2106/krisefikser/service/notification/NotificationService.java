@@ -1,21 +1,37 @@
 package edu.ntnu.idatt2106.krisefikser.service.notification;
 
-import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionDto;
-import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationBulkRequestDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationDispatchMetricsDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationFanOutMetricsDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationPageDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.UnreadCountDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionResponseDto;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.incident.Incident;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.notification.HouseholdNotification;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.notification.Notification;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.storage.StorageItem;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.HouseholdNotificationReceiptRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.HouseholdNotificationRepository;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.NotificationRepository;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.GeoDistance;
+import edu.ntnu.idatt2106.krisefikser.service.user.UserLocationRegistry;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -27,24 +43,70 @@ import org.springframework.stereotype.Service;
 @Service
 public class NotificationService {
 
+  /**
+   * The largest number of notifications returned in one page of the feed.
+   */
+  public static final int MAX_PAGE_SIZE = 100;
+
+  /**
+   * The most notifications that can be marked as read or deleted by id in one request.
+   */
+  public static final int MAX_BULK_IDS = 1000;
+
+  private static final int MAX_MESSAGE_LENGTH = 255;
+
+  // The order of the feed, see NotificationCursor
+  private static final Comparator<NotificationResponseDto> NEWEST_FIRST =
+      Comparator.comparing(NotificationResponseDto::getTimestamp, Comparator.reverseOrder())
+          .thenComparing(NotificationResponseDto::getId, Comparator.reverseOrder())
+          .thenComparing(notification -> notification.getHouseholdId() != null);
+
   private final SimpMessagingTemplate messagingTemplate;
   private final NotificationRepository notificationRepository;
+  private final HouseholdNotificationRepository householdNotificationRepository;
+  private final HouseholdNotificationReceiptRepository receiptRepository;
   private final UserRepository userRepository;
+  private final NotificationFanOutService fanOutService;
+  private final NotificationDispatcher dispatcher;
+  private final UserLocationRegistry locationRegistry;
+  private final UnreadNotificationCounter unreadCounter;
+  private final NotificationCoalescer coalescer;
   private final Logger logger = LoggerFactory.getLogger(NotificationService.class.getName());
 
   /**
    * Instantiates a new Notification service.
    *
-   * @param messagingTemplate      the messaging template
-   * @param notificationRepository the notification repository
-   * @param userRepository         the user repository
+   * @param messagingTemplate               the messaging template
+   * @param notificationRepository          the notification repository
+   * @param householdNotificationRepository the household notification repository
+   * @param receiptRepository               the household notification read receipt repository
+   * @param userRepository                  the user repository
+   * @param fanOutService                   the service sending incident notifications in batches
+   * @param dispatcher                      the dispatcher running notification work in background
+   * @param locationRegistry                the registry of the last reported user positions
+   * @param unreadCounter                   the cached unread counts of the users
+   * @param coalescer                       the coalescer merging repeated notifications
    */
   public NotificationService(SimpMessagingTemplate messagingTemplate,
       NotificationRepository notificationRepository,
-      UserRepository userRepository) {
+      HouseholdNotificationRepository householdNotificationRepository,
+      HouseholdNotificationReceiptRepository receiptRepository,
+      UserRepository userRepository,
+      NotificationFanOutService fanOutService,
+      NotificationDispatcher dispatcher,
+      UserLocationRegistry locationRegistry,
+      UnreadNotificationCounter unreadCounter,
+      NotificationCoalescer coalescer) {
     this.messagingTemplate = messagingTemplate;
     this.notificationRepository = notificationRepository;
+    this.householdNotificationRepository = householdNotificationRepository;
+    this.receiptRepository = receiptRepository;
     this.userRepository = userRepository;
+    this.fanOutService = fanOutService;
+    this.dispatcher = dispatcher;
+    this.locationRegistry = locationRegistry;
+    this.unreadCounter = unreadCounter;
+    this.coalescer = coalescer;
     logger.info("NotificationService initialized");
   }
 
@@ -56,25 +118,33 @@ public class NotificationService {
    * @param position    the position data
    */
   public void sendHouseholdPositionUpdate(String userId, String householdId, PositionDto position) {
+    logger.debug("Looking up user with ID: {}", userId);
+    userRepository.findById(userId).ifPresentOrElse(
+        user -> sendHouseholdPositionUpdate(userId, user.getFullName(), householdId, position),
+        () -> logger.warn("User not found with ID: {}", userId));
+  }
+
+  /**
+   * Send position update to a household, for a user who has already been looked up.
+   *
+   * @param userId      the user id
+   * @param fullName    the full name of the user
+   * @param householdId the household id
+   * @param position    the position data
+   */
+  public void sendHouseholdPositionUpdate(String userId, String fullName, String householdId,
+      PositionDto position) {
     logger.info("Sending position update to household {}: latitude={}, longitude={}",
         householdId, position.getLatitude(), position.getLongitude());
 
     try {
-      logger.debug("Looking up user with ID: {}", userId);
-      User user = userRepository.findById(userId)
-          .orElseThrow(() -> {
-            logger.warn("User not found with ID: {}", userId);
-            return new IllegalArgumentException("User does not exist");
-          });
-      logger.debug("Found user: {}", user.getFullName());
-
       PositionResponseDto response = new PositionResponseDto(
-          user.getId(),
-          user.getFullName(),
+          userId,
+          fullName,
           position.getLongitude(),
           position.getLatitude()
       );
-      logger.debug("Created position response for user: {}", user.getFullName());
+      logger.debug("Created position response for user: {}", fullName);
 
       messagingTemplate.convertAndSend(
           "/topic/position/" + householdId,
@@ -88,11 +158,17 @@ public class NotificationService {
   }
 
   /**
-   * Broadcast notification to all subscribers.
+   * Broadcast notification to all subscribers. Runs on the {@link NotificationDispatcher}, so
+   * the caller does not wait for it.
    *
    * @param notification the notification
    */
   public void broadcastNotification(NotificationDto notification) {
+    dispatcher.dispatch(notification.getType(), "broadcast notification",
+        () -> doBroadcastNotification(notification));
+  }
+
+  private void doBroadcastNotification(NotificationDto notification) {
     logger.info("Broadcasting notification: type={}, message={}",
         notification.getType(), notification.getMessage());
 
@@ -105,24 +181,34 @@ public class NotificationService {
   }
 
   /**
-   * Marks the notification as read.
+   * Marks a notification of the current user as read. The notification is only updated if it is
+   * still unread, in the same statement, so the unread count is changed once even if the
+   * notification is marked as read by several requests at once.
    *
    * @param notificationId the notification id
    */
   public void markNotificationAsRead(Long notificationId) {
     logger.info("Marking notification as read: ID={}", notificationId);
 
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String email = authentication.getName();
+
     try {
-      logger.debug("Looking up notification with ID: {}", notificationId);
-      Notification notification = notificationRepository.findById(notificationId)
+      User user = userRepository.findByEmail(email)
           .orElseThrow(() -> {
-            logger.warn("Notification not found with ID: {}", notificationId);
-            return new IllegalArgumentException("Notification not found");
+            logger.warn("User not found with email: {}", email);
+            return new IllegalArgumentException("User not found");
           });
 
-      notification.setIsRead(true);
       logger.debug("Updating notification read status");
-      notificationRepository.save(notification);
+      long mark = unreadCounter.startChange();
+      int updated = notificationRepository.markAsReadByIds(user.getId(), List.of(notificationId));
+      if (updated == 1) {
+        unreadCounter.decrement(user.getId(), mark);
+      } else if (!notificationRepository.existsByIdAndUserId(notificationId, user.getId())) {
+        logger.warn("Notification not found with ID: {}", notificationId);
+        throw new IllegalArgumentException("Notification not found");
+      }
       logger.info("Notification {} successfully marked as read", notificationId);
     } catch (Exception e) {
       logger.error("Failed to mark notification {} as read: {}", notificationId, e.getMessage(), e);
@@ -131,7 +217,188 @@ public class NotificationService {
   }
 
   /**
-   * Gets user notifications.
+   * Gets the number of unread notifications of the current user, both the ones sent to the user
+   * and the ones sent to their household. The count is cached, so this does not read the
+   * notifications.
+   *
+   * @return the unread count
+   */
+  public UnreadCountDto getUnreadCount() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String email = authentication.getName();
+    User user = userRepository.findByEmail(email)
+        .orElseThrow(() -> {
+          logger.warn("User not found with email: {}", email);
+          return new IllegalArgumentException("User not found");
+        });
+    return new UnreadCountDto(unreadCounter.getUnreadCount(user));
+  }
+
+  /**
+   * Marks a household notification as read for the current user. The other members of the
+   * household are not affected.
+   *
+   * @param notificationId the household notification id
+   */
+  public void markHouseholdNotificationAsRead(Long notificationId) {
+    logger.info("Marking household notification as read: ID={}", notificationId);
+
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String email = authentication.getName();
+
+    try {
+      User user = userRepository.findByEmail(email)
+          .orElseThrow(() -> {
+            logger.warn("User not found with email: {}", email);
+            return new IllegalArgumentException("User not found");
+          });
+
+      HouseholdNotification notification = householdNotificationRepository.findById(notificationId)
+          .filter(found -> user.getHousehold() != null
+              && found.getHouseholdId().equals(user.getHousehold().getId()))
+          .orElseThrow(() -> {
+            logger.warn("Household notification not found with ID: {}", notificationId);
+            return new IllegalArgumentException("Notification not found");
+          });
+
+      long mark = unreadCounter.startChange();
+      int inserted;
+      try {
+        inserted = receiptRepository.insertReceiptsByIds(user.getId(),
+            notification.getHouseholdId(), List.of(notificationId), LocalDateTime.now());
+      } catch (DataIntegrityViolationException e) {
+        // Another request added the receipt between the check and the insert of the statement
+        inserted = 0;
+      }
+      if (inserted == 1) {
+        unreadCounter.decrement(user.getId(), mark);
+      }
+      logger.info("Household notification {} marked as read for user {}", notificationId,
+          user.getId());
+    } catch (Exception e) {
+      logger.error("Failed to mark household notification {} as read: {}", notificationId,
+          e.getMessage(), e);
+      throw e;
+    }
+  }
+
+  /**
+   * Marks the notifications a household already has as read for a user who joins it, so only the
+   * ones sent after they joined count as unread.
+   *
+   * @param userId      the id of the user
+   * @param householdId the id of the household the user joined
+   * @param joinedAt    the time the user joined
+   */
+  public void markHouseholdHistoryAsRead(String userId, String householdId,
+      LocalDateTime joinedAt) {
+    int inserted = receiptRepository.insertReceiptsBefore(userId, householdId, joinedAt,
+        joinedAt);
+    // A count for the new household may have been taken before the receipts were added
+    unreadCounter.invalidate(userId);
+    logger.debug("Marked {} earlier notifications of household {} as read for user {}", inserted,
+        householdId, userId);
+  }
+
+  /**
+   * Marks many notifications of the current user as read in one statement per kind, either the
+   * ones with the given ids or every one older than a timestamp. Household notifications are
+   * marked as read for the current user only, by adding read receipts.
+   *
+   * @param request the ids or the timestamp of the notifications
+   * @return the number of notifications that were unread
+   */
+  public int markNotificationsAsRead(NotificationBulkRequestDto request) {
+    validateBulkRequest(request);
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String email = authentication.getName();
+    User user = userRepository.findByEmail(email)
+        .orElseThrow(() -> {
+          logger.warn("User not found with email: {}", email);
+          return new IllegalArgumentException("User not found");
+        });
+    String householdId = user.getHousehold() != null ? user.getHousehold().getId() : null;
+    LocalDateTime now = LocalDateTime.now();
+
+    long mark = unreadCounter.startChange();
+    int updated;
+    if (request.getBefore() != null) {
+      updated = notificationRepository.markAsReadBefore(user.getId(), request.getBefore());
+      if (householdId != null) {
+        updated += receiptRepository.insertReceiptsBefore(user.getId(), householdId,
+            request.getBefore(), now);
+      }
+    } else {
+      updated = isEmpty(request.getIds()) ? 0
+          : notificationRepository.markAsReadByIds(user.getId(), request.getIds());
+      if (householdId != null && !isEmpty(request.getHouseholdIds())) {
+        updated += receiptRepository.insertReceiptsByIds(user.getId(), householdId,
+            request.getHouseholdIds(), now);
+      }
+    }
+
+    if (updated > 0) {
+      unreadCounter.decrement(user.getId(), updated, mark);
+    }
+    logger.info("Marked {} notifications as read for user {}", updated, user.getId());
+    return updated;
+  }
+
+  /**
+   * Deletes many notifications of the current user in one statement, either the ones with the
+   * given ids or every one older than a timestamp. Household notifications are shared by the
+   * members of the household, so they are not deleted.
+   *
+   * @param request the ids or the timestamp of the notifications
+   * @return the number of deleted notifications
+   */
+  public int deleteNotifications(NotificationBulkRequestDto request) {
+    validateBulkRequest(request);
+    if (request.getBefore() == null && isEmpty(request.getIds())) {
+      throw new IllegalArgumentException("Household notifications cannot be deleted");
+    }
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String email = authentication.getName();
+    User user = userRepository.findByEmail(email)
+        .orElseThrow(() -> {
+          logger.warn("User not found with email: {}", email);
+          return new IllegalArgumentException("User not found");
+        });
+
+    int deleted = request.getBefore() != null
+        ? notificationRepository.deleteBefore(user.getId(), request.getBefore())
+        : notificationRepository.deleteByIds(user.getId(), request.getIds());
+
+    if (deleted > 0) {
+      // Some of the deleted notifications may have been unread
+      unreadCounter.refresh(user);
+    }
+    logger.info("Deleted {} notifications for user {}", deleted, user.getId());
+    return deleted;
+  }
+
+  private static void validateBulkRequest(NotificationBulkRequestDto request) {
+    boolean byIds = !isEmpty(request.getIds()) || !isEmpty(request.getHouseholdIds());
+    if (request.getBefore() != null && byIds) {
+      throw new IllegalArgumentException("Use either ids or before, not both");
+    }
+    if (request.getBefore() == null && !byIds) {
+      throw new IllegalArgumentException("Either ids or before is required");
+    }
+    int count = (request.getIds() != null ? request.getIds().size() : 0)
+        + (request.getHouseholdIds() != null ? request.getHouseholdIds().size() : 0);
+    if (count > MAX_BULK_IDS) {
+      throw new IllegalArgumentException("At most " + MAX_BULK_IDS + " ids are allowed");
+    }
+  }
+
+  private static boolean isEmpty(List<Long> ids) {
+    return ids == null || ids.isEmpty();
+  }
+
+  /**
+   * Gets user notifications, both the ones sent to the user and the ones sent to their
+   * household, newest first.
    *
    * @return the user notifications
    */
@@ -153,15 +420,8 @@ public class NotificationService {
           notificationRepository.findAllByUserIdOrderByTimestampDesc(user.getId());
       logger.debug("Retrieved {} notifications for user", notifications.size());
 
-      List<NotificationResponseDto> result = notifications.stream()
-          .map(notification -> new NotificationResponseDto(
-              notification.getId(),
-              notification.getType(),
-              notification.getUser().getId(),
-              notification.getTimestamp(),
-              notification.getMessage(),
-              notification.getIsRead()))
-          .toList();
+      List<NotificationResponseDto> result = merge(toResponses(notifications),
+          getHouseholdNotifications(user), NEWEST_FIRST);
 
       logger.info("Returning {} notifications for user {}", result.size(), user.getId());
       return result;
@@ -171,62 +431,277 @@ public class NotificationService {
     }
   }
 
+  private List<NotificationResponseDto> getHouseholdNotifications(User user) {
+    if (user.getHousehold() == null) {
+      return List.of();
+    }
+    String householdId = user.getHousehold().getId();
+    List<HouseholdNotification> notifications =
+        householdNotificationRepository.findAllByHouseholdIdOrderByTimestampDesc(householdId);
+    if (notifications.isEmpty()) {
+      return List.of();
+    }
+    Set<Long> readIds = receiptRepository.findReadNotificationIds(user.getId(), householdId);
+    logger.debug("Retrieved {} household notifications, {} read by user", notifications.size(),
+        readIds.size());
+    return toResponses(notifications, user, readIds);
+  }
+
+  /**
+   * Gets a page of the notification feed of the current user, merging the notifications sent to
+   * the user and to their household, newest first.
+   *
+   * <p>Without a cursor, the newest notifications are returned. With a cursor, the notifications
+   * older than it are returned. With since, only the notifications saved after it are returned,
+   * starting with the first saved of them, so a client polling with the newest cursor of the last
+   * response reads only the rows added since. Since is kept by id rather than timestamp, so a
+   * notification saved after the poll with an older timestamp is not missed.
+   *
+   * @param cursor the next cursor of the previous page, or null for the first page
+   * @param since  the newest cursor of an earlier response, or null
+   * @param limit  the maximum number of notifications to return, at most {@link #MAX_PAGE_SIZE}
+   * @return the page of notifications
+   */
+  public NotificationPageDto getUserNotificationPage(String cursor, String since, int limit) {
+    if (cursor != null && since != null) {
+      throw new IllegalArgumentException("Use either cursor or since, not both");
+    }
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    logger.info("Fetching notification page for user: cursor={}, since={}, limit={}", cursor,
+        since, limit);
+
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String email = authentication.getName();
+    User user = userRepository.findByEmail(email)
+        .orElseThrow(() -> {
+          logger.warn("User not found with email: {}", email);
+          return new IllegalArgumentException("User not found");
+        });
+    String householdId = user.getHousehold() != null ? user.getHousehold().getId() : null;
+
+    if (since != null) {
+      return getNewerNotifications(user, householdId, NotificationSinceCursor.decode(since),
+          limit);
+    }
+
+    // Read before the page, so a notification saved in between is returned again, not missed
+    String newestCursor = new NotificationSinceCursor(
+        notificationRepository.findMaxIdByUserId(user.getId()),
+        householdId == null ? 0 : householdNotificationRepository.findMaxIdByHouseholdId(
+            householdId)).encode();
+
+    // One extra row from each stream tells if there is a next page
+    Pageable page = PageRequest.of(0, limit + 1);
+    List<Notification> personal;
+    List<HouseholdNotification> household = List.of();
+    if (cursor == null) {
+      personal = notificationRepository.findByUserIdOrderByTimestampDescIdDesc(user.getId(), page);
+      if (householdId != null) {
+        household = householdNotificationRepository.findByHouseholdIdOrderByTimestampDescIdDesc(
+            householdId, page);
+      }
+    } else {
+      NotificationCursor before = NotificationCursor.decode(cursor);
+      personal = notificationRepository.findPageBefore(user.getId(), before.timestamp(),
+          before.id(), page);
+      if (householdId != null) {
+        // A household notification with the same timestamp and id comes after a personal one
+        household = householdNotificationRepository.findPageBefore(householdId,
+            before.timestamp(), before.household() ? before.id() : before.id() + 1, page);
+      }
+    }
+
+    List<NotificationResponseDto> merged = merge(toResponses(personal),
+        toPageResponses(household, user), NEWEST_FIRST);
+    List<NotificationResponseDto> result = merged.subList(0, Math.min(limit, merged.size()));
+    String nextCursor = merged.size() > limit
+        ? NotificationCursor.of(result.get(result.size() - 1)).encode() : null;
+
+    logger.info("Returning {} notifications for user {}", result.size(), user.getId());
+    return new NotificationPageDto(new ArrayList<>(result), nextCursor, newestCursor);
+  }
+
+  private NotificationPageDto getNewerNotifications(User user, String householdId,
+      NotificationSinceCursor after, int limit) {
+    Pageable page = PageRequest.of(0, limit);
+    List<Notification> personal = notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+        user.getId(), after.personalId(), page);
+    List<HouseholdNotification> household = householdId == null ? List.of()
+        : householdNotificationRepository.findByHouseholdIdAndIdGreaterThanOrderByIdAsc(
+            householdId, after.householdId(), page);
+
+    // Takes the first saved rows of each list, so the ids of the result are a prefix of both
+    List<NotificationResponseDto> merged = merge(toResponses(personal),
+        toPageResponses(household, user), NEWEST_FIRST.reversed());
+    List<NotificationResponseDto> result =
+        new ArrayList<>(merged.subList(0, Math.min(limit, merged.size())));
+    long personalId = after.personalId();
+    long householdNotificationId = after.householdId();
+    for (NotificationResponseDto notification : result) {
+      if (notification.getHouseholdId() != null) {
+        householdNotificationId = Math.max(householdNotificationId, notification.getId());
+      } else {
+        personalId = Math.max(personalId, notification.getId());
+      }
+    }
+    result.sort(NEWEST_FIRST);
+    String newestCursor =
+        new NotificationSinceCursor(personalId, householdNotificationId).encode();
+
+    logger.info("Returning {} new notifications for user {}", result.size(), user.getId());
+    return new NotificationPageDto(result, null, newestCursor);
+  }
+
+  private List<NotificationResponseDto> toPageResponses(List<HouseholdNotification> notifications,
+      User user) {
+    if (notifications.isEmpty()) {
+      return List.of();
+    }
+    Set<Long> readIds = receiptRepository.findReadNotificationIdsIn(user.getId(),
+        notifications.stream().map(HouseholdNotification::getId).toList());
+    return toResponses(notifications, user, readIds);
+  }
+
+  private static List<NotificationResponseDto> toResponses(List<Notification> notifications) {
+    return notifications.stream()
+        .map(notification -> new NotificationResponseDto(
+            notification.getId(),
+            notification.getType(),
+            notification.getUser().getId(),
+            notification.getTimestamp(),
+            notification.getMessage(),
+            notification.getIsRead()))
+        .toList();
+  }
+
+  private static List<NotificationResponseDto> toResponses(
+      List<HouseholdNotification> notifications, User user, Set<Long> readIds) {
+    return notifications.stream()
+        .map(notification -> {
+          NotificationResponseDto dto = new NotificationResponseDto(
+              notification.getId(),
+              notification.getType(),
+              user.getId(),
+              notification.getTimestamp(),
+              notification.getMessage(),
+              readIds.contains(notification.getId()));
+          dto.setHouseholdId(notification.getHouseholdId());
+          return dto;
+        })
+        .toList();
+  }
+
+  /**
+   * Merges two lists of notifications that are both sorted in the given order.
+   */
+  private static List<NotificationResponseDto> merge(List<NotificationResponseDto> first,
+      List<NotificationResponseDto> second, Comparator<NotificationResponseDto> order) {
+    List<NotificationResponseDto> merged = new ArrayList<>(first.size() + second.size());
+    int i = 0;
+    int j = 0;
+    while (i < first.size() && j < second.size()) {
+      if (order.compare(second.get(j), first.get(i)) < 0) {
+        merged.add(second.get(j++));
+      } else {
+        merged.add(first.get(i++));
+      }
+    }
+    merged.addAll(first.subList(i, first.size()));
+    merged.addAll(second.subList(j, second.size()));
+    return merged;
+  }
+
   /**
-   * Send expiry notification.
+   * Send expiry notification. The expiring items of a household found within the coalescing
+   * window are sent as one notification listing all of them.
    *
    * @param item the item
    */
   public void sendExpiryNotification(StorageItem item) {
+    String householdId = item.getHousehold().getId();
     logger.info("Sending expiry notification for item: {} in household: {}",
-        item.getItem().getName(), item.getHousehold().getId());
+        item.getItem().getName(), householdId);
 
     long daysUntilExpiry = ChronoUnit.DAYS.between(
         LocalDateTime.now().toLocalDate(), item.getExpirationDate().toLocalDate());
     logger.debug("Item expires in {} days", daysUntilExpiry);
 
-    NotificationDto notification = new NotificationDto();
-    notification.setType(NotificationType.STOCK_CONTROL);
-    notification.setMessage("Your item '" + item.getItem().getName()
-        + "' is expiring in "
-        + daysUntilExpiry + " days.");
-    notification.setTimestamp(LocalDateTime.now());
-    logger.debug("Created expiry notification: {}", notification.getMessage());
+    coalescer.submit("household:" + householdId + ":" + NotificationType.STOCK_CONTROL,
+        new ExpiringItem(item.getItem().getName(), daysUntilExpiry), false,
+        items -> {
+          NotificationDto notification = new NotificationDto();
+          notification.setType(NotificationType.STOCK_CONTROL);
+          notification.setMessage(expiryMessage(items));
+          notification.setTimestamp(LocalDateTime.now());
+          logger.debug("Created expiry notification: {}", notification.getMessage());
+          saveHouseholdNotification(notification, householdId);
+        });
+    logger.info("Expiry notification queued for item: {}", item.getItem().getName());
+  }
 
-    saveHouseholdNotification(notification, item.getHousehold().getId());
-    logger.info("Expiry notification sent for item: {}", item.getItem().getName());
+  private static String expiryMessage(List<ExpiringItem> items) {
+    if (items.size() == 1) {
+      return "Your item '" + items.get(0).name() + "' is expiring in "
+          + items.get(0).daysUntilExpiry() + " days.";
+    }
+    List<ExpiringItem> sorted = new ArrayList<>(items);
+    sorted.sort(Comparator.comparingLong(ExpiringItem::daysUntilExpiry));
+    StringBuilder message = new StringBuilder(items.size() + " items are expiring soon:");
+    for (int i = 0; i < sorted.size(); i++) {
+      String entry = (i == 0 ? " '" : ", '") + sorted.get(i).name() + "' in "
+          + sorted.get(i).daysUntilExpiry() + " days";
+      String more = " and " + (sorted.size() - i) + " more.";
+      // Keeps room for the count of the items left out
+      if (message.length() + entry.length() + more.length() > MAX_MESSAGE_LENGTH) {
+        return message.append(more).toString();
+      }
+      message.append(entry);
+    }
+    return message.append('.').toString();
   }
 
   /**
-   * Save household notification and send to all household users.
+   * Save household notification and send to all household users. The notification is stored once
+   * for the whole household, and each member marks it as read for themselves. Runs on the
+   * {@link NotificationDispatcher}, so the caller does not wait for it.
    *
    * @param notification the notification
    * @param householdId  the household id
    */
   public void saveHouseholdNotification(NotificationDto notification, String householdId) {
+    dispatcher.dispatch(notification.getType(), "save notification for household " + householdId,
+        () -> doSaveHouseholdNotification(notification, householdId));
+  }
+
+  private void doSaveHouseholdNotification(NotificationDto notification, String householdId) {
     logger.info("Saving household notification for household {}: type={}, message={}",
         householdId, notification.getType(), notification.getMessage());
 
     try {
-      logger.debug("Creating notification entity");
-      Notification notificationEntity = new Notification();
-      notificationEntity.setType(notification.getType());
-      notificationEntity.setIsRead(notification.isRead());
-      notificationEntity.setTimestamp(LocalDateTime.now());
-      notificationEntity.setMessage(notification.getMessage());
-
       logger.debug("Fetching users for household: {}", householdId);
       List<User> users = userRepository.getUsersByHouseholdId(householdId);
       logger.debug("Found {} users in household", users.size());
+      if (users.isEmpty()) {
+        logger.info("Household {} has no members to notify", householdId);
+        return;
+      }
+
+      HouseholdNotification notificationEntity = new HouseholdNotification();
+      notificationEntity.setHouseholdId(householdId);
+      notificationEntity.setType(notification.getType());
+      notificationEntity.setTimestamp(LocalDateTime.now());
+      notificationEntity.setMessage(notification.getMessage());
+      long mark = unreadCounter.startChange();
+      householdNotificationRepository.save(notificationEntity);
+      logger.debug("Saved notification for household: {}", householdId);
 
       users.forEach(user -> {
         logger.info("Sending household notification to user {}: type={}, message={}",
             user.getId(), notification.getType(), notification.getMessage());
-
-        notificationEntity.setUser(user);
-        notificationRepository.save(notificationEntity);
-        logger.debug("Saved notification for user: {}", user.getId());
-
-        sendPrivateNotification(user.getId(), notification);
+        doSendPrivateNotification(user.getId(), notification);
+        unreadCounter.increment(user.getId(), mark);
       });
       logger.info("Household notification processed for all {} users", users.size());
     } catch (Exception e) {
@@ -236,12 +711,18 @@ public class NotificationService {
   }
 
   /**
-   * Send private notification.
+   * Send private notification. Runs on the {@link NotificationDispatcher}, so the caller does
+   * not wait for it.
    *
    * @param userId       the user id
    * @param notification the notification
    */
   public void sendPrivateNotification(String userId, NotificationDto notification) {
+    dispatcher.dispatch(notification.getType(), "send notification to user " + userId,
+        () -> doSendPrivateNotification(userId, notification));
+  }
+
+  private void doSendPrivateNotification(String userId, NotificationDto notification) {
     logger.info("Sending private notification to user {}: type={}, message={}, timestamp={}",
         userId, notification.getType(), notification.getMessage(),
         notification.getTimestamp());
@@ -259,12 +740,36 @@ public class NotificationService {
   }
 
   /**
-   * Send incident notification.
+   * Send incident notification. Runs on the {@link NotificationDispatcher}, so the caller does
+   * not wait for it, and the notifications are saved and sent in batches, see
+   * {@link NotificationFanOutService}. Repeated notifications about the same incident within the
+   * coalescing window are sent once, as the newest message with the number of updates.
    *
    * @param message  the message
    * @param incident the incident
    */
   public void notifyIncident(String message, Incident incident) {
+    // The first alert goes out at once, and later edits within the window are sent as one digest
+    String key = incident.getId() != null ? "incident:" + incident.getId() : null;
+    coalescer.submit(key, message, true, messages -> dispatcher.dispatch(
+        NotificationType.INCIDENT, "notify users about incident " + incident.getName(),
+        () -> doNotifyIncident(incidentMessage(messages), incident)));
+  }
+
+  private static String incidentMessage(List<String> messages) {
+    String newest = messages.get(messages.size() - 1);
+    if (messages.size() == 1) {
+      return newest;
+    }
+    String updates = " (" + messages.size() + " updates)";
+    // Keeps room for the number of updates
+    if (newest.length() + updates.length() > MAX_MESSAGE_LENGTH) {
+      newest = newest.substring(0, MAX_MESSAGE_LENGTH - updates.length());
+    }
+    return newest + updates;
+  }
+
+  private void doNotifyIncident(String message, Incident incident) {
     logger.info("Notifying about incident: {} at coordinates ({}, {}), radius: {}km",
         message, incident.getLatitude(), incident.getLongitude(), incident.getImpactRadius());
 
@@ -279,16 +784,29 @@ public class NotificationService {
         incident.getLatitude(), incident.getLongitude(), incident.getImpactRadius());
     logger.debug("Found {} users within incident radius", affectedUsers.size());
 
-    affectedUsers.forEach(user -> {
-      logger.debug("Sending incident notification to user: {}", user.getId());
-      notification.setRecipientId(user.getId());
-      saveNotification(notification);
-      sendPrivateNotification(user.getId(), notification);
-    });
+    fanOutService.fanOut(notification, affectedUsers);
 
     logger.info("Incident notifications sent to {} users", affectedUsers.size());
   }
 
+  /**
+   * Gets the metrics of the incident notification fan-out.
+   *
+   * @return the fan-out metrics
+   */
+  public NotificationFanOutMetricsDto getFanOutMetrics() {
+    return fanOutService.getMetrics();
+  }
+
+  /**
+   * Gets the queue depths and metrics of the notification dispatcher.
+   *
+   * @return the dispatch metrics
+   */
+  public NotificationDispatchMetricsDto getDispatchMetrics() {
+    return dispatcher.getMetrics();
+  }
+
   /**
    * Finds all users in an incidents' radius to notify.
    *
@@ -305,18 +823,46 @@ public class NotificationService {
     double adjustedRadius = radius * 1.4;
     logger.debug("Using adjusted radius of {}km for search", adjustedRadius);
 
-    List<User> users = userRepository.findUsersWithinRadius(latitude, longitude, adjustedRadius);
+    if (locationRegistry.isEnabled()) {
+      // Only the geohash cells covering the circle are searched
+      List<String> userIds = locationRegistry.findUserIdsWithinRadius(latitude, longitude,
+          adjustedRadius);
+      List<User> users = userIds.isEmpty() ? List.of() : userRepository.findAllById(userIds);
+      logger.info("Found {} users within {}km radius in location registry", users.size(), radius);
+      return users;
+    }
+
+    // The bounding box lets the database use the coordinate index before computing distances
+    double deltaLat = GeoDistance.latitudeSpanDegrees(adjustedRadius);
+    double deltaLon = GeoDistance.longitudeSpanDegrees(latitude, adjustedRadius);
+    double minLon = longitude - deltaLon;
+    double maxLon = longitude + deltaLon;
+    if (deltaLon >= 180 || minLon < -180 || maxLon > 180) {
+      // The circle covers a pole or crosses the antimeridian, so only latitude narrows it down
+      minLon = -180;
+      maxLon = 180;
+    }
+
+    List<User> users = userRepository.findUsersWithinRadius(latitude, longitude, adjustedRadius,
+        Math.max(-90, latitude - deltaLat), Math.min(90, latitude + deltaLat), minLon, maxLon);
     logger.info("Found {} users within {}km radius", users.size(), radius);
 
     return users;
   }
 
   /**
-   * Save notification.
+   * Save notification. Runs on the {@link NotificationDispatcher}, so the caller does not wait
+   * for it.
    *
    * @param notificationRequest the notification request
    */
   public void saveNotification(NotificationDto notificationRequest) {
+    dispatcher.dispatch(notificationRequest.getType(),
+        "save notification for user " + notificationRequest.getRecipientId(),
+        () -> doSaveNotification(notificationRequest));
+  }
+
+  private void doSaveNotification(NotificationDto notificationRequest) {
     logger.info("Saving notification: type={}, recipient={}, message={}",
         notificationRequest.getType(), notificationRequest.getRecipientId(),
         notificationRequest.getMessage());
@@ -338,11 +884,19 @@ public class NotificationService {
       notification.setUser(user);
 
       logger.debug("Saving notification to database");
+      long mark = unreadCounter.startChange();
       notificationRepository.save(notification);
+      unreadCounter.increment(user.getId(), mark);
       logger.info("Notification saved successfully");
     } catch (Exception e) {
       logger.error("Failed to save notification: {}", e.getMessage(), e);
       throw e;
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * An item about to expire, as listed in an expiry notification.
+   */
+  private record ExpiringItem(String name, long daysUntilExpiry) {
+  }
+}
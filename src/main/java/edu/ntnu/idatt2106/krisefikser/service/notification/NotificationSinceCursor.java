@@ -0,0 +1,51 @@
+package edu.ntnu.idatt2106.krisefikser.service.notification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The newest notifications a client has seen in the feed of a user, passed back as since to get
+ * only the notifications added after them. Ids are given when a notification is saved, unlike the
+ * timestamp, so a notification saved late with an older timestamp is still found. Personal and
+ * household notifications have separate ids, so the cursor holds the newest id of each.
+ *
+ * <p>Clients get the cursor as an opaque string and pass it back unchanged.
+ *
+ * @param personalId  the highest id of the personal notifications seen, or 0 if none
+ * @param householdId the highest id of the household notifications seen, or 0 if none
+ */
+public record NotificationSinceCursor(long personalId, long householdId) {
+
+  private static final String PREFIX = "since";
+
+  /**
+   * Parses a cursor sent by a client.
+   *
+   * @param value the cursor as text
+   * @return the cursor
+   * @throws IllegalArgumentException if the cursor is not valid
+   */
+  public static NotificationSinceCursor decode(String value) {
+    try {
+      String[] parts = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8)
+          .split("\\|");
+      if (parts.length == 3 && parts[0].equals(PREFIX)) {
+        return new NotificationSinceCursor(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+      }
+    } catch (IllegalArgumentException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException("Invalid cursor");
+  }
+
+  /**
+   * Gets the cursor as text for a client.
+   *
+   * @return the cursor as text
+   */
+  public String encode() {
+    String value = PREFIX + "|" + personalId + "|" + householdId;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,220 @@
+package edu.ntnu.idatt2106.krisefikser.service.notification;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.UnreadCountDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.HouseholdNotificationReceiptRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.HouseholdNotificationRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.NotificationRepository;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the number of unread notifications of each user in memory, so the badge of the client
+ * does not need the notification list.
+ *
+ * <p>A count is loaded from the database the first time it is asked for, and after that it is
+ * changed when notifications are saved or read, and sent to the notification queue of the user.
+ * Changes for users whose count is not loaded are skipped, since the count is loaded with them
+ * included when it is asked for. The counts only see the changes made by this instance.
+ *
+ * <p>A change is started with {@link #startChange()} before it is written to the database, and
+ * applied with the returned mark once it is committed. It is only applied to counts that were
+ * counted before the mark, since a count taken later may already include it. Counts taken after
+ * the mark, or still being taken, are forgotten instead and counted again when asked for.
+ */
+@Component
+public class UnreadNotificationCounter {
+
+  private static final Logger logger = LoggerFactory.getLogger(UnreadNotificationCounter.class);
+
+  private final NotificationRepository notificationRepository;
+  private final HouseholdNotificationRepository householdNotificationRepository;
+  private final HouseholdNotificationReceiptRepository receiptRepository;
+  private final SimpMessagingTemplate messagingTemplate;
+
+  private final Map<String, Count> counts = new ConcurrentHashMap<>();
+  private final AtomicLong clock = new AtomicLong();
+
+  /**
+   * Constructor for UnreadNotificationCounter.
+   *
+   * @param notificationRepository          the notification repository
+   * @param householdNotificationRepository the household notification repository
+   * @param receiptRepository               the household notification read receipt repository
+   * @param messagingTemplate               the template for sending the changed counts
+   */
+  public UnreadNotificationCounter(NotificationRepository notificationRepository,
+      HouseholdNotificationRepository householdNotificationRepository,
+      HouseholdNotificationReceiptRepository receiptRepository,
+      SimpMessagingTemplate messagingTemplate) {
+    this.notificationRepository = notificationRepository;
+    this.householdNotificationRepository = householdNotificationRepository;
+    this.receiptRepository = receiptRepository;
+    this.messagingTemplate = messagingTemplate;
+  }
+
+  /**
+   * Gets the number of unread notifications of a user, counting them in the database the first
+   * time, and again if the user has moved to another household since.
+   *
+   * @param user the user
+   * @return the number of unread notifications
+   */
+  public long getUnreadCount(User user) {
+    String userId = user.getId();
+    String householdId = user.getHousehold() != null ? user.getHousehold().getId() : null;
+    Count count = counts.get(userId);
+    if (count != null && count.isCounted() && Objects.equals(count.householdId, householdId)) {
+      return count.unread;
+    }
+
+    Count counting = new Count(householdId, 0, Count.COUNTING);
+    boolean claimed = count == null
+        ? counts.putIfAbsent(userId, counting) == null
+        : counts.replace(userId, count, counting);
+    if (!claimed) {
+      // Another request is counting, or the count just changed, so count without keeping it
+      return countUnread(user, householdId);
+    }
+    try {
+      long unread = countUnread(user, householdId);
+      counts.replace(userId, counting, new Count(householdId, unread, clock.incrementAndGet()));
+      return unread;
+    } finally {
+      counts.remove(userId, counting);
+    }
+  }
+
+  /**
+   * Marks the start of a change of unread notifications, to be called before the change is
+   * written to the database.
+   *
+   * @return the mark to apply the change with once it is committed
+   */
+  public long startChange() {
+    return clock.incrementAndGet();
+  }
+
+  /**
+   * Adds one unread notification to a user, once it is committed.
+   *
+   * @param userId the id of the user
+   * @param mark   the mark from {@link #startChange()} taken before the notification was saved
+   */
+  public void increment(String userId, long mark) {
+    change(userId, 1, mark);
+  }
+
+  /**
+   * Adds one unread notification to each of some users, once they are committed.
+   *
+   * @param userIds the ids of the users
+   * @param mark    the mark from {@link #startChange()} taken before the notifications were saved
+   */
+  public void increment(Collection<String> userIds, long mark) {
+    userIds.forEach(userId -> change(userId, 1, mark));
+  }
+
+  /**
+   * Removes one unread notification from a user, once they have read it.
+   *
+   * @param userId the id of the user
+   * @param mark   the mark from {@link #startChange()} taken before it was marked as read
+   */
+  public void decrement(String userId, long mark) {
+    change(userId, -1, mark);
+  }
+
+  /**
+   * Removes unread notifications from a user, once they have read several at once.
+   *
+   * @param userId the id of the user
+   * @param count  the number of notifications read
+   * @param mark   the mark from {@link #startChange()} taken before they were marked as read
+   */
+  public void decrement(String userId, long count, long mark) {
+    change(userId, -count, mark);
+  }
+
+  /**
+   * Counts the unread notifications of a user again and sends the count, if it is loaded. Used
+   * when notifications were removed without knowing how many of them were unread.
+   *
+   * @param user the user
+   */
+  public void refresh(User user) {
+    if (counts.remove(user.getId()) != null) {
+      send(user.getId(), getUnreadCount(user));
+    }
+  }
+
+  /**
+   * Forgets the count of a user, so it is counted again the next time it is asked for. Used when
+   * a change cannot be applied one notification at a time.
+   *
+   * @param userId the id of the user
+   */
+  public void invalidate(String userId) {
+    counts.remove(userId);
+  }
+
+  private void change(String userId, long delta, long mark) {
+    // A count taken after the mark may already include the change, so it is forgotten
+    Count count = counts.computeIfPresent(userId, (key, old) -> old.isCounted()
+        && old.countedAt < mark
+        ? new Count(old.householdId, Math.max(0, old.unread + delta), old.countedAt) : null);
+    if (count != null) {
+      send(userId, count.unread);
+    }
+  }
+
+  private long countUnread(User user, String householdId) {
+    long unread = notificationRepository.countByUserIdAndIsReadFalse(user.getId());
+    if (householdId != null) {
+      unread += householdNotificationRepository.countByHouseholdId(householdId)
+          - receiptRepository.countByUserIdAndNotificationHouseholdId(user.getId(), householdId);
+    }
+    logger.debug("Counted {} unread notifications for user {}", unread, user.getId());
+    return Math.max(0, unread);
+  }
+
+  private void send(String userId, long count) {
+    try {
+      messagingTemplate.convertAndSendToUser(userId, "/queue/notifications",
+          new UnreadCountDto(count));
+    } catch (Exception e) {
+      logger.warn("Failed to send unread count to user {}: {}", userId, e.getMessage());
+    }
+  }
+
+  /**
+   * The unread count of a user, the household it was counted for, and the time on the clock
+   * after it was counted. Compared by identity, so a count being taken is only replaced by the
+   * request taking it.
+   */
+  private static final class Count {
+
+    private static final long COUNTING = -1;
+
+    private final String householdId;
+    private final long unread;
+    private final long countedAt;
+
+    private Count(String householdId, long unread, long countedAt) {
+      this.householdId = householdId;
+      this.unread = unread;
+      this.countedAt = countedAt;
+    }
+
+    private boolean isCounted() {
+      return countedAt != COUNTING;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package edu.ntnu.idatt2106.krisefikser.service.user;
+
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.GeoDistance;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class for geohashes, which name the cells of a grid over the earth so that nearby points
+ * usually share a prefix. Each character adds five bits, alternating between longitude and
+ * latitude, starting with longitude.
+ */
+public final class Geohash {
+
+  /**
+   * The longest geohash supported, which still fits both cell indexes in an int.
+   */
+  public static final int MAX_PRECISION = 12;
+
+  private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+  private Geohash() {
+  }
+
+  /**
+   * Gets the geohash of the cell containing a point.
+   *
+   * @param latitude  the latitude of the point
+   * @param longitude the longitude of the point
+   * @param precision the number of characters in the geohash
+   * @return the geohash
+   */
+  public static String encode(double latitude, double longitude, int precision) {
+    int lonBits = lonBits(precision);
+    int latBits = latBits(precision);
+    return fromIndexes(Math.floorMod(index(longitude + 180, 360, lonBits), 1L << lonBits),
+        clamp(index(latitude + 90, 180, latBits), latBits), precision);
+  }
+
+  /**
+   * Counts the cells {@link #coveringCells} returns for a circle.
+   *
+   * @param latitude  the latitude of the center
+   * @param longitude the longitude of the center
+   * @param radiusKm  the radius in kilometers
+   * @param precision the number of characters in the geohashes
+   * @return the number of cells
+   */
+  public static long countCoveringCells(double latitude, double longitude, double radiusKm,
+      int precision) {
+    Range range = new Range(latitude, longitude, radiusKm, precision);
+    return (range.yMax - range.yMin + 1) * range.columns();
+  }
+
+  /**
+   * Gets the geohashes of the cells overlapping the bounding box of a circle, so every point
+   * within the circle lies in one of them.
+   *
+   * @param latitude  the latitude of the center
+   * @param longitude the longitude of the center
+   * @param radiusKm  the radius in kilometers
+   * @param precision the number of characters in the geohashes
+   * @return the geohashes
+   */
+  public static List<String> coveringCells(double latitude, double longitude, double radiusKm,
+      int precision) {
+    Range range = new Range(latitude, longitude, radiusKm, precision);
+    long lonCells = 1L << lonBits(precision);
+    List<String> cells = new ArrayList<>();
+    for (long y = range.yMin; y <= range.yMax; y++) {
+      for (long column = 0; column < range.columns(); column++) {
+        // The columns wrap around the antimeridian
+        cells.add(fromIndexes(Math.floorMod(range.xMin + column, lonCells), y, precision));
+      }
+    }
+    return cells;
+  }
+
+  private static String fromIndexes(long x, long y, int precision) {
+    int lonBits = lonBits(precision);
+    int latBits = latBits(precision);
+    char[] hash = new char[precision];
+    int value = 0;
+    for (int bit = 0; bit < precision * 5; bit++) {
+      long cellBit = bit % 2 == 0
+          ? x >> (lonBits - 1 - bit / 2) & 1
+          : y >> (latBits - 1 - bit / 2) & 1;
+      value = value << 1 | (int) cellBit;
+      if (bit % 5 == 4) {
+        hash[bit / 5] = BASE32[value];
+        value = 0;
+      }
+    }
+    return new String(hash);
+  }
+
+  private static int lonBits(int precision) {
+    return (precision * 5 + 1) / 2;
+  }
+
+  private static int latBits(int precision) {
+    return precision * 5 / 2;
+  }
+
+  private static long index(double offset, double span, int bits) {
+    return (long) Math.floor(offset / span * (1L << bits));
+  }
+
+  private static long clamp(long index, int bits) {
+    return Math.max(0, Math.min((1L << bits) - 1, index));
+  }
+
+  /**
+   * The cell indexes of the bounding box of a circle.
+   */
+  private static final class Range {
+
+    private final long yMin;
+    private final long yMax;
+    private final long xMin;
+    private final long xMax;
+    private final long lonCells;
+
+    private Range(double latitude, double longitude, double radiusKm, int precision) {
+      int latBits = latBits(precision);
+      int lonBits = lonBits(precision);
+      double deltaLat = GeoDistance.latitudeSpanDegrees(radiusKm);
+      double deltaLon = GeoDistance.longitudeSpanDegrees(latitude, radiusKm);
+      yMin = clamp(index(latitude - deltaLat + 90, 180, latBits), latBits);
+      yMax = clamp(index(latitude + deltaLat + 90, 180, latBits), latBits);
+      xMin = index(longitude - deltaLon + 180, 360, lonBits);
+      xMax = index(longitude + deltaLon + 180, 360, lonBits);
+      lonCells = 1L << lonBits;
+    }
+
+    private long columns() {
+      return Math.min(lonCells, xMax - xMin + 1);
+    }
+  }
+}
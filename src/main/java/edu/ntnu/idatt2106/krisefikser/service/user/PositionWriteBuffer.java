@@ -0,0 +1,133 @@
+package edu.ntnu.idatt2106.krisefikser.service.user;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind buffer for the positions users report over WebSocket. Reports only replace the
+ * pending position of the user in memory, and a scheduled flush writes the latest pending
+ * position of each user to the database in batched updates, so a client reporting every few
+ * seconds costs one row update per flush interval instead of one per report.
+ *
+ * <p>Positions not yet flushed are lost if the application stops without shutting down, which
+ * is acceptable since clients report their position again shortly after.
+ */
+@Component
+public class PositionWriteBuffer {
+
+  private static final Logger logger = LoggerFactory.getLogger(PositionWriteBuffer.class);
+
+  private static final String UPDATE_SQL =
+      "UPDATE user SET latitude = ?, longitude = ? WHERE id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Map<String, Position> pending = new ConcurrentHashMap<>();
+  private final AtomicLong reported = new AtomicLong();
+  private final AtomicLong written = new AtomicLong();
+
+  @Value("${app.users.position-buffer.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${app.users.position-buffer.batch-size:500}")
+  private int batchSize = 500;
+
+  /**
+   * Constructor for PositionWriteBuffer.
+   *
+   * @param jdbcTemplate the template for the batched updates
+   */
+  public PositionWriteBuffer(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Records the position a user has reported, replacing any position of the user not yet written.
+   * When the buffer is disabled, the position is written right away.
+   *
+   * @param userId    the id of the user
+   * @param latitude  the latitude of the user
+   * @param longitude the longitude of the user
+   */
+  public void record(String userId, double latitude, double longitude) {
+    pending.put(userId, new Position(latitude, longitude));
+    reported.incrementAndGet();
+    if (!enabled) {
+      flush();
+    }
+  }
+
+  /**
+   * Gets the position of a user that has not been written to the database yet.
+   *
+   * @param userId the id of the user
+   * @return the pending position, or empty if it has been written
+   */
+  public Optional<Position> getPending(String userId) {
+    return Optional.ofNullable(pending.get(userId));
+  }
+
+  /**
+   * Writes the pending positions to the database in batches. Runs periodically in the background,
+   * and on shutdown. Positions of a batch that could not be written are kept for the next flush,
+   * unless the user has reported a newer one since.
+   *
+   * @return the number of positions written
+   */
+  @PreDestroy
+  @Scheduled(fixedDelayString = "${app.users.position-buffer.flush-interval-ms:5000}")
+  public synchronized int flush() {
+    if (pending.isEmpty()) {
+      return 0;
+    }
+    List<Map.Entry<String, Position>> drained = new ArrayList<>();
+    for (String userId : pending.keySet()) {
+      Position position = pending.remove(userId);
+      if (position != null) {
+        drained.add(Map.entry(userId, position));
+      }
+    }
+
+    int step = Math.max(1, batchSize);
+    int flushed = 0;
+    for (int from = 0; from < drained.size(); from += step) {
+      List<Map.Entry<String, Position>> batch =
+          drained.subList(from, Math.min(from + step, drained.size()));
+      try {
+        jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batch.size(), (statement, entry) -> {
+          statement.setDouble(1, entry.getValue().latitude());
+          statement.setDouble(2, entry.getValue().longitude());
+          statement.setString(3, entry.getKey());
+        });
+        flushed += batch.size();
+      } catch (DataAccessException e) {
+        logger.error("Failed to write {} user positions: {}", batch.size(), e.getMessage(), e);
+        batch.forEach(entry -> pending.putIfAbsent(entry.getKey(), entry.getValue()));
+      }
+    }
+    written.addAndGet(flushed);
+    logger.debug("Wrote {} user positions ({} reported, {} written in total)", flushed,
+        reported.get(), written.get());
+    return flushed;
+  }
+
+  /**
+   * A reported position not yet written to the database.
+   *
+   * @param latitude  the latitude
+   * @param longitude the longitude
+   */
+  public record Position(double latitude, double longitude) {
+  }
+}
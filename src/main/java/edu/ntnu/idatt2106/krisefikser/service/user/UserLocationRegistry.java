@@ -0,0 +1,205 @@
+package edu.ntnu.idatt2106.krisefikser.service.user;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository.UserCoordinates;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.GeoDistance;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory registry of where users last reported their position, bucketed by geohash cell, so
+ * the users near an incident can be found by looking at the cells covering its circle instead of
+ * computing the distance to every user.
+ *
+ * <p>The registry is kept up to date from {@link UserService#updatePosition} and is loaded from
+ * the database on first use. Since it only sees the positions reported to this instance, it
+ * should be disabled when several instances of the application run side by side.
+ */
+@Component
+public class UserLocationRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(UserLocationRegistry.class);
+
+  private final UserRepository userRepository;
+
+  // Sorted, so the users of a coarser cell are the sub map of every cell starting with its hash
+  private final ConcurrentSkipListMap<String, Set<String>> cells = new ConcurrentSkipListMap<>();
+  private final Map<String, Position> positions = new ConcurrentHashMap<>();
+  private final Set<String> updatedWhileLoading = new HashSet<>();
+  private final Object loadLock = new Object();
+  private volatile boolean loaded;
+  private boolean loading;
+
+  @Value("${app.users.location-registry.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${app.users.location-registry.precision:6}")
+  private int precision = 6;
+
+  @Value("${app.users.location-registry.max-cells-per-query:512}")
+  private int maxCellsPerQuery = 512;
+
+  /**
+   * Constructor for UserLocationRegistry.
+   *
+   * @param userRepository the repository the positions are loaded from
+   */
+  public UserLocationRegistry(UserRepository userRepository) {
+    this.userRepository = userRepository;
+  }
+
+  /**
+   * Checks if the registry is used for finding users near a point.
+   *
+   * @return true if the registry is enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Records the position a user has reported, moving them to the cell of the new position.
+   *
+   * @param userId    the id of the user
+   * @param latitude  the latitude of the user
+   * @param longitude the longitude of the user
+   */
+  public synchronized void update(String userId, double latitude, double longitude) {
+    if (!enabled) {
+      return;
+    }
+    if (loading) {
+      // Keeps the loaded snapshot from overwriting the newer position
+      updatedWhileLoading.add(userId);
+    }
+    put(userId, latitude, longitude);
+  }
+
+  /**
+   * Removes a user from the registry.
+   *
+   * @param userId the id of the user
+   */
+  public synchronized void remove(String userId) {
+    if (loading) {
+      updatedWhileLoading.add(userId);
+    }
+    Position old = positions.remove(userId);
+    if (old != null) {
+      removeFromCell(old.cell, userId);
+    }
+  }
+
+  /**
+   * Finds the users whose last position is within a radius of a point. Only the cells covering
+   * the circle are visited, using shorter geohashes when the circle is too large for the
+   * configured precision.
+   *
+   * @param latitude  the latitude of the center
+   * @param longitude the longitude of the center
+   * @param radiusKm  the radius in kilometers
+   * @return the ids of the users within the radius
+   */
+  public List<String> findUserIdsWithinRadius(double latitude, double longitude,
+      double radiusKm) {
+    ensureLoaded();
+    int queryPrecision = Math.min(precision, Geohash.MAX_PRECISION);
+    while (queryPrecision > 1 && Geohash.countCoveringCells(latitude, longitude, radiusKm,
+        queryPrecision) > maxCellsPerQuery) {
+      queryPrecision--;
+    }
+    List<String> covering = Geohash.coveringCells(latitude, longitude, radiusKm, queryPrecision);
+
+    GeoDistance.Origin origin = new GeoDistance.Origin(latitude, longitude);
+    double maxTerm = GeoDistance.radiusToTerm(radiusKm);
+    // A user moving between cells during the search may be seen in both
+    Set<String> found = new HashSet<>();
+    for (String cell : covering) {
+      for (Set<String> userIds : cells.subMap(cell, cell + Character.MAX_VALUE).values()) {
+        for (String userId : userIds) {
+          Position position = positions.get(userId);
+          if (position != null
+              && origin.haversineTerm(position.latitude, position.longitude) <= maxTerm) {
+            found.add(userId);
+          }
+        }
+      }
+    }
+    logger.debug("Found {} users within {}km in {} cells of precision {}", found.size(),
+        radiusKm, covering.size(), queryPrecision);
+    return new ArrayList<>(found);
+  }
+
+  /**
+   * Gets the number of users in the registry.
+   *
+   * @return the number of users
+   */
+  public int size() {
+    return positions.size();
+  }
+
+  private void ensureLoaded() {
+    if (loaded) {
+      return;
+    }
+    synchronized (loadLock) {
+      if (loaded) {
+        return;
+      }
+      synchronized (this) {
+        loading = true;
+      }
+      try {
+        // Only the load lock is held while reading, so position updates are not held up
+        List<UserCoordinates> snapshot = userRepository.findAllCoordinates();
+        synchronized (this) {
+          for (UserCoordinates coordinates : snapshot) {
+            if (coordinates.getLatitude() != null && coordinates.getLongitude() != null
+                && !updatedWhileLoading.contains(coordinates.getId())) {
+              put(coordinates.getId(), coordinates.getLatitude(), coordinates.getLongitude());
+            }
+          }
+          loaded = true;
+        }
+        logger.info("Loaded {} user positions into the location registry", positions.size());
+      } finally {
+        synchronized (this) {
+          loading = false;
+          updatedWhileLoading.clear();
+        }
+      }
+    }
+  }
+
+  private void put(String userId, double latitude, double longitude) {
+    String cell = Geohash.encode(latitude, longitude, Math.min(precision, Geohash.MAX_PRECISION));
+    Position old = positions.put(userId, new Position(cell, latitude, longitude));
+    if (old != null && !old.cell.equals(cell)) {
+      removeFromCell(old.cell, userId);
+    }
+    cells.computeIfAbsent(cell, key -> ConcurrentHashMap.newKeySet()).add(userId);
+  }
+
+  private void removeFromCell(String cell, String userId) {
+    cells.computeIfPresent(cell, (key, userIds) -> {
+      userIds.remove(userId);
+      return userIds.isEmpty() ? null : userIds;
+    });
+  }
+
+  /**
+   * The last reported position of a user and the cell it lies in.
+   */
+  private record Position(String cell, double latitude, double longitude) {
+  }
+}
@@ -1,13 +1,17 @@
 package edu.ntnu.idatt2106.krisefikser.service.user;
 
-import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.household.HouseholdResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.user.UserResponseDto;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.household.Household;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.Role;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.security.JwtTokenProvider;
+import edu.ntnu.idatt2106.krisefikser.service.household.HouseholdPositionCache;
+import edu.ntnu.idatt2106.krisefikser.service.notification.CompactPositionStream;
 import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationService;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry.SessionUser;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -26,16 +30,34 @@ public class UserService {
 
   private final UserRepository userRepository;
   private final NotificationService notificationService;
+  private final UserLocationRegistry locationRegistry;
+  private final PositionWriteBuffer positionBuffer;
+  private final JwtTokenProvider tokenProvider;
+  private final HouseholdPositionCache householdPositions;
+  private final CompactPositionStream compactPositions;
 
   /**
    * Instantiates a new User service.
    *
    * @param userRepository      the user repository
    * @param notificationService the notification service
+   * @param locationRegistry    the registry of the last reported user positions
+   * @param positionBuffer      the buffer writing reported positions in batches
+   * @param tokenProvider       the provider verifying tokens sent with positions
+   * @param householdPositions  the cache of household member positions
+   * @param compactPositions    the stream sending positions in compact frames
    */
-  public UserService(UserRepository userRepository, NotificationService notificationService) {
+  public UserService(UserRepository userRepository, NotificationService notificationService,
+      UserLocationRegistry locationRegistry, PositionWriteBuffer positionBuffer,
+      JwtTokenProvider tokenProvider, HouseholdPositionCache householdPositions,
+      CompactPositionStream compactPositions) {
     this.userRepository = userRepository;
     this.notificationService = notificationService;
+    this.locationRegistry = locationRegistry;
+    this.positionBuffer = positionBuffer;
+    this.tokenProvider = tokenProvider;
+    this.householdPositions = householdPositions;
+    this.compactPositions = compactPositions;
     logger.info("UserService instantiated");
   }
 
@@ -147,7 +169,9 @@ public class UserService {
   }
 
   /**
-   * Updates a user's position on the map, and notifies other users in the same household.
+   * Updates a user's position on the map, and notifies other users in the same household. The
+   * user is found by the token sent with the position; sessions authenticated when they
+   * connected use {@link #updatePosition(SessionUser, PositionDto)} instead.
    *
    * @param position the position
    */
@@ -163,49 +187,89 @@ public class UserService {
           return new IllegalArgumentException("No user found");
         });
 
-    user.setLongitude(position.getLongitude());
-    user.setLatitude(position.getLatitude());
-    userRepository.save(user);
-    logger.info("Saved new position for userId={}", user.getId());
-
-    notificationService.sendHouseholdPositionUpdate(user.getId(), user.getHousehold().getId(),
-        position);
-    logger.info("Sent household position update notification for householdId={}",
-        user.getHousehold().getId());
+    applyPosition(user.getId(), user.getFullName(),
+        user.getHousehold() != null ? user.getHousehold().getId() : null, position);
   }
 
   /**
-   * Extracts the user ID from the token.
+   * Updates the position of the user of an authenticated STOMP session, and notifies other users
+   * in the same household. The user was resolved when the session connected, so this neither
+   * reads the token nor looks the user up.
    *
-   * @param token the JWT token.
-   * @return the user ID
+   * @param sessionUser the user of the session
+   * @param position    the position
    */
-  private String extractUserFromToken(String token) {
-    logger.info("extractUserFromToken() called with token={}", token);
-    try {
-      if (token == null || token.isEmpty()) {
-        logger.error("Token is null or empty");
-        throw new IllegalArgumentException("Invalid token");
-      }
+  public void updatePosition(SessionUser sessionUser, PositionDto position) {
+    logger.debug("updatePosition() called for session user {}, lat={}, lon={}",
+        sessionUser.getUserId(), position.getLatitude(), position.getLongitude());
+    applyPosition(sessionUser.getUserId(), sessionUser.getFullName(),
+        sessionUser.getHouseholdId(), position);
+  }
 
-      // Extract parts of JWT token
-      String[] parts = token.split("\\.");
-      if (parts.length != 3) {
-        logger.error("Invalid JWT token format");
-        throw new IllegalArgumentException("Invalid JWT format");
-      }
+  /**
+   * Buffers a reported position, which is written to the database by the
+   * {@link PositionWriteBuffer}, and sends it to the household right away. The position is
+   * recorded in the buffer before the household cache, so a household loading in between still
+   * sees it, and in the cache before the compact stream, whose keyframes are read from it.
+   */
+  private void applyPosition(String userId, String fullName, String householdId,
+      PositionDto position) {
+    double longitude = parseCoordinate(position.getLongitude(), 180, "longitude");
+    double latitude = parseCoordinate(position.getLatitude(), 90, "latitude");
+    positionBuffer.record(userId, latitude, longitude);
+    locationRegistry.update(userId, latitude, longitude);
+    logger.debug("Buffered new position for userId={}", userId);
 
-      // Decode payload (middle part of JWT)
-      String payload = new String(java.util.Base64.getUrlDecoder().decode(parts[1]));
+    if (householdId == null) {
+      logger.debug("User {} has no household to send the position to", userId);
+      return;
+    }
+    householdPositions.update(householdId, userId, fullName, latitude, longitude);
+    notificationService.sendHouseholdPositionUpdate(userId, fullName, householdId, position);
+    compactPositions.publish(householdId, userId, latitude, longitude);
+    logger.debug("Sent household position update notification for householdId={}", householdId);
+  }
 
-      // Parse JSON payload
-      org.json.JSONObject jsonPayload = new org.json.JSONObject(payload);
-      String subject = jsonPayload.getString("sub");
+  /**
+   * Parses a coordinate sent by a client.
+   *
+   * @param value the coordinate as text
+   * @param limit the largest absolute value allowed
+   * @param name  the name of the coordinate, for the error message
+   * @return the coordinate in degrees
+   */
+  private double parseCoordinate(String value, double limit, String name) {
+    if (value != null) {
+      try {
+        double coordinate = Double.parseDouble(value.trim());
+        if (Math.abs(coordinate) <= limit) {
+          return coordinate;
+        }
+      } catch (NumberFormatException e) {
+        // Reported below
+      }
+    }
+    logger.warn("Invalid {} in position update: {}", name, value);
+    throw new IllegalArgumentException("Invalid " + name);
+  }
 
-      logger.debug("Successfully extracted userId={} from token", subject);
+  /**
+   * Extracts the user from the token, verifying its signature and expiry.
+   *
+   * @param token the JWT token.
+   * @return the email of the user
+   */
+  private String extractUserFromToken(String token) {
+    if (token == null || token.isEmpty()) {
+      logger.error("Token is null or empty");
+      throw new IllegalArgumentException("Invalid token");
+    }
+    try {
+      String subject = tokenProvider.getUsernameFromToken(token);
+      logger.debug("Successfully extracted user {} from token", subject);
       return subject;
     } catch (Exception e) {
-      logger.error("Error extracting user from token: {}", e.getMessage(), e);
+      logger.error("Error extracting user from token: {}", e.getMessage());
       throw new IllegalArgumentException("Failed to extract user from token", e);
     }
   }
@@ -0,0 +1,165 @@
+package edu.ntnu.idatt2106.krisefikser.service.user;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of the users with an open STOMP session, resolved once when the session connects.
+ * Each session keeps its {@link SessionUser} in its session attributes, and the registry keeps
+ * the household of every open session current when the user joins or leaves a household, so the
+ * position updates of a session are never sent to a household the user has left.
+ *
+ * <p>With the broker relay, a membership change handled by another instance only updates the
+ * sessions of that instance. The household of a session is then read from the database again
+ * before it is relied on, when it was last read longer ago than the household TTL, so a session
+ * on another instance keeps the old household for at most that long.
+ */
+@Component
+public class WebSocketUserRegistry {
+
+  private final UserRepository userRepository;
+  private final Map<String, Set<SessionUser>> sessions = new ConcurrentHashMap<>();
+
+  @Value("${app.websocket.broker.relay.enabled:false}")
+  private boolean relayEnabled = false;
+
+  @Value("${app.websocket.session-household-ttl-ms:5000}")
+  private long householdTtlMs = 5000;
+
+  /**
+   * Constructor for WebSocketUserRegistry.
+   *
+   * @param userRepository the repository the households of the sessions are read again from
+   */
+  public WebSocketUserRegistry(UserRepository userRepository) {
+    this.userRepository = userRepository;
+  }
+
+  /**
+   * Creates the session user of a user who has connected.
+   *
+   * @param user the connected user
+   * @return the session user, to keep in the session attributes
+   */
+  public SessionUser register(User user) {
+    SessionUser sessionUser = new SessionUser(user.getId(), user.getFullName(),
+        user.getHousehold() != null ? user.getHousehold().getId() : null);
+    sessions.computeIfAbsent(user.getId(), key -> ConcurrentHashMap.newKeySet())
+        .add(sessionUser);
+    return sessionUser;
+  }
+
+  /**
+   * Forgets the session user of a session that has disconnected.
+   *
+   * @param sessionUser the session user
+   */
+  public void unregister(SessionUser sessionUser) {
+    sessions.computeIfPresent(sessionUser.getUserId(), (key, users) -> {
+      users.remove(sessionUser);
+      return users.isEmpty() ? null : users;
+    });
+  }
+
+  /**
+   * Changes the household of every open session of a user.
+   *
+   * @param userId      the id of the user
+   * @param householdId the id of the new household, or null if the user left their household
+   */
+  public void updateHousehold(String userId, String householdId) {
+    Set<SessionUser> users = sessions.get(userId);
+    if (users != null) {
+      long now = System.nanoTime();
+      users.forEach(sessionUser -> sessionUser.setHousehold(householdId, now));
+    }
+  }
+
+  /**
+   * Reads the household of the user of a session from the database again when the broker relay
+   * is enabled, if it was last read longer ago than the household TTL or if forced. Without the
+   * relay, every membership change reaches the session through
+   * {@link #updateHousehold(String, String)}, so nothing is read.
+   *
+   * @param sessionUser the user of the session
+   * @param force       whether to read the household even if it was read within the TTL
+   * @return the id of the current household of the user, or null if the user has no household
+   */
+  public String refreshHousehold(SessionUser sessionUser, boolean force) {
+    if (!relayEnabled) {
+      return sessionUser.householdId;
+    }
+    long now = System.nanoTime();
+    if (!force
+        && now - sessionUser.householdReadAt < TimeUnit.MILLISECONDS.toNanos(householdTtlMs)) {
+      return sessionUser.householdId;
+    }
+    String householdId = userRepository.findHouseholdIdById(sessionUser.getUserId()).orElse(null);
+    sessionUser.setHousehold(householdId, now);
+    return householdId;
+  }
+
+  /**
+   * Gets the number of open sessions.
+   *
+   * @return the number of sessions
+   */
+  public int size() {
+    return sessions.values().stream().mapToInt(Set::size).sum();
+  }
+
+  /**
+   * The user of an open STOMP session.
+   */
+  public static final class SessionUser {
+
+    private final String userId;
+    private final String fullName;
+    private volatile String householdId;
+    private volatile long householdReadAt = System.nanoTime();
+
+    private SessionUser(String userId, String fullName, String householdId) {
+      this.userId = userId;
+      this.fullName = fullName;
+      this.householdId = householdId;
+    }
+
+    private void setHousehold(String householdId, long readAt) {
+      this.householdId = householdId;
+      this.householdReadAt = readAt;
+    }
+
+    /**
+     * Gets the id of the user.
+     *
+     * @return the user id
+     */
+    public String getUserId() {
+      return userId;
+    }
+
+    /**
+     * Gets the full name of the user.
+     *
+     * @return the full name
+     */
+    public String getFullName() {
+      return fullName;
+    }
+
+    /**
+     * Gets the id of the household of the user.
+     *
+     * @return the household id, or null if the user has no household
+     */
+    public String getHouseholdId() {
+      return householdId;
+    }
+  }
+}
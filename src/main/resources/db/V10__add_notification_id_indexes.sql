@@ -0,0 +1,3 @@
+CREATE INDEX idx_notification_user_id ON notification (user_id, id);
+
+CREATE INDEX idx_household_notification_household_id ON household_notification (household_id, id);
@@ -0,0 +1,3 @@
+CREATE INDEX idx_map_icon_lat_lon ON map_icon (latitude, longitude);
+
+CREATE INDEX idx_map_icon_type_lat_lon ON map_icon (type, latitude, longitude);
@@ -0,0 +1,18 @@
+ALTER TABLE map_icon
+    ADD COLUMN revision BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_map_icon_revision ON map_icon (revision);
+
+CREATE TABLE map_icon_tombstone (
+    map_icon_id BIGINT PRIMARY KEY,
+    revision BIGINT NOT NULL
+);
+
+CREATE INDEX idx_map_icon_tombstone_revision ON map_icon_tombstone (revision);
+
+CREATE TABLE map_icon_revision (
+    id INT PRIMARY KEY,
+    current_revision BIGINT NOT NULL
+);
+
+INSERT INTO map_icon_revision (id, current_revision) VALUES (1, 0);
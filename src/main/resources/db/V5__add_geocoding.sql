@@ -0,0 +1,10 @@
+ALTER TABLE household
+    ADD COLUMN latitude DOUBLE,
+    ADD COLUMN longitude DOUBLE;
+
+CREATE TABLE geocoded_address (
+    address_key VARCHAR(255) PRIMARY KEY,
+    latitude DOUBLE,
+    longitude DOUBLE,
+    resolved_at DATETIME(6) NOT NULL
+);
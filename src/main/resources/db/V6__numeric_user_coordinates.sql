@@ -0,0 +1,10 @@
+UPDATE user
+SET latitude = NULL, longitude = NULL
+WHERE latitude NOT REGEXP '^-?[0-9]+(\\.[0-9]+)?$'
+   OR longitude NOT REGEXP '^-?[0-9]+(\\.[0-9]+)?$';
+
+ALTER TABLE user
+    MODIFY COLUMN latitude DOUBLE,
+    MODIFY COLUMN longitude DOUBLE;
+
+CREATE INDEX idx_user_lat_lon ON user (latitude, longitude);
@@ -0,0 +1,20 @@
+CREATE TABLE household_notification (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    household_id CHAR(36) NOT NULL,
+    type VARCHAR(255),
+    message VARCHAR(255),
+    timestamp DATETIME(6) NOT NULL,
+    INDEX idx_household_notification_household (household_id, timestamp)
+);
+
+CREATE TABLE household_notification_receipt (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    notification_id BIGINT NOT NULL,
+    user_id CHAR(36) NOT NULL,
+    read_at DATETIME(6) NOT NULL,
+    CONSTRAINT uk_household_notification_receipt UNIQUE (notification_id, user_id),
+    FOREIGN KEY (notification_id) REFERENCES household_notification(id)
+        ON DELETE CASCADE,
+    FOREIGN KEY (user_id) REFERENCES user(id)
+        ON DELETE CASCADE
+);
@@ -0,0 +1,5 @@
+CREATE INDEX idx_notification_user_timestamp ON notification (user_id, timestamp, id);
+
+DROP INDEX idx_household_notification_household ON household_notification;
+CREATE INDEX idx_household_notification_household
+    ON household_notification (household_id, timestamp, id);
@@ -0,0 +1,9 @@
+CREATE TABLE notification_archive (
+    id BIGINT PRIMARY KEY,
+    user_id CHAR(36) NOT NULL,
+    type VARCHAR(255),
+    message VARCHAR(255),
+    timestamp DATETIME(6) NOT NULL,
+    archived_at DATETIME(6) NOT NULL,
+    INDEX idx_notification_archive_user_timestamp (user_id, timestamp)
+);
@@ -2,14 +2,27 @@ package edu.ntnu.idatt2106.krisefikser.api.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import edu.ntnu.idatt2106.krisefikser.api.controller.mapIcon.MapIconController;
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconChangesResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconClusterResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconImportProgressDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconRequestDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconResponseDto;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconExportService;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconImportService;
 import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconService;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,7 +32,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Unit tests for the MapIconController class.
@@ -29,6 +44,12 @@ class MapIconControllerTest {
   @Mock
   private MapIconService mapIconService;
 
+  @Mock
+  private MapIconImportService mapIconImportService;
+
+  @Mock
+  private MapIconExportService mapIconExportService;
+
   @InjectMocks
   private MapIconController mapIconController;
 
@@ -148,7 +169,7 @@ class MapIconControllerTest {
       responseDto.setType(MapIconType.MEETINGPLACE);
       when(mapIconService.getMapIcons(10.0, 10.0, 5.0, null)).thenReturn(List.of(responseDto));
       ResponseEntity<List<MapIconResponseDto>> response = mapIconController.getMapIcons(10.0, 10.0,
-          5.0, null);
+          5.0, null, null);
       assertEquals(HttpStatus.OK, response.getStatusCode());
       assertNotNull(response.getBody());
       assertEquals(1, response.getBody().size());
@@ -159,7 +180,110 @@ class MapIconControllerTest {
       when(mapIconService.getMapIcons(10.0, 10.0, 5.0, null))
           .thenThrow(new RuntimeException("Unexpected error"));
       ResponseEntity<List<MapIconResponseDto>> response = mapIconController.getMapIcons(10.0, 10.0,
-          5.0, null);
+          5.0, null, null);
+      assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    void shouldReturnRevisionAsEtag() {
+      when(mapIconService.getCurrentRevision()).thenReturn(7L);
+      when(mapIconService.getMapIcons(10.0, 10.0, 5.0, null)).thenReturn(List.of());
+
+      ResponseEntity<List<MapIconResponseDto>> response = mapIconController.getMapIcons(10.0, 10.0,
+          5.0, null, "\"6\"");
+
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertEquals("\"7\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void shouldReturnNotModified_whenEtagMatches() {
+      when(mapIconService.getCurrentRevision()).thenReturn(7L);
+
+      ResponseEntity<List<MapIconResponseDto>> response = mapIconController.getMapIcons(10.0, 10.0,
+          5.0, null, "\"3\", W/\"7\"");
+
+      assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+      assertNull(response.getBody());
+      verify(mapIconService, never()).getMapIcons(10.0, 10.0, 5.0, null);
+    }
+  }
+
+  /**
+   * Test cases for the exportMapIcons method.
+   */
+  @Nested
+  class ExportMapIconsTests {
+
+    @Test
+    void shouldStreamGeoJsonWithRevisionAsEtag() throws Exception {
+      when(mapIconService.getCurrentRevision()).thenReturn(7L);
+
+      ResponseEntity<StreamingResponseBody> response = mapIconController.exportMapIcons(null);
+
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertEquals("\"7\"", response.getHeaders().getETag());
+      assertEquals(MediaType.parseMediaType("application/geo+json"),
+          response.getHeaders().getContentType());
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      response.getBody().writeTo(output);
+      verify(mapIconExportService).writeGeoJson(output, 7L);
+    }
+
+    @Test
+    void shouldReturnNotModified_whenEtagMatches() {
+      when(mapIconService.getCurrentRevision()).thenReturn(7L);
+
+      ResponseEntity<StreamingResponseBody> response = mapIconController.exportMapIcons("\"7\"");
+
+      assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+      assertNull(response.getBody());
+    }
+
+    @Test
+    void shouldReturnInternalServerError_whenExceptionThrown() {
+      when(mapIconService.getCurrentRevision()).thenThrow(new RuntimeException("Unexpected error"));
+
+      ResponseEntity<StreamingResponseBody> response = mapIconController.exportMapIcons(null);
+
+      assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+  }
+
+  /**
+   * Test cases for the getMapIconChanges method.
+   */
+  @Nested
+  class GetMapIconChangesTests {
+
+    @Test
+    void shouldReturnChanges() {
+      MapIconChangesResponseDto changes = new MapIconChangesResponseDto(5L, List.of(),
+          List.of(3L));
+      when(mapIconService.getChanges(2L)).thenReturn(changes);
+
+      ResponseEntity<?> response = mapIconController.getMapIconChanges(2L);
+
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertEquals(changes, response.getBody());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenRevisionIsInvalid() {
+      when(mapIconService.getChanges(9L))
+          .thenThrow(new IllegalArgumentException("since must be between 0 and 5"));
+
+      ResponseEntity<?> response = mapIconController.getMapIconChanges(9L);
+
+      assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void shouldReturnInternalServerError_whenExceptionThrown() {
+      when(mapIconService.getChanges(2L)).thenThrow(new RuntimeException("Unexpected error"));
+
+      ResponseEntity<?> response = mapIconController.getMapIconChanges(2L);
+
       assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
   }
@@ -216,4 +340,122 @@ class MapIconControllerTest {
           ((Map<String, String>) response.getBody()).get("error"));
     }
   }
+
+  /**
+   * Test cases for the findNearestMapIcons method.
+   */
+  @Nested
+  class FindNearestMapIconsTests {
+
+    @Test
+    void shouldReturnNearestMapIcons() {
+      MapIconResponseDto icon = new MapIconResponseDto();
+      icon.setId(1L);
+      icon.setType(MapIconType.SHELTER);
+      when(mapIconService.findNearestMapIcons(63.42, 10.39, 5, MapIconType.SHELTER))
+          .thenReturn(List.of(icon));
+
+      ResponseEntity<?> response = mapIconController.findNearestMapIcons(63.42, 10.39, 5,
+          MapIconType.SHELTER);
+
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertEquals(List.of(icon), response.getBody());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenKIsInvalid() {
+      when(mapIconService.findNearestMapIcons(63.42, 10.39, 0, null))
+          .thenThrow(new IllegalArgumentException("k must be between 1 and 50"));
+
+      ResponseEntity<?> response = mapIconController.findNearestMapIcons(63.42, 10.39, 0, null);
+
+      assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+      assertEquals("k must be between 1 and 50",
+          ((Map<String, String>) response.getBody()).get("error"));
+    }
+
+    @Test
+    void shouldReturnInternalServerError_whenExceptionThrown() {
+      when(mapIconService.findNearestMapIcons(63.42, 10.39, 5, null))
+          .thenThrow(new RuntimeException("Database error"));
+
+      ResponseEntity<?> response = mapIconController.findNearestMapIcons(63.42, 10.39, 5, null);
+
+      assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+  }
+
+  /**
+   * Test cases for the getMapIconClusters method.
+   */
+  @Nested
+  class GetMapIconClustersTests {
+
+    @Test
+    void shouldReturnClusters() {
+      MapIconClusterResponseDto cluster = new MapIconClusterResponseDto(63.42, 10.39, 3,
+          Map.of(MapIconType.SHELTER, 3), null);
+      when(mapIconService.getMapIconClusters(57, 4, 72, 32, 5)).thenReturn(List.of(cluster));
+
+      ResponseEntity<?> response = mapIconController.getMapIconClusters(57, 4, 72, 32, 5);
+
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertEquals(List.of(cluster), response.getBody());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenBoxIsInvalid() {
+      when(mapIconService.getMapIconClusters(64, 4, 63, 32, 5))
+          .thenThrow(new IllegalArgumentException("Invalid latitude range"));
+
+      ResponseEntity<?> response = mapIconController.getMapIconClusters(64, 4, 63, 32, 5);
+
+      assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void shouldReturnInternalServerError_whenExceptionThrown() {
+      when(mapIconService.getMapIconClusters(57, 4, 72, 32, 5))
+          .thenThrow(new RuntimeException("Unexpected error"));
+
+      ResponseEntity<?> response = mapIconController.getMapIconClusters(57, 4, 72, 32, 5);
+
+      assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+  }
+
+  /**
+   * Test cases for the importMapIcons method.
+   */
+  @Nested
+  class ImportMapIconsTests {
+
+    @Test
+    void shouldStreamImport_whenFormatIsValid() throws Exception {
+      InputStream body = new ByteArrayInputStream(new byte[0]);
+
+      ResponseEntity<StreamingResponseBody> response =
+          mapIconController.importMapIcons("geojson", body);
+
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      response.getBody().writeTo(output);
+      verify(mapIconImportService).importMapIcons(body, MapIconImportService.Format.GEOJSON,
+          output);
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenFormatIsUnknown() throws Exception {
+      ResponseEntity<StreamingResponseBody> response =
+          mapIconController.importMapIcons("xml", new ByteArrayInputStream(new byte[0]));
+
+      assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+      response.getBody().writeTo(new ByteArrayOutputStream());
+      verify(mapIconImportService).writeProgress(any(OutputStream.class),
+          any(MapIconImportProgressDto.class));
+      verify(mapIconImportService, never()).importMapIcons(any(InputStream.class),
+          any(MapIconImportService.Format.class), any(OutputStream.class));
+    }
+  }
 }
@@ -1,20 +1,28 @@
 package edu.ntnu.idatt2106.krisefikser.api.controller;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ntnu.idatt2106.krisefikser.api.controller.notification.NotificationController;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationBulkRequestDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationDispatchMetricsDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationFanOutMetricsDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationPageDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.UnreadCountDto;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
 import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationService;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -96,6 +104,46 @@ class NotificationControllerTest {
         .andExpect(jsonPath("$.error").value("Internal server error"));
   }
 
+  @Test
+  void getNotificationPage_shouldReturnOkWithPage() throws Exception {
+    // Arrange
+    when(notificationService.getUserNotificationPage("older", null, 10))
+        .thenReturn(new NotificationPageDto(List.of(testNotification), "next", "newest"));
+
+    // Act & Assert
+    mockMvc.perform(get("/api/notifications/feed")
+            .param("cursor", "older")
+            .param("limit", "10"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.notifications[0].id").value(1))
+        .andExpect(jsonPath("$.nextCursor").value("next"))
+        .andExpect(jsonPath("$.newestCursor").value("newest"));
+  }
+
+  @Test
+  void getNotificationPage_shouldReturnBadRequest_whenCursorIsInvalid() throws Exception {
+    // Arrange
+    when(notificationService.getUserNotificationPage(null, "garbage", 20))
+        .thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+    // Act & Assert
+    mockMvc.perform(get("/api/notifications/feed")
+            .param("since", "garbage"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error").value("Invalid cursor"));
+  }
+
+  @Test
+  void getUnreadCount_shouldReturnOkWithCount() throws Exception {
+    // Arrange
+    when(notificationService.getUnreadCount()).thenReturn(new UnreadCountDto(3));
+
+    // Act & Assert
+    mockMvc.perform(get("/api/notifications/unread-count"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.unreadCount").value(3));
+  }
+
   @Test
   void markNotificationAsRead_shouldReturnOk() throws Exception {
     // Arrange
@@ -138,4 +186,105 @@ class NotificationControllerTest {
         .andExpect(status().isInternalServerError())
         .andExpect(jsonPath("$.error").value("Internal server error"));
   }
-}
\ No newline at end of file
+
+  @Test
+  void markHouseholdNotificationAsRead_shouldReturnOk() throws Exception {
+    // Arrange
+    doNothing().when(notificationService).markHouseholdNotificationAsRead(1L);
+
+    // Act & Assert
+    mockMvc.perform(put("/api/notifications/household/1/read")
+            .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.message").value("Notification marked as read"));
+
+    verify(notificationService).markHouseholdNotificationAsRead(1L);
+  }
+
+  @Test
+  void markHouseholdNotificationAsRead_shouldReturnBadRequest_whenNotInHousehold()
+      throws Exception {
+    // Arrange
+    doThrow(new IllegalArgumentException("Notification not found"))
+        .when(notificationService).markHouseholdNotificationAsRead(1L);
+
+    // Act & Assert
+    mockMvc.perform(put("/api/notifications/household/1/read")
+            .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error").value("Notification not found"));
+  }
+
+  @Test
+  void markNotificationsAsRead_shouldReturnOkWithCount() throws Exception {
+    // Arrange
+    when(notificationService.markNotificationsAsRead(any(NotificationBulkRequestDto.class)))
+        .thenReturn(3);
+
+    // Act & Assert
+    mockMvc.perform(put("/api/notifications/read")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"ids\":[1,2],\"householdIds\":[7]}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.message").value("Notifications marked as read"))
+        .andExpect(jsonPath("$.count").value(3));
+  }
+
+  @Test
+  void markNotificationsAsRead_shouldReturnBadRequest_whenRequestIsInvalid() throws Exception {
+    // Arrange
+    when(notificationService.markNotificationsAsRead(any(NotificationBulkRequestDto.class)))
+        .thenThrow(new IllegalArgumentException("Either ids or before is required"));
+
+    // Act & Assert
+    mockMvc.perform(put("/api/notifications/read")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{}"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error").value("Either ids or before is required"));
+  }
+
+  @Test
+  void deleteNotifications_shouldReturnOkWithCount() throws Exception {
+    // Arrange
+    when(notificationService.deleteNotifications(any(NotificationBulkRequestDto.class)))
+        .thenReturn(12);
+
+    // Act & Assert
+    mockMvc.perform(post("/api/notifications/delete")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"before\":\"2025-05-01T12:00:00\"}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.message").value("Notifications deleted"))
+        .andExpect(jsonPath("$.count").value(12));
+  }
+
+  @Test
+  void getFanOutMetrics_shouldReturnOkWithMetrics() throws Exception {
+    // Arrange
+    when(notificationService.getFanOutMetrics())
+        .thenReturn(new NotificationFanOutMetricsDto(2, 500, 0, 499, 1, 25000.0, 120, 180));
+
+    // Act & Assert
+    mockMvc.perform(get("/api/notifications/fan-out/metrics"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.fanOuts").value(2))
+        .andExpect(jsonPath("$.rowsInserted").value(500))
+        .andExpect(jsonPath("$.messagesFailed").value(1))
+        .andExpect(jsonPath("$.lastTimeToLastDeliveryMs").value(120));
+  }
+
+  @Test
+  void getDispatchMetrics_shouldReturnOkWithMetrics() throws Exception {
+    // Arrange
+    when(notificationService.getDispatchMetrics()).thenReturn(new NotificationDispatchMetricsDto(
+        Map.of("HIGH", 0, "NORMAL", 3, "LOW", 12), 40, 25, 0, 1, 800, 15, 950));
+
+    // Act & Assert
+    mockMvc.perform(get("/api/notifications/dispatch/metrics"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.queueDepths.LOW").value(12))
+        .andExpect(jsonPath("$.callerRuns").value(1))
+        .andExpect(jsonPath("$.oldestQueuedMs").value(800));
+  }
+}
@@ -0,0 +1,497 @@
+package edu.ntnu.idatt2106.krisefikser.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import edu.ntnu.idatt2106.krisefikser.KrisefikserApplication;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.Role;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.security.JwtTokenProvider;
+import edu.ntnu.idatt2106.krisefikser.security.StompAuthChannelInterceptor;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandler;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+/**
+ * Unit tests for the WebSocketConfig class, and tests of the broker relay mode against a minimal
+ * STOMP broker standing in for an external one.
+ */
+class WebSocketConfigTest {
+
+  private static final long TIMEOUT_SECONDS = 10;
+
+  private WebSocketConfig config;
+  private MessageBrokerRegistry registry;
+  private SubscribableChannel brokerChannel;
+
+  @BeforeEach
+  void setUp() {
+    config = new WebSocketConfig(mock(StompAuthChannelInterceptor.class));
+    registry = new MessageBrokerRegistry(mock(SubscribableChannel.class),
+        mock(MessageChannel.class));
+    brokerChannel = mock(SubscribableChannel.class);
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+      Thread.sleep(20);
+    }
+  }
+
+  /**
+   * Test cases for the configureMessageBroker method.
+   */
+  @Nested
+  class ConfigureMessageBrokerTests {
+
+    @Test
+    void configureMessageBroker_shouldUseSimpleBroker_whenRelayIsDisabled() {
+      config.configureMessageBroker(registry);
+
+      assertNotNull(ReflectionTestUtils.invokeMethod(registry, "getSimpleBroker", brokerChannel));
+      assertNull(ReflectionTestUtils.invokeMethod(registry, "getStompBrokerRelay", brokerChannel));
+      assertNull(ReflectionTestUtils.invokeMethod(registry, "getUserDestinationBroadcast"));
+    }
+
+    @Test
+    void configureMessageBroker_shouldUseBrokerRelay_whenRelayIsEnabled() {
+      ReflectionTestUtils.setField(config, "relayEnabled", true);
+      ReflectionTestUtils.setField(config, "relayHost", "broker.example");
+      ReflectionTestUtils.setField(config, "relayPort", 61614);
+      ReflectionTestUtils.setField(config, "relayVirtualHost", "krisefikser");
+
+      config.configureMessageBroker(registry);
+
+      assertNull(ReflectionTestUtils.invokeMethod(registry, "getSimpleBroker", brokerChannel));
+      StompBrokerRelayMessageHandler relay =
+          ReflectionTestUtils.invokeMethod(registry, "getStompBrokerRelay", brokerChannel);
+      assertNotNull(relay);
+      assertEquals("broker.example", relay.getRelayHost());
+      assertEquals(61614, relay.getRelayPort());
+      assertEquals("krisefikser", relay.getVirtualHost());
+      assertEquals(WebSocketConfig.UNRESOLVED_USER_DESTINATION,
+          ReflectionTestUtils.invokeMethod(registry, "getUserDestinationBroadcast"));
+      assertEquals(WebSocketConfig.USER_REGISTRY_DESTINATION,
+          ReflectionTestUtils.invokeMethod(registry, "getUserRegistryBroadcast"));
+    }
+  }
+
+  /**
+   * Test cases for two instances of the application sharing subscriptions through the broker.
+   */
+  @Nested
+  @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+  class BrokerRelayTests {
+
+    private StompBrokerStandIn broker;
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+    private ThreadPoolTaskScheduler clientScheduler;
+    private final List<StompSession> sessions = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    void startNodes() throws Exception {
+      broker = new StompBrokerStandIn();
+      clientScheduler = new ThreadPoolTaskScheduler();
+      clientScheduler.initialize();
+      nodeA = startNode("relay-node-a");
+      nodeB = startNode("relay-node-b");
+      // Both nodes listen for messages to users connected to the other node
+      await(() -> broker.countSubscriptions(WebSocketConfig.UNRESOLVED_USER_DESTINATION) == 2);
+      await(() -> nodeA.getBean(StompBrokerRelayMessageHandler.class).isBrokerAvailable()
+          && nodeB.getBean(StompBrokerRelayMessageHandler.class).isBrokerAvailable());
+    }
+
+    @AfterAll
+    void stopNodes() throws IOException {
+      sessions.stream().filter(StompSession::isConnected).forEach(StompSession::disconnect);
+      if (nodeA != null) {
+        nodeA.close();
+      }
+      if (nodeB != null) {
+        nodeB.close();
+      }
+      clientScheduler.shutdown();
+      broker.close();
+    }
+
+    private ConfigurableApplicationContext startNode(String name) {
+      return new SpringApplicationBuilder(KrisefikserApplication.class)
+          .profiles("test")
+          .run("--server.port=0",
+              "--spring.datasource.url=jdbc:h2:mem:" + name,
+              "--app.websocket.broker.relay.enabled=true",
+              "--app.websocket.broker.relay.host=127.0.0.1",
+              "--app.websocket.broker.relay.port=" + broker.getPort());
+    }
+
+    private StompSession connect(ConfigurableApplicationContext node, String token)
+        throws Exception {
+      return connect(node, token, new StompSessionHandlerAdapter() { });
+    }
+
+    private StompSession connect(ConfigurableApplicationContext node, String token,
+        StompSessionHandler handler) throws Exception {
+      WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+      client.setMessageConverter(new MappingJackson2MessageConverter());
+      // Needed for the receipts of the subscriptions
+      client.setTaskScheduler(clientScheduler);
+      WebSocketHttpHeaders handshakeHeaders = new WebSocketHttpHeaders();
+      handshakeHeaders.setOrigin("http://localhost:5173");
+      StompHeaders connectHeaders = new StompHeaders();
+      if (token != null) {
+        connectHeaders.add("Authorization", "Bearer " + token);
+      }
+      String url = "ws://127.0.0.1:" + node.getEnvironment().getProperty("local.server.port")
+          + "/ws/websocket";
+      StompSession session = client.connectAsync(url, handshakeHeaders, connectHeaders,
+          handler).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      session.setAutoReceipt(true);
+      sessions.add(session);
+      return session;
+    }
+
+    private BlockingQueue<Map<?, ?>> subscribe(StompSession session, String destination)
+        throws InterruptedException {
+      BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+      CountDownLatch subscribed = new CountDownLatch(1);
+      session.subscribe(destination, new StompFrameHandler() {
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+          return Map.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+          received.add((Map<?, ?>) payload);
+        }
+      }).addReceiptTask(subscribed::countDown);
+      assertTrue(subscribed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      return received;
+    }
+
+    @Test
+    void nodes_shouldUseBrokerRelay() {
+      assertInstanceOf(StompBrokerRelayMessageHandler.class,
+          nodeA.getBean("stompBrokerRelayMessageHandler"));
+      assertTrue(nodeA.getBeansOfType(SimpleBrokerMessageHandler.class).isEmpty());
+    }
+
+    @Test
+    void topicMessage_shouldReachClientOnOtherNode() throws Exception {
+      StompSession session = connect(nodeA, null);
+      BlockingQueue<Map<?, ?>> received = subscribe(session, "/topic/notifications");
+
+      nodeB.getBean(SimpMessagingTemplate.class).convertAndSend("/topic/notifications",
+          Map.of("userId", "user-1", "latitude", "63.43"));
+
+      Map<?, ?> message = received.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      assertNotNull(message);
+      assertEquals("user-1", message.get("userId"));
+    }
+
+    @Test
+    void subscribe_shouldFail_whenDestinationIsInternal() throws Exception {
+      for (String destination : List.of(WebSocketConfig.UNRESOLVED_USER_DESTINATION,
+          WebSocketConfig.USER_REGISTRY_DESTINATION)) {
+        BlockingQueue<String> errors = new LinkedBlockingQueue<>();
+        StompSession session = connect(nodeA, null, new StompSessionHandlerAdapter() {
+          @Override
+          public void handleFrame(StompHeaders headers, Object payload) {
+            errors.add("ERROR frame");
+          }
+
+          @Override
+          public void handleException(StompSession session, StompCommand command,
+              StompHeaders headers, byte[] payload, Throwable exception) {
+            errors.add("ERROR frame");
+          }
+
+          @Override
+          public void handleTransportError(StompSession session, Throwable exception) {
+            errors.add("closed");
+          }
+        });
+
+        session.subscribe(destination, new StompSessionHandlerAdapter() { });
+
+        assertNotNull(errors.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // Only the subscriptions of the two instances themselves
+        assertEquals(2, broker.countSubscriptions(WebSocketConfig.UNRESOLVED_USER_DESTINATION));
+        assertEquals(2, broker.countSubscriptions(WebSocketConfig.USER_REGISTRY_DESTINATION));
+      }
+    }
+
+    @Test
+    void userMessage_shouldReachUserConnectedToOtherNode() throws Exception {
+      User user = new User("relay@test.com", "password", "Relay User", Role.USER, null, null,
+          true, null);
+      nodeA.getBean(UserRepository.class).save(user);
+      String token = nodeA.getBean(JwtTokenProvider.class).generateToken(
+          new UsernamePasswordAuthenticationToken(user.getEmail(), null, List.of()));
+      StompSession session = connect(nodeA, token);
+      BlockingQueue<Map<?, ?>> received = subscribe(session, "/user/queue/notifications");
+
+      nodeB.getBean(SimpMessagingTemplate.class).convertAndSendToUser(user.getId(),
+          "/queue/notifications", Map.of("message", "Hello"));
+
+      Map<?, ?> message = received.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      assertNotNull(message);
+      assertEquals("Hello", message.get("message"));
+    }
+  }
+
+  /**
+   * A minimal STOMP broker standing in for an external one. It keeps the subscriptions in memory,
+   * passes every SEND on to the subscriptions of its destination and answers receipt requests.
+   */
+  static final class StompBrokerStandIn implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicLong messageIds = new AtomicLong();
+
+    StompBrokerStandIn() throws IOException {
+      serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+      Thread acceptor = new Thread(this::accept, "stomp-stand-in");
+      acceptor.setDaemon(true);
+      acceptor.start();
+    }
+
+    int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    long countSubscriptions(String destination) {
+      return subscriptions.stream().filter(s -> s.destination.equals(destination)).count();
+    }
+
+    @Override
+    public void close() throws IOException {
+      serverSocket.close();
+      for (Connection connection : connections) {
+        connection.close();
+      }
+    }
+
+    private void accept() {
+      while (!serverSocket.isClosed()) {
+        try {
+          Connection connection = new Connection(serverSocket.accept());
+          connections.add(connection);
+          Thread reader = new Thread(connection::serve, "stomp-stand-in-connection");
+          reader.setDaemon(true);
+          reader.start();
+        } catch (IOException e) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * A subscription of a connection to a destination.
+     */
+    private record Subscription(Connection connection, String id, String destination) {
+    }
+
+    /**
+     * A STOMP frame, with the header values kept escaped as they were received.
+     */
+    private record Frame(String command, Map<String, String> headers, byte[] body) {
+    }
+
+    /**
+     * A connection from a STOMP client, which is the broker relay of an instance.
+     */
+    private final class Connection {
+
+      private final Socket socket;
+      private final OutputStream out;
+
+      private Connection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = socket.getOutputStream();
+      }
+
+      private void serve() {
+        try (InputStream in = new BufferedInputStream(socket.getInputStream())) {
+          Frame frame;
+          while ((frame = read(in)) != null) {
+            handle(frame);
+          }
+        } catch (IOException e) {
+          // The connection was closed
+        } finally {
+          subscriptions.removeIf(s -> s.connection == this);
+          close();
+        }
+      }
+
+      private void handle(Frame frame) throws IOException {
+        Map<String, String> headers = frame.headers();
+        switch (frame.command()) {
+          case "CONNECT", "STOMP" -> write("CONNECTED",
+              Map.of("version", "1.2", "heart-beat", "0,0"), new byte[0]);
+          case "SUBSCRIBE" -> subscriptions.add(
+              new Subscription(this, headers.get("id"), headers.get("destination")));
+          case "UNSUBSCRIBE" ->
+              subscriptions.removeIf(s -> s.connection == this && s.id.equals(headers.get("id")));
+          case "SEND" -> publish(frame);
+          default -> {
+          }
+        }
+        String receipt = headers.get("receipt");
+        if (receipt != null) {
+          write("RECEIPT", Map.of("receipt-id", receipt), new byte[0]);
+        }
+        if (frame.command().equals("DISCONNECT")) {
+          close();
+        }
+      }
+
+      private void publish(Frame frame) {
+        String destination = frame.headers().get("destination");
+        for (Subscription subscription : subscriptions) {
+          if (subscription.destination.equals(destination)) {
+            Map<String, String> headers = new LinkedHashMap<>(frame.headers());
+            headers.remove("receipt");
+            headers.remove("content-length");
+            headers.put("subscription", subscription.id);
+            headers.put("message-id", String.valueOf(messageIds.incrementAndGet()));
+            try {
+              subscription.connection.write("MESSAGE", headers, frame.body());
+            } catch (IOException e) {
+              subscription.connection.close();
+            }
+          }
+        }
+      }
+
+      private synchronized void write(String command, Map<String, String> headers, byte[] body)
+          throws IOException {
+        StringBuilder frame = new StringBuilder(command).append('\n');
+        headers.forEach((name, value) -> frame.append(name).append(':').append(value).append('\n'));
+        frame.append("content-length:").append(body.length).append("\n\n");
+        out.write(frame.toString().getBytes(StandardCharsets.UTF_8));
+        out.write(body);
+        out.write(0);
+        out.flush();
+      }
+
+      private void close() {
+        try {
+          socket.close();
+        } catch (IOException e) {
+          // Already closed
+        }
+      }
+    }
+
+    private static Frame read(InputStream in) throws IOException {
+      String command;
+      do {
+        // Empty lines between frames are heart-beats
+        command = readLine(in);
+        if (command == null) {
+          return null;
+        }
+      } while (command.isEmpty());
+
+      Map<String, String> headers = new LinkedHashMap<>();
+      String line;
+      while (!(line = requireLine(in)).isEmpty()) {
+        int colon = line.indexOf(':');
+        // The first occurrence of a repeated header wins
+        headers.putIfAbsent(line.substring(0, colon), line.substring(colon + 1));
+      }
+
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      String contentLength = headers.get("content-length");
+      if (contentLength != null) {
+        body.write(in.readNBytes(Integer.parseInt(contentLength)));
+        in.read();
+      } else {
+        int b;
+        while ((b = in.read()) > 0) {
+          body.write(b);
+        }
+      }
+      return new Frame(command, headers, body.toByteArray());
+    }
+
+    private static String requireLine(InputStream in) throws IOException {
+      String line = readLine(in);
+      if (line == null) {
+        throw new EOFException();
+      }
+      return line;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+      ByteArrayOutputStream line = new ByteArrayOutputStream();
+      int b;
+      while ((b = in.read()) != '\n') {
+        if (b < 0) {
+          return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+        }
+        if (b != '\r') {
+          line.write(b);
+        }
+      }
+      return line.toString(StandardCharsets.UTF_8);
+    }
+  }
+}
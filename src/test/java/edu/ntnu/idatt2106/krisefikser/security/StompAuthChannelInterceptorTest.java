@@ -0,0 +1,260 @@
+package edu.ntnu.idatt2106.krisefikser.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import edu.ntnu.idatt2106.krisefikser.config.WebSocketConfig;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.household.Household;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.service.notification.CompactPositionStream;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry.SessionUser;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the StompAuthChannelInterceptor class.
+ */
+class StompAuthChannelInterceptorTest {
+
+  private JwtTokenProvider tokenProvider;
+  private UserRepository userRepository;
+  private WebSocketUserRegistry userRegistry;
+  private StompAuthChannelInterceptor interceptor;
+  private MessageChannel channel;
+  private Map<String, Object> sessionAttributes;
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    tokenProvider = mock(JwtTokenProvider.class);
+    userRepository = mock(UserRepository.class);
+    userRegistry = new WebSocketUserRegistry(userRepository);
+    interceptor = new StompAuthChannelInterceptor(tokenProvider, userRepository, userRegistry);
+    channel = mock(MessageChannel.class);
+    sessionAttributes = new HashMap<>();
+
+    Household household = new Household();
+    household.setId("household-1");
+    user = new User();
+    user.setId("user-1");
+    user.setFullName("Test User");
+    user.setHousehold(household);
+  }
+
+  private StompHeaderAccessor send(StompCommand command, String authorization) {
+    return send(command, authorization, null);
+  }
+
+  private StompHeaderAccessor send(StompCommand command, String authorization,
+      String destination) {
+    StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+    accessor.setSessionId("session-1");
+    accessor.setSessionAttributes(sessionAttributes);
+    if (authorization != null) {
+      accessor.setNativeHeader("Authorization", authorization);
+    }
+    if (destination != null) {
+      accessor.setDestination(destination);
+    }
+    accessor.setLeaveMutable(true);
+    Message<byte[]> message =
+        MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    interceptor.preSend(message, channel);
+    return accessor;
+  }
+
+  @Test
+  void connect_shouldKeepUserInSession_whenTokenIsValid() {
+    when(tokenProvider.getUsernameFromToken("valid")).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
+
+    StompHeaderAccessor accessor = send(StompCommand.CONNECT, "Bearer valid");
+
+    assertEquals("user-1", accessor.getUser().getName());
+    SessionUser sessionUser =
+        (SessionUser) sessionAttributes.get(StompAuthChannelInterceptor.SESSION_USER);
+    assertEquals("user-1", sessionUser.getUserId());
+    assertEquals("household-1", sessionUser.getHouseholdId());
+    assertEquals(1, userRegistry.size());
+  }
+
+  @Test
+  void connect_shouldReject_whenTokenIsInvalid() {
+    when(tokenProvider.getUsernameFromToken("forged"))
+        .thenThrow(new JWTVerificationException("The Token's Signature resulted invalid"));
+
+    assertThrows(MessagingException.class, () -> send(StompCommand.CONNECT, "Bearer forged"));
+    assertFalse(sessionAttributes.containsKey(StompAuthChannelInterceptor.SESSION_USER));
+    verify(userRepository, never()).findByEmail(anyString());
+  }
+
+  @Test
+  void connect_shouldLeaveSessionAnonymous_whenNoTokenIsSent() {
+    StompHeaderAccessor accessor = send(StompCommand.CONNECT, null);
+
+    assertNull(accessor.getUser());
+    assertEquals(0, userRegistry.size());
+  }
+
+  @Test
+  void subscribe_shouldReject_whenDestinationIsInternal() {
+    assertThrows(MessagingException.class, () -> send(StompCommand.SUBSCRIBE, null,
+        WebSocketConfig.UNRESOLVED_USER_DESTINATION));
+    assertThrows(MessagingException.class, () -> send(StompCommand.SUBSCRIBE, null,
+        WebSocketConfig.USER_REGISTRY_DESTINATION));
+  }
+
+  @Test
+  void send_shouldReject_whenDestinationIsInternal() {
+    assertThrows(MessagingException.class, () -> send(StompCommand.SEND, null,
+        WebSocketConfig.UNRESOLVED_USER_DESTINATION));
+  }
+
+  @Test
+  void subscribe_shouldAllowBroadcastTopic() {
+    send(StompCommand.SUBSCRIBE, null, "/topic/notifications");
+  }
+
+  @Test
+  void subscribe_shouldAllowPositionTopics_whenUserIsMemberOfHousehold() {
+    when(tokenProvider.getUsernameFromToken("valid")).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
+    send(StompCommand.CONNECT, "Bearer valid");
+
+    send(StompCommand.SUBSCRIBE, null, "/topic/position/household-1");
+    send(StompCommand.SUBSCRIBE, null, CompactPositionStream.destination("household-1"));
+  }
+
+  @Test
+  void subscribe_shouldRejectPositionTopics_whenUserIsNotMemberOfHousehold() {
+    when(tokenProvider.getUsernameFromToken("valid")).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
+    send(StompCommand.CONNECT, "Bearer valid");
+
+    assertThrows(MessagingException.class, () -> send(StompCommand.SUBSCRIBE, null,
+        "/topic/position/household-2"));
+    assertThrows(MessagingException.class, () -> send(StompCommand.SUBSCRIBE, null,
+        CompactPositionStream.destination("household-2")));
+  }
+
+  @Test
+  void subscribe_shouldRejectPositionTopics_whenSessionIsAnonymous() {
+    send(StompCommand.CONNECT, null);
+
+    assertThrows(MessagingException.class, () -> send(StompCommand.SUBSCRIBE, null,
+        "/topic/position/household-1"));
+  }
+
+  @Test
+  void subscribe_shouldRejectPositionTopics_afterUserLeavesHousehold() {
+    when(tokenProvider.getUsernameFromToken("valid")).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
+    send(StompCommand.CONNECT, "Bearer valid");
+
+    userRegistry.updateHousehold("user-1", null);
+
+    assertThrows(MessagingException.class, () -> send(StompCommand.SUBSCRIBE, null,
+        "/topic/position/household-1"));
+  }
+
+  @Test
+  void subscribe_shouldReadHouseholdAgain_whenRelayIsEnabled() {
+    ReflectionTestUtils.setField(userRegistry, "relayEnabled", true);
+    when(tokenProvider.getUsernameFromToken("valid")).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
+    send(StompCommand.CONNECT, "Bearer valid");
+
+    // Moved to another household through another instance
+    when(userRepository.findHouseholdIdById("user-1")).thenReturn(Optional.of("household-2"));
+
+    assertThrows(MessagingException.class, () -> send(StompCommand.SUBSCRIBE, null,
+        "/topic/position/household-1"));
+    send(StompCommand.SUBSCRIBE, null, "/topic/position/household-2");
+    SessionUser sessionUser =
+        (SessionUser) sessionAttributes.get(StompAuthChannelInterceptor.SESSION_USER);
+    assertEquals("household-2", sessionUser.getHouseholdId());
+  }
+
+  @Test
+  void refreshHousehold_shouldReadHouseholdOnlyAfterTtl_whenNotForced() {
+    when(tokenProvider.getUsernameFromToken("valid")).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
+    when(userRepository.findHouseholdIdById("user-1")).thenReturn(Optional.empty());
+    send(StompCommand.CONNECT, "Bearer valid");
+    SessionUser sessionUser =
+        (SessionUser) sessionAttributes.get(StompAuthChannelInterceptor.SESSION_USER);
+
+    assertEquals("household-1", userRegistry.refreshHousehold(sessionUser, true));
+    ReflectionTestUtils.setField(userRegistry, "relayEnabled", true);
+    assertEquals("household-1", userRegistry.refreshHousehold(sessionUser, false));
+    verify(userRepository, never()).findHouseholdIdById(anyString());
+
+    ReflectionTestUtils.setField(userRegistry, "householdTtlMs", -1L);
+    assertNull(userRegistry.refreshHousehold(sessionUser, false));
+    verify(userRepository, times(1)).findHouseholdIdById("user-1");
+  }
+
+  @Test
+  void subscribe_shouldRejectWildcards() {
+    assertThrows(MessagingException.class, () -> send(StompCommand.SUBSCRIBE, null,
+        "/topic/position/**"));
+    assertThrows(MessagingException.class, () -> send(StompCommand.SUBSCRIBE, null,
+        "/topic/position/#"));
+  }
+
+  @Test
+  void send_shouldRejectPositionTopics() {
+    when(tokenProvider.getUsernameFromToken("valid")).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
+    send(StompCommand.CONNECT, "Bearer valid");
+
+    assertThrows(MessagingException.class, () -> send(StompCommand.SEND, null,
+        "/topic/position/household-1"));
+  }
+
+  @Test
+  void disconnect_shouldForgetSessionUser() {
+    when(tokenProvider.getUsernameFromToken("valid")).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
+    send(StompCommand.CONNECT, "Bearer valid");
+
+    send(StompCommand.DISCONNECT, null);
+
+    assertEquals(0, userRegistry.size());
+    assertFalse(sessionAttributes.containsKey(StompAuthChannelInterceptor.SESSION_USER));
+  }
+
+  @Test
+  void updateHousehold_shouldChangeHouseholdOfOpenSessions() {
+    when(tokenProvider.getUsernameFromToken("valid")).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
+    send(StompCommand.CONNECT, "Bearer valid");
+
+    userRegistry.updateHousehold("user-1", null);
+
+    SessionUser sessionUser =
+        (SessionUser) sessionAttributes.get(StompAuthChannelInterceptor.SESSION_USER);
+    assertNull(sessionUser.getHouseholdId());
+  }
+}
@@ -0,0 +1,189 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionResponseDto;
+import edu.ntnu.idatt2106.krisefikser.service.household.HouseholdPositionCache;
+import edu.ntnu.idatt2106.krisefikser.service.notification.CompactPositionStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the CompactPositionStream class.
+ */
+class CompactPositionStreamTest {
+
+  private static final String ALICE = "3f2b8c1e-7a4d-4e2b-9c1a-5d6e7f8a9b0c";
+  private static final String BOB = "9a8b7c6d-5e4f-4a3b-8c2d-1e0f9a8b7c6d";
+  private static final String TOPIC = CompactPositionStream.destination("household");
+
+  private SimpMessagingTemplate messagingTemplate;
+  private HouseholdPositionCache householdPositions;
+  private CompactPositionStream stream;
+
+  @BeforeEach
+  void setUp() {
+    messagingTemplate = mock(SimpMessagingTemplate.class);
+    householdPositions = mock(HouseholdPositionCache.class);
+    when(householdPositions.getPositions("household")).thenReturn(List.of(
+        new PositionResponseDto(ALICE, "Alice", "10.39512", "63.43051"),
+        new PositionResponseDto(BOB, "Bob", null, null)));
+    stream = new CompactPositionStream(messagingTemplate, householdPositions);
+  }
+
+  private List<Object> sentFrames(int count) {
+    ArgumentCaptor<Object> frames = ArgumentCaptor.forClass(Object.class);
+    verify(messagingTemplate, times(count)).convertAndSend(eq(TOPIC), frames.capture());
+    return frames.getAllValues();
+  }
+
+  /**
+   * Test cases for the publish method.
+   */
+  @Nested
+  class PublishTests {
+
+    @Test
+    void publish_shouldSendKeyframeFirst() {
+      stream.publish("household", ALICE, 63.43051, 10.39512);
+
+      Map<?, ?> keyframe = (Map<?, ?>) sentFrames(1).get(0);
+      assertEquals(1L, keyframe.get("s"));
+      assertEquals(List.of(List.of(0, ALICE, "Alice", 6343051, 1039512),
+          Arrays.asList(1, BOB, "Bob", null, null)), keyframe.get("m"));
+    }
+
+    @Test
+    void publish_shouldSendQuantizedDeltas_afterKeyframe() {
+      stream.publish("household", ALICE, 63.43051, 10.39512);
+
+      stream.publish("household", ALICE, 63.43063, 10.39505);
+      stream.publish("household", ALICE, 63.430631, 10.395049);
+      stream.publish("household", ALICE, 63.43060, 10.39505);
+
+      List<Object> frames = sentFrames(3);
+      assertEquals(List.of(2L, 0, 12, -7), frames.get(1));
+      assertEquals(List.of(3L, 0, -3, 0), frames.get(2));
+    }
+
+    @Test
+    void publish_shouldSendKeyframe_whenMemberHasNoPosition() {
+      stream.publish("household", ALICE, 63.43051, 10.39512);
+
+      stream.publish("household", BOB, 59.91, 10.75);
+
+      assertTrue(sentFrames(2).get(1) instanceof Map);
+      verify(householdPositions, times(2)).getPositions("household");
+    }
+
+    @Test
+    void publish_shouldSendKeyframe_everyConfiguredNumberOfFrames() {
+      ReflectionTestUtils.setField(stream, "keyframeFrames", 2);
+
+      for (int i = 1; i <= 4; i++) {
+        stream.publish("household", ALICE, 63.43051 + i * 0.0001, 10.39512);
+      }
+
+      List<Object> frames = sentFrames(4);
+      assertTrue(frames.get(0) instanceof Map);
+      assertTrue(frames.get(1) instanceof List);
+      assertTrue(frames.get(2) instanceof List);
+      assertTrue(frames.get(3) instanceof Map);
+    }
+
+    @Test
+    void publish_shouldSendDeltaTenTimesSmallerThanFullUpdate() throws Exception {
+      ObjectMapper mapper = new ObjectMapper();
+      stream.publish("household", ALICE, 63.43051, 10.39512);
+      stream.publish("household", ALICE, 63.43063, 10.39505);
+
+      int compact = mapper.writeValueAsBytes(sentFrames(2).get(1)).length;
+      int full = mapper.writeValueAsBytes(
+          new PositionResponseDto(ALICE, "Alice", "10.39505", "63.43063")).length;
+
+      assertTrue(compact * 10 <= full, compact + " bytes is not a tenth of " + full);
+    }
+
+    @Test
+    void publish_shouldSendNothing_whenDisabled() {
+      ReflectionTestUtils.setField(stream, "enabled", false);
+
+      stream.publish("household", ALICE, 63.43051, 10.39512);
+
+      verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+      assertEquals(0, stream.size());
+    }
+
+    @Test
+    void publish_shouldSendNothing_whenBrokerRelayIsEnabled() {
+      ReflectionTestUtils.setField(stream, "relayEnabled", true);
+
+      stream.publish("household", ALICE, 63.43051, 10.39512);
+      stream.sendKeyframe("household", BOB);
+
+      verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+      verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(),
+          any(Object.class));
+      assertEquals(0, stream.size());
+    }
+  }
+
+  /**
+   * Test cases for the sendKeyframe method.
+   */
+  @Nested
+  class SendKeyframeTests {
+
+    @Test
+    void sendKeyframe_shouldSendCurrentStateToUser() {
+      stream.publish("household", ALICE, 63.43051, 10.39512);
+      stream.publish("household", ALICE, 63.43063, 10.39505);
+
+      stream.sendKeyframe("household", BOB);
+
+      ArgumentCaptor<Object> frame = ArgumentCaptor.forClass(Object.class);
+      verify(messagingTemplate).convertAndSendToUser(eq(BOB),
+          eq(CompactPositionStream.KEYFRAME_DESTINATION), frame.capture());
+      Map<?, ?> keyframe = (Map<?, ?>) frame.getValue();
+      assertEquals(2L, keyframe.get("s"));
+      assertEquals(List.of(0, ALICE, "Alice", 6343063, 1039505),
+          ((List<?>) keyframe.get("m")).get(0));
+      // The topic is not reset, so the other subscribers keep applying deltas
+      sentFrames(2);
+    }
+  }
+
+  /**
+   * Test cases for the evictIdle method.
+   */
+  @Nested
+  class EvictIdleTests {
+
+    @Test
+    void evictIdle_shouldForgetStreamsWithoutRecentFrames() {
+      stream.publish("household", ALICE, 63.43051, 10.39512);
+
+      assertEquals(0, stream.evictIdle());
+      ReflectionTestUtils.setField(stream, "idleMs", -1L);
+      assertEquals(1, stream.evictIdle());
+      assertEquals(0, stream.size());
+    }
+  }
+}
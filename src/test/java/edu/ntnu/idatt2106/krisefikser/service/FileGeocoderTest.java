@@ -0,0 +1,62 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idatt2106.krisefikser.service.geocoding.FileGeocoder;
+import edu.ntnu.idatt2106.krisefikser.service.geocoding.GeoCoordinates;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the FileGeocoder class.
+ */
+class FileGeocoderTest {
+
+  private FileGeocoder geocoderFor(String content) {
+    FileGeocoder geocoder = new FileGeocoder();
+    ReflectionTestUtils.setField(geocoder, "file",
+        new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)));
+    return geocoder;
+  }
+
+  @Test
+  void geocode_shouldMatchNormalizedAddresses() {
+    FileGeocoder geocoder = geocoderFor("# address;latitude;longitude\n"
+        + "\n"
+        + "Kongens gate 1;63.43;10.39\n"
+        + "Prinsens gate 10; 63.431 ; 10.392\n");
+
+    Map<String, GeoCoordinates> result = geocoder.geocode(
+        List.of("kongens  GATE 1", "Prinsens gate 10", "Nowhere 0"));
+
+    assertEquals(new GeoCoordinates(63.43, 10.39), result.get("kongens  GATE 1"));
+    assertEquals(new GeoCoordinates(63.431, 10.392), result.get("Prinsens gate 10"));
+    assertEquals(2, result.size());
+  }
+
+  @Test
+  void geocode_shouldSkipInvalidLines() {
+    FileGeocoder geocoder = geocoderFor("Kongens gate 1;north;10.39\n"
+        + "Prinsens gate 10;63.431\n"
+        + "Munkegata 5;63.43;10.395\n");
+
+    Map<String, GeoCoordinates> result = geocoder.geocode(
+        List.of("Kongens gate 1", "Prinsens gate 10", "Munkegata 5"));
+
+    assertEquals(Map.of("Munkegata 5", new GeoCoordinates(63.43, 10.395)), result);
+  }
+
+  @Test
+  void geocode_shouldResolveNothing_whenFileIsMissing() {
+    FileGeocoder geocoder = new FileGeocoder();
+    ReflectionTestUtils.setField(geocoder, "file", new ClassPathResource("missing.csv"));
+
+    assertTrue(geocoder.geocode(List.of("Kongens gate 1")).isEmpty());
+  }
+}
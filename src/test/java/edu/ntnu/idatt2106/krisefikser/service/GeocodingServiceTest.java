@@ -0,0 +1,237 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.geocoding.GeocodedAddress;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.household.Household;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.geocoding.GeocodedAddressRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.household.HouseholdRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon.MapIconRepository;
+import edu.ntnu.idatt2106.krisefikser.service.geocoding.GeoCoordinates;
+import edu.ntnu.idatt2106.krisefikser.service.geocoding.Geocoder;
+import edu.ntnu.idatt2106.krisefikser.service.geocoding.GeocodingService;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconService;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the GeocodingService class.
+ */
+class GeocodingServiceTest {
+
+  private static final GeoCoordinates KONGENS_GATE = new GeoCoordinates(63.43, 10.39);
+
+  @Mock
+  private Geocoder geocoder;
+
+  @Mock
+  private GeocodedAddressRepository geocodedAddressRepository;
+
+  @Mock
+  private MapIconRepository mapIconRepository;
+
+  @Mock
+  private HouseholdRepository householdRepository;
+
+  @Mock
+  private MapIconService mapIconService;
+
+  @InjectMocks
+  private GeocodingService geocodingService;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  /**
+   * Test cases for the resolve method.
+   */
+  @Nested
+  class ResolveTests {
+
+    @Test
+    void resolve_shouldGeocodeOnceAndMemoize_whenAddressIsNew() {
+      when(geocoder.geocode(anyCollection()))
+          .thenReturn(Map.of("Kongens gate 1", KONGENS_GATE));
+
+      Map<String, GeoCoordinates> result = geocodingService.resolve(
+          List.of("Kongens gate 1", " kongens  GATE 1", "Nowhere 0"));
+
+      assertEquals(KONGENS_GATE, result.get("Kongens gate 1"));
+      assertEquals(KONGENS_GATE, result.get(" kongens  GATE 1"));
+      assertNull(result.get("Nowhere 0"));
+      ArgumentCaptor<List<GeocodedAddress>> memos = ArgumentCaptor.forClass(List.class);
+      verify(geocodedAddressRepository).saveAll(memos.capture());
+      assertEquals(2, memos.getValue().size());
+      GeocodedAddress unresolved = memos.getValue().stream()
+          .filter(memo -> memo.getAddressKey().equals("nowhere 0")).findFirst().orElseThrow();
+      assertNull(unresolved.getLatitude());
+    }
+
+    @Test
+    void resolve_shouldUseCache_whenAddressWasResolvedBefore() {
+      when(geocoder.geocode(anyCollection()))
+          .thenReturn(Map.of("Kongens gate 1", KONGENS_GATE));
+      geocodingService.resolve(List.of("Kongens gate 1"));
+
+      Map<String, GeoCoordinates> result = geocodingService.resolve(List.of("KONGENS GATE 1"));
+
+      assertEquals(KONGENS_GATE, result.get("KONGENS GATE 1"));
+      verify(geocoder, times(1)).geocode(anyCollection());
+      verify(geocodedAddressRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void resolve_shouldUseMemo_whenAddressIsStored() {
+      when(geocodedAddressRepository.findAllById(Set.of("kongens gate 1"))).thenReturn(List.of(
+          new GeocodedAddress("kongens gate 1", 63.43, 10.39, LocalDateTime.now())));
+
+      Map<String, GeoCoordinates> result = geocodingService.resolve(List.of("Kongens gate 1"));
+
+      assertEquals(KONGENS_GATE, result.get("Kongens gate 1"));
+      verifyNoInteractions(geocoder);
+    }
+
+    @Test
+    void resolve_shouldSkipGeocoder_whenAddressFailedRecently() {
+      when(geocodedAddressRepository.findAllById(any())).thenReturn(List.of(
+          new GeocodedAddress("nowhere 0", null, null, LocalDateTime.now().minusHours(1))));
+
+      Map<String, GeoCoordinates> result = geocodingService.resolve(List.of("Nowhere 0"));
+
+      assertTrue(result.isEmpty());
+      verifyNoInteractions(geocoder);
+    }
+
+    @Test
+    void resolve_shouldRetry_whenRetryPeriodHasPassed() {
+      when(geocodedAddressRepository.findAllById(any())).thenReturn(List.of(
+          new GeocodedAddress("kongens gate 1", null, null, LocalDateTime.now().minusDays(2))));
+      when(geocoder.geocode(anyCollection()))
+          .thenReturn(Map.of("Kongens gate 1", KONGENS_GATE));
+
+      Map<String, GeoCoordinates> result = geocodingService.resolve(List.of("Kongens gate 1"));
+
+      assertEquals(KONGENS_GATE, result.get("Kongens gate 1"));
+    }
+
+    @Test
+    void resolve_shouldNotMemoize_whenGeocoderFails() {
+      when(geocoder.geocode(anyCollection())).thenThrow(new IllegalStateException("Timeout"));
+
+      Map<String, GeoCoordinates> result = geocodingService.resolve(List.of("Kongens gate 1"));
+
+      assertTrue(result.isEmpty());
+      verify(geocodedAddressRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void resolve_shouldIgnoreBlankAddresses() {
+      Map<String, GeoCoordinates> result = geocodingService.resolve(List.of("  "));
+
+      assertTrue(result.isEmpty());
+      verifyNoInteractions(geocoder, geocodedAddressRepository);
+    }
+  }
+
+  /**
+   * Test cases for the scheduled geocoding of map icons and households.
+   */
+  @Nested
+  class GeocodePendingTests {
+
+    private MapIcon createIcon(Long id, String address) {
+      MapIcon icon = new MapIcon();
+      icon.setId(id);
+      icon.setAddress(address);
+      return icon;
+    }
+
+    private Household createHousehold(String id, String address) {
+      Household household = new Household();
+      household.setId(id);
+      household.setAddress(address);
+      return household;
+    }
+
+    @Test
+    void geocodeMapIcons_shouldResolveAllBatches() {
+      ReflectionTestUtils.setField(geocodingService, "batchSize", 2);
+      when(mapIconRepository.findWithoutCoordinatesAfter(eq(0L), any(Pageable.class)))
+          .thenReturn(List.of(createIcon(1L, "Kongens gate 1"), createIcon(2L, "Nowhere 0")));
+      when(mapIconRepository.findWithoutCoordinatesAfter(eq(2L), any(Pageable.class)))
+          .thenReturn(List.of(createIcon(5L, "Kongens gate 1")));
+      when(geocoder.geocode(anyCollection()))
+          .thenReturn(Map.of("Kongens gate 1", KONGENS_GATE));
+      when(mapIconService.locateMapIcons(anyCollection(), any())).thenReturn(1);
+
+      assertEquals(2, geocodingService.geocodeMapIcons());
+
+      verify(mapIconService).locateMapIcons(List.of(1L, 2L),
+          Map.of("Kongens gate 1", KONGENS_GATE));
+      verify(mapIconService).locateMapIcons(List.of(5L), Map.of("Kongens gate 1", KONGENS_GATE));
+      verify(geocoder, times(1)).geocode(anyCollection());
+    }
+
+    @Test
+    void geocodeHouseholds_shouldUpdateResolvedHouseholds() {
+      when(householdRepository.findWithoutCoordinatesAfter(eq(""), any(Pageable.class)))
+          .thenReturn(List.of(createHousehold("a", "Kongens gate 1"),
+              createHousehold("b", "Nowhere 0")));
+      when(geocoder.geocode(anyCollection()))
+          .thenReturn(Map.of("Kongens gate 1", KONGENS_GATE));
+      when(householdRepository.updateCoordinates("a", "Kongens gate 1", 63.43, 10.39))
+          .thenReturn(1);
+
+      assertEquals(1, geocodingService.geocodeHouseholds());
+
+      verify(householdRepository).updateCoordinates("a", "Kongens gate 1", 63.43, 10.39);
+      verify(householdRepository, never())
+          .updateCoordinates(eq("b"), anyString(), any(Double.class), any(Double.class));
+    }
+
+    @Test
+    void geocodePending_shouldDoNothing_whenDisabled() {
+      ReflectionTestUtils.setField(geocodingService, "enabled", false);
+
+      geocodingService.geocodePending();
+
+      verifyNoInteractions(mapIconRepository, householdRepository, geocoder);
+    }
+
+    @Test
+    void geocodePending_shouldNotThrow_whenLookupFails() {
+      when(mapIconRepository.findWithoutCoordinatesAfter(anyLong(), any(Pageable.class)))
+          .thenThrow(new RuntimeException("Database down"));
+
+      geocodingService.geocodePending();
+
+      verifyNoInteractions(householdRepository);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.user.UserHouseholdAssignmentRequestDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.household.Household;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.notification.HouseholdNotification;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.Role;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.household.HouseholdRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.HouseholdNotificationRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.service.household.HouseholdService;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationDispatcher;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationService;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests of the read receipts of household notifications against the test database.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class HouseholdNotificationReceiptTest {
+
+  @Autowired
+  private HouseholdService householdService;
+
+  @Autowired
+  private NotificationService notificationService;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private HouseholdRepository householdRepository;
+
+  @Autowired
+  private HouseholdNotificationRepository householdNotificationRepository;
+
+  // The notice about the join is a new notification, so it is left out here
+  @MockBean
+  private NotificationDispatcher dispatcher;
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private User saveUser(String name) {
+    return userRepository.save(new User(UUID.randomUUID() + "@example.com",
+        "password", name, Role.USER, null, "12345678", true, null));
+  }
+
+  private Household saveHousehold(User owner) {
+    Household household = new Household("Home", "Kongens gate 1", 1, owner);
+    household.setId(UUID.randomUUID().toString());
+    householdRepository.save(household);
+    userRepository.updateHouseholdId(owner.getId(), household.getId());
+    return household;
+  }
+
+  private HouseholdNotification saveNotification(Household household, String message) {
+    HouseholdNotification notification = new HouseholdNotification();
+    notification.setHouseholdId(household.getId());
+    notification.setType(NotificationType.HOUSEHOLD);
+    notification.setMessage(message);
+    notification.setTimestamp(LocalDateTime.now().minusDays(1));
+    return householdNotificationRepository.save(notification);
+  }
+
+  private void authenticate(User user) {
+    SecurityContextHolder.setContext(new SecurityContextImpl(
+        new UsernamePasswordAuthenticationToken(user.getEmail(), null)));
+  }
+
+  /**
+   * Test cases for joining a household that already has notifications.
+   */
+  @Nested
+  class JoinTests {
+
+    @Test
+    void addUserToHousehold_shouldNotCountEarlierNotificationsAsUnread() {
+      User owner = saveUser("Owner");
+      Household household = saveHousehold(owner);
+      for (int i = 0; i < 3; i++) {
+        saveNotification(household, "Before joining " + i);
+      }
+      User member = saveUser("Member");
+
+      UserHouseholdAssignmentRequestDto request = new UserHouseholdAssignmentRequestDto();
+      request.setUserId(member.getId());
+      request.setHouseholdId(household.getId());
+      householdService.addUserToHousehold(request);
+
+      authenticate(member);
+      assertEquals(0, notificationService.getUnreadCount().getUnreadCount());
+      authenticate(owner);
+      assertEquals(3, notificationService.getUnreadCount().getUnreadCount());
+    }
+  }
+
+  /**
+   * Test cases for marking a household notification as read.
+   */
+  @Nested
+  class MarkAsReadTests {
+
+    @Test
+    void markHouseholdNotificationAsRead_shouldCountOnce_whenReadTwice() {
+      User owner = saveUser("Owner");
+      HouseholdNotification notification = saveNotification(saveHousehold(owner), "Read twice");
+      authenticate(owner);
+      assertEquals(1, notificationService.getUnreadCount().getUnreadCount());
+
+      notificationService.markHouseholdNotificationAsRead(notification.getId());
+      notificationService.markHouseholdNotificationAsRead(notification.getId());
+
+      assertEquals(0, notificationService.getUnreadCount().getUnreadCount());
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionResponseDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.service.household.HouseholdPositionCache;
+import edu.ntnu.idatt2106.krisefikser.service.user.PositionWriteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for the HouseholdPositionCache class.
+ */
+class HouseholdPositionCacheTest {
+
+  private UserRepository userRepository;
+  private PositionWriteBuffer positionBuffer;
+  private HouseholdPositionCache cache;
+
+  @BeforeEach
+  void setUp() {
+    userRepository = mock(UserRepository.class);
+    positionBuffer = mock(PositionWriteBuffer.class);
+    when(positionBuffer.getPending(anyString())).thenReturn(Optional.empty());
+    when(userRepository.getUsersByHouseholdId("household")).thenReturn(List.of(
+        user("alice", "Alice", 63.43, 10.39), user("bob", "Bob", null, null)));
+    cache = new HouseholdPositionCache(userRepository, positionBuffer);
+  }
+
+  private static User user(String id, String fullName, Double latitude, Double longitude) {
+    User user = new User();
+    user.setId(id);
+    user.setFullName(fullName);
+    user.setLatitude(latitude);
+    user.setLongitude(longitude);
+    return user;
+  }
+
+  private static Map<String, PositionResponseDto> byUserId(List<PositionResponseDto> positions) {
+    return positions.stream()
+        .collect(Collectors.toMap(PositionResponseDto::getUserId, position -> position));
+  }
+
+  /**
+   * Test cases for the getPositions method.
+   */
+  @Nested
+  class GetPositionsTests {
+
+    @Test
+    void getPositions_shouldLoadHouseholdOnce() {
+      cache.getPositions("household");
+      Map<String, PositionResponseDto> positions = byUserId(cache.getPositions("household"));
+
+      assertEquals("63.43", positions.get("alice").getLatitude());
+      assertEquals("10.39", positions.get("alice").getLongitude());
+      assertEquals("Bob", positions.get("bob").getFullName());
+      assertNull(positions.get("bob").getLatitude());
+      verify(userRepository, times(1)).getUsersByHouseholdId("household");
+      assertEquals(1, cache.size());
+    }
+
+    @Test
+    void getPositions_shouldUsePendingPosition_whenLoading() {
+      when(positionBuffer.getPending("bob"))
+          .thenReturn(Optional.of(new PositionWriteBuffer.Position(59.91, 10.75)));
+
+      Map<String, PositionResponseDto> positions = byUserId(cache.getPositions("household"));
+
+      assertEquals("59.91", positions.get("bob").getLatitude());
+      assertEquals("10.75", positions.get("bob").getLongitude());
+    }
+
+    @Test
+    void getPositions_shouldLoadEveryTime_whenDisabled() {
+      ReflectionTestUtils.setField(cache, "enabled", false);
+
+      cache.getPositions("household");
+      cache.getPositions("household");
+
+      verify(userRepository, times(2)).getUsersByHouseholdId("household");
+      assertEquals(0, cache.size());
+    }
+  }
+
+  /**
+   * Test cases for the update method.
+   */
+  @Nested
+  class UpdateTests {
+
+    @Test
+    void update_shouldReplacePositionOfCachedHousehold() {
+      cache.getPositions("household");
+
+      cache.update("household", "bob", "Bob", 59.91, 10.75);
+      Map<String, PositionResponseDto> positions = byUserId(cache.getPositions("household"));
+
+      assertEquals("59.91", positions.get("bob").getLatitude());
+      assertEquals("10.75", positions.get("bob").getLongitude());
+      verify(userRepository, times(1)).getUsersByHouseholdId("household");
+    }
+
+    @Test
+    void update_shouldIgnoreHouseholdNotCached() {
+      cache.update("household", "bob", "Bob", 59.91, 10.75);
+
+      assertEquals(0, cache.size());
+    }
+  }
+
+  /**
+   * Test cases for the evict and evictIdle methods.
+   */
+  @Nested
+  class EvictTests {
+
+    @Test
+    void evict_shouldLoadHouseholdAgain() {
+      cache.getPositions("household");
+
+      cache.evict("household");
+      cache.getPositions("household");
+
+      verify(userRepository, times(2)).getUsersByHouseholdId("household");
+    }
+
+    @Test
+    void evict_shouldEvictAgainAfterCommit_whenInTransaction() {
+      TransactionSynchronizationManager.initSynchronization();
+      try {
+        cache.evict("household");
+        // Loaded by another request before the membership change is committed
+        cache.getPositions("household");
+        assertEquals(1, cache.size());
+
+        TransactionSynchronizationManager.getSynchronizations()
+            .forEach(TransactionSynchronization::afterCommit);
+        assertEquals(0, cache.size());
+      } finally {
+        TransactionSynchronizationManager.clearSynchronization();
+      }
+    }
+
+    @Test
+    void evictIdle_shouldEvictHouseholdsNotReadWithinIdleTime() {
+      cache.getPositions("household");
+
+      assertEquals(0, cache.evictIdle());
+      ReflectionTestUtils.setField(cache, "idleMs", -1L);
+      assertEquals(1, cache.evictIdle());
+      assertEquals(0, cache.size());
+    }
+  }
+}
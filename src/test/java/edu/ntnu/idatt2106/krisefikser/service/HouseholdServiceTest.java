@@ -32,8 +32,11 @@ import edu.ntnu.idatt2106.krisefikser.persistance.repository.household.Household
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.membershiprequest.MembershipRequestRepository;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.unregisteredhouseholdmember.UnregisteredHouseholdMemberRepository;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.service.household.HouseholdPositionCache;
 import edu.ntnu.idatt2106.krisefikser.service.household.HouseholdService;
 import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationService;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -64,6 +67,12 @@ class HouseholdServiceTest {
   @Mock
   private NotificationService notificationService;
 
+  @Mock
+  private WebSocketUserRegistry webSocketUsers;
+
+  @Mock
+  private HouseholdPositionCache positionCache;
+
   @InjectMocks
   private HouseholdService householdService;
 
@@ -239,6 +248,8 @@ class HouseholdServiceTest {
       householdService.addUserToHousehold(request);
 
       verify(userRepository).updateHouseholdId("user123", "household123");
+      verify(notificationService).markHouseholdHistoryAsRead(eq("user123"), eq("household123"),
+          any(LocalDateTime.class));
       verify(householdRepository).updateNumberOfMembers("household123", 2);
       verify(notificationService).saveHouseholdNotification(any(NotificationDto.class),
           eq("household123"));
@@ -444,6 +455,8 @@ class HouseholdServiceTest {
       householdService.leaveCurrentUserFromHousehold();
 
       verify(userRepository).updateHouseholdId("user123", null);
+      verify(webSocketUsers).updateHousehold("user123", null);
+      verify(positionCache).evict("household123");
       verify(householdRepository).updateNumberOfMembers("household123", 1);
     }
 
@@ -864,6 +877,8 @@ class HouseholdServiceTest {
       household.setId("household123");
       household.setName("Old Household Name");
       household.setAddress("Old Address");
+      household.setLatitude(63.43);
+      household.setLongitude(10.39);
       household.setOwner(user);
 
       user.setHousehold(household);
@@ -882,6 +897,7 @@ class HouseholdServiceTest {
       verify(householdRepository).save(argThat(h ->
           h.getName().equals("Updated Household Name")
               && h.getAddress().equals("Updated Address")
+              && h.getLatitude() == null && h.getLongitude() == null
       ));
       verify(notificationService).saveNotification(any(NotificationDto.class));
       verify(notificationService).sendPrivateNotification(eq("user123"),
@@ -0,0 +1,158 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconClusterIndex;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconClusterIndex.Cluster;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the MapIconClusterIndex class.
+ */
+class MapIconClusterIndexTest {
+
+  private MapIconClusterIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new MapIconClusterIndex();
+  }
+
+  private MapIcon createIcon(Long id, MapIconType type, double latitude, double longitude) {
+    MapIcon icon = new MapIcon();
+    icon.setId(id);
+    icon.setType(type);
+    icon.setLatitude(latitude);
+    icon.setLongitude(longitude);
+    return icon;
+  }
+
+  private List<Cluster> norway(int zoom) {
+    return index.findClusters(57, 4, 72, 32, zoom);
+  }
+
+  /**
+   * Test cases for the findClusters method.
+   */
+  @Nested
+  class FindClustersTests {
+
+    @Test
+    void findClusters_shouldMergeNearbyIcons_whenZoomedOut() {
+      index.load(List.of(
+          createIcon(1L, MapIconType.SHELTER, 63.42, 10.39),
+          createIcon(2L, MapIconType.SHELTER, 63.43, 10.40),
+          createIcon(3L, MapIconType.HOSPITAL, 63.44, 10.41)));
+
+      List<Cluster> clusters = norway(4);
+
+      assertEquals(1, clusters.size());
+      Cluster cluster = clusters.get(0);
+      assertEquals(3, cluster.count());
+      assertEquals(2, cluster.typeCounts().get(MapIconType.SHELTER));
+      assertEquals(1, cluster.typeCounts().get(MapIconType.HOSPITAL));
+      assertEquals(63.43, cluster.latitude(), 1e-9);
+      assertNull(cluster.iconId());
+    }
+
+    @Test
+    void findClusters_shouldSplitIcons_whenZoomedIn() {
+      index.load(List.of(
+          createIcon(1L, MapIconType.SHELTER, 63.42, 10.39),
+          createIcon(2L, MapIconType.SHELTER, 59.91, 10.75)));
+
+      List<Cluster> clusters = norway(MapIconClusterIndex.MAX_CLUSTER_ZOOM);
+
+      assertEquals(2, clusters.size());
+      assertTrue(clusters.stream().allMatch(cluster -> cluster.count() == 1));
+      assertEquals(3L, clusters.stream().mapToLong(Cluster::iconId).sum());
+    }
+
+    @Test
+    void findClusters_shouldOnlyReturnClustersInBox() {
+      index.load(List.of(
+          createIcon(1L, MapIconType.SHELTER, 63.42, 10.39),
+          createIcon(2L, MapIconType.SHELTER, -33.86, 151.21)));
+
+      assertEquals(1, norway(8).size());
+    }
+
+    @Test
+    void findClusters_shouldSupportBoxAcrossAntimeridian() {
+      index.load(List.of(
+          createIcon(1L, MapIconType.SHELTER, 0.0, 179.5),
+          createIcon(2L, MapIconType.SHELTER, 0.0, -179.5),
+          createIcon(3L, MapIconType.SHELTER, 0.0, 0.0)));
+
+      List<Cluster> clusters = index.findClusters(-1, 179, 1, -179, 10);
+
+      assertEquals(2, clusters.stream().mapToInt(Cluster::count).sum());
+    }
+
+    @Test
+    void findClusters_shouldRejectZoomAboveMaximum() {
+      assertThrows(IllegalArgumentException.class,
+          () -> norway(MapIconClusterIndex.MAX_CLUSTER_ZOOM + 1));
+    }
+  }
+
+  /**
+   * Test cases for incremental updates.
+   */
+  @Nested
+  class UpdateTests {
+
+    @Test
+    void put_shouldUpdateAggregates() {
+      index.put(createIcon(1L, MapIconType.SHELTER, 63.42, 10.39));
+      index.put(createIcon(2L, MapIconType.HOSPITAL, 63.43, 10.40));
+
+      index.put(createIcon(2L, MapIconType.HEARTSTARTER, 63.43, 10.40));
+
+      Cluster cluster = norway(2).get(0);
+      assertEquals(2, cluster.count());
+      assertEquals(1, cluster.typeCounts().get(MapIconType.HEARTSTARTER));
+      assertNull(cluster.typeCounts().get(MapIconType.HOSPITAL));
+    }
+
+    @Test
+    void remove_shouldKeepRemainingIconId() {
+      index.put(createIcon(1L, MapIconType.SHELTER, 63.42, 10.39));
+      index.put(createIcon(2L, MapIconType.SHELTER, 63.43, 10.40));
+
+      index.remove(1L);
+
+      Cluster cluster = norway(2).get(0);
+      assertEquals(1, cluster.count());
+      assertEquals(2L, cluster.iconId());
+    }
+
+    @Test
+    void remove_shouldDropEmptyCells() {
+      index.put(createIcon(1L, MapIconType.SHELTER, 63.42, 10.39));
+
+      index.remove(1L);
+
+      for (int zoom = 0; zoom <= MapIconClusterIndex.MAX_CLUSTER_ZOOM; zoom++) {
+        assertTrue(norway(zoom).isEmpty());
+      }
+    }
+
+    @Test
+    void invalidate_shouldRemoveEveryIcon() {
+      index.put(createIcon(1L, MapIconType.SHELTER, 63.42, 10.39));
+
+      index.invalidate();
+
+      assertTrue(norway(0).isEmpty());
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.GeoDistance;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconColumns;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconSpatialIndex;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the MapIconColumns class.
+ */
+class MapIconColumnsTest {
+
+  private MapIconColumns columns;
+
+  @BeforeEach
+  void setUp() {
+    columns = new MapIconColumns();
+  }
+
+  private MapIcon createIcon(Long id, double latitude, double longitude) {
+    MapIcon icon = new MapIcon();
+    icon.setId(id);
+    icon.setLatitude(latitude);
+    icon.setLongitude(longitude);
+    return icon;
+  }
+
+  private List<Long> ids() {
+    List<MapIcon> icons = new ArrayList<>();
+    columns.addAllTo(icons);
+    return icons.stream().map(MapIcon::getId).toList();
+  }
+
+  /**
+   * Test cases for adding and removing icons.
+   */
+  @Nested
+  class WriteTests {
+
+    @Test
+    void add_shouldGrowBeyondInitialCapacity() {
+      for (long i = 0; i < 10; i++) {
+        columns.add(createIcon(i, 63.42, 10.39));
+      }
+
+      assertEquals(10, columns.size());
+      assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), ids());
+    }
+
+    @Test
+    void remove_shouldKeepOrderOfRemainingIcons() {
+      columns.add(createIcon(1L, 63.42, 10.39));
+      columns.add(createIcon(2L, 63.43, 10.40));
+      columns.add(createIcon(3L, 63.44, 10.41));
+
+      assertTrue(columns.remove(2L));
+      assertFalse(columns.remove(4L));
+
+      assertEquals(List.of(1L, 3L), ids());
+    }
+  }
+
+  /**
+   * Test cases for the distance kernels.
+   */
+  @Nested
+  class DistanceTests {
+
+    @Test
+    void collectWithinRadius_shouldMatchHaversine() {
+      columns.add(createIcon(1L, 63.42, 10.39));
+      columns.add(createIcon(2L, 63.43, 10.41));
+      columns.add(createIcon(3L, 63.52, 10.39));
+      GeoDistance.Origin origin = new GeoDistance.Origin(63.42, 10.39);
+      List<MapIcon> result = new ArrayList<>();
+
+      // Icon 2 is about 1.49 km away and icon 3 about 11.1 km away
+      columns.collectWithinRadius(origin, 5 / GeoDistance.EARTH_RADIUS_KM,
+          GeoDistance.radiusToTerm(5), result);
+
+      assertEquals(List.of(1L, 2L), result.stream().map(MapIcon::getId).toList());
+    }
+
+    @Test
+    void collectNearest_shouldKeepClosestIcons() {
+      columns.add(createIcon(1L, 63.52, 10.39));
+      columns.add(createIcon(2L, 63.43, 10.41));
+      columns.add(createIcon(3L, 70.00, 10.39));
+      columns.add(createIcon(4L, 63.42, 10.39));
+      PriorityQueue<MapIconSpatialIndex.Neighbour> best = new PriorityQueue<>(
+          Comparator.comparingDouble(MapIconSpatialIndex.Neighbour::distanceKm).reversed());
+
+      columns.collectNearest(new GeoDistance.Origin(63.42, 10.39), 2, best);
+
+      List<MapIconSpatialIndex.Neighbour> nearest = new ArrayList<>(best);
+      nearest.sort(Comparator.comparingDouble(MapIconSpatialIndex.Neighbour::distanceKm));
+      assertEquals(List.of(4L, 2L), nearest.stream().map(n -> n.icon().getId()).toList());
+      assertEquals(GeoDistance.haversineKm(63.42, 10.39, 63.43, 10.41),
+          nearest.get(1).distanceKm(), 1e-9);
+    }
+
+    @Test
+    void radiusToTerm_shouldBoundRadiusCheck() {
+      GeoDistance.Origin origin = new GeoDistance.Origin(63.42, 10.39);
+      double term = origin.haversineTerm(63.43, 10.41);
+
+      assertEquals(GeoDistance.haversineKm(63.42, 10.39, 63.43, 10.41),
+          GeoDistance.termToKm(term), 1e-9);
+      assertTrue(term <= GeoDistance.radiusToTerm(1.5));
+      assertTrue(term > GeoDistance.radiusToTerm(1.4));
+      assertEquals(Double.POSITIVE_INFINITY, GeoDistance.radiusToTerm(25000));
+    }
+  }
+}
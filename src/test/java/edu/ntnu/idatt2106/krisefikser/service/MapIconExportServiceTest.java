@@ -0,0 +1,135 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconExportService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the MapIconExportService class, run against an in-memory H2 database.
+ */
+class MapIconExportServiceTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private JdbcTemplate jdbcTemplate;
+  private MapIconExportService exportService;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate = new JdbcTemplate(
+        new DriverManagerDataSource("jdbc:h2:mem:map_icon_export;DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute("CREATE TABLE map_icon (id BIGINT PRIMARY KEY, type VARCHAR(255), "
+        + "address VARCHAR(255), latitude DOUBLE, longitude DOUBLE, description VARCHAR(1000), "
+        + "opening_hours VARCHAR(255), contact_info VARCHAR(255), revision BIGINT)");
+    exportService = new MapIconExportService(jdbcTemplate, objectMapper);
+    ReflectionTestUtils.setField(exportService, "fetchSize", 1);
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.execute("DROP TABLE map_icon");
+  }
+
+  private void insertIcon(long id, String type, String address, Double latitude,
+      Double longitude, String description, long revision) {
+    jdbcTemplate.update("INSERT INTO map_icon (id, type, address, latitude, longitude, "
+            + "description, revision) VALUES (?, ?, ?, ?, ?, ?, ?)",
+        id, type, address, latitude, longitude, description, revision);
+  }
+
+  private JsonNode export(long revision) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    exportService.writeGeoJson(output, revision);
+    return objectMapper.readTree(output.toString(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Test cases for the writeGeoJson method.
+   */
+  @Nested
+  class WriteGeoJsonTests {
+
+    @Test
+    void writeGeoJson_shouldWriteFeatureCollection() throws IOException {
+      insertIcon(2, "HOSPITAL", "Prinsens gate 10", null, null, null, 7);
+      insertIcon(1, "SHELTER", "Kongens gate 1", 63.43, 10.39, "Public \"shelter\"", 5);
+
+      JsonNode collection = export(7);
+
+      assertEquals("FeatureCollection", collection.get("type").asText());
+      assertEquals(7, collection.get("revision").asLong());
+      JsonNode features = collection.get("features");
+      assertEquals(2, features.size());
+
+      JsonNode shelter = features.get(0);
+      assertEquals(1, shelter.get("id").asLong());
+      assertEquals("Point", shelter.at("/geometry/type").asText());
+      assertEquals(10.39, shelter.at("/geometry/coordinates/0").asDouble());
+      assertEquals(63.43, shelter.at("/geometry/coordinates/1").asDouble());
+      assertEquals("SHELTER", shelter.at("/properties/type").asText());
+      assertEquals("Public \"shelter\"", shelter.at("/properties/description").asText());
+      assertEquals(5, shelter.at("/properties/revision").asLong());
+
+      JsonNode hospital = features.get(1);
+      assertTrue(hospital.get("geometry").isNull());
+      assertFalse(hospital.get("properties").has("description"));
+    }
+
+    @Test
+    void writeGeoJson_shouldWriteEmptyCollection_whenThereAreNoIcons() throws IOException {
+      JsonNode collection = export(0);
+
+      assertEquals(0, collection.get("features").size());
+    }
+
+    @Test
+    void writeGeoJson_shouldLeaveOutputOpen() {
+      ClosingTrackingStream output = new ClosingTrackingStream();
+
+      long count = exportService.writeGeoJson(output, 0);
+
+      assertEquals(0, count);
+      assertFalse(output.closed);
+    }
+
+    @Test
+    void writeGeoJson_shouldThrow_whenClientDisconnects() {
+      insertIcon(1, "SHELTER", "Kongens gate 1", 63.43, 10.39, null, 1);
+      OutputStream disconnected = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          throw new IOException("Broken pipe");
+        }
+      };
+
+      assertThrows(UncheckedIOException.class,
+          () -> exportService.writeGeoJson(disconnected, 1));
+    }
+  }
+
+  private static class ClosingTrackingStream extends ByteArrayOutputStream {
+
+    private boolean closed;
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,336 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconImportProgressDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconImportService;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconImportService.Format;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconService;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Unit tests for the MapIconImportService class.
+ */
+class MapIconImportServiceTest {
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private MapIconService mapIconService;
+
+  private MapIconImportService importService;
+
+  private final List<List<MapIcon>> chunks = new ArrayList<>();
+  private final List<MapIconImportProgressDto> events = new ArrayList<>();
+  private long revision;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    importService = new MapIconImportService(jdbcTemplate, transactionManager, mapIconService,
+        new ObjectMapper());
+    ReflectionTestUtils.setField(importService, "chunkSize", 2);
+    when(mapIconService.allocateRevisions(anyInt())).thenAnswer(invocation -> {
+      revision += invocation.<Integer>getArgument(0);
+      return revision;
+    });
+    doAnswer(invocation -> {
+      // The service reuses its chunk list, so keep a copy
+      chunks.add(new ArrayList<>(invocation.<Collection<MapIcon>>getArgument(1)));
+      return new int[0][];
+    }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(),
+        any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  private MapIconImportProgressDto importText(String text, Format format) {
+    return importService.importMapIcons(
+        new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), format, events::add);
+  }
+
+  private List<MapIcon> imported() {
+    return chunks.stream().flatMap(List::stream).toList();
+  }
+
+  private List<MapIconImportProgressDto> eventsWithStatus(String status) {
+    return events.stream().filter(event -> status.equals(event.getStatus())).toList();
+  }
+
+  /**
+   * Test cases for CSV imports.
+   */
+  @Nested
+  class CsvImportTests {
+
+    @Test
+    void importMapIcons_shouldWriteValidRowsInChunks() {
+      String csv = """
+          type,address,latitude,longitude,description,opening_hours,contact_info
+          SHELTER,Kongens gate 1,63.43,10.39,Public shelter,,
+          hospital,,63.42,10.40,St. Olavs,00-24,73 86 80 00
+          FOODSTATION,Torget,,,,,
+          """;
+
+      MapIconImportProgressDto result = importText(csv, Format.CSV);
+
+      assertEquals(MapIconImportProgressDto.STATUS_DONE, result.getStatus());
+      assertEquals(3, result.getProcessed());
+      assertEquals(3, result.getImported());
+      assertEquals(0, result.getFailed());
+      assertEquals(2, chunks.size());
+      assertEquals(2, chunks.get(0).size());
+      List<MapIcon> icons = imported();
+      assertEquals(MapIconType.HOSPITAL, icons.get(1).getType());
+      assertEquals("00-24", icons.get(1).getOpeningHours());
+      assertNull(icons.get(2).getLatitude());
+      assertEquals(List.of(1L, 2L, 3L), icons.stream().map(MapIcon::getRevision).toList());
+      assertEquals(2, eventsWithStatus(MapIconImportProgressDto.STATUS_PROGRESS).size());
+      verify(mapIconService).invalidateIndexes();
+    }
+
+    @Test
+    void importMapIcons_shouldReportInvalidRowsAndContinue() {
+      String csv = """
+          type,address,latitude,longitude
+          CASTLE,Somewhere,63.43,10.39
+          SHELTER,,,
+          SHELTER,,95,10.39
+          SHELTER,,abc,10.39
+          SHELTER,,63.43,
+          SHELTER,Kongens gate 1,63.43,10.39
+          """;
+
+      MapIconImportProgressDto result = importText(csv, Format.CSV);
+
+      assertEquals(6, result.getProcessed());
+      assertEquals(1, result.getImported());
+      assertEquals(5, result.getFailed());
+      List<MapIconImportProgressDto> errors =
+          eventsWithStatus(MapIconImportProgressDto.STATUS_ROW_ERROR);
+      assertEquals(List.of(1L, 2L, 3L, 4L, 5L),
+          errors.stream().map(MapIconImportProgressDto::getRow).toList());
+      assertEquals("Unknown type: CASTLE", errors.get(0).getMessage());
+      assertEquals("Either coordinates or address must be provided.", errors.get(1).getMessage());
+      assertEquals("Latitude must be between -90 and 90", errors.get(2).getMessage());
+    }
+
+    @Test
+    void importMapIcons_shouldParseQuotedFields() {
+      String csv = "type,address,description\r\n"
+          + "SHELTER,\"Kongens gate 1, Trondheim\",\"Room for 200\r\n\"\"people\"\"\"\r\n";
+
+      importText(csv, Format.CSV);
+
+      MapIcon icon = imported().get(0);
+      assertEquals("Kongens gate 1, Trondheim", icon.getAddress());
+      assertEquals("Room for 200\r\n\"people\"", icon.getDescription());
+    }
+
+    @Test
+    void importMapIcons_shouldRejectTooLongRowAndContinue() {
+      String csv = "type,address,description\n"
+          + "SHELTER,A,\"" + "x".repeat(10000) + "\n,still quoted\"\n"
+          + "SHELTER,B,\n";
+
+      MapIconImportProgressDto result = importText(csv, Format.CSV);
+
+      assertEquals(MapIconImportProgressDto.STATUS_DONE, result.getStatus());
+      assertEquals(2, result.getProcessed());
+      assertEquals(1, result.getFailed());
+      MapIconImportProgressDto error =
+          eventsWithStatus(MapIconImportProgressDto.STATUS_ROW_ERROR).get(0);
+      assertEquals(1L, error.getRow());
+      assertEquals("Row must be at most 8192 characters", error.getMessage());
+      assertEquals("B", imported().get(0).getAddress());
+    }
+
+    @Test
+    void importMapIcons_shouldFail_whenHeaderHasNoTypeColumn() {
+      MapIconImportProgressDto result = importText("address\nTorget\n", Format.CSV);
+
+      assertEquals(MapIconImportProgressDto.STATUS_FAILED, result.getStatus());
+      assertEquals("CSV header must contain a type column", result.getMessage());
+      verify(mapIconService, never()).invalidateIndexes();
+    }
+
+    @Test
+    void importMapIcons_shouldRejectChunk_whenDatabaseFails() {
+      doAnswer(invocation -> {
+        throw new DataAccessResourceFailureException("Connection lost");
+      }).doAnswer(invocation -> {
+        chunks.add(new ArrayList<>(invocation.<Collection<MapIcon>>getArgument(1)));
+        return new int[0][];
+      }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(),
+          any(ParameterizedPreparedStatementSetter.class));
+      String csv = """
+          type,address
+          SHELTER,A
+          SHELTER,B
+          SHELTER,C
+          """;
+
+      MapIconImportProgressDto result = importText(csv, Format.CSV);
+
+      assertEquals(MapIconImportProgressDto.STATUS_DONE, result.getStatus());
+      assertEquals(1, result.getImported());
+      assertEquals(2, result.getFailed());
+      assertEquals("C", imported().get(0).getAddress());
+    }
+  }
+
+  /**
+   * Test cases for GeoJSON imports.
+   */
+  @Nested
+  class GeoJsonImportTests {
+
+    @Test
+    void importMapIcons_shouldReadPointFeatures() {
+      String geoJson = """
+          {
+            "type": "FeatureCollection",
+            "name": "shelters",
+            "crs": {"type": "name", "properties": {"name": "EPSG:4326"}},
+            "features": [
+              {"type": "Feature",
+               "geometry": {"type": "Point", "coordinates": [10.39, 63.43]},
+               "properties": {"type": "SHELTER", "address": "Kongens gate 1",
+                              "description": "Public shelter", "capacity": 200}},
+              {"type": "Feature",
+               "geometry": {"type": "LineString", "coordinates": [[10.0, 63.0], [11.0, 64.0]]},
+               "properties": {"type": "SHELTER"}},
+              {"type": "Feature", "geometry": null,
+               "properties": {"type": "HOSPITAL", "address": "Prinsens gate 10"}}
+            ]
+          }
+          """;
+
+      MapIconImportProgressDto result = importText(geoJson, Format.GEOJSON);
+
+      assertEquals(MapIconImportProgressDto.STATUS_DONE, result.getStatus());
+      assertEquals(3, result.getProcessed());
+      assertEquals(2, result.getImported());
+      MapIcon shelter = imported().get(0);
+      assertEquals(63.43, shelter.getLatitude());
+      assertEquals(10.39, shelter.getLongitude());
+      assertEquals("Public shelter", shelter.getDescription());
+      assertEquals(2L,
+          eventsWithStatus(MapIconImportProgressDto.STATUS_ROW_ERROR).get(0).getRow());
+    }
+
+    @Test
+    void importMapIcons_shouldReportNonObjectFeaturesAndContinue() {
+      String geoJson = """
+          {"type": "FeatureCollection", "features": [
+            42,
+            [{"type": "SHELTER"}],
+            {"geometry": {"type": "Point", "coordinates": [10.39, 63.43]},
+             "properties": {"type": "SHELTER"}}
+          ]}
+          """;
+
+      MapIconImportProgressDto result = importText(geoJson, Format.GEOJSON);
+
+      assertEquals(MapIconImportProgressDto.STATUS_DONE, result.getStatus());
+      assertEquals(3, result.getProcessed());
+      assertEquals(1, result.getImported());
+      assertEquals(2, result.getFailed());
+      List<MapIconImportProgressDto> errors =
+          eventsWithStatus(MapIconImportProgressDto.STATUS_ROW_ERROR);
+      assertEquals(List.of(1L, 2L),
+          errors.stream().map(MapIconImportProgressDto::getRow).toList());
+      assertEquals("Feature must be an object", errors.get(0).getMessage());
+    }
+
+    @Test
+    void importMapIcons_shouldKeepRowsBeforeMalformedJson() {
+      String geoJson = """
+          {"type": "FeatureCollection", "features": [
+            {"geometry": {"type": "Point", "coordinates": [10.39, 63.43]},
+             "properties": {"type": "SHELTER"}},
+            {"geometry": {"type": "Point", "coordinates": [10.39,
+          """;
+
+      MapIconImportProgressDto result = importText(geoJson, Format.GEOJSON);
+
+      assertEquals(MapIconImportProgressDto.STATUS_FAILED, result.getStatus());
+      assertEquals(1, result.getImported());
+      assertEquals(1, imported().size());
+      verify(mapIconService).invalidateIndexes();
+    }
+
+    @Test
+    void importMapIcons_shouldFail_whenDocumentIsNotAnObject() {
+      MapIconImportProgressDto result = importText("[]", Format.GEOJSON);
+
+      assertEquals(MapIconImportProgressDto.STATUS_FAILED, result.getStatus());
+      assertTrue(chunks.isEmpty());
+    }
+  }
+
+  /**
+   * Test cases for streaming progress and parsing formats.
+   */
+  @Nested
+  class ProgressTests {
+
+    @Test
+    void importMapIcons_shouldWriteOneJsonLinePerEvent() throws Exception {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      String csv = "type,address\nSHELTER,A\nCASTLE,B\n";
+
+      importService.importMapIcons(
+          new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), Format.CSV, output);
+
+      String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+      ObjectMapper objectMapper = new ObjectMapper();
+      assertEquals(3, lines.length);
+      assertEquals("ROW_ERROR", objectMapper.readTree(lines[0]).get("status").asText());
+      JsonNode last = objectMapper.readTree(lines[2]);
+      assertEquals("DONE", last.get("status").asText());
+      assertEquals(1, last.get("imported").asInt());
+      assertTrue(last.path("row").isMissingNode());
+    }
+
+    @Test
+    void parse_shouldIgnoreCase() {
+      assertEquals(Format.GEOJSON, Format.parse("GeoJson"));
+      assertEquals(Format.CSV, Format.parse(" csv "));
+      assertThrows(IllegalArgumentException.class, () -> Format.parse("xml"));
+      assertThrows(IllegalArgumentException.class, () -> Format.parse(null));
+    }
+  }
+}
@@ -7,26 +7,39 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconChangesResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconClusterResponseDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconRequestDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.mapicon.MapIconResponseDto;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIconRevision;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIconTombstone;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon.MapIconRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon.MapIconRevisionRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.mapicon.MapIconTombstoneRepository;
+import edu.ntnu.idatt2106.krisefikser.service.geocoding.GeoCoordinates;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconClusterIndex;
 import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconService;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 
 /**
  * Unit tests for the MapIconService class.
@@ -36,6 +49,12 @@ class MapIconServiceTest {
   @Mock
   private MapIconRepository mapIconRepository;
 
+  @Mock
+  private MapIconRevisionRepository mapIconRevisionRepository;
+
+  @Mock
+  private MapIconTombstoneRepository mapIconTombstoneRepository;
+
   @InjectMocks
   private MapIconService mapIconService;
 
@@ -164,6 +183,7 @@ class MapIconServiceTest {
     void getMapIcons_shouldReturnOnlyNearbyMatches() {
 
       MapIcon near = new MapIcon();
+      near.setId(1L);
       near.setLatitude(63.42);
       near.setLongitude(10.39);
       near.setDescription("nearby");
@@ -171,6 +191,7 @@ class MapIconServiceTest {
       icons.add(near);
 
       MapIcon far = new MapIcon();
+      far.setId(2L);
       far.setLatitude(50.0);
       far.setLongitude(8.0);
       far.setDescription("far away");
@@ -184,6 +205,489 @@ class MapIconServiceTest {
     }
   }
 
+  /**
+   * Test cases for keeping the spatial index in sync with writes.
+   */
+  @Nested
+  class SpatialIndexTests {
+
+    private MapIconRequestDto createRequest(double latitude, double longitude) {
+      MapIconRequestDto request = new MapIconRequestDto();
+      request.setType(MapIconType.SHELTER);
+      request.setLatitude(latitude);
+      request.setLongitude(longitude);
+      return request;
+    }
+
+    @Test
+    void getMapIcons_shouldLoadIndexOnlyOnce() {
+      when(mapIconRepository.findAll()).thenReturn(new ArrayList<>());
+
+      mapIconService.getMapIcons(63.42, 10.39, 10, null);
+      mapIconService.getMapIcons(63.42, 10.39, 10, null);
+
+      verify(mapIconRepository, times(1)).findAll();
+    }
+
+    @Test
+    void createMapIcon_shouldBeVisibleWithoutReloadingIndex() {
+      when(mapIconRepository.findAll()).thenReturn(new ArrayList<>());
+      when(mapIconRepository.save(any(MapIcon.class))).thenAnswer(invocation -> {
+        MapIcon saved = invocation.getArgument(0);
+        saved.setId(5L);
+        return saved;
+      });
+      mapIconService.getMapIcons(63.42, 10.39, 10, null);
+
+      mapIconService.createMapIcon(createRequest(63.42, 10.39));
+      List<MapIconResponseDto> result = mapIconService.getMapIcons(63.42, 10.39, 10, null);
+
+      assertEquals(1, result.size());
+      assertEquals(5L, result.get(0).getId());
+      verify(mapIconRepository, times(1)).findAll();
+    }
+
+    @Test
+    void updateMapIcon_shouldMoveIconInIndex() {
+      MapIcon existing = new MapIcon();
+      existing.setId(1L);
+      existing.setType(MapIconType.SHELTER);
+      existing.setLatitude(63.42);
+      existing.setLongitude(10.39);
+      when(mapIconRepository.findAll()).thenReturn(new ArrayList<>(List.of(existing)));
+      mapIconService.getMapIcons(63.42, 10.39, 10, null);
+
+      MapIcon loaded = new MapIcon();
+      loaded.setId(1L);
+      when(mapIconRepository.findById(1L)).thenReturn(Optional.of(loaded));
+      mapIconService.updateMapIcon(1L, createRequest(59.91, 10.75));
+
+      assertTrue(mapIconService.getMapIcons(63.42, 10.39, 10, null).isEmpty());
+      assertEquals(1, mapIconService.getMapIcons(59.91, 10.75, 10, null).size());
+    }
+
+    @Test
+    void deleteMapIcon_shouldRemoveIconFromIndex() {
+      MapIcon existing = new MapIcon();
+      existing.setId(1L);
+      existing.setType(MapIconType.SHELTER);
+      existing.setLatitude(63.42);
+      existing.setLongitude(10.39);
+      when(mapIconRepository.findAll()).thenReturn(new ArrayList<>(List.of(existing)));
+      when(mapIconRepository.existsById(1L)).thenReturn(true);
+      mapIconService.getMapIcons(63.42, 10.39, 10, null);
+
+      mapIconService.deleteMapIcon(1L);
+
+      assertTrue(mapIconService.getMapIcons(63.42, 10.39, 10, null).isEmpty());
+    }
+  }
+
+  /**
+   * Test cases for text search combined with the radius filter.
+   */
+  @Nested
+  class TextSearchTests {
+
+    private MapIcon createIcon(Long id, String description, String address, Double latitude,
+        Double longitude) {
+      MapIcon icon = new MapIcon();
+      icon.setId(id);
+      icon.setType(MapIconType.SHELTER);
+      icon.setDescription(description);
+      icon.setAddress(address);
+      icon.setLatitude(latitude);
+      icon.setLongitude(longitude);
+      return icon;
+    }
+
+    @Test
+    void getMapIcons_shouldRequireAllWordsAndRadius() {
+      when(mapIconRepository.findAll()).thenReturn(new ArrayList<>(List.of(
+          createIcon(1L, "Public shelter", "Kongens gate 1, Trondheim", 63.43, 10.39),
+          createIcon(2L, "Public shelter", "Karl Johans gate 5, Oslo", 59.91, 10.75),
+          createIcon(3L, "Hospital", "Prinsens gate 10, Trondheim", 63.43, 10.39),
+          createIcon(4L, "Shelter", "Trondheim", null, null))));
+
+      List<MapIconResponseDto> result =
+          mapIconService.getMapIcons(63.42, 10.39, 10, "shelter Trondheim");
+
+      assertEquals(1, result.size());
+      assertEquals(1L, result.get(0).getId());
+    }
+
+    @Test
+    void getMapIcons_shouldFilterTextWithinLargeRadius() {
+      List<MapIcon> icons = new ArrayList<>();
+      for (long i = 1; i <= 20; i++) {
+        icons.add(createIcon(i, "Food station", "Trondheim", 63.42, 10.39));
+      }
+      icons.add(createIcon(21L, "Shelter", "Trondheim", 63.42, 10.39));
+      when(mapIconRepository.findAll()).thenReturn(icons);
+
+      List<MapIconResponseDto> result = mapIconService.getMapIcons(63.42, 10.39, 10, "food");
+
+      assertEquals(20, result.size());
+    }
+
+    @Test
+    void updateMapIcon_shouldReplaceSearchableText() {
+      when(mapIconRepository.findAll()).thenReturn(new ArrayList<>(List.of(
+          createIcon(1L, "Public shelter", null, 63.42, 10.39))));
+      mapIconService.getMapIcons(63.42, 10.39, 10, null);
+
+      MapIcon loaded = createIcon(1L, "Public shelter", null, 63.42, 10.39);
+      when(mapIconRepository.findById(1L)).thenReturn(Optional.of(loaded));
+      MapIconRequestDto request = new MapIconRequestDto();
+      request.setType(MapIconType.FOODSTATION);
+      request.setDescription("Food distribution");
+      request.setLatitude(63.42);
+      request.setLongitude(10.39);
+      mapIconService.updateMapIcon(1L, request);
+
+      assertTrue(mapIconService.getMapIcons(63.42, 10.39, 10, "shelter").isEmpty());
+      assertEquals(1, mapIconService.getMapIcons(63.42, 10.39, 10, "food").size());
+    }
+
+    @Test
+    void deleteMapIcon_shouldRemoveIconFromSearch() {
+      when(mapIconRepository.findAll()).thenReturn(new ArrayList<>(List.of(
+          createIcon(1L, "Public shelter", null, 63.42, 10.39))));
+      when(mapIconRepository.existsById(1L)).thenReturn(true);
+      mapIconService.getMapIcons(63.42, 10.39, 10, null);
+
+      mapIconService.deleteMapIcon(1L);
+
+      assertTrue(mapIconService.getMapIcons(63.42, 10.39, 10, "shelter").isEmpty());
+    }
+  }
+
+  /**
+   * Test cases for revisions and the getChanges method.
+   */
+  @Nested
+  class RevisionTests {
+
+    private MapIcon createIcon(Long id, long revision) {
+      MapIcon icon = new MapIcon();
+      icon.setId(id);
+      icon.setType(MapIconType.SHELTER);
+      icon.setLatitude(63.42);
+      icon.setLongitude(10.39);
+      icon.setRevision(revision);
+      return icon;
+    }
+
+    @Test
+    void createMapIcon_shouldTakeNextRevision() {
+      when(mapIconRevisionRepository.findByIdForUpdate(MapIconRevision.COUNTER_ID))
+          .thenReturn(Optional.of(new MapIconRevision(MapIconRevision.COUNTER_ID, 4)));
+      MapIconRequestDto request = new MapIconRequestDto();
+      request.setType(MapIconType.SHELTER);
+      request.setLatitude(63.42);
+      request.setLongitude(10.39);
+
+      mapIconService.createMapIcon(request);
+
+      ArgumentCaptor<MapIcon> saved = ArgumentCaptor.forClass(MapIcon.class);
+      verify(mapIconRepository).save(saved.capture());
+      assertEquals(5, saved.getValue().getRevision());
+      ArgumentCaptor<MapIconRevision> counter = ArgumentCaptor.forClass(MapIconRevision.class);
+      verify(mapIconRevisionRepository).save(counter.capture());
+      assertEquals(5, counter.getValue().getCurrentRevision());
+    }
+
+    @Test
+    void updateMapIcon_shouldStartCounter_whenMissing() {
+      when(mapIconRepository.findById(1L)).thenReturn(Optional.of(createIcon(1L, 0)));
+      MapIconRequestDto request = new MapIconRequestDto();
+      request.setType(MapIconType.SHELTER);
+      request.setLatitude(63.42);
+      request.setLongitude(10.39);
+
+      mapIconService.updateMapIcon(1L, request);
+
+      ArgumentCaptor<MapIcon> saved = ArgumentCaptor.forClass(MapIcon.class);
+      verify(mapIconRepository).save(saved.capture());
+      assertEquals(1, saved.getValue().getRevision());
+    }
+
+    @Test
+    void deleteMapIcon_shouldLeaveTombstone() {
+      when(mapIconRepository.existsById(3L)).thenReturn(true);
+      when(mapIconRevisionRepository.findByIdForUpdate(MapIconRevision.COUNTER_ID))
+          .thenReturn(Optional.of(new MapIconRevision(MapIconRevision.COUNTER_ID, 8)));
+
+      mapIconService.deleteMapIcon(3L);
+
+      ArgumentCaptor<MapIconTombstone> tombstone = ArgumentCaptor.forClass(MapIconTombstone.class);
+      verify(mapIconTombstoneRepository).save(tombstone.capture());
+      assertEquals(3L, tombstone.getValue().getMapIconId());
+      assertEquals(9, tombstone.getValue().getRevision());
+    }
+
+    @Test
+    void getChanges_shouldReturnChangesUpToCurrentRevision() {
+      when(mapIconRevisionRepository.findById(MapIconRevision.COUNTER_ID))
+          .thenReturn(Optional.of(new MapIconRevision(MapIconRevision.COUNTER_ID, 6)));
+      when(mapIconRepository.findByRevisionBetweenOrderByRevisionAsc(3, 6))
+          .thenReturn(List.of(createIcon(1L, 4), createIcon(2L, 6)));
+      when(mapIconTombstoneRepository.findByRevisionBetweenOrderByRevisionAsc(3, 6))
+          .thenReturn(List.of(new MapIconTombstone(5L, 5)));
+
+      MapIconChangesResponseDto changes = mapIconService.getChanges(2);
+
+      assertEquals(6, changes.getRevision());
+      assertEquals(List.of(1L, 2L),
+          changes.getUpdated().stream().map(MapIconResponseDto::getId).toList());
+      assertEquals(6, changes.getUpdated().get(1).getRevision());
+      assertEquals(List.of(5L), changes.getDeleted());
+    }
+
+    @Test
+    void getChanges_shouldReturnNothing_whenClientIsUpToDate() {
+      when(mapIconRevisionRepository.findById(MapIconRevision.COUNTER_ID))
+          .thenReturn(Optional.of(new MapIconRevision(MapIconRevision.COUNTER_ID, 6)));
+
+      MapIconChangesResponseDto changes = mapIconService.getChanges(6);
+
+      assertEquals(6, changes.getRevision());
+      assertTrue(changes.getUpdated().isEmpty());
+      assertTrue(changes.getDeleted().isEmpty());
+      verifyNoInteractions(mapIconRepository, mapIconTombstoneRepository);
+    }
+
+    @Test
+    void getChanges_shouldFail_whenRevisionIsOutOfRange() {
+      when(mapIconRevisionRepository.findById(MapIconRevision.COUNTER_ID))
+          .thenReturn(Optional.of(new MapIconRevision(MapIconRevision.COUNTER_ID, 6)));
+
+      assertThrows(IllegalArgumentException.class, () -> mapIconService.getChanges(7));
+      assertThrows(IllegalArgumentException.class, () -> mapIconService.getChanges(-1));
+    }
+
+    @Test
+    void locateMapIcons_shouldSetCoordinatesAndRevisions() {
+      MapIcon first = createIcon(1L, 2);
+      first.setLatitude(null);
+      first.setLongitude(null);
+      first.setAddress("Kongens gate 1");
+      MapIcon moved = createIcon(2L, 3);
+      moved.setLatitude(null);
+      moved.setLongitude(null);
+      moved.setAddress("Prinsens gate 10");
+      MapIcon second = createIcon(3L, 4);
+      second.setLatitude(null);
+      second.setLongitude(null);
+      second.setAddress("Kongens gate 1");
+      when(mapIconRepository.findAllById(List.of(1L, 2L, 3L)))
+          .thenReturn(List.of(first, moved, second));
+      when(mapIconRevisionRepository.findByIdForUpdate(MapIconRevision.COUNTER_ID))
+          .thenReturn(Optional.of(new MapIconRevision(MapIconRevision.COUNTER_ID, 10)));
+
+      int located = mapIconService.locateMapIcons(List.of(1L, 2L, 3L),
+          Map.of("Kongens gate 1", new GeoCoordinates(63.43, 10.39)));
+
+      assertEquals(2, located);
+      assertEquals(63.43, first.getLatitude());
+      assertEquals(10.39, second.getLongitude());
+      assertEquals(11, first.getRevision());
+      assertEquals(12, second.getRevision());
+      assertNull(moved.getLatitude());
+      verify(mapIconRepository).saveAll(List.of(first, second));
+    }
+
+    @Test
+    void locateMapIcons_shouldDoNothing_whenNoAddressIsResolved() {
+      MapIcon icon = createIcon(1L, 2);
+      icon.setLatitude(null);
+      icon.setAddress("Kongens gate 1");
+      when(mapIconRepository.findAllById(List.of(1L))).thenReturn(List.of(icon));
+
+      assertEquals(0, mapIconService.locateMapIcons(List.of(1L), Map.of()));
+      verifyNoInteractions(mapIconRevisionRepository);
+    }
+
+    @Test
+    void getCurrentRevision_shouldBeZero_whenCounterIsMissing() {
+      assertEquals(0, mapIconService.getCurrentRevision());
+    }
+  }
+
+  /**
+   * Test cases for the getMapIconClusters method.
+   */
+  @Nested
+  class GetMapIconClustersTests {
+
+    private List<MapIcon> createIcons() {
+      List<MapIcon> icons = new ArrayList<>();
+      for (long i = 1; i <= 3; i++) {
+        MapIcon icon = new MapIcon();
+        icon.setId(i);
+        icon.setType(MapIconType.SHELTER);
+        icon.setLatitude(63.42 + i * 0.001);
+        icon.setLongitude(10.39);
+        icons.add(icon);
+      }
+      return icons;
+    }
+
+    @Test
+    void getMapIconClusters_shouldAggregateIcons_whenZoomedOut() {
+      when(mapIconRepository.findAll()).thenReturn(createIcons());
+
+      List<MapIconClusterResponseDto> result = mapIconService.getMapIconClusters(57, 4, 72, 32, 5);
+
+      assertEquals(1, result.size());
+      assertEquals(3, result.get(0).getCount());
+      assertEquals(3, result.get(0).getTypeCounts().get(MapIconType.SHELTER));
+    }
+
+    @Test
+    void getMapIconClusters_shouldReturnSingleIcons_aboveMaxClusterZoom() {
+      when(mapIconRepository.findAll()).thenReturn(createIcons());
+
+      List<MapIconClusterResponseDto> result = mapIconService.getMapIconClusters(63, 10, 64, 11,
+          MapIconClusterIndex.MAX_CLUSTER_ZOOM + 4);
+
+      assertEquals(3, result.size());
+      assertTrue(result.stream().allMatch(cluster -> cluster.getCount() == 1));
+    }
+
+    @Test
+    void getMapIconClusters_shouldReflectCreatedIcon() {
+      when(mapIconRepository.findAll()).thenReturn(createIcons());
+      when(mapIconRepository.save(any(MapIcon.class))).thenAnswer(invocation -> {
+        MapIcon saved = invocation.getArgument(0);
+        saved.setId(10L);
+        return saved;
+      });
+      mapIconService.getMapIconClusters(57, 4, 72, 32, 5);
+
+      MapIconRequestDto request = new MapIconRequestDto();
+      request.setType(MapIconType.HOSPITAL);
+      request.setLatitude(63.43);
+      request.setLongitude(10.40);
+      mapIconService.createMapIcon(request);
+
+      List<MapIconClusterResponseDto> result = mapIconService.getMapIconClusters(57, 4, 72, 32, 5);
+      assertEquals(4, result.get(0).getCount());
+      assertEquals(1, result.get(0).getTypeCounts().get(MapIconType.HOSPITAL));
+      verify(mapIconRepository, times(1)).findAll();
+    }
+
+    @Test
+    void getMapIconClusters_shouldFail_whenBoxIsInvalid() {
+      assertThrows(IllegalArgumentException.class,
+          () -> mapIconService.getMapIconClusters(64, 4, 63, 32, 5));
+      assertThrows(IllegalArgumentException.class,
+          () -> mapIconService.getMapIconClusters(57, -200, 72, 32, 5));
+      assertThrows(IllegalArgumentException.class,
+          () -> mapIconService.getMapIconClusters(57, 4, 72, 32, -1));
+      verifyNoInteractions(mapIconRepository);
+    }
+  }
+
+  /**
+   * Test cases for the bounding box queries used when the in-memory index is disabled.
+   */
+  @Nested
+  class DatabaseSearchTests {
+
+    private final List<MapIcon> stored = new ArrayList<>();
+
+    @BeforeEach
+    void useDatabase() {
+      ReflectionTestUtils.setField(mapIconService, "inMemoryIndex", false);
+      when(mapIconRepository.findInBoundingBox(anyDouble(), anyDouble(), anyDouble(),
+          anyDouble())).thenAnswer(invocation -> inBox(null, invocation.getArgument(0),
+          invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+      when(mapIconRepository.findByTypeInBoundingBox(any(MapIconType.class), anyDouble(),
+          anyDouble(), anyDouble(), anyDouble())).thenAnswer(invocation -> inBox(
+          invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2),
+          invocation.getArgument(3), invocation.getArgument(4)));
+    }
+
+    private List<MapIcon> inBox(MapIconType type, double minLat, double maxLat, double minLon,
+        double maxLon) {
+      return stored.stream()
+          .filter(icon -> type == null || icon.getType() == type)
+          .filter(icon -> icon.getLatitude() >= minLat && icon.getLatitude() <= maxLat)
+          .filter(icon -> icon.getLongitude() >= minLon && icon.getLongitude() <= maxLon)
+          .toList();
+    }
+
+    private void store(Long id, MapIconType type, String description, double latitude,
+        double longitude) {
+      MapIcon icon = new MapIcon();
+      icon.setId(id);
+      icon.setType(type);
+      icon.setDescription(description);
+      icon.setLatitude(latitude);
+      icon.setLongitude(longitude);
+      stored.add(icon);
+    }
+
+    @Test
+    void getMapIcons_shouldQueryBoundingBoxAndFilterExactly() {
+      store(1L, MapIconType.SHELTER, "Public shelter", 63.42, 10.39);
+      // Inside the bounding box of a 10 km circle, but outside the circle
+      store(2L, MapIconType.SHELTER, "Public shelter", 63.48, 10.58);
+      store(3L, MapIconType.HOSPITAL, "Hospital", 63.43, 10.40);
+
+      List<MapIconResponseDto> result = mapIconService.getMapIcons(63.42, 10.39, 10, "shelter");
+
+      assertEquals(1, result.size());
+      assertEquals(1L, result.get(0).getId());
+      verify(mapIconRepository).findInBoundingBox(anyDouble(), anyDouble(), anyDouble(),
+          anyDouble());
+      verify(mapIconRepository, times(0)).findAll();
+    }
+
+    @Test
+    void getMapIcons_shouldSplitBoxAcrossAntimeridian() {
+      store(1L, MapIconType.SHELTER, null, 0.0, 179.99);
+      store(2L, MapIconType.SHELTER, null, 0.0, -179.99);
+
+      List<MapIconResponseDto> result = mapIconService.getMapIcons(0.0, 179.999, 5, null);
+
+      assertEquals(2, result.size());
+      verify(mapIconRepository, times(2)).findInBoundingBox(anyDouble(), anyDouble(), anyDouble(),
+          anyDouble());
+    }
+
+    @Test
+    void findNearestMapIcons_shouldExpandBoxUntilEnoughIconsFound() {
+      store(1L, MapIconType.SHELTER, null, 63.42, 10.39);
+      store(2L, MapIconType.SHELTER, null, 59.91, 10.75);
+      store(3L, MapIconType.HOSPITAL, null, 63.43, 10.40);
+
+      List<MapIconResponseDto> result =
+          mapIconService.findNearestMapIcons(63.42, 10.39, 2, MapIconType.SHELTER);
+
+      assertEquals(List.of(1L, 2L), result.stream().map(MapIconResponseDto::getId).toList());
+      verify(mapIconRepository, times(4)).findByTypeInBoundingBox(any(MapIconType.class),
+          anyDouble(), anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void findClosestMapIcon_shouldNotStopAtIconOutsideSearchRadius() {
+      // In the corner of the first box, further away than the icon just outside it
+      store(1L, MapIconType.SHELTER, null, 63.50, 10.58);
+      store(2L, MapIconType.SHELTER, null, 63.42, 10.60);
+
+      MapIconResponseDto result = mapIconService.findClosestMapIcon(63.42, 10.39, null);
+
+      assertEquals(2L, result.getId());
+    }
+
+    @Test
+    void findClosestMapIcon_shouldReturnNull_whenDatabaseIsEmpty() {
+      assertNull(mapIconService.findClosestMapIcon(63.42, 10.39, MapIconType.SHELTER));
+    }
+  }
+
   @Nested
   class FindClosestMapIconTests {
 
@@ -225,10 +729,18 @@ class MapIconServiceTest {
       MapIcon foodStation = new MapIcon();
       foodStation.setId(1L);
       foodStation.setType(MapIconType.FOODSTATION);
-      foodStation.setLatitude(63.42);
-      foodStation.setLongitude(10.39);
+      foodStation.setLatitude(63.43);
+      foodStation.setLongitude(10.40);
+      icons.add(foodStation);
+
+      MapIcon closerShelter = new MapIcon();
+      closerShelter.setId(2L);
+      closerShelter.setType(MapIconType.SHELTER);
+      closerShelter.setLatitude(63.42);
+      closerShelter.setLongitude(10.39);
+      icons.add(closerShelter);
 
-      when(mapIconRepository.findByType(MapIconType.FOODSTATION)).thenReturn(List.of(foodStation));
+      when(mapIconRepository.findAll()).thenReturn(icons);
 
       // Act
       MapIconResponseDto result = mapIconService.findClosestMapIcon(63.42, 10.39,
@@ -237,6 +749,7 @@ class MapIconServiceTest {
       // Assert
       assertNotNull(result);
       assertEquals(MapIconType.FOODSTATION, result.getType());
+      assertEquals(1L, result.getId());
     }
 
     @Test
@@ -251,6 +764,35 @@ class MapIconServiceTest {
       assertNull(result);
     }
 
+    @Test
+    void findNearestMapIcons_shouldReturnIconsOrderedByDistance() {
+      List<MapIcon> icons = new ArrayList<>();
+      for (long i = 1; i <= 4; i++) {
+        MapIcon icon = new MapIcon();
+        icon.setId(i);
+        icon.setType(MapIconType.SHELTER);
+        icon.setLatitude(63.42 + i * 0.05);
+        icon.setLongitude(10.39);
+        icons.add(icon);
+      }
+      when(mapIconRepository.findAll()).thenReturn(icons);
+
+      List<MapIconResponseDto> result = mapIconService.findNearestMapIcons(63.42, 10.39, 3,
+          MapIconType.SHELTER);
+
+      assertEquals(List.of(1L, 2L, 3L), result.stream().map(MapIconResponseDto::getId).toList());
+    }
+
+    @Test
+    void findNearestMapIcons_shouldFail_whenKIsOutOfRange() {
+      assertThrows(IllegalArgumentException.class,
+          () -> mapIconService.findNearestMapIcons(63.42, 10.39, 0, null));
+      assertThrows(IllegalArgumentException.class,
+          () -> mapIconService.findNearestMapIcons(63.42, 10.39, MapIconService.MAX_NEAREST + 1,
+              null));
+      verifyNoInteractions(mapIconRepository);
+    }
+
     @Test
     void calculateDistance_shouldReturnCorrectDistance() {
       // Arrange
@@ -472,23 +1014,13 @@ class MapIconServiceTest {
     void getMapIcons_shouldFilterByRadius() {
       // Arrange
       MapIcon icon = createIcon("Hospital", "123 Main St", "555-1234");
+      // About 20 km north of the search point
+      icon.setLatitude(0.18);
       List<MapIcon> icons = List.of(icon);
       when(mapIconRepository.findAll()).thenReturn(icons);
 
-      // Create a spy that properly intercepts the isWithinRadius method call
-      MapIconService spyService = org.mockito.Mockito.spy(mapIconService);
-
-      // Use PowerMockito to mock the private method
-      // Since we can't do that directly, we mock calculateDistance with a large value
-      // The key is to make sure we're mocking all possible calls to calculateDistance
-      org.mockito.Mockito.doReturn(20.0).when(spyService).calculateDistance(
-          org.mockito.ArgumentMatchers.eq(0.0),
-          org.mockito.ArgumentMatchers.eq(0.0),
-          org.mockito.ArgumentMatchers.eq(0.0),
-          org.mockito.ArgumentMatchers.eq(0.0));
-
       // Act
-      List<MapIconResponseDto> result = spyService.getMapIcons(0.0, 0.0, 10.0, null);
+      List<MapIconResponseDto> result = mapIconService.getMapIcons(0.0, 0.0, 10.0, null);
 
       // Assert
       assertEquals(0, result.size());
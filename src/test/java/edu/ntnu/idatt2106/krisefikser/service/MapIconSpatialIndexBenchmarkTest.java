@@ -0,0 +1,182 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.GeoDistance;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconSpatialIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Benchmark comparing radius and nearest-neighbour lookups through the spatial index with a full
+ * scan over all icons, and the precomputed distance kernel with per-icon haversine filtering.
+ *
+ * <p>Skipped by default. Run with {@code mvn test -Dtest=MapIconSpatialIndexBenchmarkTest
+ * -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MapIconSpatialIndexBenchmarkTest {
+
+  private static final int WARMUP_QUERIES = 200;
+  private static final int MEASURED_QUERIES = 1000;
+  private static final double RADIUS_KM = 10;
+
+  private final Random random = new Random(42);
+
+  @ParameterizedTest
+  @ValueSource(ints = {10_000, 100_000, 1_000_000})
+  void compareIndexWithFullScan(int iconCount) {
+    List<MapIcon> icons = createIcons(iconCount);
+    MapIconSpatialIndex index = new MapIconSpatialIndex();
+    index.load(icons, index.getModificationCount());
+    double[][] queries = createQueries();
+
+    for (int i = 0; i < WARMUP_QUERIES; i++) {
+      assertEquals(fullScan(icons, queries[i]), indexed(index, queries[i]));
+    }
+
+    long start = System.nanoTime();
+    long fullScanMatches = 0;
+    for (int i = WARMUP_QUERIES; i < queries.length; i++) {
+      fullScanMatches += fullScan(icons, queries[i]);
+    }
+    long fullScanNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    long indexedMatches = 0;
+    for (int i = WARMUP_QUERIES; i < queries.length; i++) {
+      indexedMatches += indexed(index, queries[i]);
+    }
+    long indexedNanos = System.nanoTime() - start;
+
+    assertEquals(fullScanMatches, indexedMatches);
+    System.out.printf("%,9d icons: full scan %8.3f ms/query, spatial index %8.3f ms/query%n",
+        iconCount, fullScanNanos / 1e6 / MEASURED_QUERIES, indexedNanos / 1e6 / MEASURED_QUERIES);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {10_000, 100_000, 1_000_000})
+  void compareDistanceKernelWithHaversineFilter(int iconCount) {
+    List<MapIcon> icons = createIcons(iconCount);
+    MapIconSpatialIndex index = new MapIconSpatialIndex();
+    index.load(icons, index.getModificationCount());
+    double[][] queries = createQueries();
+
+    for (int i = 0; i < WARMUP_QUERIES; i++) {
+      assertEquals(indexed(index, queries[i]),
+          index.findWithinRadius(queries[i][0], queries[i][1], RADIUS_KM).size());
+    }
+
+    long start = System.nanoTime();
+    long filteredMatches = 0;
+    for (int i = WARMUP_QUERIES; i < queries.length; i++) {
+      filteredMatches += indexed(index, queries[i]);
+    }
+    long filteredNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    long kernelMatches = 0;
+    for (int i = WARMUP_QUERIES; i < queries.length; i++) {
+      kernelMatches += index.findWithinRadius(queries[i][0], queries[i][1], RADIUS_KM).size();
+    }
+    long kernelNanos = System.nanoTime() - start;
+
+    assertEquals(filteredMatches, kernelMatches);
+    System.out.printf("%,9d icons: candidates + haversine %8.3f ms/query, distance kernel %8.3f "
+            + "ms/query%n", iconCount, filteredNanos / 1e6 / MEASURED_QUERIES,
+        kernelNanos / 1e6 / MEASURED_QUERIES);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {10_000, 100_000, 1_000_000})
+  void compareNearestWithLinearScan(int iconCount) {
+    List<MapIcon> icons = createIcons(iconCount);
+    MapIconSpatialIndex index = new MapIconSpatialIndex();
+    index.load(icons, index.getModificationCount());
+    double[][] queries = createQueries();
+
+    for (int i = 0; i < WARMUP_QUERIES; i++) {
+      assertEquals(linearNearest(icons, queries[i]),
+          index.findNearest(queries[i][0], queries[i][1], 1, MapIconType.SHELTER).get(0).icon());
+    }
+
+    long start = System.nanoTime();
+    for (int i = WARMUP_QUERIES; i < queries.length; i++) {
+      linearNearest(icons, queries[i]);
+    }
+    long linearNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = WARMUP_QUERIES; i < queries.length; i++) {
+      index.findNearest(queries[i][0], queries[i][1], 5, MapIconType.SHELTER);
+    }
+    long indexedNanos = System.nanoTime() - start;
+
+    System.out.printf("%,9d icons: linear nearest %8.3f ms/query, 5 nearest shelters %8.3f "
+            + "ms/query%n", iconCount, linearNanos / 1e6 / MEASURED_QUERIES,
+        indexedNanos / 1e6 / MEASURED_QUERIES);
+  }
+
+  private List<MapIcon> createIcons(int iconCount) {
+    List<MapIcon> icons = new ArrayList<>(iconCount);
+    for (long i = 0; i < iconCount; i++) {
+      // Spread icons over mainland Norway
+      icons.add(createIcon(i, 58 + random.nextDouble() * 13, 5 + random.nextDouble() * 26));
+    }
+    return icons;
+  }
+
+  private double[][] createQueries() {
+    double[][] queries = new double[WARMUP_QUERIES + MEASURED_QUERIES][];
+    for (int i = 0; i < queries.length; i++) {
+      queries[i] = new double[] {58 + random.nextDouble() * 13, 5 + random.nextDouble() * 26};
+    }
+    return queries;
+  }
+
+  private MapIcon linearNearest(List<MapIcon> icons, double[] query) {
+    MapIcon closest = null;
+    double minDistance = Double.MAX_VALUE;
+    for (MapIcon icon : icons) {
+      if (icon.getType() != MapIconType.SHELTER) {
+        continue;
+      }
+      double distance = GeoDistance.haversineKm(query[0], query[1],
+          icon.getLatitude(), icon.getLongitude());
+      if (distance < minDistance) {
+        minDistance = distance;
+        closest = icon;
+      }
+    }
+    return closest;
+  }
+
+  private long fullScan(List<MapIcon> icons, double[] query) {
+    return icons.stream()
+        .filter(icon -> GeoDistance.haversineKm(query[0], query[1],
+            icon.getLatitude(), icon.getLongitude()) <= RADIUS_KM)
+        .count();
+  }
+
+  private long indexed(MapIconSpatialIndex index, double[] query) {
+    return index.findCandidates(query[0], query[1], RADIUS_KM).stream()
+        .filter(icon -> GeoDistance.haversineKm(query[0], query[1],
+            icon.getLatitude(), icon.getLongitude()) <= RADIUS_KM)
+        .count();
+  }
+
+  private MapIcon createIcon(long id, double latitude, double longitude) {
+    MapIcon icon = new MapIcon();
+    icon.setId(id);
+    icon.setType(MapIconType.values()[(int) (id % MapIconType.values().length)]);
+    icon.setLatitude(latitude);
+    icon.setLongitude(longitude);
+    return icon;
+  }
+}
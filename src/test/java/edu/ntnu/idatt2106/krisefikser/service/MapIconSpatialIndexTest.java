@@ -0,0 +1,323 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.MapIconType;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.GeoDistance;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconSpatialIndex;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the MapIconSpatialIndex class.
+ */
+class MapIconSpatialIndexTest {
+
+  private MapIconSpatialIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new MapIconSpatialIndex();
+  }
+
+  private MapIcon createIcon(Long id, Double latitude, Double longitude) {
+    MapIcon icon = new MapIcon();
+    icon.setId(id);
+    icon.setType(MapIconType.SHELTER);
+    icon.setLatitude(latitude);
+    icon.setLongitude(longitude);
+    return icon;
+  }
+
+  private List<Long> candidateIds(double latitude, double longitude, double radiusKm) {
+    return index.findCandidates(latitude, longitude, radiusKm).stream()
+        .map(MapIcon::getId)
+        .toList();
+  }
+
+  /**
+   * Test cases for loading the index.
+   */
+  @Nested
+  class LoadTests {
+
+    @Test
+    void load_shouldIndexIconsWithCoordinates() {
+      boolean applied = index.load(List.of(
+          createIcon(1L, 63.42, 10.39),
+          createIcon(2L, null, null)), index.getModificationCount());
+
+      assertTrue(applied);
+      assertTrue(index.isLoaded());
+      assertEquals(1, index.size());
+    }
+
+    @Test
+    void load_shouldSkipIconsWithoutId() {
+      index.load(List.of(
+          createIcon(1L, 63.42, 10.39),
+          createIcon(null, 63.42, 10.39)), index.getModificationCount());
+
+      assertEquals(List.of(1L), candidateIds(63.42, 10.39, 1));
+    }
+
+    @Test
+    void load_shouldBeRejected_whenIndexChangedDuringSnapshot() {
+      long modificationCount = index.getModificationCount();
+      index.put(createIcon(1L, 63.42, 10.39));
+
+      boolean applied = index.load(List.of(), modificationCount);
+
+      assertFalse(applied);
+      assertFalse(index.isLoaded());
+    }
+
+    @Test
+    void invalidate_shouldClearIndex() {
+      index.load(List.of(createIcon(1L, 63.42, 10.39)), index.getModificationCount());
+
+      index.invalidate();
+
+      assertFalse(index.isLoaded());
+      assertEquals(0, index.size());
+    }
+  }
+
+  /**
+   * Test cases for keeping the index in sync with writes.
+   */
+  @Nested
+  class WriteTests {
+
+    @Test
+    void put_shouldMoveIcon_whenCoordinatesChange() {
+      index.put(createIcon(1L, 63.42, 10.39));
+      index.put(createIcon(1L, 59.91, 10.75));
+
+      assertEquals(1, index.size());
+      assertTrue(candidateIds(63.42, 10.39, 5).isEmpty());
+      assertEquals(List.of(1L), candidateIds(59.91, 10.75, 5));
+    }
+
+    @Test
+    void put_shouldRemoveIcon_whenCoordinatesAreCleared() {
+      index.put(createIcon(1L, 63.42, 10.39));
+      index.put(createIcon(1L, null, null));
+
+      assertEquals(0, index.size());
+    }
+
+    @Test
+    void remove_shouldRemoveIcon() {
+      index.put(createIcon(1L, 63.42, 10.39));
+      index.put(createIcon(2L, 63.43, 10.40));
+
+      index.remove(1L);
+
+      assertEquals(List.of(2L), candidateIds(63.42, 10.39, 5));
+    }
+  }
+
+  /**
+   * Test cases for the findCandidates method.
+   */
+  @Nested
+  class FindCandidatesTests {
+
+    @Test
+    void findCandidates_shouldSkipDistantCells() {
+      index.put(createIcon(1L, 63.42, 10.39));
+      index.put(createIcon(2L, 59.91, 10.75));
+
+      assertEquals(List.of(1L), candidateIds(63.42, 10.39, 10));
+    }
+
+    @Test
+    void findCandidates_shouldIncludeIconsAcrossCellBorders() {
+      index.put(createIcon(1L, 63.4999, 10.4999));
+      index.put(createIcon(2L, 63.5001, 10.5001));
+
+      List<Long> ids = candidateIds(63.5, 10.5, 1);
+
+      assertEquals(2, ids.size());
+    }
+
+    @Test
+    void findCandidates_shouldWrapAroundAntimeridian() {
+      index.put(createIcon(1L, 0.0, 179.99));
+      index.put(createIcon(2L, 0.0, -179.99));
+
+      List<Long> ids = candidateIds(0.0, 179.999, 5);
+
+      assertEquals(2, ids.size());
+    }
+
+    @Test
+    void findCandidates_shouldCoverAllLongitudes_nearPole() {
+      index.put(createIcon(1L, 89.95, 0.0));
+      index.put(createIcon(2L, 89.95, 180.0));
+
+      List<Long> ids = candidateIds(89.99, 90.0, 20);
+
+      assertEquals(2, ids.size());
+    }
+
+    @Test
+    void findCandidates_shouldReturnAll_forHugeRadius() {
+      index.put(createIcon(1L, 63.42, 10.39));
+      index.put(createIcon(2L, -33.86, 151.21));
+
+      assertEquals(2, candidateIds(0.0, 0.0, 25000).size());
+    }
+  }
+
+  /**
+   * Test cases for the findWithinRadius method.
+   */
+  @Nested
+  class FindWithinRadiusTests {
+
+    private List<Long> withinIds(double latitude, double longitude, double radiusKm) {
+      return index.findWithinRadius(latitude, longitude, radiusKm).stream()
+          .map(MapIcon::getId)
+          .sorted()
+          .toList();
+    }
+
+    @Test
+    void findWithinRadius_shouldMatchHaversineFilter() {
+      Random random = new Random(11);
+      List<MapIcon> icons = new ArrayList<>();
+      for (long i = 0; i < 2000; i++) {
+        icons.add(createIcon(i, 58 + random.nextDouble() * 13, 5 + random.nextDouble() * 26));
+      }
+      index.load(icons, index.getModificationCount());
+
+      for (int query = 0; query < 50; query++) {
+        double latitude = 58 + random.nextDouble() * 13;
+        double longitude = 5 + random.nextDouble() * 26;
+        double radiusKm = 5 + random.nextDouble() * 100;
+        List<Long> expected = icons.stream()
+            .filter(icon -> GeoDistance.haversineKm(latitude, longitude, icon.getLatitude(),
+                icon.getLongitude()) <= radiusKm)
+            .map(MapIcon::getId)
+            .sorted()
+            .toList();
+
+        assertEquals(expected, withinIds(latitude, longitude, radiusKm));
+      }
+    }
+
+    @Test
+    void findWithinRadius_shouldExcludeCandidatesOutsideCircle() {
+      // Inside the bounding box of a 10 km circle, but about 12 km away diagonally
+      index.put(createIcon(1L, 63.42 + 0.08, 10.39 + 0.17));
+      index.put(createIcon(2L, 63.42, 10.39));
+
+      assertEquals(2, candidateIds(63.42, 10.39, 10).size());
+      assertEquals(List.of(2L), withinIds(63.42, 10.39, 10));
+    }
+
+    @Test
+    void findWithinRadius_shouldWrapAroundAntimeridian() {
+      index.put(createIcon(1L, 0.0, 179.99));
+      index.put(createIcon(2L, 0.0, -179.99));
+
+      assertEquals(List.of(1L, 2L), withinIds(0.0, 179.999, 5));
+    }
+
+    @Test
+    void findWithinRadius_shouldReturnAll_forHugeRadius() {
+      index.put(createIcon(1L, 63.42, 10.39));
+      index.put(createIcon(2L, -63.42, -169.61));
+
+      assertEquals(List.of(1L, 2L), withinIds(63.42, 10.39, 25000));
+    }
+
+    @Test
+    void findWithinRadius_shouldReturnEmpty_forNegativeRadius() {
+      index.put(createIcon(1L, 63.42, 10.39));
+
+      assertTrue(withinIds(63.42, 10.39, -1).isEmpty());
+    }
+  }
+
+  /**
+   * Test cases for the findNearest method.
+   */
+  @Nested
+  class FindNearestTests {
+
+    private List<Long> nearestIds(double latitude, double longitude, int k, MapIconType type) {
+      return index.findNearest(latitude, longitude, k, type).stream()
+          .map(neighbour -> neighbour.icon().getId())
+          .toList();
+    }
+
+    @Test
+    void findNearest_shouldMatchBruteForce() {
+      Random random = new Random(7);
+      List<MapIcon> icons = new ArrayList<>();
+      for (long i = 0; i < 2000; i++) {
+        MapIcon icon = createIcon(i, 58 + random.nextDouble() * 13, 5 + random.nextDouble() * 26);
+        icon.setType(MapIconType.values()[(int) (i % MapIconType.values().length)]);
+        icons.add(icon);
+      }
+      index.load(icons, index.getModificationCount());
+
+      for (int query = 0; query < 50; query++) {
+        double latitude = 55 + random.nextDouble() * 20;
+        double longitude = random.nextDouble() * 40;
+        MapIconType type = query % 2 == 0 ? MapIconType.SHELTER : null;
+        List<Long> expected = icons.stream()
+            .filter(icon -> type == null || icon.getType() == type)
+            .sorted(Comparator.comparingDouble(icon -> GeoDistance.haversineKm(latitude,
+                longitude, icon.getLatitude(), icon.getLongitude())))
+            .limit(5)
+            .map(MapIcon::getId)
+            .toList();
+
+        assertEquals(expected, nearestIds(latitude, longitude, 5, type));
+      }
+    }
+
+    @Test
+    void findNearest_shouldOnlyReturnRequestedType() {
+      MapIcon hospital = createIcon(1L, 63.42, 10.39);
+      hospital.setType(MapIconType.HOSPITAL);
+      index.put(hospital);
+      index.put(createIcon(2L, 63.50, 10.50));
+
+      assertEquals(List.of(2L), nearestIds(63.42, 10.39, 5, MapIconType.SHELTER));
+      assertEquals(List.of(1L, 2L), nearestIds(63.42, 10.39, 5, null));
+    }
+
+    @Test
+    void findNearest_shouldFindDistantIcon_whenGridIsSparse() {
+      index.put(createIcon(1L, -33.86, 151.21));
+
+      assertEquals(List.of(1L), nearestIds(63.42, 10.39, 1, MapIconType.SHELTER));
+    }
+
+    @Test
+    void findNearest_shouldFindIconAcrossAntimeridian() {
+      index.put(createIcon(1L, 0.0, -179.95));
+      index.put(createIcon(2L, 0.0, 178.0));
+
+      assertEquals(List.of(1L, 2L), nearestIds(0.0, 179.95, 2, null));
+    }
+
+    @Test
+    void findNearest_shouldReturnEmpty_whenIndexIsEmpty() {
+      assertTrue(index.findNearest(63.42, 10.39, 3, null).isEmpty());
+    }
+  }
+}
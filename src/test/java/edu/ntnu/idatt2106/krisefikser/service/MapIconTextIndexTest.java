@@ -0,0 +1,146 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.mapicon.MapIcon;
+import edu.ntnu.idatt2106.krisefikser.service.mapicon.MapIconTextIndex;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the MapIconTextIndex class.
+ */
+class MapIconTextIndexTest {
+
+  private MapIconTextIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new MapIconTextIndex();
+  }
+
+  private MapIcon createIcon(Long id, String description, String address, String contactInfo) {
+    MapIcon icon = new MapIcon();
+    icon.setId(id);
+    icon.setDescription(description);
+    icon.setAddress(address);
+    icon.setContactInfo(contactInfo);
+    return icon;
+  }
+
+  private List<Long> searchIds(String query) {
+    return index.search(query).stream()
+        .map(MapIcon::getId)
+        .sorted()
+        .toList();
+  }
+
+  /**
+   * Test cases for the search method.
+   */
+  @Nested
+  class SearchTests {
+
+    @BeforeEach
+    void loadIcons() {
+      index.load(List.of(
+          createIcon(1L, "Public shelter", "Kongens gate 1, Trondheim", "post@trondheim.no"),
+          createIcon(2L, "Shelter for 200 people", "Karl Johans gate 5, Oslo", null),
+          createIcon(3L, "Emergency HOSPITAL", "Prinsens gate 10, Trondheim", "73 00 00 00"),
+          createIcon(4L, null, null, null)));
+    }
+
+    @Test
+    void search_shouldMatchSubstringIgnoringCase() {
+      assertEquals(List.of(1L, 2L), searchIds("SHELT"));
+      assertEquals(List.of(3L), searchIds("hospital"));
+    }
+
+    @Test
+    void search_shouldRequireEveryWord() {
+      assertEquals(List.of(1L), searchIds("shelter Trondheim"));
+      assertEquals(List.of(1L, 3L), searchIds("  gate   trondheim "));
+    }
+
+    @Test
+    void search_shouldAllowWordsToMatchDifferentFields() {
+      assertEquals(List.of(1L), searchIds("public post@"));
+    }
+
+    @Test
+    void search_shouldNotMatchAcrossFieldBoundaries() {
+      assertTrue(searchIds("shelterkongens").isEmpty());
+    }
+
+    @Test
+    void search_shouldHandleWordsShorterThanTrigram() {
+      assertEquals(List.of(3L), searchIds("73"));
+      assertEquals(List.of(2L), searchIds("oslo 5"));
+    }
+
+    @Test
+    void search_shouldReturnEmpty_whenNothingMatches() {
+      assertTrue(searchIds("pharmacy").isEmpty());
+      assertTrue(searchIds("shelter bergen").isEmpty());
+    }
+
+    @Test
+    void search_shouldReturnEmpty_whenQueryIsBlank() {
+      assertTrue(searchIds(null).isEmpty());
+      assertTrue(searchIds("   ").isEmpty());
+    }
+  }
+
+  /**
+   * Test cases for keeping the index in sync with writes.
+   */
+  @Nested
+  class WriteTests {
+
+    @Test
+    void put_shouldReplacePreviousText() {
+      index.put(createIcon(1L, "Public shelter", null, null));
+
+      index.put(createIcon(1L, "Food station", null, null));
+
+      assertTrue(searchIds("shelter").isEmpty());
+      assertEquals(List.of(1L), searchIds("food"));
+      assertEquals(1, index.size());
+    }
+
+    @Test
+    void remove_shouldRemoveIcon() {
+      index.put(createIcon(1L, "Public shelter", null, null));
+      index.put(createIcon(2L, "Private shelter", null, null));
+
+      index.remove(1L);
+
+      assertEquals(List.of(2L), searchIds("shelter"));
+      assertEquals(1, index.size());
+    }
+
+    @Test
+    void invalidate_shouldRemoveEveryIcon() {
+      index.put(createIcon(1L, "Public shelter", null, null));
+
+      index.invalidate();
+
+      assertEquals(List.of(), searchIds("shelter"));
+      assertEquals(0, index.size());
+    }
+
+    @Test
+    void put_shouldReuseRemovedSlots() {
+      index.put(createIcon(1L, "Public shelter", null, null));
+      index.remove(1L);
+
+      index.put(createIcon(2L, "Hospital", null, null));
+
+      assertEquals(List.of(2L), searchIds("hospital"));
+      assertTrue(searchIds("shelter").isEmpty());
+    }
+  }
+}
@@ -0,0 +1,251 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationCoalescer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for the NotificationCoalescer class.
+ */
+class NotificationCoalescerTest {
+
+  private NotificationCoalescer coalescer;
+  private List<List<String>> delivered;
+
+  @BeforeEach
+  void setUp() {
+    coalescer = new NotificationCoalescer();
+    delivered = new CopyOnWriteArrayList<>();
+  }
+
+  private void submit(String key, String item, boolean sendFirst) {
+    coalescer.submit(key, item, sendFirst, delivered::add);
+  }
+
+  private static void commit() {
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    synchronizations.forEach(TransactionSynchronization::afterCommit);
+    synchronizations.forEach(synchronization -> synchronization.afterCompletion(
+        TransactionSynchronization.STATUS_COMMITTED));
+  }
+
+  private static void rollBack() {
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.afterCompletion(
+            TransactionSynchronization.STATUS_ROLLED_BACK));
+  }
+
+  /**
+   * Test cases for the submit method.
+   */
+  @Nested
+  class SubmitTests {
+
+    @Test
+    void submit_shouldSendFirstRightAway_andHoldBackTheRest() {
+      submit("incident:1", "a", true);
+      submit("incident:1", "b", true);
+      submit("incident:1", "c", true);
+
+      assertEquals(List.of(List.of("a")), delivered);
+      assertEquals(1, coalescer.size());
+    }
+
+    @Test
+    void submit_shouldHoldBackFirst_whenNotSentFirst() {
+      submit("household:1", "a", false);
+
+      assertEquals(List.of(), delivered);
+    }
+
+    @Test
+    void submit_shouldKeepKeysApart() {
+      submit("incident:1", "a", true);
+      submit("incident:2", "b", true);
+
+      assertEquals(List.of(List.of("a"), List.of("b")), delivered);
+    }
+
+    @Test
+    void submit_shouldOpenWindowRightAway_whenInTransaction() {
+      TransactionSynchronizationManager.initSynchronization();
+      try {
+        submit("incident:1", "a", true);
+        submit("incident:1", "b", true);
+        assertEquals(List.of(List.of("a")), delivered);
+        assertEquals(1, coalescer.size());
+
+        commit();
+        coalescer.flushAll();
+        assertEquals(List.of(List.of("a"), List.of("b")), delivered);
+      } finally {
+        TransactionSynchronizationManager.clearSynchronization();
+      }
+    }
+
+    @Test
+    void submit_shouldSendOneFirst_whenSubmittedConcurrentlyInTransactions() throws Exception {
+      int threads = 8;
+      CountDownLatch ready = new CountDownLatch(threads);
+      CountDownLatch start = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+          String item = "edit " + i;
+          futures.add(executor.submit(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+              ready.countDown();
+              start.await();
+              submit("incident:1", item, true);
+              commit();
+            } finally {
+              TransactionSynchronizationManager.clearSynchronization();
+            }
+            return null;
+          }));
+        }
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        start.countDown();
+        for (Future<?> future : futures) {
+          future.get(5, TimeUnit.SECONDS);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+
+      assertEquals(1, delivered.size());
+      coalescer.flushAll();
+      assertEquals(2, delivered.size());
+      assertEquals(threads - 1, delivered.get(1).size());
+    }
+
+    @Test
+    void submit_shouldNotHoldBackLaterNotifications_whenFirstIsRolledBack() {
+      TransactionSynchronizationManager.initSynchronization();
+      try {
+        submit("incident:1", "a", true);
+        rollBack();
+      } finally {
+        TransactionSynchronizationManager.clearSynchronization();
+      }
+
+      submit("incident:1", "b", true);
+
+      assertEquals(List.of(List.of("a"), List.of("b")), delivered);
+      assertEquals(1, coalescer.size());
+    }
+
+    @Test
+    void submit_shouldDeliverHeldBackNotifications_whenFirstIsRolledBack() throws Exception {
+      TransactionSynchronizationManager.initSynchronization();
+      try {
+        submit("incident:1", "a", true);
+        // Submitted outside the transaction while it is still open
+        Thread other = new Thread(() -> submit("incident:1", "b", true));
+        other.start();
+        other.join();
+        assertEquals(List.of(List.of("a")), delivered);
+
+        rollBack();
+      } finally {
+        TransactionSynchronizationManager.clearSynchronization();
+      }
+
+      assertEquals(List.of(List.of("a"), List.of("b")), delivered);
+      assertEquals(0, coalescer.size());
+    }
+
+    @Test
+    void submit_shouldNotHoldBackNotification_untilCommit() {
+      submit("incident:1", "a", true);
+      TransactionSynchronizationManager.initSynchronization();
+      try {
+        submit("incident:1", "b", true);
+        coalescer.flushAll();
+        assertEquals(List.of(List.of("a")), delivered);
+      } finally {
+        TransactionSynchronizationManager.clearSynchronization();
+      }
+    }
+
+    @Test
+    void submit_shouldSendRightAway_whenDisabledOrWithoutKey() {
+      submit(null, "a", false);
+      ReflectionTestUtils.setField(coalescer, "enabled", false);
+      submit("household:1", "b", false);
+
+      assertEquals(List.of(List.of("a"), List.of("b")), delivered);
+      assertEquals(0, coalescer.size());
+    }
+  }
+
+  /**
+   * Test cases for the flushExpired and flushAll methods.
+   */
+  @Nested
+  class FlushTests {
+
+    @Test
+    void flushExpired_shouldKeepOpenWindows() {
+      submit("household:1", "a", false);
+
+      coalescer.flushExpired();
+
+      assertEquals(List.of(), delivered);
+      assertEquals(1, coalescer.size());
+    }
+
+    @Test
+    void flushExpired_shouldSendHeldBackItemsOfClosedWindows() {
+      ReflectionTestUtils.setField(coalescer, "windowMs", 0L);
+      submit("incident:1", "a", true);
+      submit("incident:1", "b", true);
+      submit("incident:1", "c", true);
+
+      coalescer.flushExpired();
+
+      assertEquals(List.of(List.of("a"), List.of("b", "c")), delivered);
+      assertEquals(0, coalescer.size());
+    }
+
+    @Test
+    void flushAll_shouldCloseWindowWithoutHeldBackItemsQuietly() {
+      submit("incident:1", "a", true);
+
+      coalescer.flushAll();
+      submit("incident:1", "b", true);
+
+      assertEquals(List.of(List.of("a"), List.of("b")), delivered);
+    }
+
+    @Test
+    void flushAll_shouldUseDeliveryOfLastItem() {
+      List<String> latest = new CopyOnWriteArrayList<>();
+      coalescer.submit("household:1", "a", false, items -> delivered.add(items));
+      coalescer.submit("household:1", "b", false, latest::addAll);
+
+      coalescer.flushAll();
+
+      assertEquals(List.of(), delivered);
+      assertEquals(List.of("a", "b"), latest);
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationDispatchMetricsDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationDispatcher;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationDispatcher.Priority;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for the NotificationDispatcher class.
+ */
+class NotificationDispatcherTest {
+
+  private NotificationDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() {
+    dispatcher = new NotificationDispatcher(mock(PlatformTransactionManager.class));
+    ReflectionTestUtils.setField(dispatcher, "workerCount", 1);
+    ReflectionTestUtils.setField(dispatcher, "queueCapacity", 10);
+    ReflectionTestUtils.setField(dispatcher, "offerTimeoutMs", 10L);
+  }
+
+  @AfterEach
+  void tearDown() {
+    dispatcher.stop();
+  }
+
+  /**
+   * Blocks the single worker until released, so tasks pile up in the queues.
+   */
+  private CountDownLatch blockWorker() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    dispatcher.dispatch(NotificationType.INFO, "block worker", () -> {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    return release;
+  }
+
+  /**
+   * Test cases for the Priority enum.
+   */
+  @Nested
+  class PriorityTests {
+
+    @Test
+    void of_shouldRankIncidentsAboveHouseholdAndStockControl() {
+      assertEquals(Priority.HIGH, Priority.of(NotificationType.INCIDENT));
+      assertEquals(Priority.NORMAL, Priority.of(NotificationType.HOUSEHOLD));
+      assertEquals(Priority.NORMAL, Priority.of(NotificationType.MEMBERSHIP_REQUEST));
+      assertEquals(Priority.LOW, Priority.of(NotificationType.STOCK_CONTROL));
+    }
+  }
+
+  /**
+   * Test cases for the dispatch method.
+   */
+  @Nested
+  class DispatchTests {
+
+    @Test
+    void dispatch_shouldRunWorkOnWorkerThread() throws InterruptedException {
+      dispatcher.start();
+      CountDownLatch done = new CountDownLatch(1);
+      List<String> threads = new CopyOnWriteArrayList<>();
+
+      dispatcher.dispatch(NotificationType.HOUSEHOLD, "test", () -> {
+        threads.add(Thread.currentThread().getName());
+        done.countDown();
+      });
+
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      assertNotEquals(Thread.currentThread().getName(), threads.get(0));
+    }
+
+    @Test
+    void dispatch_shouldRunMostUrgentWorkFirst() throws InterruptedException {
+      dispatcher.start();
+      CountDownLatch release = blockWorker();
+      List<String> order = new CopyOnWriteArrayList<>();
+      CountDownLatch done = new CountDownLatch(3);
+
+      dispatcher.dispatch(NotificationType.STOCK_CONTROL, "expiry", () -> {
+        order.add("expiry");
+        done.countDown();
+      });
+      dispatcher.dispatch(NotificationType.HOUSEHOLD, "household", () -> {
+        order.add("household");
+        done.countDown();
+      });
+      dispatcher.dispatch(NotificationType.INCIDENT, "incident", () -> {
+        order.add("incident");
+        done.countDown();
+      });
+      release.countDown();
+
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      assertEquals(List.of("incident", "household", "expiry"), order);
+    }
+
+    @Test
+    void dispatch_shouldRunOnCallingThread_whenQueueIsFull() throws InterruptedException {
+      ReflectionTestUtils.setField(dispatcher, "queueCapacity", 1);
+      dispatcher.start();
+      CountDownLatch release = blockWorker();
+      dispatcher.dispatch(NotificationType.HOUSEHOLD, "queued", () -> { });
+      List<String> threads = new CopyOnWriteArrayList<>();
+
+      dispatcher.dispatch(NotificationType.HOUSEHOLD, "overflow",
+          () -> threads.add(Thread.currentThread().getName()));
+
+      assertEquals(List.of(Thread.currentThread().getName()), threads);
+      NotificationDispatchMetricsDto metrics = dispatcher.getMetrics();
+      assertEquals(1, metrics.getCallerRuns());
+      assertEquals(1, metrics.getQueueDepths().get("NORMAL"));
+      release.countDown();
+    }
+
+    @Test
+    void dispatch_shouldRunOnCallingThread_whenNotStarted() {
+      List<String> threads = new CopyOnWriteArrayList<>();
+
+      dispatcher.dispatch(NotificationType.INFO, "test",
+          () -> threads.add(Thread.currentThread().getName()));
+
+      assertEquals(List.of(Thread.currentThread().getName()), threads);
+    }
+
+    @Test
+    void dispatch_shouldWaitForCommit_whenInTransaction() {
+      List<String> runs = new CopyOnWriteArrayList<>();
+      TransactionSynchronizationManager.initSynchronization();
+      try {
+        dispatcher.dispatch(NotificationType.INFO, "test", () -> runs.add("run"));
+        assertTrue(runs.isEmpty());
+
+        TransactionSynchronizationManager.getSynchronizations()
+            .forEach(TransactionSynchronization::afterCommit);
+        assertEquals(List.of("run"), runs);
+      } finally {
+        TransactionSynchronizationManager.clearSynchronization();
+      }
+    }
+
+    @Test
+    void dispatch_shouldCountFailures() {
+      dispatcher.dispatch(NotificationType.INFO, "fail", () -> {
+        throw new IllegalArgumentException("User not found");
+      });
+
+      NotificationDispatchMetricsDto metrics = dispatcher.getMetrics();
+      assertEquals(1, metrics.getFailed());
+      assertEquals(0, metrics.getCompleted());
+    }
+  }
+
+  /**
+   * Test cases for the stop method.
+   */
+  @Nested
+  class StopTests {
+
+    @Test
+    void stop_shouldFinishQueuedWork() throws InterruptedException {
+      dispatcher.start();
+      CountDownLatch release = blockWorker();
+      List<Integer> runs = new CopyOnWriteArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        int task = i;
+        dispatcher.dispatch(NotificationType.HOUSEHOLD, "task " + i, () -> runs.add(task));
+      }
+      release.countDown();
+
+      dispatcher.stop();
+
+      assertEquals(List.of(0, 1, 2, 3, 4), runs);
+      assertEquals(6, dispatcher.getMetrics().getCompleted());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void stop_shouldNotLoseWork_whenStoppedWhileOffering() {
+      dispatcher.start();
+      // Stops and drains the dispatcher after the accepting check, right before the task is queued
+      Map queues = (Map) ReflectionTestUtils.getField(dispatcher, "queues");
+      queues.put(Priority.NORMAL, new ArrayBlockingQueue<Object>(10) {
+        @Override
+        public boolean offer(Object task, long timeout, TimeUnit unit)
+            throws InterruptedException {
+          dispatcher.stop();
+          return super.offer(task, timeout, unit);
+        }
+      });
+      List<String> runs = new CopyOnWriteArrayList<>();
+
+      dispatcher.dispatch(NotificationType.HOUSEHOLD, "late task", () -> runs.add("late task"));
+
+      assertEquals(List.of("late task"), runs);
+      assertTrue(((Map<?, BlockingQueue<?>>) queues).get(Priority.NORMAL).isEmpty());
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.notification.Notification;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.Role;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.NotificationRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationDispatcher;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tests of the NotificationDispatcher running work dispatched inside a transaction against the
+ * test database.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class NotificationDispatcherTransactionTest {
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private NotificationRepository notificationRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  private NotificationDispatcher dispatcher;
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    dispatcher = new NotificationDispatcher(transactionManager);
+    ReflectionTestUtils.setField(dispatcher, "workerCount", 1);
+    ReflectionTestUtils.setField(dispatcher, "queueCapacity", 1);
+    ReflectionTestUtils.setField(dispatcher, "offerTimeoutMs", 10L);
+    user = userRepository.save(new User(UUID.randomUUID() + "@example.com", "password",
+        "Test User", Role.USER, null, "12345678", true, null));
+  }
+
+  @AfterEach
+  void tearDown() {
+    dispatcher.stop();
+  }
+
+  private void dispatchSaveInTransaction(String message) {
+    new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+        dispatcher.dispatch(NotificationType.INFO, "save notification", () -> {
+          Notification notification = new Notification();
+          notification.setUser(user);
+          notification.setType(NotificationType.INFO);
+          notification.setMessage(message);
+          notification.setTimestamp(LocalDateTime.now());
+          notification.setIsRead(false);
+          notificationRepository.save(notification);
+        }));
+  }
+
+  private long countMessages(String message) {
+    return notificationRepository.findAll().stream()
+        .filter(notification -> message.equals(notification.getMessage()))
+        .count();
+  }
+
+  /**
+   * Test cases for work run on the calling thread after the transaction commits.
+   */
+  @Nested
+  class CallerRunsTests {
+
+    @Test
+    void dispatch_shouldPersistWork_whenQueueIsFullAfterCommit() throws InterruptedException {
+      dispatcher.start();
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      dispatcher.dispatch(NotificationType.INFO, "block worker", () -> {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      dispatcher.dispatch(NotificationType.INFO, "fill queue", () -> { });
+
+      String message = "Saved while the queue was full " + UUID.randomUUID();
+      try {
+        dispatchSaveInTransaction(message);
+      } finally {
+        release.countDown();
+      }
+
+      assertEquals(1, dispatcher.getMetrics().getCallerRuns());
+      assertEquals(1, countMessages(message));
+    }
+
+    @Test
+    void dispatch_shouldPersistWork_whenStoppedAfterCommit() {
+      String message = "Saved while stopped " + UUID.randomUUID();
+      dispatchSaveInTransaction(message);
+
+      assertEquals(1, countMessages(message));
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationFanOutMetricsDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationFanOutService;
+import edu.ntnu.idatt2106.krisefikser.service.notification.UnreadNotificationCounter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the NotificationFanOutService class, run against an in-memory H2 database.
+ */
+class NotificationFanOutServiceTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private SimpMessagingTemplate messagingTemplate;
+  private UnreadNotificationCounter unreadCounter;
+  private NotificationFanOutService fanOutService;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:notification_fan_out;DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE notification (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+        + "user_id VARCHAR(36) NOT NULL, type VARCHAR(255), is_read BOOLEAN, "
+        + "message VARCHAR(255), timestamp TIMESTAMP NOT NULL)");
+    messagingTemplate = mock(SimpMessagingTemplate.class);
+    unreadCounter = mock(UnreadNotificationCounter.class);
+    fanOutService = new NotificationFanOutService(jdbcTemplate,
+        new DataSourceTransactionManager(dataSource), messagingTemplate, unreadCounter);
+    ReflectionTestUtils.setField(fanOutService, "chunkSize", 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.execute("DROP TABLE notification");
+  }
+
+  private List<User> createUsers(int count) {
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      User user = new User();
+      user.setId("user-" + i);
+      users.add(user);
+    }
+    return users;
+  }
+
+  private NotificationDto createNotification() {
+    NotificationDto notification = new NotificationDto();
+    notification.setType(NotificationType.INCIDENT);
+    notification.setMessage("Flood warning");
+    notification.setTimestamp(LocalDateTime.of(2025, 5, 1, 12, 0));
+    return notification;
+  }
+
+  /**
+   * Test cases for the fanOut method.
+   */
+  @Nested
+  class FanOutTests {
+
+    @Test
+    void fanOut_shouldInsertRowsAndSendMessages_inChunks() {
+      List<User> users = createUsers(5);
+      NotificationDto notification = createNotification();
+
+      fanOutService.fanOut(notification, users);
+
+      List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+          "SELECT user_id, type, is_read, message FROM notification ORDER BY user_id");
+      assertEquals(5, rows.size());
+      assertEquals("user-0", rows.get(0).get("USER_ID"));
+      assertEquals("INCIDENT", rows.get(0).get("TYPE"));
+      assertEquals(false, rows.get(0).get("IS_READ"));
+      assertEquals("Flood warning", rows.get(4).get("MESSAGE"));
+      for (User user : users) {
+        verify(messagingTemplate).convertAndSendToUser(user.getId(), "/queue/notifications",
+            notification);
+      }
+      verify(unreadCounter).increment(eq(List.of("user-0", "user-1")), anyLong());
+      verify(unreadCounter).increment(eq(List.of("user-4")), anyLong());
+    }
+
+    @Test
+    void fanOut_shouldStillSend_whenRowsCannotBeSaved() {
+      jdbcTemplate.execute("DROP TABLE notification");
+      jdbcTemplate.execute("CREATE TABLE notification (id BIGINT)");
+
+      fanOutService.fanOut(createNotification(), createUsers(3));
+
+      verify(messagingTemplate, times(3)).convertAndSendToUser(any(), eq("/queue/notifications"),
+          any(NotificationDto.class));
+      NotificationFanOutMetricsDto metrics = fanOutService.getMetrics();
+      assertEquals(0, metrics.getRowsInserted());
+      assertEquals(3, metrics.getRowsFailed());
+      assertEquals(3, metrics.getMessagesSent());
+      verify(unreadCounter, never()).increment(any(List.class), anyLong());
+    }
+
+    @Test
+    void fanOut_shouldContinue_whenMessageCannotBeSent() {
+      doThrow(new MessagingException("Session closed")).when(messagingTemplate)
+          .convertAndSendToUser(eq("user-1"), any(), any(NotificationDto.class));
+
+      fanOutService.fanOut(createNotification(), createUsers(3));
+
+      NotificationFanOutMetricsDto metrics = fanOutService.getMetrics();
+      assertEquals(2, metrics.getMessagesSent());
+      assertEquals(1, metrics.getMessagesFailed());
+    }
+
+    @Test
+    void fanOut_shouldInsertNothing_whenThereAreNoRecipients() {
+      fanOutService.fanOut(createNotification(), List.of());
+
+      assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification",
+          Integer.class));
+      assertEquals(1, fanOutService.getMetrics().getFanOuts());
+    }
+  }
+
+  /**
+   * Test cases for the getMetrics method.
+   */
+  @Nested
+  class GetMetricsTests {
+
+    @Test
+    void getMetrics_shouldAccumulateAcrossFanOuts() {
+      fanOutService.fanOut(createNotification(), createUsers(3));
+      fanOutService.fanOut(createNotification(), createUsers(2));
+
+      NotificationFanOutMetricsDto metrics = fanOutService.getMetrics();
+      assertEquals(2, metrics.getFanOuts());
+      assertEquals(5, metrics.getRowsInserted());
+      assertEquals(5, metrics.getMessagesSent());
+      assertTrue(metrics.getLastRowsPerSecond() > 0);
+      assertTrue(metrics.getMaxTimeToLastDeliveryMs() >= metrics.getLastTimeToLastDeliveryMs());
+    }
+  }
+}
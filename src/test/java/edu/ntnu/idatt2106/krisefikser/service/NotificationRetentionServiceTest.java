@@ -0,0 +1,97 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationRetentionService;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the NotificationRetentionService class, run against an in-memory H2 database.
+ */
+class NotificationRetentionServiceTest {
+
+  private static final LocalDateTime CUTOFF = LocalDateTime.of(2025, 5, 1, 0, 0);
+
+  private JdbcTemplate jdbcTemplate;
+  private NotificationRetentionService retentionService;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:notification_retention;DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE notification (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+        + "user_id VARCHAR(36) NOT NULL, type VARCHAR(255), is_read BOOLEAN, "
+        + "message VARCHAR(255), timestamp TIMESTAMP NOT NULL)");
+    jdbcTemplate.execute("CREATE TABLE notification_archive (id BIGINT PRIMARY KEY, "
+        + "user_id VARCHAR(36) NOT NULL, type VARCHAR(255), message VARCHAR(255), "
+        + "timestamp TIMESTAMP NOT NULL, archived_at TIMESTAMP NOT NULL)");
+    retentionService = new NotificationRetentionService(jdbcTemplate,
+        new DataSourceTransactionManager(dataSource));
+    ReflectionTestUtils.setField(retentionService, "batchSize", 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.execute("DROP TABLE notification");
+    jdbcTemplate.execute("DROP TABLE notification_archive");
+  }
+
+  private void insertNotification(boolean read, LocalDateTime timestamp) {
+    jdbcTemplate.update("INSERT INTO notification (user_id, type, is_read, message, timestamp) "
+        + "VALUES ('user-1', 'INFO', ?, 'Test', ?)", read, Timestamp.valueOf(timestamp));
+  }
+
+  private List<Long> ids(String table) {
+    return jdbcTemplate.queryForList("SELECT id FROM " + table + " ORDER BY id", Long.class);
+  }
+
+  @Test
+  void archiveReadNotifications_shouldMoveOldReadNotificationsInBatches() {
+    for (int i = 0; i < 5; i++) {
+      insertNotification(true, CUTOFF.minusDays(i + 1));
+    }
+
+    int archived = retentionService.archiveReadNotifications(CUTOFF);
+
+    assertEquals(5, archived);
+    assertEquals(List.of(), ids("notification"));
+    assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids("notification_archive"));
+  }
+
+  @Test
+  void archiveReadNotifications_shouldKeepUnreadAndRecentNotifications() {
+    insertNotification(false, CUTOFF.minusDays(10));
+    insertNotification(true, CUTOFF.plusDays(1));
+    insertNotification(true, CUTOFF.minusDays(10));
+
+    int archived = retentionService.archiveReadNotifications(CUTOFF);
+
+    assertEquals(1, archived);
+    assertEquals(List.of(1L, 2L), ids("notification"));
+    assertEquals(List.of(3L), ids("notification_archive"));
+  }
+
+  @Test
+  void archiveReadNotifications_shouldKeepNotificationsOfFailedBatch() {
+    insertNotification(true, CUTOFF.minusDays(1));
+    jdbcTemplate.update("INSERT INTO notification_archive "
+        + "(id, user_id, type, message, timestamp, archived_at) "
+        + "VALUES (1, 'user-1', 'INFO', 'Test', ?, ?)", Timestamp.valueOf(CUTOFF),
+        Timestamp.valueOf(CUTOFF));
+
+    int archived = retentionService.archiveReadNotifications(CUTOFF);
+
+    assertEquals(0, archived);
+    assertEquals(List.of(1L), ids("notification"));
+  }
+}
@@ -1,30 +1,57 @@
 package edu.ntnu.idatt2106.krisefikser.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.doubleThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationBulkRequestDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationPageDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.NotificationResponseDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionDto;
+import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionResponseDto;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.household.Household;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.incident.Incident;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.item.Item;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.notification.HouseholdNotification;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.notification.Notification;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.storage.StorageItem;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.NotificationType;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.Role;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.Severity;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.HouseholdNotificationReceiptRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.HouseholdNotificationRepository;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.NotificationRepository;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationCoalescer;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationCursor;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationDispatcher;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationFanOutService;
 import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationService;
+import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationSinceCursor;
+import edu.ntnu.idatt2106.krisefikser.service.notification.UnreadNotificationCounter;
+import edu.ntnu.idatt2106.krisefikser.service.user.UserLocationRegistry;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,10 +59,15 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 class NotificationServiceTest {
@@ -46,9 +78,32 @@ class NotificationServiceTest {
   @Mock
   private NotificationRepository notificationRepository;
 
+  @Mock
+  private HouseholdNotificationRepository householdNotificationRepository;
+
+  @Mock
+  private HouseholdNotificationReceiptRepository receiptRepository;
+
   @Mock
   private UserRepository userRepository;
 
+  @Mock
+  private NotificationFanOutService fanOutService;
+
+  @Mock
+  private UserLocationRegistry locationRegistry;
+
+  @Mock
+  private UnreadNotificationCounter unreadCounter;
+
+  // Not started, so the work runs on the calling thread
+  @Spy
+  private NotificationDispatcher dispatcher =
+      new NotificationDispatcher(mock(PlatformTransactionManager.class));
+
+  @Spy
+  private NotificationCoalescer coalescer = new NotificationCoalescer();
+
   @InjectMocks
   private NotificationService notificationService;
 
@@ -77,8 +132,8 @@ class NotificationServiceTest {
     testUser.setFullName("Test User");
     testUser.setTlf("12345678");
     testUser.setRole(Role.USER);
-    testUser.setLatitude("60.0");
-    testUser.setLongitude("10.0");
+    testUser.setLatitude(60.0);
+    testUser.setLongitude(10.0);
 
     testHousehold = new Household();
     testHousehold.setId("household-123");
@@ -101,6 +156,28 @@ class NotificationServiceTest {
     testNotificationDto.setRead(false);
   }
 
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private void authenticateTestUser() {
+    SecurityContextHolder.setContext(securityContext);
+    when(securityContext.getAuthentication()).thenReturn(authentication);
+    when(authentication.getName()).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(testUser));
+  }
+
+  private HouseholdNotification createHouseholdNotification(Long id, LocalDateTime timestamp) {
+    HouseholdNotification notification = new HouseholdNotification();
+    notification.setId(id);
+    notification.setHouseholdId("household-123");
+    notification.setType(NotificationType.HOUSEHOLD);
+    notification.setMessage("Household notification " + id);
+    notification.setTimestamp(timestamp);
+    return notification;
+  }
+
   @Test
   void broadcastNotification_shouldSendToGeneralTopic() {
     // Act
@@ -113,22 +190,65 @@ class NotificationServiceTest {
   @Test
   void markNotificationAsRead_shouldUpdateReadStatus() {
     // Arrange
-    Long notificationId = 1L;
-    when(notificationRepository.findById(notificationId)).thenReturn(Optional.of(testNotification));
+    authenticateTestUser();
+    when(notificationRepository.markAsReadByIds("user-123", List.of(1L))).thenReturn(1);
 
     // Act
-    notificationService.markNotificationAsRead(notificationId);
+    notificationService.markNotificationAsRead(1L);
 
     // Assert
-    assertTrue(testNotification.getIsRead());
-    verify(notificationRepository).save(testNotification);
+    verify(unreadCounter).decrement("user-123", 0L);
+  }
+
+  @Test
+  void markNotificationAsRead_shouldNotChangeUnreadCount_whenAlreadyRead() {
+    // Arrange
+    authenticateTestUser();
+    when(notificationRepository.markAsReadByIds("user-123", List.of(1L))).thenReturn(0);
+    when(notificationRepository.existsByIdAndUserId(1L, "user-123")).thenReturn(true);
+
+    // Act
+    notificationService.markNotificationAsRead(1L);
+
+    // Assert
+    verify(unreadCounter, never()).decrement(anyString(), anyLong());
+  }
+
+  @Test
+  void markNotificationAsRead_shouldThrowException_whenNotificationBelongsToOtherUser() {
+    // Arrange
+    authenticateTestUser();
+    when(notificationRepository.markAsReadByIds("user-123", List.of(2L))).thenReturn(0);
+    when(notificationRepository.existsByIdAndUserId(2L, "user-123")).thenReturn(false);
+
+    // Act & Assert
+    Exception exception = assertThrows(IllegalArgumentException.class,
+        () -> notificationService.markNotificationAsRead(2L));
+
+    assertEquals("Notification not found", exception.getMessage());
+    verify(notificationRepository, never()).save(any(Notification.class));
+    verify(unreadCounter, never()).decrement(anyString(), anyLong());
+  }
+
+  @Test
+  void getUnreadCount_shouldReturnCachedCountOfCurrentUser() {
+    // Arrange
+    authenticateTestUser();
+    when(unreadCounter.getUnreadCount(testUser)).thenReturn(7L);
+
+    // Act & Assert
+    assertEquals(7, notificationService.getUnreadCount().getUnreadCount());
   }
 
   @Test
   void markNotificationAsRead_shouldThrowException_whenNotificationNotFound() {
     // Arrange
     Long notificationId = 999L;
-    when(notificationRepository.findById(notificationId)).thenReturn(Optional.empty());
+    authenticateTestUser();
+    when(notificationRepository.markAsReadByIds("user-123", List.of(notificationId)))
+        .thenReturn(0);
+    when(notificationRepository.existsByIdAndUserId(notificationId, "user-123"))
+        .thenReturn(false);
 
     // Act & Assert
     Exception exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -160,12 +280,42 @@ class NotificationServiceTest {
 
     // Act
     notificationService.sendExpiryNotification(storageItem);
+    coalescer.flushAll();
 
     // Assert
-    verify(notificationRepository).save(any(Notification.class));
+    verify(householdNotificationRepository).save(any(HouseholdNotification.class));
     verify(userRepository).getUsersByHouseholdId(household.getId());
   }
 
+  @Test
+  void sendExpiryNotification_shouldSendOneDigestPerHousehold() {
+    // Arrange
+    Household household = new Household();
+    household.setId("household-123");
+    when(userRepository.getUsersByHouseholdId("household-123")).thenReturn(List.of(testUser));
+    ArgumentCaptor<HouseholdNotification> saved =
+        ArgumentCaptor.forClass(HouseholdNotification.class);
+
+    // Act
+    for (int days = 5; days >= 3; days--) {
+      Item item = new Item();
+      item.setName("Item " + days);
+      StorageItem storageItem = new StorageItem();
+      storageItem.setHousehold(household);
+      storageItem.setItem(item);
+      storageItem.setExpirationDate(LocalDateTime.now().plusDays(days));
+      notificationService.sendExpiryNotification(storageItem);
+    }
+    verify(householdNotificationRepository, never()).save(any(HouseholdNotification.class));
+    coalescer.flushAll();
+
+    // Assert
+    verify(householdNotificationRepository).save(saved.capture());
+    assertEquals("3 items are expiring soon: 'Item 3' in 3 days, 'Item 4' in 4 days, "
+        + "'Item 5' in 5 days.", saved.getValue().getMessage());
+    verify(unreadCounter, times(1)).increment("user-123", 0L);
+  }
+
   @Test
   void saveHouseholdNotification_shouldSaveNotificationForAllHouseholdMembers() {
     // Arrange
@@ -183,9 +333,385 @@ class NotificationServiceTest {
     NotificationDto notification = testNotificationDto;
     notificationService.saveHouseholdNotification(notification, householdId);
 
-    // Assert
-    verify(notificationRepository, times(2)).save(any(Notification.class));
+    // Assert: one row for the household, and a message to each member
+    verify(householdNotificationRepository, times(1)).save(any(HouseholdNotification.class));
+    verify(notificationRepository, never()).save(any(Notification.class));
     verify(userRepository).getUsersByHouseholdId(householdId);
+    verify(messagingTemplate).convertAndSendToUser("user-1", "/queue/notifications",
+        notification);
+    verify(messagingTemplate).convertAndSendToUser("user-2", "/queue/notifications",
+        notification);
+    verify(unreadCounter).increment("user-1", 0L);
+    verify(unreadCounter).increment("user-2", 0L);
+  }
+
+  @Test
+  void saveHouseholdNotification_shouldSaveNothing_whenHouseholdHasNoMembers() {
+    // Arrange
+    when(userRepository.getUsersByHouseholdId("household-123")).thenReturn(List.of());
+
+    // Act
+    notificationService.saveHouseholdNotification(testNotificationDto, "household-123");
+
+    // Assert
+    verify(householdNotificationRepository, never()).save(any(HouseholdNotification.class));
+  }
+
+  @Test
+  void getUserNotifications_shouldMergePersonalAndHouseholdNotifications() {
+    // Arrange
+    authenticateTestUser();
+    LocalDateTime now = LocalDateTime.now();
+    testNotification.setTimestamp(now.minusHours(2));
+    when(notificationRepository.findAllByUserIdOrderByTimestampDesc("user-123"))
+        .thenReturn(List.of(testNotification));
+    when(householdNotificationRepository.findAllByHouseholdIdOrderByTimestampDesc(
+        "household-123")).thenReturn(List.of(createHouseholdNotification(10L, now.minusHours(1)),
+        createHouseholdNotification(11L, now.minusHours(3))));
+    when(receiptRepository.findReadNotificationIds("user-123", "household-123"))
+        .thenReturn(Set.of(11L));
+
+    // Act
+    List<NotificationResponseDto> result = notificationService.getUserNotifications();
+
+    // Assert
+    assertEquals(List.of(10L, 1L, 11L),
+        result.stream().map(NotificationResponseDto::getId).toList());
+    assertEquals("household-123", result.get(0).getHouseholdId());
+    assertFalse(result.get(0).isRead());
+    assertNull(result.get(1).getHouseholdId());
+    assertTrue(result.get(2).isRead());
+    assertEquals("user-123", result.get(2).getRecipientId());
+  }
+
+  @Test
+  void getUserNotificationPage_shouldReturnNewestPageWithNextCursor() {
+    // Arrange
+    authenticateTestUser();
+    LocalDateTime now = LocalDateTime.of(2025, 5, 1, 12, 0);
+    Notification older = new Notification();
+    older.setId(2L);
+    older.setUser(testUser);
+    older.setTimestamp(now.minusHours(3));
+    older.setIsRead(true);
+    testNotification.setTimestamp(now.minusHours(1));
+    when(notificationRepository.findByUserIdOrderByTimestampDescIdDesc("user-123",
+        PageRequest.of(0, 3))).thenReturn(List.of(testNotification, older));
+    when(householdNotificationRepository.findByHouseholdIdOrderByTimestampDescIdDesc(
+        "household-123", PageRequest.of(0, 3)))
+        .thenReturn(List.of(createHouseholdNotification(10L, now.minusHours(2))));
+    when(receiptRepository.findReadNotificationIdsIn("user-123", List.of(10L)))
+        .thenReturn(Set.of());
+    when(notificationRepository.findMaxIdByUserId("user-123")).thenReturn(2L);
+    when(householdNotificationRepository.findMaxIdByHouseholdId("household-123"))
+        .thenReturn(10L);
+
+    // Act
+    NotificationPageDto page = notificationService.getUserNotificationPage(null, null, 2);
+
+    // Assert
+    assertEquals(List.of(1L, 10L),
+        page.getNotifications().stream().map(NotificationResponseDto::getId).toList());
+    assertEquals(new NotificationCursor(now.minusHours(2), 10L, true),
+        NotificationCursor.decode(page.getNextCursor()));
+    assertEquals(new NotificationSinceCursor(2L, 10L),
+        NotificationSinceCursor.decode(page.getNewestCursor()));
+  }
+
+  @Test
+  void getUserNotificationPage_shouldContinueAfterCursor() {
+    // Arrange
+    authenticateTestUser();
+    LocalDateTime timestamp = LocalDateTime.of(2025, 5, 1, 12, 0);
+    String cursor = new NotificationCursor(timestamp, 5L, false).encode();
+    when(notificationRepository.findPageBefore("user-123", timestamp, 5L, PageRequest.of(0, 21)))
+        .thenReturn(List.of());
+    // The household notification with the same timestamp and id comes after the personal one
+    when(householdNotificationRepository.findPageBefore("household-123", timestamp, 6L,
+        PageRequest.of(0, 21))).thenReturn(List.of());
+
+    // Act
+    NotificationPageDto page = notificationService.getUserNotificationPage(cursor, null, 20);
+
+    // Assert
+    assertTrue(page.getNotifications().isEmpty());
+    assertNull(page.getNextCursor());
+    assertEquals(new NotificationSinceCursor(0L, 0L),
+        NotificationSinceCursor.decode(page.getNewestCursor()));
+  }
+
+  @Test
+  void getUserNotificationPage_shouldReturnOnlyNewerNotifications_whenSinceIsGiven() {
+    // Arrange
+    authenticateTestUser();
+    LocalDateTime timestamp = LocalDateTime.of(2025, 5, 1, 12, 0);
+    String since = new NotificationSinceCursor(0L, 10L).encode();
+    testNotification.setTimestamp(timestamp.plusMinutes(1));
+    when(notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc("user-123", 0L,
+        PageRequest.of(0, 20))).thenReturn(List.of(testNotification));
+    when(householdNotificationRepository.findByHouseholdIdAndIdGreaterThanOrderByIdAsc(
+        "household-123", 10L, PageRequest.of(0, 20)))
+        .thenReturn(List.of(createHouseholdNotification(11L, timestamp.plusMinutes(2))));
+    when(receiptRepository.findReadNotificationIdsIn("user-123", List.of(11L)))
+        .thenReturn(Set.of());
+
+    // Act
+    NotificationPageDto page = notificationService.getUserNotificationPage(null, since, 20);
+
+    // Assert
+    assertEquals(List.of(11L, 1L),
+        page.getNotifications().stream().map(NotificationResponseDto::getId).toList());
+    assertNull(page.getNextCursor());
+    assertEquals(new NotificationSinceCursor(1L, 11L),
+        NotificationSinceCursor.decode(page.getNewestCursor()));
+  }
+
+  @Test
+  void getUserNotificationPage_shouldReturnNotificationSavedLateWithOlderTimestamp() {
+    // Arrange
+    authenticateTestUser();
+    testUser.setHousehold(null);
+    LocalDateTime now = LocalDateTime.of(2025, 5, 1, 12, 0);
+    testNotification.setTimestamp(now);
+    when(notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc("user-123", 0L,
+        PageRequest.of(0, 20))).thenReturn(List.of(testNotification));
+    String since = notificationService.getUserNotificationPage(null,
+        new NotificationSinceCursor(0L, 0L).encode(), 20).getNewestCursor();
+
+    // Saved after the poll, but stamped before the notification it returned
+    Notification late = new Notification();
+    late.setId(2L);
+    late.setUser(testUser);
+    late.setTimestamp(now.minusMinutes(5));
+    late.setIsRead(false);
+    when(notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc("user-123", 1L,
+        PageRequest.of(0, 20))).thenReturn(List.of(late));
+
+    // Act
+    NotificationPageDto page = notificationService.getUserNotificationPage(null, since, 20);
+
+    // Assert
+    assertEquals(List.of(2L),
+        page.getNotifications().stream().map(NotificationResponseDto::getId).toList());
+    assertEquals(new NotificationSinceCursor(2L, 0L),
+        NotificationSinceCursor.decode(page.getNewestCursor()));
+  }
+
+  @Test
+  void getUserNotificationPage_shouldKeepSince_whenThereIsNothingNew() {
+    // Arrange
+    authenticateTestUser();
+    testUser.setHousehold(null);
+    String since = new NotificationSinceCursor(1L, 0L).encode();
+    when(notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(eq("user-123"), eq(1L),
+        any(PageRequest.class))).thenReturn(List.of());
+
+    // Act
+    NotificationPageDto page = notificationService.getUserNotificationPage(null, since, 20);
+
+    // Assert
+    assertTrue(page.getNotifications().isEmpty());
+    assertEquals(since, page.getNewestCursor());
+  }
+
+  @Test
+  void getUserNotificationPage_shouldThrow_whenCursorIsInvalid() {
+    // Arrange
+    authenticateTestUser();
+
+    // Act & Assert
+    Exception exception = assertThrows(IllegalArgumentException.class,
+        () -> notificationService.getUserNotificationPage("not-a-cursor", null, 20));
+    assertEquals("Invalid cursor", exception.getMessage());
+  }
+
+  @Test
+  void getUserNotificationPage_shouldThrow_whenLimitIsTooLarge() {
+    assertThrows(IllegalArgumentException.class,
+        () -> notificationService.getUserNotificationPage(null, null,
+            NotificationService.MAX_PAGE_SIZE + 1));
+  }
+
+  @Test
+  void markHouseholdNotificationAsRead_shouldInsertReceiptForCurrentUser() {
+    // Arrange
+    authenticateTestUser();
+    HouseholdNotification notification = createHouseholdNotification(10L, LocalDateTime.now());
+    when(householdNotificationRepository.findById(10L)).thenReturn(Optional.of(notification));
+    when(receiptRepository.insertReceiptsByIds(eq("user-123"), eq("household-123"),
+        eq(List.of(10L)), any(LocalDateTime.class))).thenReturn(1);
+
+    // Act
+    notificationService.markHouseholdNotificationAsRead(10L);
+
+    // Assert
+    verify(unreadCounter).decrement("user-123", 0L);
+  }
+
+  @Test
+  void markHouseholdNotificationAsRead_shouldNotChangeUnreadCount_whenAlreadyRead() {
+    // Arrange
+    authenticateTestUser();
+    when(householdNotificationRepository.findById(10L))
+        .thenReturn(Optional.of(createHouseholdNotification(10L, LocalDateTime.now())));
+    when(receiptRepository.insertReceiptsByIds(eq("user-123"), eq("household-123"),
+        eq(List.of(10L)), any(LocalDateTime.class))).thenReturn(0);
+
+    // Act
+    notificationService.markHouseholdNotificationAsRead(10L);
+
+    // Assert
+    verify(unreadCounter, never()).decrement(anyString(), anyLong());
+  }
+
+  @Test
+  void markHouseholdNotificationAsRead_shouldTreatDuplicateReceiptAsRead() {
+    // Arrange
+    authenticateTestUser();
+    when(householdNotificationRepository.findById(10L))
+        .thenReturn(Optional.of(createHouseholdNotification(10L, LocalDateTime.now())));
+    when(receiptRepository.insertReceiptsByIds(eq("user-123"), eq("household-123"),
+        eq(List.of(10L)), any(LocalDateTime.class)))
+        .thenThrow(new DataIntegrityViolationException("Duplicate receipt"));
+
+    // Act
+    notificationService.markHouseholdNotificationAsRead(10L);
+
+    // Assert
+    verify(unreadCounter, never()).decrement(anyString(), anyLong());
+  }
+
+  @Test
+  void markHouseholdNotificationAsRead_shouldThrow_whenNotificationIsForAnotherHousehold() {
+    // Arrange
+    authenticateTestUser();
+    HouseholdNotification notification = createHouseholdNotification(10L, LocalDateTime.now());
+    notification.setHouseholdId("household-456");
+    when(householdNotificationRepository.findById(10L)).thenReturn(Optional.of(notification));
+
+    // Act & Assert
+    Exception exception = assertThrows(IllegalArgumentException.class,
+        () -> notificationService.markHouseholdNotificationAsRead(10L));
+    assertEquals("Notification not found", exception.getMessage());
+    verify(receiptRepository, never()).insertReceiptsByIds(anyString(), anyString(), any(),
+        any(LocalDateTime.class));
+  }
+
+  @Test
+  void markHouseholdHistoryAsRead_shouldAddReceiptsForNotificationsBeforeJoining() {
+    // Arrange
+    LocalDateTime joinedAt = LocalDateTime.now();
+    when(receiptRepository.insertReceiptsBefore("user-123", "household-123", joinedAt, joinedAt))
+        .thenReturn(3);
+
+    // Act
+    notificationService.markHouseholdHistoryAsRead("user-123", "household-123", joinedAt);
+
+    // Assert
+    verify(receiptRepository).insertReceiptsBefore("user-123", "household-123", joinedAt,
+        joinedAt);
+    verify(unreadCounter).invalidate("user-123");
+  }
+
+  @Test
+  void markNotificationsAsRead_shouldUpdateByIdsAndAddReceipts() {
+    // Arrange
+    authenticateTestUser();
+    NotificationBulkRequestDto request =
+        new NotificationBulkRequestDto(List.of(1L, 2L), List.of(10L), null);
+    when(notificationRepository.markAsReadByIds("user-123", List.of(1L, 2L))).thenReturn(2);
+    when(receiptRepository.insertReceiptsByIds(eq("user-123"), eq("household-123"),
+        eq(List.of(10L)), any(LocalDateTime.class))).thenReturn(1);
+
+    // Act
+    int count = notificationService.markNotificationsAsRead(request);
+
+    // Assert
+    assertEquals(3, count);
+    verify(unreadCounter).decrement("user-123", 3, 0L);
+  }
+
+  @Test
+  void markNotificationsAsRead_shouldUpdateEveryNotificationBeforeTimestamp() {
+    // Arrange
+    authenticateTestUser();
+    LocalDateTime before = LocalDateTime.now().minusDays(1);
+    when(notificationRepository.markAsReadBefore("user-123", before)).thenReturn(0);
+    when(receiptRepository.insertReceiptsBefore(eq("user-123"), eq("household-123"), eq(before),
+        any(LocalDateTime.class))).thenReturn(0);
+
+    // Act
+    int count = notificationService.markNotificationsAsRead(
+        new NotificationBulkRequestDto(null, null, before));
+
+    // Assert
+    assertEquals(0, count);
+    verify(unreadCounter, never()).decrement(anyString(), anyLong(), anyLong());
+  }
+
+  @Test
+  void markNotificationsAsRead_shouldThrow_whenBothIdsAndTimestampAreGiven() {
+    // Arrange
+    NotificationBulkRequestDto request =
+        new NotificationBulkRequestDto(List.of(1L), null, LocalDateTime.now());
+
+    // Act & Assert
+    Exception exception = assertThrows(IllegalArgumentException.class,
+        () -> notificationService.markNotificationsAsRead(request));
+    assertEquals("Use either ids or before, not both", exception.getMessage());
+  }
+
+  @Test
+  void markNotificationsAsRead_shouldThrow_whenTooManyIdsAreGiven() {
+    // Arrange
+    List<Long> ids = LongStream.rangeClosed(1, NotificationService.MAX_BULK_IDS + 1).boxed()
+        .toList();
+
+    // Act & Assert
+    assertThrows(IllegalArgumentException.class, () -> notificationService
+        .markNotificationsAsRead(new NotificationBulkRequestDto(ids, null, null)));
+    verify(notificationRepository, never()).markAsReadByIds(anyString(), any());
+  }
+
+  @Test
+  void deleteNotifications_shouldDeleteByIdsAndRecountUnread() {
+    // Arrange
+    authenticateTestUser();
+    when(notificationRepository.deleteByIds("user-123", List.of(1L, 2L))).thenReturn(2);
+
+    // Act
+    int count = notificationService.deleteNotifications(
+        new NotificationBulkRequestDto(List.of(1L, 2L), null, null));
+
+    // Assert
+    assertEquals(2, count);
+    verify(unreadCounter).refresh(testUser);
+  }
+
+  @Test
+  void deleteNotifications_shouldThrow_whenOnlyHouseholdIdsAreGiven() {
+    // Act & Assert
+    Exception exception = assertThrows(IllegalArgumentException.class,
+        () -> notificationService.deleteNotifications(
+            new NotificationBulkRequestDto(null, List.of(10L), null)));
+    assertEquals("Household notifications cannot be deleted", exception.getMessage());
+  }
+
+  @Test
+  void sendHouseholdPositionUpdate_shouldBroadcastWithoutLookingUpUser() {
+    // Arrange
+    PositionDto position = new PositionDto("token", "10.39", "63.43");
+    ArgumentCaptor<PositionResponseDto> sent = ArgumentCaptor.forClass(PositionResponseDto.class);
+
+    // Act
+    notificationService.sendHouseholdPositionUpdate("user-123", "Test User", "household-123",
+        position);
+
+    // Assert
+    verify(messagingTemplate).convertAndSend(eq("/topic/position/household-123"), sent.capture());
+    assertEquals("Test User", sent.getValue().getFullName());
+    assertEquals("63.43", sent.getValue().getLatitude());
+    verify(userRepository, never()).findById(any());
   }
 
   @Test
@@ -217,20 +743,48 @@ class NotificationServiceTest {
     affectedUser.setId("user-123");
     List<User> affectedUsers = List.of(affectedUser);
 
-    when(userRepository.findUsersWithinRadius(incident.getLatitude(), incident.getLongitude(),
-        incident.getImpactRadius() * 1.4)).thenReturn(affectedUsers);
-
-    // Add this mock to fix the "User not found" error
-    when(userRepository.findById("user-123")).thenReturn(Optional.of(affectedUser));
+    when(userRepository.findUsersWithinRadius(eq(incident.getLatitude()),
+        eq(incident.getLongitude()), eq(incident.getImpactRadius() * 1.4), anyDouble(),
+        anyDouble(), anyDouble(), anyDouble())).thenReturn(affectedUsers);
 
     // Act
     notificationService.notifyIncident("Test incident alert", incident);
 
     // Assert
-    verify(userRepository).findUsersWithinRadius(incident.getLatitude(), incident.getLongitude(),
-        incident.getImpactRadius() * 1.4);
-    verify(notificationRepository).save(any(Notification.class));
-    verify(userRepository).findById("user-123");
+    verify(userRepository).findUsersWithinRadius(eq(incident.getLatitude()),
+        eq(incident.getLongitude()), eq(incident.getImpactRadius() * 1.4), anyDouble(),
+        anyDouble(), anyDouble(), anyDouble());
+    ArgumentCaptor<NotificationDto> sent = ArgumentCaptor.forClass(NotificationDto.class);
+    verify(fanOutService).fanOut(sent.capture(), eq(affectedUsers));
+    assertEquals(NotificationType.INCIDENT, sent.getValue().getType());
+    assertEquals("Test incident alert", sent.getValue().getMessage());
+    verify(userRepository, never()).findById(any());
+    verify(notificationRepository, never()).save(any(Notification.class));
+  }
+
+  @Test
+  void notifyIncident_shouldSendFirstAlertAndThenDigestOfUpdatesWithinWindow() {
+    // Arrange
+    Incident incident = new Incident();
+    incident.setId(7L);
+    incident.setName("Flood");
+    incident.setLatitude(60.0);
+    incident.setLongitude(10.0);
+    incident.setImpactRadius(5.0);
+    when(userRepository.findUsersWithinRadius(anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+        anyDouble(), anyDouble(), anyDouble())).thenReturn(List.of(testUser));
+    ArgumentCaptor<NotificationDto> sent = ArgumentCaptor.forClass(NotificationDto.class);
+
+    // Act
+    notificationService.notifyIncident("Alert", incident);
+    notificationService.notifyIncident("Update 1", incident);
+    notificationService.notifyIncident("Update 2", incident);
+    coalescer.flushAll();
+
+    // Assert
+    verify(fanOutService, times(2)).fanOut(sent.capture(), eq(List.of(testUser)));
+    assertEquals(List.of("Alert", "Update 2 (2 updates)"),
+        sent.getAllValues().stream().map(NotificationDto::getMessage).toList());
   }
 
   @Test
@@ -247,22 +801,22 @@ class NotificationServiceTest {
     // Assert
     verify(notificationRepository).save(any(Notification.class));
     verify(userRepository).findById("user-123");
+    verify(unreadCounter).increment("user-123", 0L);
   }
 
   @Test
-  void saveNotification_shouldThrowException_whenUserNotFound() {
+  void saveNotification_shouldNotSaveOrThrow_whenUserNotFound() {
     // Arrange
     NotificationDto notification = testNotificationDto;
     notification.setRecipientId("nonexistent-user");
 
     when(userRepository.findById("nonexistent-user")).thenReturn(Optional.empty());
 
-    // Act & Assert
-    Exception exception = assertThrows(IllegalArgumentException.class, () -> {
-      notificationService.saveNotification(notification);
-    });
+    // Act
+    notificationService.saveNotification(notification);
 
-    assertEquals("User not found", exception.getMessage());
+    // Assert: the error is logged by the dispatcher instead of reaching the caller
+    verify(notificationRepository, never()).save(any(Notification.class));
   }
 
   @Test
@@ -273,8 +827,12 @@ class NotificationServiceTest {
     double radius = 5.0;
 
     List<User> usersInRadius = List.of(testUser);
-    when(userRepository.findUsersWithinRadius(latitude, longitude, radius * 1.4)).thenReturn(
-        usersInRadius);
+    // 7 km is about 0.063 degrees of latitude, and 0.126 degrees of longitude at 60 degrees north
+    when(userRepository.findUsersWithinRadius(eq(latitude), eq(longitude), eq(radius * 1.4),
+        doubleThat(min -> Math.abs(min - 59.937) < 0.001),
+        doubleThat(max -> Math.abs(max - 60.063) < 0.001),
+        doubleThat(min -> Math.abs(min - 9.874) < 0.001),
+        doubleThat(max -> Math.abs(max - 10.126) < 0.001))).thenReturn(usersInRadius);
 
     // Act
     List<User> result = notificationService.findUsersWithinIncidentRadius(latitude, longitude,
@@ -283,6 +841,35 @@ class NotificationServiceTest {
     // Assert
     assertEquals(1, result.size());
     assertEquals(testUser, result.get(0));
-    verify(userRepository).findUsersWithinRadius(latitude, longitude, radius * 1.4);
   }
-}
\ No newline at end of file
+
+  @Test
+  void findUsersWithinIncidentRadius_shouldSearchAllLongitudes_whenCrossingAntimeridian() {
+    // Arrange
+    when(userRepository.findUsersWithinRadius(eq(0.0), eq(179.99), anyDouble(), anyDouble(),
+        anyDouble(), eq(-180.0), eq(180.0))).thenReturn(List.of(testUser));
+
+    // Act
+    List<User> result = notificationService.findUsersWithinIncidentRadius(0.0, 179.99, 5.0);
+
+    // Assert
+    assertEquals(List.of(testUser), result);
+  }
+
+  @Test
+  void findUsersWithinIncidentRadius_shouldUseLocationRegistry_whenEnabled() {
+    // Arrange
+    when(locationRegistry.isEnabled()).thenReturn(true);
+    when(locationRegistry.findUserIdsWithinRadius(eq(60.0), eq(10.0),
+        doubleThat(radius -> Math.abs(radius - 7.0) < 1e-9))).thenReturn(List.of("user-123"));
+    when(userRepository.findAllById(List.of("user-123"))).thenReturn(List.of(testUser));
+
+    // Act
+    List<User> result = notificationService.findUsersWithinIncidentRadius(60.0, 10.0, 5.0);
+
+    // Assert
+    assertEquals(List.of(testUser), result);
+    verify(userRepository, never()).findUsersWithinRadius(anyDouble(), anyDouble(), anyDouble(),
+        anyDouble(), anyDouble(), anyDouble(), anyDouble());
+  }
+}
@@ -0,0 +1,93 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idatt2106.krisefikser.service.user.PositionWriteBuffer;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the PositionWriteBuffer class, run against an in-memory H2 database.
+ */
+class PositionWriteBufferTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private PositionWriteBuffer buffer;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:position_write_buffer;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE user (id VARCHAR(36) PRIMARY KEY, "
+        + "latitude DOUBLE, longitude DOUBLE)");
+    for (int i = 0; i < 3; i++) {
+      jdbcTemplate.update("INSERT INTO user (id) VALUES (?)", "user-" + i);
+    }
+    buffer = new PositionWriteBuffer(jdbcTemplate);
+    ReflectionTestUtils.setField(buffer, "batchSize", 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.execute("DROP TABLE user");
+  }
+
+  private Map<String, Object> row(String userId) {
+    return jdbcTemplate.queryForMap("SELECT latitude, longitude FROM user WHERE id = ?", userId);
+  }
+
+  @Test
+  void record_shouldNotWriteUntilFlushed() {
+    buffer.record("user-0", 63.43, 10.39);
+
+    assertEquals(null, row("user-0").get("LATITUDE"));
+    assertEquals(63.43, buffer.getPending("user-0").orElseThrow().latitude());
+  }
+
+  @Test
+  void flush_shouldWriteOnlyLatestPositionOfEachUser() {
+    buffer.record("user-0", 63.43, 10.39);
+    buffer.record("user-0", 63.44, 10.40);
+    buffer.record("user-1", 59.91, 10.75);
+    buffer.record("user-2", 60.39, 5.32);
+
+    int written = buffer.flush();
+
+    assertEquals(3, written);
+    assertEquals(63.44, row("user-0").get("LATITUDE"));
+    assertEquals(10.40, row("user-0").get("LONGITUDE"));
+    assertEquals(5.32, row("user-2").get("LONGITUDE"));
+    assertTrue(buffer.getPending("user-0").isEmpty());
+    assertEquals(0, buffer.flush());
+  }
+
+  @Test
+  void flush_shouldKeepPositions_whenWriteFails() {
+    buffer.record("user-0", 63.43, 10.39);
+    jdbcTemplate.execute("ALTER TABLE user RENAME TO user_moved");
+    try {
+      assertEquals(0, buffer.flush());
+    } finally {
+      jdbcTemplate.execute("ALTER TABLE user_moved RENAME TO user");
+    }
+
+    assertEquals(1, buffer.flush());
+    assertEquals(63.43, row("user-0").get("LATITUDE"));
+  }
+
+  @Test
+  void record_shouldWriteRightAway_whenDisabled() {
+    ReflectionTestUtils.setField(buffer, "enabled", false);
+
+    buffer.record("user-1", 59.91, 10.75);
+
+    assertEquals(59.91, row("user-1").get("LATITUDE"));
+  }
+}
@@ -0,0 +1,197 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ntnu.idatt2106.krisefikser.api.dto.notification.UnreadCountDto;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.household.Household;
+import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.HouseholdNotificationReceiptRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.HouseholdNotificationRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.notification.NotificationRepository;
+import edu.ntnu.idatt2106.krisefikser.service.notification.UnreadNotificationCounter;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+/**
+ * Unit tests for the UnreadNotificationCounter class.
+ */
+class UnreadNotificationCounterTest {
+
+  private NotificationRepository notificationRepository;
+  private HouseholdNotificationRepository householdNotificationRepository;
+  private HouseholdNotificationReceiptRepository receiptRepository;
+  private SimpMessagingTemplate messagingTemplate;
+  private UnreadNotificationCounter counter;
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    notificationRepository = mock(NotificationRepository.class);
+    householdNotificationRepository = mock(HouseholdNotificationRepository.class);
+    receiptRepository = mock(HouseholdNotificationReceiptRepository.class);
+    messagingTemplate = mock(SimpMessagingTemplate.class);
+    counter = new UnreadNotificationCounter(notificationRepository,
+        householdNotificationRepository, receiptRepository, messagingTemplate);
+
+    Household household = new Household();
+    household.setId("household-1");
+    user = new User();
+    user.setId("user-1");
+    user.setHousehold(household);
+
+    when(notificationRepository.countByUserIdAndIsReadFalse("user-1")).thenReturn(3L);
+    when(householdNotificationRepository.countByHouseholdId("household-1")).thenReturn(5L);
+    when(receiptRepository.countByUserIdAndNotificationHouseholdId("user-1", "household-1"))
+        .thenReturn(4L);
+  }
+
+  private long lastSentCount() {
+    ArgumentCaptor<UnreadCountDto> captor = ArgumentCaptor.forClass(UnreadCountDto.class);
+    verify(messagingTemplate, atLeastOnce())
+        .convertAndSendToUser(eq("user-1"), eq("/queue/notifications"), captor.capture());
+    return captor.getValue().getUnreadCount();
+  }
+
+  /**
+   * Test cases for the getUnreadCount method.
+   */
+  @Nested
+  class GetUnreadCountTests {
+
+    @Test
+    void getUnreadCount_shouldCountPersonalAndUnreadHouseholdNotificationsOnce() {
+      assertEquals(4, counter.getUnreadCount(user));
+      assertEquals(4, counter.getUnreadCount(user));
+
+      verify(notificationRepository, times(1)).countByUserIdAndIsReadFalse("user-1");
+    }
+
+    @Test
+    void getUnreadCount_shouldCountAgain_whenUserMovedToAnotherHousehold() {
+      counter.getUnreadCount(user);
+      Household other = new Household();
+      other.setId("household-2");
+      user.setHousehold(other);
+      when(householdNotificationRepository.countByHouseholdId("household-2")).thenReturn(0L);
+
+      assertEquals(3, counter.getUnreadCount(user));
+    }
+
+    @Test
+    void getUnreadCount_shouldCountAgain_whenInvalidated() {
+      counter.getUnreadCount(user);
+
+      counter.invalidate("user-1");
+      counter.getUnreadCount(user);
+
+      verify(notificationRepository, times(2)).countByUserIdAndIsReadFalse("user-1");
+    }
+
+    @Test
+    void getUnreadCount_shouldNotKeepCount_whenChangedWhileCounting() {
+      long mark = counter.startChange();
+      when(notificationRepository.countByUserIdAndIsReadFalse("user-1")).thenAnswer(invocation -> {
+        // Committed while the count runs, so it may or may not be included
+        counter.increment("user-1", mark);
+        return 3L;
+      }).thenReturn(3L);
+
+      counter.getUnreadCount(user);
+      counter.getUnreadCount(user);
+      counter.getUnreadCount(user);
+
+      verify(notificationRepository, times(2)).countByUserIdAndIsReadFalse("user-1");
+    }
+  }
+
+  /**
+   * Test cases for the increment and decrement methods.
+   */
+  @Nested
+  class ChangeTests {
+
+    @Test
+    void increment_shouldUpdateAndSendLoadedCount() {
+      counter.getUnreadCount(user);
+
+      counter.increment(List.of("user-1"), counter.startChange());
+
+      assertEquals(5, lastSentCount());
+      assertEquals(5, counter.getUnreadCount(user));
+    }
+
+    @Test
+    void increment_shouldSkipUsersWhoseCountIsNotLoaded() {
+      counter.increment("user-1", counter.startChange());
+
+      verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(),
+          any(Object.class));
+      assertEquals(4, counter.getUnreadCount(user));
+    }
+
+    @Test
+    void increment_shouldForgetCount_whenCountedAfterMark() {
+      long mark = counter.startChange();
+      // Counted after the notification was saved, so it is already included
+      counter.getUnreadCount(user);
+
+      counter.increment("user-1", mark);
+
+      verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(),
+          any(Object.class));
+      assertEquals(4, counter.getUnreadCount(user));
+      verify(notificationRepository, times(2)).countByUserIdAndIsReadFalse("user-1");
+    }
+
+    @Test
+    void decrement_shouldNotGoBelowZero() {
+      when(notificationRepository.countByUserIdAndIsReadFalse("user-1")).thenReturn(0L);
+      when(receiptRepository.countByUserIdAndNotificationHouseholdId("user-1", "household-1"))
+          .thenReturn(5L);
+      counter.getUnreadCount(user);
+
+      counter.decrement("user-1", counter.startChange());
+
+      assertEquals(0, lastSentCount());
+    }
+
+    @Test
+    void decrement_shouldRemoveSeveralNotificationsAtOnce() {
+      counter.getUnreadCount(user);
+
+      counter.decrement("user-1", 3, counter.startChange());
+
+      assertEquals(1, lastSentCount());
+    }
+
+    @Test
+    void refresh_shouldCountAgainAndSend_whenCountIsLoaded() {
+      counter.getUnreadCount(user);
+      when(notificationRepository.countByUserIdAndIsReadFalse("user-1")).thenReturn(1L);
+
+      counter.refresh(user);
+
+      assertEquals(2, lastSentCount());
+    }
+
+    @Test
+    void refresh_shouldDoNothing_whenCountIsNotLoaded() {
+      counter.refresh(user);
+
+      verify(notificationRepository, never()).countByUserIdAndIsReadFalse(anyString());
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package edu.ntnu.idatt2106.krisefikser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository.UserCoordinates;
+import edu.ntnu.idatt2106.krisefikser.service.user.Geohash;
+import edu.ntnu.idatt2106.krisefikser.service.user.UserLocationRegistry;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the UserLocationRegistry and Geohash classes.
+ */
+class UserLocationRegistryTest {
+
+  private UserRepository userRepository;
+  private UserLocationRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    userRepository = mock(UserRepository.class);
+    when(userRepository.findAllCoordinates()).thenReturn(List.of());
+    registry = new UserLocationRegistry(userRepository);
+  }
+
+  private static UserCoordinates coordinates(String id, Double latitude, Double longitude) {
+    return new UserCoordinates() {
+      @Override
+      public String getId() {
+        return id;
+      }
+
+      @Override
+      public Double getLatitude() {
+        return latitude;
+      }
+
+      @Override
+      public Double getLongitude() {
+        return longitude;
+      }
+    };
+  }
+
+  /**
+   * Test cases for the Geohash class.
+   */
+  @Nested
+  class GeohashTests {
+
+    @Test
+    void encode_shouldMatchKnownGeohash() {
+      assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+      assertEquals("u4pru", Geohash.encode(57.64911, 10.40744, 5));
+    }
+
+    @Test
+    void encode_shouldKeepPointsOnTheEdgesInsideTheGrid() {
+      assertEquals("zzzzzz", Geohash.encode(90, 179.999999, 6));
+      assertEquals(Geohash.encode(0, -180, 6), Geohash.encode(0, 180, 6));
+    }
+
+    @Test
+    void coveringCells_shouldContainCellsOfPointsInCircle() {
+      List<String> cells = Geohash.coveringCells(63.43, 10.39, 5, 6);
+
+      assertTrue(cells.contains(Geohash.encode(63.43, 10.39, 6)));
+      assertTrue(cells.contains(Geohash.encode(63.47, 10.39, 6)));
+      assertTrue(cells.contains(Geohash.encode(63.43, 10.48, 6)));
+      assertEquals(cells.size(), new HashSet<>(cells).size());
+      assertEquals(cells.size(), Geohash.countCoveringCells(63.43, 10.39, 5, 6));
+    }
+
+    @Test
+    void coveringCells_shouldWrapAroundAntimeridian() {
+      List<String> cells = Geohash.coveringCells(0, 179.99, 5, 5);
+
+      assertTrue(cells.contains(Geohash.encode(0, 179.99, 5)));
+      assertTrue(cells.contains(Geohash.encode(0, -179.99, 5)));
+    }
+  }
+
+  /**
+   * Test cases for the findUserIdsWithinRadius method.
+   */
+  @Nested
+  class FindUserIdsWithinRadiusTests {
+
+    @Test
+    void findUserIdsWithinRadius_shouldReturnOnlyUsersInCircle() {
+      registry.update("center", 63.43, 10.39);
+      registry.update("near", 63.46, 10.40);
+      registry.update("corner", 63.47, 10.47);
+      registry.update("far", 59.91, 10.75);
+
+      List<String> result = registry.findUserIdsWithinRadius(63.43, 10.39, 5);
+
+      assertEquals(Set.of("center", "near"), new HashSet<>(result));
+    }
+
+    @Test
+    void findUserIdsWithinRadius_shouldUseCoarserCells_whenCircleIsLarge() {
+      ReflectionTestUtils.setField(registry, "maxCellsPerQuery", 4);
+      registry.update("trondheim", 63.43, 10.39);
+      registry.update("oslo", 59.91, 10.75);
+
+      List<String> result = registry.findUserIdsWithinRadius(63.43, 10.39, 450);
+
+      assertEquals(Set.of("trondheim", "oslo"), new HashSet<>(result));
+    }
+
+    @Test
+    void findUserIdsWithinRadius_shouldFindUsersAcrossAntimeridian() {
+      registry.update("east", 0, 179.99);
+      registry.update("west", 0, -179.99);
+
+      List<String> result = registry.findUserIdsWithinRadius(0, 179.99, 5);
+
+      assertEquals(Set.of("east", "west"), new HashSet<>(result));
+    }
+
+    @Test
+    void findUserIdsWithinRadius_shouldLoadPositionsOnce() {
+      when(userRepository.findAllCoordinates()).thenReturn(List.of(
+          coordinates("stored", 63.43, 10.39), coordinates("unknown", null, null)));
+
+      registry.findUserIdsWithinRadius(63.43, 10.39, 5);
+      List<String> result = registry.findUserIdsWithinRadius(63.43, 10.39, 5);
+
+      assertEquals(List.of("stored"), result);
+      verify(userRepository, times(1)).findAllCoordinates();
+    }
+  }
+
+  /**
+   * Test cases for the update and remove methods.
+   */
+  @Nested
+  class UpdateTests {
+
+    @Test
+    void update_shouldMoveUserToNewCell() {
+      registry.update("user", 63.43, 10.39);
+      registry.update("user", 59.91, 10.75);
+
+      assertTrue(registry.findUserIdsWithinRadius(63.43, 10.39, 5).isEmpty());
+      assertEquals(List.of("user"), registry.findUserIdsWithinRadius(59.91, 10.75, 5));
+      assertEquals(1, registry.size());
+    }
+
+    @Test
+    void remove_shouldForgetUser() {
+      registry.update("user", 63.43, 10.39);
+
+      registry.remove("user");
+
+      assertTrue(registry.findUserIdsWithinRadius(63.43, 10.39, 5).isEmpty());
+      assertEquals(0, registry.size());
+    }
+
+    @Test
+    void update_shouldDoNothing_whenDisabled() {
+      ReflectionTestUtils.setField(registry, "enabled", false);
+
+      registry.update("user", 63.43, 10.39);
+
+      assertEquals(0, registry.size());
+      verify(userRepository, never()).findAllCoordinates();
+    }
+  }
+}
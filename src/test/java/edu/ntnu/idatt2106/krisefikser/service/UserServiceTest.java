@@ -5,12 +5,14 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.auth0.jwt.exceptions.JWTDecodeException;
 import edu.ntnu.idatt2106.krisefikser.api.dto.position.PositionDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.household.HouseholdResponseDto;
 import edu.ntnu.idatt2106.krisefikser.api.dto.user.UserResponseDto;
@@ -18,8 +20,15 @@ import edu.ntnu.idatt2106.krisefikser.persistance.entity.household.Household;
 import edu.ntnu.idatt2106.krisefikser.persistance.entity.user.User;
 import edu.ntnu.idatt2106.krisefikser.persistance.enums.Role;
 import edu.ntnu.idatt2106.krisefikser.persistance.repository.user.UserRepository;
+import edu.ntnu.idatt2106.krisefikser.security.JwtTokenProvider;
+import edu.ntnu.idatt2106.krisefikser.service.household.HouseholdPositionCache;
+import edu.ntnu.idatt2106.krisefikser.service.notification.CompactPositionStream;
 import edu.ntnu.idatt2106.krisefikser.service.notification.NotificationService;
+import edu.ntnu.idatt2106.krisefikser.service.user.PositionWriteBuffer;
+import edu.ntnu.idatt2106.krisefikser.service.user.UserLocationRegistry;
 import edu.ntnu.idatt2106.krisefikser.service.user.UserService;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry;
+import edu.ntnu.idatt2106.krisefikser.service.user.WebSocketUserRegistry.SessionUser;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
@@ -46,6 +55,21 @@ class UserServiceTest {
   @Mock
   private NotificationService notificationService;
 
+  @Mock
+  private UserLocationRegistry locationRegistry;
+
+  @Mock
+  private PositionWriteBuffer positionBuffer;
+
+  @Mock
+  private JwtTokenProvider tokenProvider;
+
+  @Mock
+  private HouseholdPositionCache householdPositions;
+
+  @Mock
+  private CompactPositionStream compactPositions;
+
   @InjectMocks
   private UserService userService;
 
@@ -138,6 +162,8 @@ class UserServiceTest {
     payload.put("sub", "user-123");
     String encodedPayload = Base64.getEncoder().encodeToString(payload.toString().getBytes());
     String token = "header." + encodedPayload + ".signature";
+    // The signature is verified by the token provider
+    when(tokenProvider.getUsernameFromToken(token)).thenReturn("user-123");
 
     // Use reflection to access private method
     java.lang.reflect.Method method = UserService.class.getDeclaredMethod("extractUserFromToken",
@@ -284,22 +310,47 @@ class UserServiceTest {
     String token = "header." + encodedPayload + ".signature";
     positionDto.setToken(token);
 
-    when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(testUser));
+    when(tokenProvider.getUsernameFromToken(token)).thenReturn("user@example.com");
+    when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(testUser));
 
     // Act
     userService.updatePosition(positionDto);
 
     // Assert
-    assertEquals("63.4305", testUser.getLatitude());
-    assertEquals("10.3951", testUser.getLongitude());
-    verify(userRepository).save(testUser);
+    verify(positionBuffer).record("user-123", 63.4305, 10.3951);
+    verify(userRepository, never()).save(any());
+    verify(locationRegistry).update("user-123", 63.4305, 10.3951);
     verify(notificationService).sendHouseholdPositionUpdate(
         eq("user-123"),
+        eq("Test User"),
         eq("household-123"),
         eq(positionDto)
     );
   }
 
+  @Test
+  void updatePositionInvalidCoordinates() {
+    // Arrange
+    PositionDto positionDto = new PositionDto();
+    positionDto.setLatitude("91.0");
+    positionDto.setLongitude("ten");
+
+    JSONObject payload = new JSONObject();
+    payload.put("sub", "user-123");
+    String encodedPayload = Base64.getUrlEncoder().encodeToString(payload.toString().getBytes());
+    positionDto.setToken("header." + encodedPayload + ".signature");
+
+    when(tokenProvider.getUsernameFromToken(anyString())).thenReturn("user@example.com");
+    when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(testUser));
+
+    // Act & Assert
+    assertThrows(IllegalArgumentException.class, () -> userService.updatePosition(positionDto));
+    verify(userRepository, never()).save(any());
+    verify(positionBuffer, never()).record(anyString(), anyDouble(), anyDouble());
+    verify(notificationService, never()).sendHouseholdPositionUpdate(anyString(), anyString(),
+        anyString(), any());
+  }
+
   @Test
   void updatePositionInvalidToken() {
     // Arrange
@@ -307,6 +358,8 @@ class UserServiceTest {
     positionDto.setLatitude("63.4305");
     positionDto.setLongitude("10.3951");
     positionDto.setToken("invalid-token");
+    when(tokenProvider.getUsernameFromToken("invalid-token"))
+        .thenThrow(new JWTDecodeException("The token was expected to have 3 parts"));
 
     // Act & Assert
     Exception exception = assertThrows(
@@ -324,8 +377,9 @@ class UserServiceTest {
 
     verify(userRepository, never()).findByEmail(anyString());
     verify(userRepository, never()).save(any());
+    verify(positionBuffer, never()).record(anyString(), anyDouble(), anyDouble());
     verify(notificationService, never()).sendHouseholdPositionUpdate(anyString(), anyString(),
-        any());
+        anyString(), any());
   }
 
   @Test
@@ -342,6 +396,7 @@ class UserServiceTest {
     String token = "header." + encodedPayload + ".signature";
     positionDto.setToken(token);
 
+    when(tokenProvider.getUsernameFromToken(token)).thenReturn("user@example.com");
     when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
 
     // Act & Assert
@@ -352,7 +407,44 @@ class UserServiceTest {
     assertEquals("No user found", exception.getMessage());
     verify(userRepository).findByEmail(anyString());
     verify(userRepository, never()).save(any());
+    verify(positionBuffer, never()).record(anyString(), anyDouble(), anyDouble());
+    verify(notificationService, never()).sendHouseholdPositionUpdate(anyString(), anyString(),
+        anyString(), any());
+  }
+
+  @Test
+  void updatePositionForSessionUser() {
+    // Arrange
+    testUser.setHousehold(testHousehold);
+    SessionUser sessionUser = new WebSocketUserRegistry(userRepository).register(testUser);
+    PositionDto positionDto = new PositionDto(null, "10.3951", "63.4305");
+
+    // Act
+    userService.updatePosition(sessionUser, positionDto);
+
+    // Assert
+    verify(positionBuffer).record("user-123", 63.4305, 10.3951);
+    verify(householdPositions).update("household-123", "user-123", "Test User", 63.4305,
+        10.3951);
+    verify(notificationService).sendHouseholdPositionUpdate("user-123", "Test User",
+        "household-123", positionDto);
+    verify(compactPositions).publish("household-123", "user-123", 63.4305, 10.3951);
+    verify(tokenProvider, never()).getUsernameFromToken(anyString());
+    verify(userRepository, never()).findByEmail(anyString());
+  }
+
+  @Test
+  void updatePositionForSessionUserWithoutHousehold() {
+    // Arrange
+    testUser.setHousehold(null);
+    SessionUser sessionUser = new WebSocketUserRegistry(userRepository).register(testUser);
+
+    // Act
+    userService.updatePosition(sessionUser, new PositionDto(null, "10.3951", "63.4305"));
+
+    // Assert
+    verify(positionBuffer).record("user-123", 63.4305, 10.3951);
     verify(notificationService, never()).sendHouseholdPositionUpdate(anyString(), anyString(),
-        any());
+        anyString(), any());
   }
-}
\ No newline at end of file
+}